@@ -70,6 +70,7 @@ public final class EnvironmentTrailing extends AbstractEnvironment {
 
     private StoredIntVectorTrail intVectorTrail;
     private StoredDoubleVectorTrail doubleVectorTrail;
+    private StoredBitSetTrail bitSetTrail;
 
     /**
      * Contains all the {@link memory.IStorage} trails for
@@ -208,6 +209,19 @@ public final class EnvironmentTrailing extends AbstractEnvironment {
     }
 
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Bitsets of more than one word are backed by a single array of words, trailed word per word.
+     */
+    @Override
+    public IStateBitSet makeBitSet(int size) {
+        if (size < 64) {
+            return super.makeBitSet(size);
+        }
+        return new StoredBitSet(this, size);
+    }
+
     private void increaseTrail() {// TODO check resizing
         IStorage[] tmp = trails;
         trails = new ITrailStorage[tmp.length + 1];
@@ -309,6 +323,15 @@ public final class EnvironmentTrailing extends AbstractEnvironment {
         return operationTrail;
     }
 
+    public StoredBitSetTrail getBitSetTrail() {
+        if (bitSetTrail == null) {
+            bitSetTrail = new StoredBitSetTrail(this, MaxHist, maxWorld);
+            increaseTrail();
+            trails[trailSize++] = bitSetTrail;
+        }
+        return bitSetTrail;
+    }
+
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     // SPECIFIC DATA STRUCTURES                                                                                       //
     // NOTE: this data structures should not be used...
@@ -0,0 +1,525 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package memory.trailing;
+
+import memory.IStateBitSet;
+import memory.trailing.trail.StoredBitSetTrail;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A backtrackable bitset whose words are stored in one <code>long[]</code>, with one world stamp per word.
+ * <br/>
+ * A word is trailed, in a {@link StoredBitSetTrail}, the first time it is modified in a world,
+ * so no object is allocated per word, and bulk operations touch the words directly.
+ * <br/>
+ * Unlike {@link memory.structure.S64BitSet}, the logical size is not maintained:
+ * the searches scan up to the capacity, which is set on creation and only grows when a bit beyond it is set.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class StoredBitSet implements IStateBitSet {
+
+    private final static int ADDRESS_BITS_PER_WORD = 6;
+    private final static int BITS_PER_WORD = 1 << ADDRESS_BITS_PER_WORD;
+
+    /* Used to shift left or right for a partial word mask */
+    private static final long WORD_MASK = 0xffffffffffffffffL;
+
+    private final EnvironmentTrailing environment;
+
+    private final StoredBitSetTrail myTrail;
+
+    private long[] words;
+
+    /**
+     * The world index of the last update of each word.
+     */
+    private int[] worldStamps;
+
+    /**
+     * Creates a bit set large enough to explicitly represent bits with indices in the range
+     * <code>0</code> through <code>nbits-1</code>. All bits are initially <code>false</code>.
+     *
+     * @param env   backtrackable environment
+     * @param nbits the initial size of the bit set.
+     */
+    public StoredBitSet(EnvironmentTrailing env, int nbits) {
+        if (nbits < 0)
+            throw new NegativeArraySizeException("nbits < 0: " + nbits);
+        this.environment = env;
+        this.myTrail = env.getBitSetTrail();
+        int nwords = Math.max(1, wordIndex(nbits - 1) + 1);
+        this.words = new long[nwords];
+        this.worldStamps = new int[nwords];
+        Arrays.fill(worldStamps, env.getWorldIndex());
+    }
+
+    private static int wordIndex(int bitIndex) {
+        return bitIndex >> ADDRESS_BITS_PER_WORD;
+    }
+
+    /**
+     * Sets the <code>i</code>th word to <code>value</code>, trailing its previous value if needed.
+     */
+    private void setWord(int i, long value) {
+        long old = words[i];
+        if (old != value) {
+            final int wi = environment.getWorldIndex();
+            if (worldStamps[i] < wi) {
+                myTrail.savePreviousState(this, i, old, worldStamps[i]);
+                worldStamps[i] = wi;
+            }
+            words[i] = value;
+        }
+    }
+
+    /**
+     * Restores the <code>index</code>th word, on backtrack.
+     */
+    public void _set(int index, long value, int stamp) {
+        words[index] = value;
+        worldStamps[index] = stamp;
+    }
+
+    public void overrideTimeStamp(int index, int stamp) {
+        worldStamps[index] = stamp;
+    }
+
+    private void ensureCapacity(int wordsRequired) {
+        if (words.length < wordsRequired) {
+            int request = Math.max(2 * words.length, wordsRequired);
+            int oldSize = words.length;
+            words = Arrays.copyOf(words, request);
+            worldStamps = Arrays.copyOf(worldStamps, request);
+            // the new words were implicitly zero in every world
+            Arrays.fill(worldStamps, oldSize, request, 0);
+        }
+    }
+
+    private static void checkRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        if (toIndex < 0)
+            throw new IndexOutOfBoundsException("toIndex < 0: " + toIndex);
+        if (fromIndex > toIndex)
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + " > toIndex: " + toIndex);
+    }
+
+    @Override
+    public int cardinality() {
+        int sum = 0;
+        for (int i = words.length - 1; i >= 0; i--)
+            sum += Long.bitCount(words[i]);
+        return sum;
+    }
+
+    @Override
+    public int size() {
+        return words.length * BITS_PER_WORD;
+    }
+
+    @Override
+    public int capacity() {
+        return words.length * BITS_PER_WORD;
+    }
+
+    @Override
+    public void set(int bitIndex) {
+        if (bitIndex < 0)
+            throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+        int wordIndex = wordIndex(bitIndex);
+        ensureCapacity(wordIndex + 1);
+        setWord(wordIndex, words[wordIndex] | (1L << bitIndex));
+    }
+
+    @Override
+    public void clear(int bitIndex) {
+        if (bitIndex < 0)
+            throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+        int wordIndex = wordIndex(bitIndex);
+        if (wordIndex < words.length) {
+            setWord(wordIndex, words[wordIndex] & ~(1L << bitIndex));
+        }
+    }
+
+    @Override
+    public void set(int index, boolean value) {
+        if (value)
+            set(index);
+        else
+            clear(index);
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < words.length; i++) {
+            setWord(i, 0);
+        }
+    }
+
+    @Override
+    public void set(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        if (fromIndex == toIndex)
+            return;
+        int startWordIndex = wordIndex(fromIndex);
+        int endWordIndex = wordIndex(toIndex - 1);
+        ensureCapacity(endWordIndex + 1);
+
+        long firstWordMask = WORD_MASK << fromIndex;
+        long lastWordMask = WORD_MASK >>> -toIndex;
+        if (startWordIndex == endWordIndex) {
+            setWord(startWordIndex, words[startWordIndex] | (firstWordMask & lastWordMask));
+        } else {
+            setWord(startWordIndex, words[startWordIndex] | firstWordMask);
+            for (int i = startWordIndex + 1; i < endWordIndex; i++)
+                setWord(i, WORD_MASK);
+            setWord(endWordIndex, words[endWordIndex] | lastWordMask);
+        }
+    }
+
+    @Override
+    public void clear(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        if (fromIndex == toIndex)
+            return;
+        int startWordIndex = wordIndex(fromIndex);
+        if (startWordIndex >= words.length)
+            return;
+        int endWordIndex = wordIndex(toIndex - 1);
+        long lastWordMask = WORD_MASK >>> -toIndex;
+        if (endWordIndex >= words.length) {
+            endWordIndex = words.length - 1;
+            lastWordMask = WORD_MASK;
+        }
+
+        long firstWordMask = WORD_MASK << fromIndex;
+        if (startWordIndex == endWordIndex) {
+            setWord(startWordIndex, words[startWordIndex] & ~(firstWordMask & lastWordMask));
+        } else {
+            setWord(startWordIndex, words[startWordIndex] & ~firstWordMask);
+            for (int i = startWordIndex + 1; i < endWordIndex; i++)
+                setWord(i, 0);
+            setWord(endWordIndex, words[endWordIndex] & ~lastWordMask);
+        }
+    }
+
+    @Override
+    public void flip(int bitIndex) {
+        if (bitIndex < 0)
+            throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+        int wordIndex = wordIndex(bitIndex);
+        ensureCapacity(wordIndex + 1);
+        setWord(wordIndex, words[wordIndex] ^ (1L << bitIndex));
+    }
+
+    @Override
+    public void flip(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        if (fromIndex == toIndex)
+            return;
+        int startWordIndex = wordIndex(fromIndex);
+        int endWordIndex = wordIndex(toIndex - 1);
+        ensureCapacity(endWordIndex + 1);
+
+        long firstWordMask = WORD_MASK << fromIndex;
+        long lastWordMask = WORD_MASK >>> -toIndex;
+        if (startWordIndex == endWordIndex) {
+            setWord(startWordIndex, words[startWordIndex] ^ (firstWordMask & lastWordMask));
+        } else {
+            setWord(startWordIndex, words[startWordIndex] ^ firstWordMask);
+            for (int i = startWordIndex + 1; i < endWordIndex; i++)
+                setWord(i, ~words[i]);
+            setWord(endWordIndex, words[endWordIndex] ^ lastWordMask);
+        }
+    }
+
+    @Override
+    public boolean get(int bitIndex) {
+        if (bitIndex < 0)
+            throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+        int wordIndex = wordIndex(bitIndex);
+        return (wordIndex < words.length) && ((words[wordIndex] & (1L << bitIndex)) != 0);
+    }
+
+    @Override
+    public int nextSetBit(int fromIndex) {
+        if (fromIndex < 0) {
+            fromIndex = 0;
+        }
+        int u = wordIndex(fromIndex);
+        if (u >= words.length)
+            return -1;
+        long word = words[u] & (WORD_MASK << fromIndex);
+        while (true) {
+            if (word != 0)
+                return (u * BITS_PER_WORD) + Long.numberOfTrailingZeros(word);
+            if (++u == words.length)
+                return -1;
+            word = words[u];
+        }
+    }
+
+    @Override
+    public int nextClearBit(int fromIndex) {
+        if (fromIndex < 0) {
+            fromIndex = 0;
+        }
+        int u = wordIndex(fromIndex);
+        if (u >= words.length)
+            return fromIndex;
+        long word = ~words[u] & (WORD_MASK << fromIndex);
+        while (true) {
+            if (word != 0)
+                return (u * BITS_PER_WORD) + Long.numberOfTrailingZeros(word);
+            if (++u == words.length)
+                return words.length * BITS_PER_WORD;
+            word = ~words[u];
+        }
+    }
+
+    @Override
+    public int prevSetBit(int fromIndex) {
+        if (fromIndex < 0) {
+            return -1;
+        }
+        int u = wordIndex(fromIndex);
+        long word;
+        if (u >= words.length) {
+            u = words.length - 1;
+            word = words[u];
+        } else {
+            word = words[u] & (WORD_MASK >>> -(fromIndex + 1));
+        }
+        while (true) {
+            if (word != 0)
+                return (u + 1) * BITS_PER_WORD - 1 - Long.numberOfLeadingZeros(word);
+            if (u-- == 0)
+                return -1;
+            word = words[u];
+        }
+    }
+
+    @Override
+    public int prevClearBit(int fromIndex) {
+        if (fromIndex < 0) {
+            return -1;
+        }
+        int u = wordIndex(fromIndex);
+        if (u >= words.length)
+            return fromIndex;
+        long word = ~words[u] & (WORD_MASK >>> -(fromIndex + 1));
+        while (true) {
+            if (word != 0)
+                return (u + 1) * BITS_PER_WORD - 1 - Long.numberOfLeadingZeros(word);
+            if (u-- == 0)
+                return -1;
+            word = ~words[u];
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (int i = words.length - 1; i >= 0; i--) {
+            if (words[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the <code>i</code>th word of <code>other</code>.
+     */
+    private static long wordOf(IStateBitSet other, int i) {
+        if (other instanceof StoredBitSet) {
+            long[] owords = ((StoredBitSet) other).words;
+            return i < owords.length ? owords[i] : 0L;
+        }
+        long word = 0L;
+        int from = i * BITS_PER_WORD;
+        for (int b = other.nextSetBit(from); b >= 0 && b < from + BITS_PER_WORD; b = other.nextSetBit(b + 1)) {
+            word |= 1L << b;
+        }
+        return word;
+    }
+
+    private static int nbWords(IStateBitSet other) {
+        if (other instanceof StoredBitSet) {
+            return ((StoredBitSet) other).words.length;
+        }
+        return wordIndex(Math.max(other.prevSetBit(Integer.MAX_VALUE), 0)) + 1;
+    }
+
+    @Override
+    public void and(IStateBitSet other) {
+        if (this == other)
+            return;
+        for (int i = 0; i < words.length; i++) {
+            setWord(i, words[i] & wordOf(other, i));
+        }
+    }
+
+    @Override
+    public void or(IStateBitSet other) {
+        if (this == other)
+            return;
+        int n = nbWords(other);
+        ensureCapacity(n);
+        for (int i = 0; i < n; i++) {
+            setWord(i, words[i] | wordOf(other, i));
+        }
+    }
+
+    @Override
+    public void xor(IStateBitSet other) {
+        int n = nbWords(other);
+        ensureCapacity(n);
+        for (int i = 0; i < n; i++) {
+            setWord(i, words[i] ^ wordOf(other, i));
+        }
+    }
+
+    @Override
+    public void andNot(IStateBitSet other) {
+        int n = Math.min(words.length, nbWords(other));
+        for (int i = 0; i < n; i++) {
+            setWord(i, words[i] & ~wordOf(other, i));
+        }
+    }
+
+    @Override
+    public boolean intersects(IStateBitSet other) {
+        int n = Math.min(words.length, nbWords(other));
+        for (int i = 0; i < n; i++) {
+            if ((words[i] & wordOf(other, i)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Performs a logical AND of the words <code>fromWord</code> (inclusive) to <code>toWord</code> (exclusive)
+     * of this bitset with the same words of <code>mask</code>.
+     *
+     * @param mask     the words to intersect with, indexed like the words of this bitset
+     * @param fromWord index of the first word
+     * @param toWord   index after the last word
+     */
+    public void and(long[] mask, int fromWord, int toWord) {
+        toWord = Math.min(toWord, words.length);
+        for (int i = fromWord; i < toWord; i++) {
+            setWord(i, words[i] & mask[i]);
+        }
+    }
+
+    /**
+     * Performs a logical OR of the words <code>fromWord</code> (inclusive) to <code>toWord</code> (exclusive)
+     * of this bitset with the same words of <code>mask</code>.
+     *
+     * @param mask     the words to unite with, indexed like the words of this bitset
+     * @param fromWord index of the first word
+     * @param toWord   index after the last word
+     */
+    public void or(long[] mask, int fromWord, int toWord) {
+        ensureCapacity(toWord);
+        for (int i = fromWord; i < toWord; i++) {
+            setWord(i, words[i] | mask[i]);
+        }
+    }
+
+    /**
+     * Clears the bits of the words <code>fromWord</code> (inclusive) to <code>toWord</code> (exclusive)
+     * of this bitset which are set in the same words of <code>mask</code>.
+     *
+     * @param mask     the words to remove, indexed like the words of this bitset
+     * @param fromWord index of the first word
+     * @param toWord   index after the last word
+     */
+    public void andNot(long[] mask, int fromWord, int toWord) {
+        toWord = Math.min(toWord, words.length);
+        for (int i = fromWord; i < toWord; i++) {
+            setWord(i, words[i] & ~mask[i]);
+        }
+    }
+
+    @Override
+    public IStateBitSet copy() {
+        StoredBitSet result = new StoredBitSet(environment, size());
+        System.arraycopy(words, 0, result.words, 0, words.length);
+        return result;
+    }
+
+    @Override
+    public BitSet copyToBitSet() {
+        BitSet view = new BitSet(this.size());
+        for (int i = this.nextSetBit(0); i >= 0; i = this.nextSetBit(i + 1)) view.set(i, true);
+        return view;
+    }
+
+    @Override
+    public int hashCode() {
+        long h = 1234;
+        for (int i = words.length; --i >= 0; )
+            h ^= words[i] * (i + 1);
+        return (int) ((h >> 32) ^ h);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof StoredBitSet))
+            return false;
+        if (this == obj)
+            return true;
+        StoredBitSet set = (StoredBitSet) obj;
+        int n = Math.max(words.length, set.words.length);
+        for (int i = 0; i < n; i++) {
+            if (wordOf(this, i) != wordOf(set, i))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder();
+        b.append('{');
+        int i = nextSetBit(0);
+        if (i != -1) {
+            b.append(i);
+            for (i = nextSetBit(i + 1); i >= 0; i = nextSetBit(i + 1)) {
+                b.append(", ").append(i);
+            }
+        }
+        b.append('}');
+        return b.toString();
+    }
+}
@@ -36,6 +36,7 @@ import solver.constraints.Constraint;
 import solver.constraints.IntConstraintFactory;
 import solver.constraints.extension.ExtensionalBinRelation;
 import solver.constraints.extension.binary.CouplesTable;
+import solver.constraints.extension.binary.PropBinAC3bitrm;
 import solver.constraints.extension.nary.IterTuplesTable;
 import solver.constraints.extension.nary.LargeRelation;
 import solver.exception.SolverException;
@@ -88,7 +89,8 @@ public class TableBuilder implements IBuilder {
                             new int[]{couple[0], min[0], max[0], couple[1], min[1], max[1]});
                 }
             }
-            return new Constraint[]{IntConstraintFactory.table(x[0], x[1], relation, "AC2001")};
+            String algo = (long) n1 * n2 <= PropBinAC3bitrm.MAX_DOMAIN_PRODUCT ? "AC3bitrm" : "AC2001";
+            return new Constraint[]{IntConstraintFactory.table(x[0], x[1], relation, algo)};
         } else {
             int[] o = new int[x.length];
             int[] d = new int[x.length];
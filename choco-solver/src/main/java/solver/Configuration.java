@@ -117,6 +117,19 @@ public enum Configuration {
     // force : extra call to Propagator.propagate(FULL_PROPAGATION) when no more event is available
     public static final Idem IDEMPOTENCY = Idem.valueOf(properties.getProperty("IDEMPOTENCY"));
 
+    public enum Cliques {
+        disabled, // does not anything
+        BC, // replace cliques of disequalities by bound consistent alldifferent constraints
+        AC // replace cliques of disequalities by arc consistent alldifferent constraints
+    }
+
+    // Define whether cliques of binary disequalities are replaced by alldifferent constraints,
+    // before building the default propagation engine
+    // disabled : does not anything
+    // BC : post bound consistent alldifferent constraints
+    // AC : post arc consistent alldifferent constraints
+    public static final Cliques DETECT_CLIQUES = Cliques.valueOf(properties.getProperty("DETECT_CLIQUES", "disabled"));
+
     // Set to true to activate lazy update of deltas and generators
     public static final boolean LAZY_UPDATE = true;
 
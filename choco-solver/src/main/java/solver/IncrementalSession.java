@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver;
+
+import gnu.trove.list.array.TIntArrayList;
+import memory.IEnvironment;
+import solver.constraints.Constraint;
+import solver.exception.ContradictionException;
+import solver.exception.SolverException;
+import solver.objective.IntObjectiveManager;
+import solver.objective.ObjectiveManager;
+import solver.propagation.NoPropagationEngine;
+import solver.propagation.hardcoded.SevenQueuesPropagatorEngine;
+import solver.search.loop.AbstractSearchLoop;
+import solver.search.loop.monitors.IMonitorSolution;
+import solver.search.solution.Solution;
+import solver.variables.IntVar;
+import util.ESat;
+
+import java.util.ArrayList;
+
+/**
+ * A session to answer incremental "what-if" queries against the same base model.
+ * <br/>
+ * The base model, that is the constraints posted in the solver before the session is opened, is propagated once.
+ * Then, constraints can be posted in nested scopes: {@link #pushScope()} opens a scope,
+ * {@link #post(Constraint...)} adds constraints to the current scope and only propagates their consequences,
+ * and {@link #popScope()} restores the state preceding the scope, through the environment,
+ * and removes the constraints of the scope from the solver.
+ * <br/>
+ * The current state can be solved at any time; the search then starts from the state of the current scope
+ * and the next call on the session backtracks to it.
+ * Until then, the measures of the last resolution are available through {@link Solver#getMeasures()}.
+ * <br/>
+ * The solver should not be used directly, to post constraints or to solve, while the session is open.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class IncrementalSession {
+
+    private final Solver solver;
+
+    private final AbstractSearchLoop search;
+
+    // world index preceding each open scope
+    private final TIntArrayList scopeWorlds;
+
+    // index, in 'posted', of the first constraint of each open scope
+    private final TIntArrayList scopeStarts;
+
+    // constraints posted in the open scopes
+    private final ArrayList<Constraint> posted;
+
+    // depth of the outermost scope proven to be inconsistent, Integer.MAX_VALUE if none
+    private int failedDepth;
+
+    private final LastSolution recorder;
+
+    /**
+     * Opens a session on <code>solver</code> and propagates its constraints.
+     *
+     * @param solver a solver declaring the base model
+     */
+    public IncrementalSession(Solver solver) {
+        this.solver = solver;
+        this.search = solver.getSearchLoop();
+        this.scopeWorlds = new TIntArrayList();
+        this.scopeStarts = new TIntArrayList();
+        this.posted = new ArrayList<Constraint>();
+        this.failedDepth = Integer.MAX_VALUE;
+        this.recorder = new LastSolution();
+        search.reset();
+        if (solver.getEngine() == NoPropagationEngine.SINGLETON) {
+            solver.set(new SevenQueuesPropagatorEngine(solver));
+        }
+        search.plugSearchMonitor(recorder);
+        propagate();
+    }
+
+    /**
+     * @return the number of open scopes
+     */
+    public int getDepth() {
+        return scopeWorlds.size();
+    }
+
+    /**
+     * @return <code>false</code> if the propagation of the current scope (or of an enclosing one) has led to a contradiction
+     */
+    public boolean isConsistent() {
+        return getDepth() < failedDepth;
+    }
+
+    /**
+     * Opens a new scope, nested in the current one.
+     */
+    public void pushScope() {
+        search.resetSearch();
+        IEnvironment env = solver.getEnvironment();
+        scopeWorlds.add(env.getWorldIndex());
+        scopeStarts.add(posted.size());
+        env.worldPush();
+    }
+
+    /**
+     * Posts <code>cs</code> in the current scope and propagates them.
+     * When no scope is open, the constraints are added to the base model, permanently.
+     *
+     * @param cs constraints to post
+     * @return the value of {@link #isConsistent()} after propagation
+     */
+    public boolean post(Constraint... cs) {
+        search.resetSearch();
+        solver.post(cs);
+        if (getDepth() > 0) {
+            for (int i = 0; i < cs.length; i++) {
+                posted.add(cs[i]);
+            }
+        }
+        if (isConsistent()) {
+            propagate();
+        }
+        return isConsistent();
+    }
+
+    /**
+     * Closes the current scope: restores the state preceding its opening and removes its constraints from the solver.
+     */
+    public void popScope() {
+        if (getDepth() == 0) {
+            throw new SolverException("IncrementalSession.popScope(): no scope is open");
+        }
+        search.resetSearch();
+        int last = getDepth() - 1;
+        solver.getEnvironment().worldPopUntil(scopeWorlds.removeAt(last));
+        int start = scopeStarts.removeAt(last);
+        for (int i = posted.size() - 1; i >= start; i--) {
+            solver.unpost(posted.remove(i));
+        }
+        if (failedDepth > last) {
+            failedDepth = Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Attempts to find a solution of the current scope.
+     *
+     * @return the solution found, <code>null</code> if none has been found
+     */
+    public Solution findSolution() {
+        solve(new IntObjectiveManager(null, ResolutionPolicy.SATISFACTION, solver), true);
+        return recorder.solution;
+    }
+
+    /**
+     * Attempts to find all solutions of the current scope.
+     *
+     * @return the number of solutions found
+     */
+    public long findAllSolutions() {
+        solve(new IntObjectiveManager(null, ResolutionPolicy.SATISFACTION, solver), false);
+        return recorder.solution == null ? 0 : solver.getMeasures().getSolutionCount();
+    }
+
+    /**
+     * Attempts to optimize the value of <code>objective</code> w.r.t. <code>policy</code> in the current scope.
+     *
+     * @param policy    optimization policy, among ResolutionPolicy.MINIMIZE and ResolutionPolicy.MAXIMIZE
+     * @param objective the variable to optimize
+     * @return the best solution found, <code>null</code> if none has been found
+     */
+    public Solution findOptimalSolution(ResolutionPolicy policy, IntVar objective) {
+        if (policy == ResolutionPolicy.SATISFACTION) {
+            throw new SolverException("IncrementalSession.findOptimalSolution(...) can not be called with ResolutionPolicy.SATISFACTION.");
+        }
+        if (objective == null) {
+            throw new SolverException("No objective variable has been defined");
+        }
+        solve(new IntObjectiveManager(objective, policy, solver), false);
+        return recorder.solution;
+    }
+
+    private void solve(ObjectiveManager objectiveManager, boolean stopAtFirst) {
+        search.resetSearch();
+        recorder.solution = null;
+        if (!isConsistent()) {
+            solver.setFeasible(ESat.FALSE);
+            return;
+        }
+        search.setObjectivemanager(objectiveManager);
+        search.launch(stopAtFirst);
+    }
+
+    private void propagate() {
+        try {
+            solver.propagate();
+        } catch (ContradictionException e) {
+            solver.getEngine().flush();
+            failedDepth = getDepth();
+        }
+    }
+
+    /**
+     * Records the last solution found, in a single object per resolution.
+     */
+    private final class LastSolution implements IMonitorSolution {
+
+        Solution solution;
+
+        @Override
+        public void onSolution() {
+            if (solution == null) {
+                solution = new Solution();
+            }
+            solution.record(solver);
+        }
+    }
+}
@@ -0,0 +1,1109 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import gnu.trove.set.hash.TIntHashSet;
+import solver.constraints.Constraint;
+import solver.constraints.ICF;
+import solver.constraints.extension.binary.BinRelation;
+import solver.constraints.extension.binary.CouplesTable;
+import solver.constraints.extension.nary.IterTuplesTable;
+import solver.constraints.extension.nary.LargeRelation;
+import solver.constraints.extension.nary.TuplesList;
+import solver.constraints.extension.nary.TuplesTable;
+import solver.constraints.nary.automata.FA.FiniteAutomaton;
+import solver.constraints.nary.automata.FA.IAutomaton;
+import solver.exception.SolverException;
+import solver.variables.BoolVar;
+import solver.variables.IntVar;
+import solver.variables.VF;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Binary format of the models recorded by {@link ModelRecorder}.
+ * <p/>
+ * The format is declarative: a step is a {@link Kind} tag, which stands for a factory method
+ * (variables and views of <code>VF</code>, constraints of <code>ICF</code>, <code>Solver.post</code>),
+ * followed by the values of its parameters. No class nor method name is stored,
+ * and a tag is only ever mapped to the builder given by its kind, so reading a file can not execute other code.
+ * <p/>
+ * A file is made of a header (magic number, version and size of each section) followed by sections:
+ * <ol>
+ * <li>the string table (names, operators, algorithms), as UTF-8 bytes,</li>
+ * <li>the constants which are not built by a step (name, value),</li>
+ * <li>the steps: a stream of integers, made of a kind tag and its parameters,</li>
+ * <li>the data column, an array of integers which stores the scopes, the integer arrays, the tuples and the transitions
+ * given as parameters, referenced by (offset, length) from the steps.</li>
+ * </ol>
+ * A variable or a constraint is referenced by two integers: the step which built it and its index in the resulting array
+ * (-1 for the result itself); the solver's ZERO and ONE and the constants are referenced by negative steps.
+ * Tables are stored as their allowed couples or tuples, automata as their transitions.
+ * <p/>
+ * Files are read through memory-mapping: the steps are read in bulk from the mapped buffer,
+ * and arrays are extracted from the data column, a view over the buffer, with a single copy.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+final class ModelFormat {
+
+    static final int MAGIC = 0x43484D44; // "CHMD"
+    static final int VERSION = 2;
+
+    /**
+     * Maximum number of combinations enumerated to write a relation which does not store its tuples.
+     */
+    static final long MAX_ENUMERATION = 1L << 24;
+
+    // types of the parameters
+    private static final int SOLVER = 0, INT = 1, BOOL = 2, STRING = 3, INTS = 4, VAR = 5, VARS = 6, BVAR = 7,
+            BVARS = 8, CSTRS = 9, COUPLES = 10, TUPLES = 11, AUTOMATON = 12;
+
+    // steps of the objects which are not built by a step
+    private static final int ZERO = -1, ONE = -2, CSTE = -3;
+
+    private ModelFormat() {
+    }
+
+    /**
+     * The factory methods which can be written, identified in files by their tag.
+     * A tag must never be changed nor reused: a new kind gets a new tag.
+     */
+    enum Kind {
+        POST(0, Solver.class, "post", CSTRS) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                s.post((Constraint[]) a[0]);
+                return null;
+            }
+        },
+        // variables and views
+        BOOL_VAR(1, VF.class, "bool", STRING, SOLVER) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return VF.bool((String) a[0], s);
+            }
+        },
+        BOOL_ARRAY(2, VF.class, "boolArray", STRING, INT, SOLVER) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return VF.boolArray((String) a[0], (Integer) a[1], s);
+            }
+        },
+        BOUNDED(3, VF.class, "bounded", STRING, INT, INT, SOLVER) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return VF.bounded((String) a[0], (Integer) a[1], (Integer) a[2], s);
+            }
+        },
+        BOUNDED_ARRAY(4, VF.class, "boundedArray", STRING, INT, INT, INT, SOLVER) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return VF.boundedArray((String) a[0], (Integer) a[1], (Integer) a[2], (Integer) a[3], s);
+            }
+        },
+        ENUMERATED(5, VF.class, "enumerated", STRING, INT, INT, SOLVER) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return VF.enumerated((String) a[0], (Integer) a[1], (Integer) a[2], s);
+            }
+        },
+        ENUMERATED_ARRAY(6, VF.class, "enumeratedArray", STRING, INT, INT, INT, SOLVER) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return VF.enumeratedArray((String) a[0], (Integer) a[1], (Integer) a[2], (Integer) a[3], s);
+            }
+        },
+        ENUMERATED_VALUES(7, VF.class, "enumerated", STRING, INTS, SOLVER) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return VF.enumerated((String) a[0], (int[]) a[1], s);
+            }
+        },
+        ENUMERATED_VALUES_ARRAY(8, VF.class, "enumeratedArray", STRING, INT, INTS, SOLVER) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return VF.enumeratedArray((String) a[0], (Integer) a[1], (int[]) a[2], s);
+            }
+        },
+        FIXED(9, VF.class, "fixed", STRING, INT, SOLVER) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return VF.fixed((String) a[0], (Integer) a[1], s);
+            }
+        },
+        FIXED_VALUE(10, VF.class, "fixed", INT, SOLVER) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return VF.fixed((Integer) a[0], s);
+            }
+        },
+        OFFSET(11, VF.class, "offset", VAR, INT) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return VF.offset((IntVar) a[0], (Integer) a[1]);
+            }
+        },
+        MINUS(12, VF.class, "minus", VAR) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return VF.minus((IntVar) a[0]);
+            }
+        },
+        SCALE(13, VF.class, "scale", VAR, INT) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return VF.scale((IntVar) a[0], (Integer) a[1]);
+            }
+        },
+        AFFINE(14, VF.class, "affine", VAR, INT, INT) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return VF.affine((IntVar) a[0], (Integer) a[1], (Integer) a[2]);
+            }
+        },
+        ABS(15, VF.class, "abs", VAR) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return VF.abs((IntVar) a[0]);
+            }
+        },
+        NOT(16, VF.class, "not", BVAR) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return VF.not((BoolVar) a[0]);
+            }
+        },
+        // constraints
+        ARITHM_C(30, ICF.class, "arithm", VAR, STRING, INT) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.arithm((IntVar) a[0], (String) a[1], (Integer) a[2]);
+            }
+        },
+        ARITHM_XY(31, ICF.class, "arithm", VAR, STRING, VAR) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.arithm((IntVar) a[0], (String) a[1], (IntVar) a[2]);
+            }
+        },
+        ARITHM_XYC(32, ICF.class, "arithm", VAR, STRING, VAR, STRING, INT) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.arithm((IntVar) a[0], (String) a[1], (IntVar) a[2], (String) a[3], (Integer) a[4]);
+            }
+        },
+        MEMBER(33, ICF.class, "member", VAR, INTS) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.member((IntVar) a[0], (int[]) a[1]);
+            }
+        },
+        MEMBER_RANGE(34, ICF.class, "member", VAR, INT, INT) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.member((IntVar) a[0], (Integer) a[1], (Integer) a[2]);
+            }
+        },
+        NOT_MEMBER(35, ICF.class, "not_member", VAR, INTS) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.not_member((IntVar) a[0], (int[]) a[1]);
+            }
+        },
+        NOT_MEMBER_RANGE(36, ICF.class, "not_member", VAR, INT, INT) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.not_member((IntVar) a[0], (Integer) a[1], (Integer) a[2]);
+            }
+        },
+        ABSOLUTE(37, ICF.class, "absolute", VAR, VAR) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.absolute((IntVar) a[0], (IntVar) a[1]);
+            }
+        },
+        DISTANCE_C(38, ICF.class, "distance", VAR, VAR, STRING, INT) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.distance((IntVar) a[0], (IntVar) a[1], (String) a[2], (Integer) a[3]);
+            }
+        },
+        DISTANCE_Z(39, ICF.class, "distance", VAR, VAR, STRING, VAR) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.distance((IntVar) a[0], (IntVar) a[1], (String) a[2], (IntVar) a[3]);
+            }
+        },
+        ELEMENT(40, ICF.class, "element", VAR, INTS, VAR, INT, STRING) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.element((IntVar) a[0], (int[]) a[1], (IntVar) a[2], (Integer) a[3], (String) a[4]);
+            }
+        },
+        ELEMENT_DEFAULT(41, ICF.class, "element", VAR, INTS, VAR) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.element((IntVar) a[0], (int[]) a[1], (IntVar) a[2]);
+            }
+        },
+        ELEMENT_VARS(42, ICF.class, "element", VAR, VARS, VAR, INT) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.element((IntVar) a[0], (IntVar[]) a[1], (IntVar) a[2], (Integer) a[3]);
+            }
+        },
+        SQUARE(43, ICF.class, "square", VAR, VAR) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.square((IntVar) a[0], (IntVar) a[1]);
+            }
+        },
+        EUCL_DIV(44, ICF.class, "eucl_div", VAR, VAR, VAR) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.eucl_div((IntVar) a[0], (IntVar) a[1], (IntVar) a[2]);
+            }
+        },
+        MAXIMUM(45, ICF.class, "maximum", VAR, VAR, VAR) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.maximum((IntVar) a[0], (IntVar) a[1], (IntVar) a[2]);
+            }
+        },
+        MINIMUM(46, ICF.class, "minimum", VAR, VAR, VAR) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.minimum((IntVar) a[0], (IntVar) a[1], (IntVar) a[2]);
+            }
+        },
+        MOD(47, ICF.class, "mod", VAR, VAR, VAR) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.mod((IntVar) a[0], (IntVar) a[1], (IntVar) a[2]);
+            }
+        },
+        TIMES(48, ICF.class, "times", VAR, VAR, VAR) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.times((IntVar) a[0], (IntVar) a[1], (IntVar) a[2]);
+            }
+        },
+        ALLDIFFERENT(49, ICF.class, "alldifferent", VARS, STRING) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.alldifferent((IntVar[]) a[0], (String) a[1]);
+            }
+        },
+        ALLDIFFERENT_EXCEPT_0(50, ICF.class, "alldifferent_except_0", VARS) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.alldifferent_except_0((IntVar[]) a[0]);
+            }
+        },
+        AMONG(51, ICF.class, "among", VAR, VARS, INTS) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.among((IntVar) a[0], (IntVar[]) a[1], (int[]) a[2]);
+            }
+        },
+        BIN_PACKING(52, ICF.class, "bin_packing", VARS, INTS, VARS, INT) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.bin_packing((IntVar[]) a[0], (int[]) a[1], (IntVar[]) a[2], (Integer) a[3]);
+            }
+        },
+        BOOLEAN_CHANNELING(53, ICF.class, "boolean_channeling", BVARS, VAR, INT) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.boolean_channeling((BoolVar[]) a[0], (IntVar) a[1], (Integer) a[2]);
+            }
+        },
+        CIRCUIT(54, ICF.class, "circuit", VARS, INT) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.circuit((IntVar[]) a[0], (Integer) a[1]);
+            }
+        },
+        COUNT(55, ICF.class, "count", INT, VARS, VAR) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.count((Integer) a[0], (IntVar[]) a[1], (IntVar) a[2]);
+            }
+        },
+        GLOBAL_CARDINALITY(56, ICF.class, "global_cardinality", VARS, INTS, VARS, BOOL) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.global_cardinality((IntVar[]) a[0], (int[]) a[1], (IntVar[]) a[2], (Boolean) a[3]);
+            }
+        },
+        GLOBAL_CARDINALITY_CONS(57, ICF.class, "global_cardinality", VARS, INTS, VARS, BOOL, STRING) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.global_cardinality((IntVar[]) a[0], (int[]) a[1], (IntVar[]) a[2], (Boolean) a[3], (String) a[4]);
+            }
+        },
+        INVERSE_CHANNELING(58, ICF.class, "inverse_channeling", VARS, VARS, INT, INT) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.inverse_channeling((IntVar[]) a[0], (IntVar[]) a[1], (Integer) a[2], (Integer) a[3]);
+            }
+        },
+        LEX_LESS(59, ICF.class, "lex_less", VARS, VARS) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.lex_less((IntVar[]) a[0], (IntVar[]) a[1]);
+            }
+        },
+        LEX_LESS_EQ(60, ICF.class, "lex_less_eq", VARS, VARS) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.lex_less_eq((IntVar[]) a[0], (IntVar[]) a[1]);
+            }
+        },
+        MAXIMUM_ARRAY(61, ICF.class, "maximum", VAR, VARS) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.maximum((IntVar) a[0], (IntVar[]) a[1]);
+            }
+        },
+        MINIMUM_ARRAY(62, ICF.class, "minimum", VAR, VARS) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.minimum((IntVar) a[0], (IntVar[]) a[1]);
+            }
+        },
+        REGULAR(63, ICF.class, "regular", VARS, AUTOMATON) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.regular((IntVar[]) a[0], (IAutomaton) a[1]);
+            }
+        },
+        SCALAR(64, ICF.class, "scalar", VARS, INTS, VAR) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.scalar((IntVar[]) a[0], (int[]) a[1], (IntVar) a[2]);
+            }
+        },
+        SCALAR_OP(65, ICF.class, "scalar", VARS, INTS, STRING, VAR) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.scalar((IntVar[]) a[0], (int[]) a[1], (String) a[2], (IntVar) a[3]);
+            }
+        },
+        SUBCIRCUIT(66, ICF.class, "subcircuit", VARS, INT, VAR) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.subcircuit((IntVar[]) a[0], (Integer) a[1], (IntVar) a[2]);
+            }
+        },
+        SUM(67, ICF.class, "sum", VARS, VAR) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.sum((IntVar[]) a[0], (IntVar) a[1]);
+            }
+        },
+        SUM_OP(68, ICF.class, "sum", VARS, STRING, VAR) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.sum((IntVar[]) a[0], (String) a[1], (IntVar) a[2]);
+            }
+        },
+        SUM_BOOLS(69, ICF.class, "sum", BVARS, VAR) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.sum((BoolVar[]) a[0], (IntVar) a[1]);
+            }
+        },
+        TABLE_BINARY(70, ICF.class, "table", VAR, VAR, COUPLES, STRING) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.table((IntVar) a[0], (IntVar) a[1], (BinRelation) a[2], (String) a[3]);
+            }
+        },
+        TABLE(71, ICF.class, "table", VARS, TUPLES, STRING) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.table((IntVar[]) a[0], (LargeRelation) a[1], (String) a[2]);
+            }
+        },
+        TRUE(72, ICF.class, "TRUE", SOLVER) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.TRUE(s);
+            }
+        },
+        FALSE(73, ICF.class, "FALSE", SOLVER) {
+            @Override
+            Object build(Solver s, Object[] a) {
+                return ICF.FALSE(s);
+            }
+        };
+
+        final int tag;
+        final int[] params;
+        final Method method; // the method recorded by ModelRecorder, never invoked from a file
+
+        Kind(int tag, Class owner, String name, int... params) {
+            this.tag = tag;
+            this.params = params;
+            Class[] types = new Class[params.length];
+            for (int i = 0; i < params.length; i++) {
+                types[i] = type(params[i]);
+            }
+            try {
+                this.method = owner.getMethod(name, types);
+            } catch (NoSuchMethodException e) {
+                throw new SolverException("ModelFormat: no method " + owner.getSimpleName() + "." + name);
+            }
+        }
+
+        /**
+         * Build the object described by a step, in <code>s</code>.
+         *
+         * @param s the solver
+         * @param a the parameters, whose types are given by {@link #params}
+         * @return the result of the factory method
+         */
+        abstract Object build(Solver s, Object[] a);
+    }
+
+    private static Class type(int param) {
+        switch (param) {
+            case SOLVER:
+                return Solver.class;
+            case INT:
+                return int.class;
+            case BOOL:
+                return boolean.class;
+            case STRING:
+                return String.class;
+            case INTS:
+                return int[].class;
+            case VAR:
+                return IntVar.class;
+            case VARS:
+                return IntVar[].class;
+            case BVAR:
+                return BoolVar.class;
+            case BVARS:
+                return BoolVar[].class;
+            case CSTRS:
+                return Constraint[].class;
+            case COUPLES:
+                return BinRelation.class;
+            case TUPLES:
+                return LargeRelation.class;
+            case AUTOMATON:
+                return IAutomaton.class;
+            default:
+                throw new UnsupportedOperationException();
+        }
+    }
+
+    // kinds, by recorded method and by tag
+    private static final HashMap<Method, Kind> METHODS = new HashMap<Method, Kind>();
+    private static final Kind[] TAGS;
+
+    static {
+        int max = 0;
+        for (Kind k : Kind.values()) {
+            METHODS.put(k.method, k);
+            max = Math.max(max, k.tag);
+        }
+        TAGS = new Kind[max + 1];
+        for (Kind k : Kind.values()) {
+            assert TAGS[k.tag] == null : "duplicate tag " + k.tag;
+            TAGS[k.tag] = k;
+        }
+    }
+
+    //****************************************************************************************************************//
+    //**************************************** WRITING ***************************************************************//
+    //****************************************************************************************************************//
+
+    static void write(ModelRecorder recorder, File file) throws IOException {
+        Writer w = new Writer(recorder);
+        int name = w.string(recorder.getSolver().getName());
+        ArrayList<ModelRecorder.Step> steps = recorder.steps;
+        for (int s = 0; s < steps.size(); s++) {
+            w.step(steps.get(s));
+        }
+        byte[][] strings = new byte[w.strings.size()][];
+        int stringBytes = 0;
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = w.strings.get(i).getBytes("UTF-8");
+            stringBytes += strings[i].length;
+        }
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(name);
+            out.writeInt(steps.size());
+            out.writeInt(strings.length);
+            out.writeInt(stringBytes);
+            out.writeInt(w.constants.size() / 2);
+            out.writeInt(w.code.size());
+            out.writeInt(w.ints.size());
+            for (int i = 0; i < strings.length; i++) {
+                out.writeInt(strings[i].length);
+            }
+            for (int i = 0; i < strings.length; i++) {
+                out.write(strings[i]);
+            }
+            writeInts(out, w.constants);
+            writeInts(out, w.code);
+            writeInts(out, w.ints);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, TIntArrayList list) throws IOException {
+        for (int i = 0; i < list.size(); i++) {
+            out.writeInt(list.getQuick(i));
+        }
+    }
+
+    private static final class Writer {
+        final ModelRecorder recorder;
+        final ArrayList<String> strings = new ArrayList<String>();
+        final TObjectIntHashMap<String> s2i = new TObjectIntHashMap<String>(16, .5f, -1);
+        final TIntArrayList constants = new TIntArrayList(); // (name, value)
+        final TIntArrayList code = new TIntArrayList();
+        final TIntArrayList ints = new TIntArrayList();
+
+        Writer(ModelRecorder recorder) {
+            this.recorder = recorder;
+        }
+
+        int string(String s) {
+            int i = s2i.get(s);
+            if (i == -1) {
+                i = strings.size();
+                strings.add(s);
+                s2i.put(s, i);
+            }
+            return i;
+        }
+
+        void step(ModelRecorder.Step step) throws IOException {
+            Kind kind = METHODS.get(step.method);
+            if (kind == null) {
+                throw new IOException("ModelFormat: " + step.method.getDeclaringClass().getSimpleName() + "."
+                        + step.method.getName() + " can not be written");
+            }
+            if ((kind == Kind.POST) != (step.target == ModelRecorder.SOLVER)) {
+                throw new IOException("ModelFormat: " + step.method.getName() + " is not called on the solver");
+            }
+            code.add(kind.tag);
+            for (int i = 0; i < kind.params.length; i++) {
+                Object a = step.args[i];
+                switch (kind.params[i]) {
+                    case SOLVER:
+                        if (a != ModelRecorder.SOLVER) {
+                            throw new IOException("ModelFormat: " + step.method.getName() + " is called on another solver");
+                        }
+                        break;
+                    case INT:
+                        code.add((Integer) a);
+                        break;
+                    case BOOL:
+                        code.add((Boolean) a ? 1 : 0);
+                        break;
+                    case STRING:
+                        code.add(string((String) a));
+                        break;
+                    case INTS:
+                        code.add(ints.size());
+                        code.add(((int[]) a).length);
+                        ints.add((int[]) a);
+                        break;
+                    case VAR:
+                    case BVAR:
+                        ref(a, code);
+                        break;
+                    case VARS:
+                    case BVARS:
+                    case CSTRS: {
+                        Object[] elements = elements(a);
+                        code.add(ints.size());
+                        code.add(elements.length);
+                        for (int j = 0; j < elements.length; j++) {
+                            ref(elements[j], ints);
+                        }
+                        break;
+                    }
+                    case COUPLES:
+                        couples((BinRelation) a, step.args[0], step.args[1]);
+                        break;
+                    case TUPLES:
+                        tuples((LargeRelation) a, step.args[0]);
+                        break;
+                    case AUTOMATON:
+                        automaton((IAutomaton) a);
+                        break;
+                    default:
+                        throw new UnsupportedOperationException();
+                }
+            }
+        }
+
+        // a variable or a constraint: (step, index)
+        void ref(Object e, TIntArrayList to) throws IOException {
+            if (e == ModelRecorder.ZERO) {
+                to.add(ZERO);
+                to.add(0);
+            } else if (e == ModelRecorder.ONE) {
+                to.add(ONE);
+                to.add(0);
+            } else if (e instanceof ModelRecorder.Cste) {
+                to.add(CSTE);
+                to.add(constants.size() / 2);
+                constants.add(string(((ModelRecorder.Cste) e).name));
+                constants.add(((ModelRecorder.Cste) e).value);
+            } else if (e instanceof ModelRecorder.Ref && ((ModelRecorder.Ref) e).path.length <= 2) {
+                int[] path = ((ModelRecorder.Ref) e).path;
+                to.add(path[0]);
+                to.add(path.length == 2 ? path[1] : -1);
+            } else {
+                throw new IOException("ModelFormat: " + e + " can not be written");
+            }
+        }
+
+        // the encoded elements of an array, built by a step or not
+        Object[] elements(Object e) {
+            if (e instanceof ModelRecorder.ArrayOf) {
+                return ((ModelRecorder.ArrayOf) e).elements;
+            } else if (e instanceof ModelRecorder.Ref) {
+                int[] path = ((ModelRecorder.Ref) e).path;
+                Object[] elements = new Object[((Object[]) recorder.get((ModelRecorder.Ref) e)).length];
+                for (int i = 0; i < elements.length; i++) {
+                    int[] p = Arrays.copyOf(path, path.length + 1);
+                    p[path.length] = i;
+                    elements[i] = new ModelRecorder.Ref(p);
+                }
+                return elements;
+            }
+            return (Object[]) e;
+        }
+
+        // the values of a variable (or a constant) of the recorded model
+        int[] domain(Object e) throws IOException {
+            if (e == ModelRecorder.ZERO) {
+                return new int[]{0};
+            } else if (e == ModelRecorder.ONE) {
+                return new int[]{1};
+            } else if (e instanceof ModelRecorder.Cste) {
+                return new int[]{((ModelRecorder.Cste) e).value};
+            }
+            IntVar var = (IntVar) recorder.get((ModelRecorder.Ref) e);
+            if (var.getDomainSize() > MAX_ENUMERATION) {
+                throw new IOException("ModelFormat: the domain of " + var.getName() + " is too large to be enumerated");
+            }
+            int[] values = new int[var.getDomainSize()];
+            int ub = var.getUB();
+            for (int i = 0, v = var.getLB(); v <= ub; v = var.nextValue(v)) {
+                values[i++] = v;
+            }
+            return values;
+        }
+
+        // the allowed couples over the domains of the variables
+        void couples(BinRelation relation, Object x, Object y) throws IOException {
+            int[] d1 = domain(x);
+            int[] d2 = domain(y);
+            if ((long) d1.length * d2.length > MAX_ENUMERATION) {
+                throw new IOException("ModelFormat: a binary relation is too large to be written");
+            }
+            int offset = ints.size();
+            for (int i = 0; i < d1.length; i++) {
+                for (int j = 0; j < d2.length; j++) {
+                    if (relation.isConsistent(d1[i], d2[j])) {
+                        ints.add(d1[i]);
+                        ints.add(d2[j]);
+                    }
+                }
+            }
+            code.add(offset);
+            code.add((ints.size() - offset) / 2);
+        }
+
+        // the allowed tuples: stored by the relation, or enumerated over the domains of the variables
+        void tuples(LargeRelation relation, Object scope) throws IOException {
+            Object[] elements = elements(scope);
+            int n = elements.length;
+            int offset = ints.size();
+            if (relation instanceof TuplesList) {
+                int[][] tuples = ((TuplesList) relation).getTupleTable();
+                for (int t = 0; t < tuples.length; t++) {
+                    ints.add(tuples[t]);
+                }
+            } else if (n > 0) {
+                int[][] domains = new int[n][];
+                long size = 1;
+                for (int i = 0; i < n; i++) {
+                    domains[i] = domain(elements[i]);
+                    size *= domains[i].length;
+                    if (size > MAX_ENUMERATION) {
+                        throw new IOException("ModelFormat: the relation over " + n + " variables is too large to be written");
+                    }
+                }
+                int[] idx = new int[n];
+                int[] tuple = new int[n];
+                int i = 0;
+                while (i >= 0) {
+                    for (int j = 0; j < n; j++) {
+                        tuple[j] = domains[j][idx[j]];
+                    }
+                    if (relation.isConsistent(tuple)) {
+                        ints.add(tuple);
+                    }
+                    // next combination, the last variable changes first
+                    for (i = n - 1; i >= 0 && ++idx[i] == domains[i].length; i--) {
+                        idx[i] = 0;
+                    }
+                }
+            }
+            code.add(offset);
+            code.add(n == 0 ? 0 : (ints.size() - offset) / n);
+        }
+
+        // number of states, initial state, final states and transitions (source, destination, symbol)
+        void automaton(IAutomaton automaton) throws IOException {
+            if (!(automaton instanceof FiniteAutomaton)) {
+                throw new IOException("ModelFormat: " + automaton.getClass().getSimpleName() + " can not be written");
+            }
+            FiniteAutomaton fa = (FiniteAutomaton) automaton;
+            code.add(fa.getNbStates());
+            code.add(fa.getInitialState());
+            int[] finals = fa.getFinalStates().toArray();
+            Arrays.sort(finals);
+            code.add(ints.size());
+            code.add(finals.length);
+            ints.add(finals);
+            List<int[]> transitions = fa.getTransitions();
+            code.add(ints.size());
+            code.add(transitions.size());
+            for (int t = 0; t < transitions.size(); t++) {
+                ints.add(transitions.get(t));
+            }
+        }
+    }
+
+    //****************************************************************************************************************//
+    //**************************************** READING ***************************************************************//
+    //****************************************************************************************************************//
+
+    static ModelRecorder read(File file) throws IOException {
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            FileChannel channel = fis.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer);
+        } finally {
+            fis.close();
+        }
+    }
+
+    static ModelRecorder read(ByteBuffer buffer) throws IOException {
+        try {
+            return new Reader().read(buffer);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("ModelFormat: corrupted file, truncated");
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("ModelFormat: corrupted file, " + e.getMessage());
+        }
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int length) {
+        int[] values = new int[length];
+        IntBuffer view = buffer.slice().asIntBuffer();
+        view.get(values);
+        buffer.position(buffer.position() + 4 * length);
+        return values;
+    }
+
+    private static final class Reader {
+        String[] strings;
+        int[] constants;
+        int[] code;
+        int pc;
+        IntBuffer ints;
+        Solver solver;
+        final ArrayList<Object> results = new ArrayList<Object>();
+
+        ModelRecorder read(ByteBuffer buffer) throws IOException {
+            if (buffer.remaining() < 36 || buffer.getInt() != MAGIC) {
+                throw new IOException("ModelFormat: not a model file");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("ModelFormat: unsupported version " + version + ", expected " + VERSION);
+            }
+            int name = buffer.getInt();
+            int nbSteps = buffer.getInt();
+            int nbStrings = buffer.getInt();
+            buffer.getInt(); // string bytes
+            int nbConstants = buffer.getInt();
+            int codeLength = buffer.getInt();
+            int intsLength = buffer.getInt();
+            // strings
+            int[] lengths = readInts(buffer, nbStrings);
+            strings = new String[nbStrings];
+            for (int i = 0; i < nbStrings; i++) {
+                byte[] bytes = new byte[lengths[i]];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, "UTF-8");
+            }
+            constants = readInts(buffer, 2 * nbConstants);
+            code = readInts(buffer, codeLength);
+            // data column: a view over the buffer, arrays are extracted on demand
+            if (buffer.remaining() < 4 * intsLength) {
+                throw new BufferUnderflowException();
+            }
+            ints = buffer.slice().asIntBuffer();
+            ints.limit(intsLength);
+            // steps
+            solver = new Solver(strings[name]);
+            ArrayList<ModelRecorder.Step> steps = new ArrayList<ModelRecorder.Step>(nbSteps);
+            for (int s = 0; s < nbSteps; s++) {
+                int tag = code[pc++];
+                Kind kind = tag >= 0 && tag < TAGS.length ? TAGS[tag] : null;
+                if (kind == null) {
+                    throw new IOException("ModelFormat: corrupted file, unknown kind " + tag);
+                }
+                Object[] values = new Object[kind.params.length];
+                Object[] encoded = new Object[kind.params.length];
+                for (int i = 0; i < values.length; i++) {
+                    param(kind.params[i], i, values, encoded);
+                }
+                results.add(kind.build(solver, values));
+                steps.add(new ModelRecorder.Step(kind.method, kind == Kind.POST ? ModelRecorder.SOLVER : null, encoded));
+            }
+            return ModelRecorder.load(solver, steps, results);
+        }
+
+        int[] ints(int offset, int length) {
+            int[] values = new int[length];
+            IntBuffer view = ints.duplicate();
+            view.position(offset);
+            view.get(values);
+            return values;
+        }
+
+        void param(int type, int i, Object[] values, Object[] encoded) throws IOException {
+            switch (type) {
+                case SOLVER:
+                    values[i] = solver;
+                    encoded[i] = ModelRecorder.SOLVER;
+                    break;
+                case INT:
+                    values[i] = encoded[i] = code[pc++];
+                    break;
+                case BOOL:
+                    values[i] = encoded[i] = code[pc++] == 1;
+                    break;
+                case STRING:
+                    values[i] = encoded[i] = strings[code[pc++]];
+                    break;
+                case INTS: {
+                    int offset = code[pc++];
+                    values[i] = encoded[i] = ints(offset, code[pc++]);
+                    break;
+                }
+                case VAR:
+                case BVAR:
+                    encoded[i] = ref(code[pc++], code[pc++]);
+                    values[i] = check(decode(encoded[i]), type == VAR ? IntVar.class : BoolVar.class);
+                    break;
+                case VARS:
+                case BVARS:
+                case CSTRS: {
+                    Class clazz = type == VARS ? IntVar.class : type == BVARS ? BoolVar.class : Constraint.class;
+                    int offset = code[pc++];
+                    int[] refs = ints(offset, 2 * code[pc++]);
+                    Object[] array = (Object[]) java.lang.reflect.Array.newInstance(clazz, refs.length / 2);
+                    Object[] elements = new Object[array.length];
+                    for (int j = 0; j < array.length; j++) {
+                        elements[j] = ref(refs[2 * j], refs[2 * j + 1]);
+                        array[j] = check(decode(elements[j]), clazz);
+                    }
+                    values[i] = array;
+                    encoded[i] = new ModelRecorder.ArrayOf(clazz, elements);
+                    break;
+                }
+                case COUPLES: {
+                    int offset = code[pc++];
+                    values[i] = encoded[i] = couples((IntVar) values[0], (IntVar) values[1], ints(offset, 2 * code[pc++]));
+                    break;
+                }
+                case TUPLES: {
+                    IntVar[] vars = (IntVar[]) values[0];
+                    int offset = code[pc++];
+                    int[] flat = ints(offset, vars.length * code[pc++]);
+                    // the algorithm follows the relation
+                    String algorithm = strings[code[pc]];
+                    values[i] = encoded[i] = tuples(vars, flat, algorithm);
+                    break;
+                }
+                case AUTOMATON:
+                    values[i] = encoded[i] = automaton();
+                    break;
+                default:
+                    throw new UnsupportedOperationException();
+            }
+        }
+
+        Object ref(int step, int index) throws IOException {
+            switch (step) {
+                case ZERO:
+                    return ModelRecorder.ZERO;
+                case ONE:
+                    return ModelRecorder.ONE;
+                case CSTE:
+                    return new ModelRecorder.Cste(strings[constants[2 * index]], constants[2 * index + 1]);
+                default:
+                    if (step < 0 || step >= results.size()) {
+                        throw new IOException("ModelFormat: corrupted file, step " + step + " is not built yet");
+                    }
+                    return new ModelRecorder.Ref(index < 0 ? new int[]{step} : new int[]{step, index});
+            }
+        }
+
+        Object decode(Object e) throws IOException {
+            if (e == ModelRecorder.ZERO) {
+                return solver.ZERO;
+            } else if (e == ModelRecorder.ONE) {
+                return solver.ONE;
+            } else if (e instanceof ModelRecorder.Cste) {
+                return VF.fixed(((ModelRecorder.Cste) e).name, ((ModelRecorder.Cste) e).value, solver);
+            }
+            int[] path = ((ModelRecorder.Ref) e).path;
+            Object o = results.get(path[0]);
+            if (path.length == 2) {
+                if (!(o instanceof Object[]) || path[1] >= ((Object[]) o).length) {
+                    throw new IOException("ModelFormat: corrupted file, step " + path[0] + " has no element " + path[1]);
+                }
+                o = ((Object[]) o)[path[1]];
+            }
+            return o;
+        }
+
+        Object check(Object o, Class clazz) throws IOException {
+            if (!clazz.isInstance(o)) {
+                throw new IOException("ModelFormat: corrupted file, a " + clazz.getSimpleName() + " is expected");
+            }
+            return o;
+        }
+
+        BinRelation couples(IntVar x, IntVar y, int[] couples) {
+            int lb1 = x.getLB(), lb2 = y.getLB();
+            int n1 = x.getUB() - lb1 + 1, n2 = y.getUB() - lb2 + 1;
+            CouplesTable table = new CouplesTable(true, lb1, lb2, n1, n2);
+            for (int c = 0; c < couples.length; c += 2) {
+                if (x.contains(couples[c]) && y.contains(couples[c + 1])) {
+                    table.setCouple(couples[c], couples[c + 1]);
+                }
+            }
+            return table;
+        }
+
+        // iterable tuples for AC algorithms, a table of tuples for FC
+        LargeRelation tuples(IntVar[] vars, int[] flat, String algorithm) {
+            int[] offsets = new int[vars.length];
+            int[] sizes = new int[vars.length];
+            for (int i = 0; i < vars.length; i++) {
+                offsets[i] = vars[i].getLB();
+                sizes[i] = vars[i].getUB() - offsets[i] + 1;
+            }
+            ArrayList<int[]> tuples = new ArrayList<int[]>(vars.length == 0 ? 0 : flat.length / vars.length);
+            for (int t = 0; t < flat.length; t += vars.length) {
+                int[] tuple = Arrays.copyOfRange(flat, t, t + vars.length);
+                boolean valid = true;
+                for (int i = 0; i < vars.length && valid; i++) {
+                    valid = vars[i].contains(tuple[i]);
+                }
+                if (valid) {
+                    tuples.add(tuple);
+                }
+            }
+            if ("FC".equals(algorithm)) {
+                TuplesTable table = new TuplesTable(true, offsets, sizes);
+                for (int t = 0; t < tuples.size(); t++) {
+                    table.setTuple(tuples.get(t));
+                }
+                return table;
+            }
+            return new IterTuplesTable(tuples, offsets, sizes);
+        }
+
+        FiniteAutomaton automaton() throws IOException {
+            FiniteAutomaton automaton = new FiniteAutomaton();
+            int nbStates = code[pc++];
+            for (int s = 0; s < nbStates; s++) {
+                automaton.addState();
+            }
+            int initial = code[pc++];
+            int offset = code[pc++];
+            int[] finals = ints(offset, code[pc++]);
+            offset = code[pc++];
+            int[] transitions = ints(offset, 3 * code[pc++]);
+            TIntHashSet states = new TIntHashSet();
+            states.add(initial);
+            states.addAll(finals);
+            for (int t = 0; t < transitions.length; t += 3) {
+                states.add(transitions[t]);
+                states.add(transitions[t + 1]);
+            }
+            for (int s : states.toArray()) {
+                if (s < 0 || s >= nbStates) {
+                    throw new IOException("ModelFormat: corrupted file, unknown state " + s);
+                }
+            }
+            automaton.setInitialState(initial);
+            automaton.setFinal(finals);
+            for (int t = 0; t < transitions.length; t += 3) {
+                automaton.addTransition(transitions[t], transitions[t + 1], transitions[t + 2]);
+            }
+            return automaton;
+        }
+    }
+}
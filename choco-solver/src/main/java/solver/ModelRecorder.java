@@ -0,0 +1,516 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver;
+
+import solver.constraints.Constraint;
+import solver.exception.SolverException;
+import solver.variables.IntVar;
+import solver.variables.Variable;
+import solver.variables.VariableFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * A recorder of the calls made to build a model, so that the model can be built again in a new solver.
+ * <p/>
+ * A model is stated through {@link #invoke(Object, String, Object...)}, which executes a method
+ * (commonly a factory method of <code>VF</code>, <code>ICF</code>, <code>SCF</code>, <code>LCF</code>, ...
+ * or a method of an object previously returned) in the recorded solver, and records it.
+ * <pre>
+ * ModelRecorder rec = new ModelRecorder(new Solver());
+ * IntVar[] x = rec.invoke(VF.class, "enumeratedArray", "x", 3, 0, 5, rec.getSolver());
+ * rec.post((Constraint) rec.invoke(ICF.class, "alldifferent", x, "AC"));
+ * ModelRecorder.Replay copy = rec.replay();
+ * Solver solver = copy.getSolver();
+ * IntVar[] y = copy.get(x);
+ * </pre>
+ * A replay creates an independent solver, by executing again the recorded calls,
+ * where the variables, constraints and solver of the recorded model are substituted with their counterparts.
+ * It is much faster than {@link Solver#serializeClone(Solver)}, which copies the whole object graph.
+ * Data given as parameters (tuples, automata, matrices, ...) are shared between the replays,
+ * except primitive arrays, which can be copied on demand.
+ * <br/>
+ * Once the model is stated, replays can be computed concurrently.
+ * Variables and constraints which are not built through the recorder can not be used as parameters,
+ * except constants (<code>VF.fixed</code>) and the solver's <code>ZERO</code> and <code>ONE</code>.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class ModelRecorder {
+
+    // markers for specific parameters
+    static final Object SOLVER = new Object(), ZERO = new Object(), ONE = new Object();
+
+    private final Solver solver;
+    final ArrayList<Step> steps;
+    final ArrayList<Object> results; // result of each step, in the recorded solver
+    private final IdentityHashMap<Object, int[]> paths; // object built by a step -> [step, index in array, ...]
+    private final HashMap<String, Method> methods; // cache of resolved methods
+
+    /**
+     * Create a recorder, stating the model in <code>solver</code>.
+     *
+     * @param solver the solver in which the recorded calls are executed, should be empty
+     */
+    public ModelRecorder(Solver solver) {
+        this.solver = solver;
+        this.steps = new ArrayList<Step>();
+        this.results = new ArrayList<Object>();
+        this.paths = new IdentityHashMap<Object, int[]>();
+        this.methods = new HashMap<String, Method>();
+    }
+
+    /**
+     * @return the solver in which the recorded calls are executed
+     */
+    public Solver getSolver() {
+        return solver;
+    }
+
+    /**
+     * @return the number of recorded calls
+     */
+    public int getNbSteps() {
+        return steps.size();
+    }
+
+    /**
+     * Execute and record a call to <code>method</code>.
+     * Variable-length parameters must be given as an array;
+     * when an array of objects is the only parameter, it must be cast to <code>Object</code>.
+     *
+     * @param target a class, to call a static method, or an object (built by the recorder, or the solver)
+     * @param method name of the method
+     * @param args   parameters of the call
+     * @param <T>    type of the result
+     * @return the result of the call
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T invoke(Object target, String method, Object... args) {
+        Object eTarget;
+        Class clazz;
+        if (target instanceof Class) {
+            clazz = (Class) target;
+            eTarget = null;
+        } else {
+            clazz = target.getClass();
+            eTarget = encode(target);
+            if (eTarget == target) {
+                throw new SolverException("ModelRecorder: " + target + " has not been built through the recorder");
+            }
+        }
+        Method m = resolve(clazz, method, args, eTarget == null);
+        Object[] eArgs = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            eArgs[i] = encode(args[i]);
+        }
+        Object result = call(m, target instanceof Class ? null : target, args);
+        Step step = new Step(m, eTarget, eArgs);
+        register(result, new int[]{steps.size()});
+        steps.add(step);
+        results.add(result);
+        return (T) result;
+    }
+
+    /**
+     * Post and record the constraints, see {@link Solver#post(solver.constraints.Constraint...)}.
+     *
+     * @param cs constraints built by the recorder
+     */
+    public void post(Constraint... cs) {
+        invoke(solver, "post", new Object[]{cs});
+    }
+
+    /**
+     * Build the recorded model in a new solver, sharing the data given as parameters.
+     *
+     * @return the replay
+     */
+    public Replay replay() {
+        return replay(true);
+    }
+
+    /**
+     * Build the recorded model in a new solver.
+     *
+     * @param shareArrays set to <code>false</code> to give a copy of the primitive arrays to the new solver
+     * @return the replay
+     */
+    public Replay replay(boolean shareArrays) {
+        return replay(new Solver(solver.getName()), shareArrays);
+    }
+
+    private Replay replay(Solver target, boolean shareArrays) {
+        Replay replay = new Replay(target, shareArrays);
+        for (int s = 0; s < steps.size(); s++) {
+            Step step = steps.get(s);
+            Object t = step.target == null ? null : replay.decode(step.target);
+            Object[] args = new Object[step.args.length];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = replay.decode(step.args[i]);
+            }
+            replay.results[s] = call(step.method, t, args);
+        }
+        return replay;
+    }
+
+    /**
+     * Write the recorded model in <code>file</code>, in a compact binary format.
+     * Only the calls to the factory methods listed in the format can be written:
+     * the common variables and views of <code>VF</code>, the integer constraints of <code>ICF</code>
+     * with integer, variable and table (or automaton) parameters, and {@link #post(solver.constraints.Constraint...)}.
+     *
+     * @param file the output file
+     * @throws IOException if an I/O exception occurs, or if a call or a parameter can not be written
+     */
+    public void write(File file) throws IOException {
+        ModelFormat.write(this, file);
+    }
+
+    /**
+     * Load a model written by {@link #write(java.io.File)}: the file is memory-mapped, and the model is built
+     * in a new solver, available through {@link #getSolver()}.
+     * The returned recorder can be replayed, or completed.
+     *
+     * @param file the input file
+     * @return a recorder of the model
+     * @throws IOException if an I/O exception occurs, or if the file is not a valid model file
+     */
+    public static ModelRecorder read(File file) throws IOException {
+        return ModelFormat.read(file);
+    }
+
+    /**
+     * Build a recorder from steps read in a file, and already executed in <code>solver</code>.
+     */
+    static ModelRecorder load(Solver solver, ArrayList<Step> steps, ArrayList<Object> results) {
+        ModelRecorder rec = new ModelRecorder(solver);
+        rec.steps.addAll(steps);
+        rec.results.addAll(results);
+        for (int s = 0; s < results.size(); s++) {
+            rec.register(results.get(s), new int[]{s});
+        }
+        return rec;
+    }
+
+    /**
+     * Get the object, in the recorded solver, a reference points to.
+     */
+    Object get(Ref ref) {
+        Object o = results.get(ref.path[0]);
+        for (int i = 1; i < ref.path.length; i++) {
+            o = ((Object[]) o)[ref.path[i]];
+        }
+        return o;
+    }
+
+    //****************************************************************************************************************//
+
+    private void register(Object result, int[] path) {
+        if (result == null || result instanceof Solver || paths.containsKey(result)) {
+            return;
+        }
+        if (result instanceof Variable || result instanceof Constraint) {
+            paths.put(result, path);
+        } else if (result instanceof Object[]) {
+            paths.put(result, path);
+            Object[] array = (Object[]) result;
+            for (int i = 0; i < array.length; i++) {
+                int[] p = new int[path.length + 1];
+                System.arraycopy(path, 0, p, 0, path.length);
+                p[path.length] = i;
+                register(array[i], p);
+            }
+        } else if (!(result instanceof Number || result instanceof String || result instanceof Boolean
+                || result instanceof Character || result instanceof Enum)) {
+            paths.put(result, path);
+        }
+    }
+
+    private Object encode(Object arg) {
+        if (arg == null) {
+            return null;
+        }
+        if (arg == solver) {
+            return SOLVER;
+        }
+        int[] path = paths.get(arg);
+        if (path != null) {
+            return new Ref(path);
+        }
+        if (arg instanceof Variable) {
+            Variable v = (Variable) arg;
+            if (v == solver.ZERO) {
+                return ZERO;
+            }
+            if (v == solver.ONE) {
+                return ONE;
+            }
+            if ((v.getTypeAndKind() & Variable.CSTE) != 0 && (v.getTypeAndKind() & Variable.INT) != 0) {
+                return new Cste(v.getName(), ((IntVar) v).getValue());
+            }
+            throw new SolverException("ModelRecorder: " + v.getName() + " has not been built through the recorder");
+        }
+        if (arg instanceof Constraint) {
+            throw new SolverException("ModelRecorder: " + arg + " has not been built through the recorder");
+        }
+        if (arg instanceof Object[] && !arg.getClass().getComponentType().isPrimitive()) {
+            Object[] array = (Object[]) arg;
+            Object[] eArray = new Object[array.length];
+            boolean raw = true;
+            for (int i = 0; i < array.length; i++) {
+                eArray[i] = encode(array[i]);
+                raw &= eArray[i] == array[i];
+            }
+            return raw ? arg : new ArrayOf(arg.getClass().getComponentType(), eArray);
+        }
+        return arg;
+    }
+
+    private Method resolve(Class clazz, String name, Object[] args, boolean isStatic) {
+        StringBuilder key = new StringBuilder(clazz.getName()).append('#').append(name);
+        for (int i = 0; i < args.length; i++) {
+            key.append(',').append(args[i] == null ? "null" : args[i].getClass().getName());
+        }
+        String k = key.toString();
+        Method m = methods.get(k);
+        if (m == null) {
+            for (Method c : clazz.getMethods()) {
+                if (c.getName().equals(name) && Modifier.isStatic(c.getModifiers()) == isStatic
+                        && accept(c.getParameterTypes(), args)
+                        && (m == null || moreSpecific(c.getParameterTypes(), m.getParameterTypes()))) {
+                    m = c;
+                }
+            }
+            if (m == null) {
+                throw new SolverException("ModelRecorder: no method " + k.replace(',', ' ') + " can be found");
+            }
+            methods.put(k, m);
+        }
+        return m;
+    }
+
+    private static boolean accept(Class[] types, Object[] args) {
+        if (types.length != args.length) {
+            return false;
+        }
+        for (int i = 0; i < types.length; i++) {
+            if (args[i] == null) {
+                if (types[i].isPrimitive()) {
+                    return false;
+                }
+            } else if (!wrap(types[i]).isInstance(args[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean moreSpecific(Class[] t1, Class[] t2) {
+        for (int i = 0; i < t1.length; i++) {
+            if (!wrap(t2[i]).isAssignableFrom(wrap(t1[i]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Class wrap(Class c) {
+        if (!c.isPrimitive()) {
+            return c;
+        }
+        if (c == int.class) return Integer.class;
+        if (c == boolean.class) return Boolean.class;
+        if (c == long.class) return Long.class;
+        if (c == double.class) return Double.class;
+        if (c == float.class) return Float.class;
+        if (c == short.class) return Short.class;
+        if (c == byte.class) return Byte.class;
+        return Character.class;
+    }
+
+    private static Object call(Method m, Object target, Object[] args) {
+        try {
+            return m.invoke(target, args);
+        } catch (IllegalAccessException e) {
+            throw new SolverException("ModelRecorder: " + m.getName() + " can not be accessed");
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new SolverException("ModelRecorder: " + m.getName() + " failed, " + e.getCause());
+        }
+    }
+
+    private static Object copy(Object data) {
+        if (data instanceof int[]) {
+            return ((int[]) data).clone();
+        } else if (data instanceof long[]) {
+            return ((long[]) data).clone();
+        } else if (data instanceof double[]) {
+            return ((double[]) data).clone();
+        } else if (data instanceof boolean[]) {
+            return ((boolean[]) data).clone();
+        } else if (data instanceof int[][]) {
+            int[][] m = ((int[][]) data).clone();
+            for (int i = 0; i < m.length; i++) {
+                m[i] = m[i] == null ? null : m[i].clone();
+            }
+            return m;
+        } else if (data instanceof double[][]) {
+            double[][] m = ((double[][]) data).clone();
+            for (int i = 0; i < m.length; i++) {
+                m[i] = m[i] == null ? null : m[i].clone();
+            }
+            return m;
+        }
+        return data;
+    }
+
+    //****************************************************************************************************************//
+
+    static final class Step {
+        final Method method;
+        final Object target; // encoded, null for static methods
+        final Object[] args; // encoded
+
+        Step(Method method, Object target, Object[] args) {
+            this.method = method;
+            this.target = target;
+            this.args = args;
+        }
+    }
+
+    // reference to an object built by a step
+    static final class Ref {
+        final int[] path;
+
+        Ref(int[] path) {
+            this.path = path;
+        }
+    }
+
+    // an array made of encoded elements
+    static final class ArrayOf {
+        final Class type;
+        final Object[] elements;
+
+        ArrayOf(Class type, Object[] elements) {
+            this.type = type;
+            this.elements = elements;
+        }
+    }
+
+    // a constant not built through the recorder
+    static final class Cste {
+        final String name;
+        final int value;
+
+        Cste(String name, int value) {
+            this.name = name;
+            this.value = value;
+        }
+    }
+
+    /**
+     * A copy of the recorded model, built in a new solver.
+     */
+    public final class Replay {
+
+        private final Solver solver;
+        private final boolean shareArrays;
+        private final Object[] results;
+
+        private Replay(Solver solver, boolean shareArrays) {
+            this.solver = solver;
+            this.shareArrays = shareArrays;
+            this.results = new Object[steps.size()];
+        }
+
+        /**
+         * @return the solver of this replay
+         */
+        public Solver getSolver() {
+            return solver;
+        }
+
+        /**
+         * Get the counterpart of an object (variable, constraint, array, ...) built by the recorder.
+         *
+         * @param original an object returned by {@link ModelRecorder#invoke(Object, String, Object...)}, or an element of it
+         * @param <T>      its type
+         * @return the counterpart of <code>original</code> in this replay
+         */
+        @SuppressWarnings("unchecked")
+        public <T> T get(T original) {
+            if (original == ModelRecorder.this.solver) {
+                return (T) solver;
+            }
+            Object e = encode(original);
+            if (e == original && original != null) {
+                throw new SolverException("ModelRecorder: " + original + " has not been built through the recorder");
+            }
+            return (T) decode(e);
+        }
+
+        private Object decode(Object e) {
+            if (e == SOLVER) {
+                return solver;
+            } else if (e == ZERO) {
+                return solver.ZERO;
+            } else if (e == ONE) {
+                return solver.ONE;
+            } else if (e instanceof Ref) {
+                int[] path = ((Ref) e).path;
+                Object o = results[path[0]];
+                for (int i = 1; i < path.length; i++) {
+                    o = ((Object[]) o)[path[i]];
+                }
+                return o;
+            } else if (e instanceof ArrayOf) {
+                ArrayOf a = (ArrayOf) e;
+                Object[] array = (Object[]) Array.newInstance(a.type, a.elements.length);
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = decode(a.elements[i]);
+                }
+                return array;
+            } else if (e instanceof Cste) {
+                return VariableFactory.fixed(((Cste) e).name, ((Cste) e).value, solver);
+            }
+            return shareArrays ? e : copy(e);
+        }
+    }
+}
@@ -32,6 +32,8 @@ import memory.Environments;
 import memory.IEnvironment;
 import org.slf4j.LoggerFactory;
 import solver.constraints.Constraint;
+import solver.constraints.Propagator;
+import solver.constraints.nary.alldifferent.CliqueDetector;
 import solver.constraints.nary.cnf.PropFalse;
 import solver.constraints.nary.cnf.PropTrue;
 import solver.constraints.nary.cnf.SatConstraint;
@@ -40,6 +42,7 @@ import solver.exception.ContradictionException;
 import solver.exception.SolverException;
 import solver.explanations.ExplanationEngine;
 import solver.objective.IntObjectiveManager;
+import solver.objective.ParetoObjectiveManager;
 import solver.objective.RealObjectiveManager;
 import solver.propagation.IPropagationEngine;
 import solver.propagation.NoPropagationEngine;
@@ -59,6 +62,7 @@ import util.ESat;
 
 import java.io.*;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * The <code>Solver</code> is the header component of Constraint Programming.
@@ -495,6 +499,40 @@ public class Solver implements Serializable {
     }
 
 
+    /**
+     * Remove a constraint <code>c</code> from the constraints network of <code>this</code>:
+     * - remove it from the data structure and from the propagation engine,
+     * - unlink its propagators from their variables.
+     * The domain reductions due to <code>c</code> are not undone: the world preceding its post should be restored beforehand,
+     * so that its propagators are not active anymore.
+     * Once removed, <code>c</code> cannot be posted again.
+     *
+     * @param c a posted constraint
+     */
+    public void unpost(Constraint c) {
+        int idx = cIdx - 1; // most of the time, the last posted one
+        while (idx >= 0 && cstrs[idx] != c) {
+            idx--;
+        }
+        if (idx < 0) {
+            throw new SolverException("Try to remove a constraint which is not posted: " + c);
+        }
+        System.arraycopy(cstrs, idx + 1, cstrs, idx, cIdx - idx - 1);
+        cstrs[--cIdx] = null;
+        if (engine != NoPropagationEngine.SINGLETON && engine.isInitialized()) {
+            engine.dynamicDeletion(c);
+        }
+        Propagator[] props = c.getPropagators();
+        for (int p = 0; p < props.length; p++) {
+            assert !props[p].isActive() : "remove an active propagator: " + props[p];
+            props[p].unlinkVariables();
+        }
+        Variable[] cvars = c.getVariables();
+        for (int v = 0; v < cvars.length; v++) {
+            cvars[v].undeclareIn(c);
+        }
+    }
+
     private void _post(boolean cut, Constraint... cs) {
         boolean dynAdd = false;
         if (engine != NoPropagationEngine.SINGLETON && engine.isInitialized()) {
@@ -669,11 +707,37 @@ public class Solver implements Serializable {
         solve(false);
     }
 
+    /**
+     * Attempts to find the Pareto front of the <code>objectives</code>, all optimized w.r.t. the optimization <code>policy</code>.
+     * Each solution found is not dominated by the previous ones: the dominated solutions are discarded on the fly,
+     * and the dominance constraint prevents the search from computing them again.
+     * When the search is complete, the returned list contains one Pareto optimal solution per point of the front.
+     *
+     * @param policy     optimization policy, among ResolutionPolicy.MINIMIZE and ResolutionPolicy.MAXIMIZE
+     * @param objectives the variables to optimize (at least two)
+     * @return the non-dominated solutions found
+     */
+    public List<Solution> findParetoFront(ResolutionPolicy policy, IntVar... objectives) {
+        if (policy == ResolutionPolicy.SATISFACTION) {
+            throw new SolverException("Solver.findParetoFront(...) can not be called with ResolutionPolicy.SATISFACTION.");
+        }
+        if (objectives == null || objectives.length == 0) {
+            throw new SolverException("No objective variable has been defined");
+        }
+        ParetoObjectiveManager pom = new ParetoObjectiveManager(objectives, policy, this);
+        this.search.setObjectivemanager(pom);
+        solve(false);
+        return pom.getParetoFront();
+    }
+
     /**
      * This method should not be called externally. It launches the resolution process.
      */
     protected void solve(boolean stopAtFirst) {
         if (engine == NoPropagationEngine.SINGLETON) {
+            if (Configuration.DETECT_CLIQUES != Configuration.Cliques.disabled) {
+                CliqueDetector.detect(this, Configuration.DETECT_CLIQUES.name());
+            }
             this.set(new SevenQueuesPropagatorEngine(this));
         }
         measures.setReadingTimeCount(creationTime + System.nanoTime());
@@ -835,6 +899,7 @@ public class Solver implements Serializable {
      * Cloning process based on serialization.
      * <p/>
      * Return a clone of <code>solver</code>.
+     * To copy a model repeatedly, {@link ModelRecorder} is much faster.
      *
      * @param solver solver to clone.
      */
@@ -41,6 +41,7 @@ import solver.constraints.nary.alldifferent.AllDifferent;
 import solver.constraints.nary.alldifferent.conditions.Condition;
 import solver.constraints.nary.alldifferent.conditions.ConditionnalAllDifferent;
 import solver.constraints.nary.among.Among;
+import solver.constraints.nary.binpacking.BinPacking;
 import solver.constraints.nary.automata.CostRegular;
 import solver.constraints.nary.automata.FA.IAutomaton;
 import solver.constraints.nary.automata.FA.ICostAutomaton;
@@ -56,6 +57,8 @@ import solver.constraints.nary.element.Element;
 import solver.constraints.nary.globalcardinality.GlobalCardinality;
 import solver.constraints.nary.lex.Lex;
 import solver.constraints.nary.lex.LexChain;
+import solver.constraints.nary.mdd.MDD;
+import solver.constraints.nary.mdd.MultivaluedDecisionDiagram;
 import solver.constraints.nary.min_max.MaxOfAList;
 import solver.constraints.nary.min_max.MinOfAList;
 import solver.constraints.nary.nValue.Differences;
@@ -269,14 +272,17 @@ public class IntConstraintFactory {
     /**
      * Create a table constraint over a couple of variables VAR1 and VAR2, .
      * <p/>
-     * The <code>ALGORITHM</code> should be chosen among {"AC2201"}.
+     * The <code>ALGORITHM</code> should be chosen among {"AC2001", "AC3bitrm"}.
      * <p/>
-     * <b>AC2001</b>: Arc Consistency version 2001.
+     * <b>AC2001</b>: Arc Consistency version 2001,
+     * <br/>
+     * <b>AC3bitrm</b>: Arc Consistency version 3 with bitwise operations and residual supports,
+     * its memory is in O(|D(VAR1)|.|D(VAR2)|).
      *
      * @param VAR1      first variable
      * @param VAR2      second variable
      * @param RELATION  the relation between the two variables
-     * @param ALGORITHM to choose among {"AC2001"}
+     * @param ALGORITHM to choose among {"AC2001", "AC3bitrm"}
      */
     public static BinCSP table(IntVar VAR1, IntVar VAR2, BinRelation RELATION, String ALGORITHM) {
         return new BinCSP(VAR1, VAR2, RELATION, BinCSP.Algorithm.valueOf(ALGORITHM));
@@ -442,6 +448,9 @@ public class IntConstraintFactory {
 	 * forall b in [0,BIN_LOAD.length-1],
 	 * BIN_LOAD[b]=sum(ITEM_SIZE[i] | i in [0,ITEM_SIZE.length-1], ITEM_BIN[i] = b+OFFSET
 	 * forall i in [0,ITEM_SIZE.length-1], ITEM_BIN is in [OFFSET,BIN_LOAD.length-1+OFFSET],
+	 * <br/>
+	 * Filtering: load bounds, item elimination and commitment, knapsack reasoning on each bin
+	 * and a lower bound on the number of bins (Shaw, CP 2004), no additional variable is created.
 	 *
 	 * @param ITEM_BIN IntVar representing the bin of each item
 	 * @param ITEM_SIZE int representing the size of each item
@@ -451,6 +460,23 @@ public class IntConstraintFactory {
 	 * @return
 	 */
 	public static Constraint[] bin_packing(IntVar[] ITEM_BIN, int[] ITEM_SIZE, IntVar[] BIN_LOAD, int OFFSET){
+		return new Constraint[]{new BinPacking(ITEM_BIN, ITEM_SIZE, BIN_LOAD, OFFSET)};
+	}
+
+	/**
+	 * Bin Packing formulation, same semantic as bin_packing(ITEM_BIN, ITEM_SIZE, BIN_LOAD, OFFSET),
+	 * decomposed with a boolean matrix (bin x item), boolean channelings, scalar products and a sum.
+	 * <br/>
+	 * Weaker and heavier than the global constraint, it is kept for comparison purposes.
+	 *
+	 * @param ITEM_BIN IntVar representing the bin of each item
+	 * @param ITEM_SIZE int representing the size of each item
+	 * @param BIN_LOAD IntVar representing the load of each bin (i.e. the sum of the size of the items in it)
+	 * @param OFFSET 0 by default but typically 1 if used within MiniZinc
+	 *               (which counts from 1 to n instead of from 0 to n-1)
+	 * @return
+	 */
+	public static Constraint[] bin_packing_decomposition(IntVar[] ITEM_BIN, int[] ITEM_SIZE, IntVar[] BIN_LOAD, int OFFSET){
 		int nbBins = BIN_LOAD.length;
 		int nbItems= ITEM_BIN.length;
 		Solver s = ITEM_BIN[0].getSolver();
@@ -650,10 +676,38 @@ public class IntConstraintFactory {
      * @param CLOSED      restricts domains of VARS to VALUES if set to true
      */
     public static GlobalCardinality global_cardinality(IntVar[] VARS, int[] VALUES, IntVar[] OCCURRENCES, boolean CLOSED) {
+        return global_cardinality(VARS, VALUES, OCCURRENCES, CLOSED, "DEFAULT");
+    }
+
+    /**
+     * Global Cardinality constraint (GCC):
+     * Each value VALUES[i] should be taken by exactly OCCURRENCES[i] variables of VARS.
+     * The consistency level should be chosen among "BC" and "DEFAULT".
+     * <p/>
+     * <b>BC</b>:
+     * <br/>
+     * Ensures bound consistency on VARS with respect to the bounds of OCCURRENCES, in O(n.log(n) + d) time,
+     * where d is the size of the union of the domains of VARS.
+     * Based on: "An Efficient Bounds Consistency Algorithm for the Global Cardinality Constraint"</br>
+     * C.-G. Quimper, A. Lopez-Ortiz, P. van Beek, A. Golynski
+     * <p/>
+     * <b>DEFAULT</b>:
+     * <br/>
+     * Counting filter only, fast but with no well-defined level of consistency
+     *
+     * @param VARS        collection of variables
+     * @param VALUES      collection of constrained values
+     * @param OCCURRENCES collection of cardinality variables
+     * @param CLOSED      restricts domains of VARS to VALUES if set to true
+     * @param CONSISTENCY consistency level, among {"BC", "DEFAULT"}
+     */
+    public static GlobalCardinality global_cardinality(IntVar[] VARS, int[] VALUES, IntVar[] OCCURRENCES, boolean CLOSED,
+                                                       String CONSISTENCY) {
+        GlobalCardinality.Consistency consistency = GlobalCardinality.Consistency.valueOf(CONSISTENCY);
         Solver solver = VARS[0].getSolver();
         assert VALUES.length == OCCURRENCES.length;
         if (!CLOSED) {
-            return new GlobalCardinality(VARS, VALUES, OCCURRENCES, solver);
+            return new GlobalCardinality(VARS, VALUES, OCCURRENCES, consistency, solver);
         } else {
             TIntArrayList toAdd = new TIntArrayList();
             TIntSet givenValues = new TIntHashSet();
@@ -681,9 +735,9 @@ public class IntConstraintFactory {
                     values[i] = toAdd.get(i - VALUES.length);
                     cards[i] = VariableFactory.fixed(0, solver);
                 }
-                return new GlobalCardinality(VARS, values, cards, solver);
+                return new GlobalCardinality(VARS, values, cards, consistency, solver);
             } else {
-                return new GlobalCardinality(VARS, VALUES, OCCURRENCES, solver);
+                return new GlobalCardinality(VARS, VALUES, OCCURRENCES, consistency, solver);
             }
         }
     }
@@ -796,6 +850,22 @@ public class IntConstraintFactory {
         return new MinOfAList(MIN, VARS, MIN.getSolver());
     }
 
+    /**
+     * Ensures that the assignment of a sequence of VARS is a path from the root to the terminal of MDD,
+     * a multi-valued decision diagram with one layer per variable.
+     * <p/>
+     * MDD is read-only and can be shared by several constraints, possibly from different solvers.
+     * It can be compiled from a list of tuples or from an automaton
+     * (see MultivaluedDecisionDiagram.fromTuples(...) and MultivaluedDecisionDiagram.fromAutomaton(...)).
+     * The filtering algorithm is MDD4R (Perez and R&eacute;gin, CP'14) and ensures arc consistency.
+     *
+     * @param VARS sequence of variables
+     * @param MDD  a multi-valued decision diagram
+     */
+    public static MDD mdd(IntVar[] VARS, MultivaluedDecisionDiagram MDD) {
+        return new MDD(VARS, MDD, VARS[0].getSolver());
+    }
+
     /**
      * Ensures that the assignment of a sequence of VARS is recognized by AUTOMATON, a deterministic finite automaton,
      * and that the sum of the cost vector COSTS associated to each assignment is bounded by the variable vector CVARS.
@@ -1062,6 +1132,9 @@ public class IntConstraintFactory {
      * <b>AC32</b>: Arc Consistency version 32,
      * <br/>
      * <b>FC</b>: Forward Checking.
+     * <p/>
+     * Over two variables with small domains (the product of the domain sizes is at most
+     * PropBinAC3bitrm.MAX_DOMAIN_PRODUCT), "AC2001" and "AC32" are both achieved with the binary AC3bit+rm algorithm.
      *
      * @param VARS      first variable
      * @param RELATION  the relation between the two variables
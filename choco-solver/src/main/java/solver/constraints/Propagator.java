@@ -439,6 +439,16 @@ public abstract class Propagator<V extends Variable> implements Serializable, IC
         vindices[idx] = val;
     }
 
+    /**
+     * Remove <code>this</code> from the propagators of its variables.
+     * Should only be called when <code>this</code> is removed from the solver.
+     */
+    public void unlinkVariables() {
+        for (int v = 0; v < vars.length; v++) {
+            vars[v].unlink(this, vindices[v]);
+        }
+    }
+
     /**
      * Returns the number of variables involved in <code>this</code>.
      *
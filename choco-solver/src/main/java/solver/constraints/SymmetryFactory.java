@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.constraints;
+
+import solver.Solver;
+import solver.constraints.symmetry.SBDS;
+import solver.constraints.symmetry.Symmetry;
+import solver.variables.IntVar;
+import solver.variables.VariableFactory;
+import util.tools.ArrayUtils;
+import util.tools.StringUtils;
+
+import java.util.ArrayList;
+
+/**
+ * A factory dedicated to symmetry breaking.
+ * <br/>
+ * Symmetries are described by {@link Symmetry} objects, or built from common shorthands
+ * (interchangeable rows or columns of a matrix, interchangeable values).
+ * They are broken either statically, with lexicographic constraints (lex-leader),
+ * or dynamically, with {@link SBDS}.
+ * The two approaches should not be combined on the same symmetries.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class SymmetryFactory {
+
+    private SymmetryFactory() {
+    }
+
+    //***********************************************************************************
+    // Symmetries
+    //***********************************************************************************
+
+    /**
+     * Build the transpositions of any two rows of MATRIX, over the flattened matrix.
+     *
+     * @param MATRIX a matrix of variables whose rows are interchangeable
+     * @return an array of symmetries
+     */
+    public static Symmetry[] row_interchangeability(IntVar[][] MATRIX) {
+        IntVar[] vars = ArrayUtils.flatten(MATRIX);
+        int n = MATRIX.length, m = MATRIX[0].length;
+        ArrayList<Symmetry> syms = new ArrayList<Symmetry>();
+        for (int r1 = 0; r1 < n; r1++) {
+            for (int r2 = r1 + 1; r2 < n; r2++) {
+                int[] map = identity(vars.length);
+                for (int c = 0; c < m; c++) {
+                    map[r1 * m + c] = r2 * m + c;
+                    map[r2 * m + c] = r1 * m + c;
+                }
+                syms.add(new Symmetry(vars, map, 0, null));
+            }
+        }
+        return syms.toArray(new Symmetry[syms.size()]);
+    }
+
+    /**
+     * Build the transpositions of any two columns of MATRIX, over the flattened matrix.
+     *
+     * @param MATRIX a matrix of variables whose columns are interchangeable
+     * @return an array of symmetries
+     */
+    public static Symmetry[] column_interchangeability(IntVar[][] MATRIX) {
+        IntVar[] vars = ArrayUtils.flatten(MATRIX);
+        int n = MATRIX.length, m = MATRIX[0].length;
+        ArrayList<Symmetry> syms = new ArrayList<Symmetry>();
+        for (int c1 = 0; c1 < m; c1++) {
+            for (int c2 = c1 + 1; c2 < m; c2++) {
+                int[] map = identity(vars.length);
+                for (int r = 0; r < n; r++) {
+                    map[r * m + c1] = r * m + c2;
+                    map[r * m + c2] = r * m + c1;
+                }
+                syms.add(new Symmetry(vars, map, 0, null));
+            }
+        }
+        return syms.toArray(new Symmetry[syms.size()]);
+    }
+
+    /**
+     * Build the transpositions of any two variables of VARS.
+     *
+     * @param VARS interchangeable variables
+     * @return an array of symmetries
+     */
+    public static Symmetry[] variable_interchangeability(IntVar[] VARS) {
+        ArrayList<Symmetry> syms = new ArrayList<Symmetry>();
+        for (int i = 0; i < VARS.length; i++) {
+            for (int j = i + 1; j < VARS.length; j++) {
+                int[] map = identity(VARS.length);
+                map[i] = j;
+                map[j] = i;
+                syms.add(new Symmetry(VARS, map, 0, null));
+            }
+        }
+        return syms.toArray(new Symmetry[syms.size()]);
+    }
+
+    /**
+     * Build the transpositions of any two values of VALUES, for all variables of VARS.
+     *
+     * @param VARS   variables
+     * @param VALUES interchangeable values
+     * @return an array of symmetries
+     */
+    public static Symmetry[] value_interchangeability(IntVar[] VARS, int... VALUES) {
+        int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+        for (int i = 0; i < VALUES.length; i++) {
+            min = Math.min(min, VALUES[i]);
+            max = Math.max(max, VALUES[i]);
+        }
+        ArrayList<Symmetry> syms = new ArrayList<Symmetry>();
+        for (int i = 0; i < VALUES.length; i++) {
+            for (int j = i + 1; j < VALUES.length; j++) {
+                int[] map = identity(max - min + 1);
+                for (int k = 0; k < map.length; k++) {
+                    map[k] += min;
+                }
+                map[VALUES[i] - min] = VALUES[j];
+                map[VALUES[j] - min] = VALUES[i];
+                syms.add(new Symmetry(VARS, null, min, map));
+            }
+        }
+        return syms.toArray(new Symmetry[syms.size()]);
+    }
+
+    private static int[] identity(int n) {
+        int[] map = new int[n];
+        for (int i = 0; i < n; i++) {
+            map[i] = i;
+        }
+        return map;
+    }
+
+    //***********************************************************************************
+    // Static symmetry breaking
+    //***********************************************************************************
+
+    /**
+     * Build lex-leader constraints: for each symmetry <code>g</code>, the assignment of its variables
+     * is lexicographically less or equal than its image by <code>g</code>.
+     * Value symmetries are expressed with {@link IntConstraintFactory#element(IntVar, int[], IntVar, int, String)}
+     * on additional variables.
+     * <br/>
+     * All symmetries must be defined over the same variable ordering,
+     * otherwise the constraints may remove all symmetric solutions.
+     *
+     * @param SYMMETRIES symmetries of the problem
+     * @return constraints to post
+     */
+    public static Constraint[] lex_leader(Symmetry... SYMMETRIES) {
+        ArrayList<Constraint> cstrs = new ArrayList<Constraint>();
+        for (int s = 0; s < SYMMETRIES.length; s++) {
+            Symmetry sym = SYMMETRIES[s];
+            IntVar[] vars = sym.getVars();
+            Solver solver = vars[0].getSolver();
+            boolean values = !sym.isVariableSymmetry();
+            IntVar[] image = new IntVar[vars.length];
+            for (int i = 0; i < vars.length; i++) {
+                IntVar y = vars[i];
+                if (values) {
+                    int lb = vars[i].getLB(), ub = vars[i].getUB();
+                    int[] table = new int[ub - lb + 1];
+                    int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+                    for (int v = lb; v <= ub; v++) {
+                        table[v - lb] = sym.imageVal(v);
+                        min = Math.min(min, table[v - lb]);
+                        max = Math.max(max, table[v - lb]);
+                    }
+                    y = VariableFactory.enumerated(StringUtils.randomName(), min, max, solver);
+                    cstrs.add(IntConstraintFactory.element(y, table, vars[i], lb, "none"));
+                }
+                image[sym.imageVar(i)] = y;
+            }
+            // skip the leading variables mapped onto themselves
+            int from = 0;
+            while (from < vars.length && image[from] == vars[from]) {
+                from++;
+            }
+            if (from < vars.length) {
+                IntVar[] x = new IntVar[vars.length - from];
+                IntVar[] y = new IntVar[vars.length - from];
+                System.arraycopy(vars, from, x, 0, x.length);
+                System.arraycopy(image, from, y, 0, y.length);
+                cstrs.add(IntConstraintFactory.lex_less_eq(x, y));
+            }
+        }
+        return cstrs.toArray(new Constraint[cstrs.size()]);
+    }
+
+    /**
+     * Break row and column interchangeability of MATRIX: rows, and columns, are lexicographically ordered.
+     *
+     * @param MATRIX a matrix of variables whose rows and columns are interchangeable
+     * @return constraints to post
+     */
+    public static Constraint[] double_lex(IntVar[][] MATRIX) {
+        IntVar[][] columns = new IntVar[MATRIX[0].length][MATRIX.length];
+        for (int i = 0; i < MATRIX.length; i++) {
+            for (int j = 0; j < MATRIX[i].length; j++) {
+                columns[j][i] = MATRIX[i][j];
+            }
+        }
+        return new Constraint[]{
+                IntConstraintFactory.lex_chain_less_eq(MATRIX),
+                IntConstraintFactory.lex_chain_less_eq(columns)
+        };
+    }
+
+    //***********************************************************************************
+    // Dynamic symmetry breaking
+    //***********************************************************************************
+
+    /**
+     * Break SYMMETRIES during search: on each refutation of an assignment,
+     * nogoods forbidding the symmetric assignments are posted (Symmetry Breaking During Search).
+     * The monitor and its propagator are plugged into the solver.
+     *
+     * @param SOLVER     a solver
+     * @param SYMMETRIES symmetries of the problem
+     * @return the SBDS monitor
+     */
+    public static SBDS sbds(Solver SOLVER, Symmetry... SYMMETRIES) {
+        return new SBDS(SOLVER, SYMMETRIES);
+    }
+}
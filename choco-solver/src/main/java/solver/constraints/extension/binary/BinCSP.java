@@ -39,13 +39,16 @@ import util.ESat;
 public class BinCSP extends IntConstraint<IntVar> {
 
     public enum Algorithm {
-        AC2001
+        AC2001, AC3bitrm
     }
 
 
     public BinCSP(IntVar x, IntVar y, BinRelation relation, Algorithm algo) {
         super(new IntVar[]{x, y}, x.getSolver());
         switch (algo) {
+            case AC3bitrm:
+                setPropagators(new PropBinAC3bitrm(x, y, relation));
+                break;
             case AC2001:
             default:
                 setPropagators(new PropBinAC2001(x, y, relation));
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.constraints.extension.binary;
+
+import memory.IStateLong;
+import solver.exception.ContradictionException;
+import solver.variables.EventType;
+import solver.variables.IntVar;
+import solver.variables.delta.IIntDeltaMonitor;
+import util.procedure.UnaryIntProcedure;
+
+/**
+ * AC3bit+rm for binary extensional constraints.
+ * <br/>
+ * The supports of each value are stored as a bitset over the initial domain of the other variable,
+ * and intersected word by word with the current domain of this variable.
+ * The index of the last word where a support has been found is kept as a residue, which needs not be restored on backtrack.
+ * The words of the current domains are trailed and maintained from the removed values.
+ * <br/>
+ * The memory and the initialisation are in O(|D(x)|.|D(y)|), see {@link #MAX_DOMAIN_PRODUCT}.
+ * <br/>
+ * Based on "Optimizing arc consistency: AC3bit+rm" (C. Lecoutre, J. Vion).
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class PropBinAC3bitrm extends PropBinCSP {
+
+    /**
+     * Largest product of the initial domain sizes for which this propagator should be preferred
+     * to a tuple-based one when no algorithm is explicitly required.
+     */
+    public static final long MAX_DOMAIN_PRODUCT = 1L << 20;
+
+    // offsets[i]: initial lower bound of vars[i]
+    protected final int[] offsets;
+    // supports[i][v][w]: w^th word of the supports of value (v + offsets[i]) of vars[i]
+    protected final long[][][] supports;
+    // residues[i][v]: index of the last word where a support of value (v + offsets[i]) of vars[i] has been found
+    protected final int[][] residues;
+    // words of the current domain of a variable
+    protected final IStateLong[][] domains;
+
+    protected final IIntDeltaMonitor[] idms;
+    protected final RemProc rem_proc;
+
+    public PropBinAC3bitrm(IntVar x, IntVar y, BinRelation relation) {
+        super(x, y, relation);
+        offsets = new int[]{x.getLB(), y.getLB()};
+        int[] sizes = new int[]{x.getUB() - offsets[0] + 1, y.getUB() - offsets[1] + 1};
+        supports = new long[2][][];
+        residues = new int[2][];
+        domains = new IStateLong[2][];
+        for (int i = 0; i < 2; i++) {
+            int j = 1 - i;
+            int words = (sizes[j] + 63) >>> 6;
+            supports[i] = new long[sizes[i]][words];
+            residues[i] = new int[sizes[i]];
+            domains[j] = new IStateLong[words];
+            for (int w = 0; w < words; w++) {
+                domains[j][w] = environment.makeLong(0L);
+            }
+        }
+        for (int v0 = 0; v0 < sizes[0]; v0++) {
+            if (!x.contains(v0 + offsets[0])) {
+                continue;
+            }
+            for (int v1 = 0; v1 < sizes[1]; v1++) {
+                if (y.contains(v1 + offsets[1]) && relation.isConsistent(v0 + offsets[0], v1 + offsets[1])) {
+                    supports[0][v0][v1 >>> 6] |= 1L << v1;
+                    supports[1][v1][v0 >>> 6] |= 1L << v0;
+                }
+            }
+        }
+        idms = new IIntDeltaMonitor[]{x.monitorDelta(this), y.monitorDelta(this)};
+        rem_proc = new RemProc(this);
+    }
+
+    @Override
+    public int getPropagationConditions(int vIdx) {
+        return EventType.INT_ALL_MASK();
+    }
+
+    @Override
+    public void propagate(int evtmask) throws ContradictionException {
+        for (int i = 0; i < 2; i++) {
+            IStateLong[] dom = domains[i];
+            long[] words = new long[dom.length];
+            int ub = vars[i].getUB();
+            for (int v = vars[i].getLB(); v <= ub; v = vars[i].nextValue(v)) {
+                int k = v - offsets[i];
+                words[k >>> 6] |= 1L << k;
+            }
+            for (int w = 0; w < dom.length; w++) {
+                if (dom[w].get() != words[w]) {
+                    dom[w].set(words[w]);
+                }
+            }
+        }
+        revise(0);
+        revise(1);
+        idms[0].unfreeze();
+        idms[1].unfreeze();
+    }
+
+    @Override
+    public void propagate(int idxVarInProp, int mask) throws ContradictionException {
+        idms[idxVarInProp].freeze();
+        idms[idxVarInProp].forEach(rem_proc.set(idxVarInProp), EventType.REMOVE);
+        idms[idxVarInProp].unfreeze();
+        // a value of vars[idx] supports a value of the other variable iff it is supported by it
+        revise(1 - idxVarInProp);
+    }
+
+    private void clear(int i, int v) {
+        int k = v - offsets[i];
+        IStateLong word = domains[i][k >>> 6];
+        long bit = 1L << k;
+        if ((word.get() & bit) != 0L) {
+            word.set(word.get() & ~bit);
+        }
+    }
+
+    /**
+     * Remove the values of vars[i] which have no support in the domain of the other variable.
+     */
+    protected void revise(int i) throws ContradictionException {
+        IStateLong[] dom = domains[1 - i];
+        IntVar var = vars[i];
+        long[][] sups = supports[i];
+        int[] res = residues[i];
+        int offset = offsets[i];
+        int left = Integer.MIN_VALUE;
+        int right = left;
+        int ub = var.getUB();
+        for (int v = var.getLB(); v <= ub; v = var.nextValue(v)) {
+            int k = v - offset;
+            long[] sup = sups[k];
+            if ((sup[res[k]] & dom[res[k]].get()) == 0L) {
+                int w = 0;
+                while (w < dom.length && (sup[w] & dom[w].get()) == 0L) {
+                    w++;
+                }
+                if (w < dom.length) {
+                    res[k] = w;
+                } else {
+                    // own removals are not reported by the delta monitor
+                    clear(i, v);
+                    if (v == right + 1) {
+                        right = v;
+                    } else {
+                        var.removeInterval(left, right, aCause);
+                        left = right = v;
+                    }
+                }
+            }
+        }
+        var.removeInterval(left, right, aCause);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Bin_AC3bitrm(").append(vars[0].getName()).append(", ").append(vars[1].getName()).append(", ").
+                append(this.relation.getClass().getSimpleName()).append(")");
+        return sb.toString();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private static class RemProc implements UnaryIntProcedure<Integer> {
+
+        private final PropBinAC3bitrm p;
+        private int idxVar;
+
+        public RemProc(PropBinAC3bitrm p) {
+            this.p = p;
+        }
+
+        @Override
+        public UnaryIntProcedure set(Integer idxVar) {
+            this.idxVar = idxVar;
+            return this;
+        }
+
+        @Override
+        public void execute(int i) throws ContradictionException {
+            p.clear(idxVar, i);
+        }
+    }
+}
@@ -28,6 +28,9 @@ package solver.constraints.extension.nary;
 
 import solver.Solver;
 import solver.constraints.IntConstraint;
+import solver.constraints.extension.binary.BinRelation;
+import solver.constraints.extension.binary.CouplesTable;
+import solver.constraints.extension.binary.PropBinAC3bitrm;
 import solver.variables.IntVar;
 import util.ESat;
 
@@ -48,6 +51,10 @@ public class LargeCSP extends IntConstraint<IntVar> {
     public LargeCSP(IntVar[] vars, LargeRelation relation, Type type, Solver solver) {
         super(vars, solver);
         this.relation = relation;
+        if (vars.length == 2 && type != Type.FC && isSmall(vars)) {
+            setPropagators(new PropBinAC3bitrm(vars[0], vars[1], binary(vars, relation)));
+            return;
+        }
         switch (type) {
             case FC:
                 setPropagators(new PropLargeCSP(vars, relation));
@@ -62,6 +69,45 @@ public class LargeCSP extends IntConstraint<IntVar> {
         }
     }
 
+    /**
+     * Bitwise supports are sized by the domains, not by the tuples: use them for small domains only.
+     */
+    private static boolean isSmall(IntVar[] vars) {
+        long n0 = (long) vars[0].getUB() - vars[0].getLB() + 1;
+        long n1 = (long) vars[1].getUB() - vars[1].getLB() + 1;
+        return n0 * n1 <= PropBinAC3bitrm.MAX_DOMAIN_PRODUCT;
+    }
+
+    /**
+     * View a relation over two variables as a binary relation.
+     */
+    private static BinRelation binary(IntVar[] vars, final LargeRelation relation) {
+        if (relation instanceof TuplesList) {
+            // iterable relations are not meant to be checked: build the table of couples
+            int lb0 = vars[0].getLB(), lb1 = vars[1].getLB();
+            int n0 = vars[0].getUB() - lb0 + 1, n1 = vars[1].getUB() - lb1 + 1;
+            CouplesTable table = new CouplesTable(true, lb0, lb1, n0, n1);
+            int[][] tuples = ((TuplesList) relation).getTupleTable();
+            for (int t = 0; t < tuples.length; t++) {
+                if (tuples[t][0] >= lb0 && tuples[t][0] < lb0 + n0 && tuples[t][1] >= lb1 && tuples[t][1] < lb1 + n1) {
+                    table.setCouple(tuples[t][0], tuples[t][1]);
+                }
+            }
+            return table;
+        }
+        return new BinRelation() {
+            @Override
+            public boolean checkCouple(int x, int y) {
+                return relation.checkTuple(new int[]{x, y});
+            }
+
+            @Override
+            public boolean isConsistent(int x, int y) {
+                return relation.isConsistent(new int[]{x, y});
+            }
+        };
+    }
+
     @Override
     public ESat isSatisfied(int[] tuple) {
         //return ESat.eval(relation.isConsistent(tuple));
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.constraints.nary.alldifferent;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.set.hash.TIntHashSet;
+import gnu.trove.set.hash.TLongHashSet;
+import solver.Solver;
+import solver.constraints.Constraint;
+import solver.constraints.IntConstraintFactory;
+import solver.constraints.Propagator;
+import solver.constraints.binary.PropNotEqualX_Y;
+import solver.variables.IntVar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A reformulation of a model, to be run before the propagation engine is built:
+ * the binary disequalities <code>X =/= Y</code> posted in the solver are seen as the edges of a graph,
+ * cliques of this graph are extracted greedily and each of them is replaced by an {@link AllDifferent} constraint.
+ * <br/>
+ * A constraint is removed only if each of its propagators is a {@link PropNotEqualX_Y} covered by a clique,
+ * and if it is not reified.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class CliqueDetector {
+
+    private CliqueDetector() {
+    }
+
+    /**
+     * Replace disequalities of <code>solver</code> by alldifferent constraints over cliques of at least 3 variables.
+     *
+     * @param solver      a solver, whose propagation engine is not built yet
+     * @param consistency consistency of the alldifferent constraints ("BC", "AC", ...)
+     * @return number of alldifferent constraints posted
+     */
+    public static int detect(Solver solver, String consistency) {
+        // 1. build the disequality graph
+        TIntIntHashMap indices = new TIntIntHashMap(16, 0.5f, -1, -1);
+        ArrayList<IntVar> vertices = new ArrayList<IntVar>();
+        ArrayList<TIntHashSet> neighbors = new ArrayList<TIntHashSet>();
+        ArrayList<Constraint> candidates = new ArrayList<Constraint>();
+        Constraint[] cstrs = solver.getCstrs();
+        for (int c = 0; c < cstrs.length; c++) {
+            Propagator[] props = cstrs[c].getPropagators();
+            if (!isCandidate(cstrs[c])) {
+                continue;
+            }
+            candidates.add(cstrs[c]);
+            for (int p = 0; p < props.length; p++) {
+                int x = index((IntVar) props[p].getVar(0), indices, vertices, neighbors);
+                int y = index((IntVar) props[p].getVar(1), indices, vertices, neighbors);
+                neighbors.get(x).add(y);
+                neighbors.get(y).add(x);
+            }
+        }
+        // 2. cover its edges with cliques, starting from the vertices of highest degree
+        int n = vertices.size();
+        final int[] degree = new int[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            degree[i] = neighbors.get(i).size();
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return degree[o2] - degree[o1];
+            }
+        });
+        TLongHashSet covered = new TLongHashSet();
+        TLongHashSet visited = new TLongHashSet();
+        ArrayList<int[]> cliques = new ArrayList<int[]>();
+        TIntArrayList clique = new TIntArrayList();
+        TIntArrayList cands = new TIntArrayList();
+        for (int o = 0; o < n; o++) {
+            int u = order[o];
+            int[] nu = neighbors.get(u).toArray();
+            for (int k = 0; k < nu.length; k++) {
+                int v = nu[k];
+                if (visited.contains(edge(u, v))) {
+                    continue;
+                }
+                // grow a clique from the edge (u,v), adding the common neighbour of highest degree first
+                clique.resetQuick();
+                clique.add(u);
+                clique.add(v);
+                cands.resetQuick();
+                for (int j = 0; j < nu.length; j++) {
+                    if (nu[j] != v && neighbors.get(v).contains(nu[j])) {
+                        cands.add(nu[j]);
+                    }
+                }
+                while (!cands.isEmpty()) {
+                    int best = 0;
+                    for (int j = 1; j < cands.size(); j++) {
+                        if (degree[cands.getQuick(j)] > degree[cands.getQuick(best)]) {
+                            best = j;
+                        }
+                    }
+                    int w = cands.getQuick(best);
+                    clique.add(w);
+                    TIntHashSet nw = neighbors.get(w);
+                    for (int j = cands.size() - 1; j >= 0; j--) {
+                        if (!nw.contains(cands.getQuick(j))) {
+                            cands.removeAt(j);
+                        }
+                    }
+                }
+                if (clique.size() > 2) {
+                    for (int i = 0; i < clique.size(); i++) {
+                        for (int j = i + 1; j < clique.size(); j++) {
+                            long e = edge(clique.getQuick(i), clique.getQuick(j));
+                            covered.add(e);
+                            visited.add(e);
+                        }
+                    }
+                    cliques.add(clique.toArray());
+                } else {
+                    visited.add(edge(u, v));
+                }
+            }
+        }
+        // 3. reformulate
+        for (int c = 0; c < candidates.size(); c++) {
+            Constraint cstr = candidates.get(c);
+            Propagator[] props = cstr.getPropagators();
+            boolean all = true;
+            for (int p = 0; p < props.length && all; p++) {
+                int x = indices.get(props[p].getVar(0).getId());
+                int y = indices.get(props[p].getVar(1).getId());
+                all = covered.contains(edge(x, y));
+            }
+            if (all) {
+                solver.unpost(cstr);
+            }
+        }
+        for (int k = 0; k < cliques.size(); k++) {
+            int[] cl = cliques.get(k);
+            IntVar[] vars = new IntVar[cl.length];
+            for (int i = 0; i < cl.length; i++) {
+                vars[i] = vertices.get(cl[i]);
+            }
+            solver.post(IntConstraintFactory.alldifferent(vars, consistency));
+        }
+        return cliques.size();
+    }
+
+    private static boolean isCandidate(Constraint cstr) {
+        Propagator[] props = cstr.getPropagators();
+        if (cstr.isReified() || props.length == 0) {
+            return false;
+        }
+        for (int p = 0; p < props.length; p++) {
+            if (!(props[p] instanceof PropNotEqualX_Y) || props[p].getVar(0) == props[p].getVar(1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int index(IntVar var, TIntIntHashMap indices, ArrayList<IntVar> vertices, ArrayList<TIntHashSet> neighbors) {
+        int idx = indices.get(var.getId());
+        if (idx == -1) {
+            idx = vertices.size();
+            indices.put(var.getId(), idx);
+            vertices.add(var);
+            neighbors.add(new TIntHashSet());
+        }
+        return idx;
+    }
+
+    private static long edge(int x, int y) {
+        return x < y ? ((long) x << 32) | y : ((long) y << 32) | x;
+    }
+}
@@ -26,7 +26,6 @@
  */
 package solver.constraints.nary.alldifferent;
 
-import gnu.trove.map.hash.TIntIntHashMap;
 import memory.IStateInt;
 import solver.constraints.Propagator;
 import solver.constraints.PropagatorPriority;
@@ -34,12 +33,8 @@ import solver.exception.ContradictionException;
 import solver.variables.EventType;
 import solver.variables.IntVar;
 import util.ESat;
-import util.graphOperations.connectivity.StrongConnectivityFinder;
-import util.objects.graphs.DirectedGraph;
-import util.objects.setDataStructures.ISet;
-import util.objects.setDataStructures.SetType;
 
-import java.util.BitSet;
+import java.util.Arrays;
 
 /**
  * Propagator for AllDifferent AC constraint for integer variables
@@ -48,7 +43,9 @@ import java.util.BitSet;
  * Runs in O(m.n) worst case time for the initial propagation
  * but has a good average behavior in practice
  * <p/>
- * Runs incrementally for maintaining a matching
+ * Runs incrementally: the matching is stored, only the variables which lost their matched value are re-matched,
+ * and the strongly connected components of the residual graph are only recomputed for those touched by
+ * the modified variables. The residual graph is never built: it is read from the domains.
  * <p/>
  *
  * @author Jean-Guillaume Fages
@@ -59,17 +56,29 @@ public class PropAllDiffAC_Fast extends Propagator<IntVar> {
     // VARIABLES
     //***********************************************************************************
 
-    protected int n, n2;
-    protected DirectedGraph digraph;
-    private IStateInt[] matching;
-    private int[] nodeSCC;
-    protected BitSet free;
-    private StrongConnectivityFinder SCCfinder;
+    // nodes: variables in [0,n), values in [n,n+nbValues), the sink n+nbValues
+    protected int n, nbValues, sink;
+    // value to index: v - offset when values is null, position in values otherwise
+    private int offset;
+    private int[] values;
+    private boolean allEnum;
+    // matching, variable to value index and value index to variable
+    private IStateInt[] varMate, valMate;
+    // representative node of the strongly connected component of each node
+    private IStateInt[] scc;
+    // domain sizes at the end of the last call, to detect the modified variables
+    private IStateInt[] sizes;
+    private int[] modified;
+    private int nbModified;
+    // nodes of the components to recompute
+    private boolean[] dirty, inSub;
     // for augmenting matching (BFS)
-    private int[] father;
-    private BitSet in;
-    private TIntIntHashMap map;
-    int[] fifo;
+    private int[] fifo, father;
+    private int[] visited;
+    private int stamp;
+    // for Tarjan's algorithm
+    private int[] index, low, rep, stack, call, cursor;
+    private boolean[] onStack;
 
     //***********************************************************************************
     // CONSTRUCTORS
@@ -84,31 +93,70 @@ public class PropAllDiffAC_Fast extends Propagator<IntVar> {
     public PropAllDiffAC_Fast(IntVar[] variables) {
         super(variables, PropagatorPriority.QUADRATIC, false);
         n = vars.length;
-        matching = new IStateInt[n];
+        int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+        long total = 0;
+        allEnum = true;
         for (int i = 0; i < n; i++) {
-            matching[i] = environment.makeInt(-1);
+            min = Math.min(min, vars[i].getLB());
+            max = Math.max(max, vars[i].getUB());
+            total += vars[i].getDomainSize();
+            allEnum &= vars[i].hasEnumeratedDomain();
         }
-        map = new TIntIntHashMap();
-        IntVar v;
-        int ub;
-        int idx = n;
-        for (int i = 0; i < n; i++) {
-            v = vars[i];
-            ub = v.getUB();
-            for (int j = v.getLB(); j <= ub; j = v.nextValue(j)) {
-                if (!map.containsKey(j)) {
-                    map.put(j, idx);
-                    idx++;
+        long range = (long) max - min + 1;
+        if (range <= 4 * total) {
+            offset = min;
+            nbValues = (int) range;
+        } else {
+            // sparse values: binary search in the sorted union of the domains
+            int[] all = new int[(int) total];
+            int k = 0;
+            for (int i = 0; i < n; i++) {
+                int ub = vars[i].getUB();
+                for (int v = vars[i].getLB(); v <= ub; v = vars[i].nextValue(v)) {
+                    all[k++] = v;
                 }
             }
+            Arrays.sort(all);
+            k = 0;
+            for (int i = 0; i < all.length; i++) {
+                if (k == 0 || all[k - 1] != all[i]) {
+                    all[k++] = all[i];
+                }
+            }
+            values = Arrays.copyOf(all, k);
+            nbValues = k;
+        }
+        sink = n + nbValues;
+        int nbNodes = sink + 1;
+        varMate = new IStateInt[n];
+        for (int i = 0; i < n; i++) {
+            varMate[i] = environment.makeInt(-1);
+        }
+        valMate = new IStateInt[nbValues];
+        for (int j = 0; j < nbValues; j++) {
+            valMate[j] = environment.makeInt(-1);
+        }
+        scc = new IStateInt[nbNodes];
+        for (int w = 0; w < nbNodes; w++) {
+            scc[w] = environment.makeInt(sink);
+        }
+        sizes = new IStateInt[n];
+        for (int i = 0; i < n; i++) {
+            sizes[i] = environment.makeInt(-1);
         }
-        n2 = idx;
-        fifo = new int[n2];
-        digraph = new DirectedGraph(n2 + 1, SetType.BITSET, false);
-        free = new BitSet(n2);
-        father = new int[n2];
-        in = new BitSet(n2);
-        SCCfinder = new StrongConnectivityFinder(digraph);
+        modified = new int[n];
+        dirty = new boolean[nbNodes];
+        inSub = new boolean[nbNodes];
+        fifo = new int[n];
+        father = new int[nbValues];
+        visited = new int[nbValues];
+        index = new int[nbNodes];
+        low = new int[nbNodes];
+        rep = new int[nbNodes];
+        stack = new int[nbNodes];
+        call = new int[nbNodes];
+        cursor = new int[nbNodes];
+        onStack = new boolean[nbNodes];
     }
 
     @Override
@@ -122,11 +170,48 @@ public class PropAllDiffAC_Fast extends Propagator<IntVar> {
 
     @Override
     public void propagate(int evtmask) throws ContradictionException {
-        if (n2 < n * 2) {
-            contradiction(null, "not enough values");
+        // holes cannot be made in bounded domains: arcs may remain between components, recompute them all
+        boolean full = !allEnum;
+        if ((evtmask & EventType.FULL_PROPAGATION.mask) != 0) {
+            full = true;
+            int nbDistinct = 0;
+            boolean[] seen = new boolean[nbValues];
+            for (int i = 0; i < n; i++) {
+                int ub = vars[i].getUB();
+                for (int v = vars[i].getLB(); v <= ub; v = vars[i].nextValue(v)) {
+                    int j = indexOf(v);
+                    if (!seen[j]) {
+                        seen[j] = true;
+                        nbDistinct++;
+                    }
+                }
+            }
+            if (nbDistinct < n) {
+                contradiction(null, "not enough values");
+            }
+            for (int w = 0; w <= sink; w++) {
+                scc[w].set(sink);
+            }
+            for (int i = 0; i < n; i++) {
+                sizes[i].set(-1);
+            }
+        }
+        nbModified = 0;
+        for (int i = 0; i < n; i++) {
+            if (sizes[i].get() != vars[i].getDomainSize()) {
+                modified[nbModified++] = i;
+            }
+        }
+        if (nbModified > 0) {
+            repairMatching();
+            buildSCC(full);
+            filter();
+            for (int i = 0; i < n; i++) {
+                if (inSub[i]) {
+                    sizes[i].set(vars[i].getDomainSize());
+                }
+            }
         }
-        findMaximumMatching();
-        filter();
     }
 
     @Override
@@ -134,6 +219,10 @@ public class PropAllDiffAC_Fast extends Propagator<IntVar> {
         forcePropagate(EventType.CUSTOM_PROPAGATION);
     }
 
+    private int indexOf(int value) {
+        return values == null ? value - offset : Arrays.binarySearch(values, value);
+    }
+
     //***********************************************************************************
     // INFO
     //***********************************************************************************
@@ -172,140 +261,221 @@ public class PropAllDiffAC_Fast extends Propagator<IntVar> {
     }
 
     //***********************************************************************************
-    // Initialization
+    // MATCHING
     //***********************************************************************************
 
-    protected void findMaximumMatching() throws ContradictionException {
-        for (int i = 0; i < n2; i++) {
-            digraph.getSuccessorsOf(i).clear();
-            digraph.getPredecessorsOf(i).clear();
-        }
-        free.set(0, n2);
-        int k, ub;
-        IntVar v;
-        for (int i = 0; i < n; i++) {
-            v = vars[i];
-            ub = v.getUB();
-            int mate = matching[i].get();
-            for (k = v.getLB(); k <= ub; k = v.nextValue(k)) {
-                int j = map.get(k);
-                if (mate == j) {
-                    assert free.get(i) && free.get(j);
-                    digraph.addArc(j, i);
-                    free.clear(i);
-                    free.clear(j);
-                } else {
-                    digraph.addArc(i, j);
-                }
+    /**
+     * Frees the modified variables which lost their matched value, then re-matches them.
+     * After a filtering step, every arc of the residual graph lies in a component, so augmenting paths
+     * stay in the components of the modified variables.
+     */
+    private void repairMatching() throws ContradictionException {
+        for (int k = 0; k < nbModified; k++) {
+            int i = modified[k];
+            int j = varMate[i].get();
+            if (j >= 0 && !vars[i].contains(values == null ? j + offset : values[j])) {
+                varMate[i].set(-1);
+                valMate[j].set(-1);
             }
         }
-        for (int i = free.nextSetBit(0); i >= 0 && i < n; i = free.nextSetBit(i + 1)) {
-            tryToMatch(i);
-        }
-        int p;
-        for (int i = 0; i < n; i++) {
-            p = digraph.getPredecessorsOf(i).getFirstElement();
-            matching[i].set(p);
-        }
-    }
-
-    private void tryToMatch(int i) throws ContradictionException {
-        int mate = augmentPath_BFS(i);
-        if (mate != -1) {
-            free.clear(mate);
-            free.clear(i);
-            int tmp = mate;
-            while (tmp != i) {
-                digraph.removeArc(father[tmp], tmp);
-                digraph.addArc(tmp, father[tmp]);
-                tmp = father[tmp];
+        for (int k = 0; k < nbModified; k++) {
+            int i = modified[k];
+            if (varMate[i].get() == -1) {
+                tryToMatch(i);
             }
-        } else {
-            contradiction(vars[i], "no match");
         }
     }
 
-    private int augmentPath_BFS(int root) {
-        in.clear();
+    private void tryToMatch(int root) throws ContradictionException {
+        stamp++;
         int indexFirst = 0, indexLast = 0;
         fifo[indexLast++] = root;
-        int x, y;
-        ISet succs;
         while (indexFirst != indexLast) {
-            x = fifo[indexFirst++];
-            succs = digraph.getSuccessorsOf(x);
-            for (y = succs.getFirstElement(); y >= 0; y = succs.getNextElement()) {
-                if (!in.get(y)) {
-                    father[y] = x;
-                    fifo[indexLast++] = y;
-                    in.set(y);
-                    if (free.get(y)) {
-                        return y;
+            int x = fifo[indexFirst++];
+            IntVar v = vars[x];
+            int ub = v.getUB();
+            for (int k = v.getLB(); k <= ub; k = v.nextValue(k)) {
+                int j = indexOf(k);
+                if (visited[j] != stamp) {
+                    visited[j] = stamp;
+                    father[j] = x;
+                    int y = valMate[j].get();
+                    if (y == -1) {
+                        // augment along the path
+                        while (true) {
+                            int old = varMate[x].get();
+                            varMate[x].set(j);
+                            valMate[j].set(x);
+                            if (old == -1) {
+                                return;
+                            }
+                            j = old;
+                            x = father[j];
+                        }
                     }
+                    fifo[indexLast++] = y;
                 }
             }
         }
-        return -1;
+        contradiction(vars[root], "no match");
     }
 
     //***********************************************************************************
     // PRUNING
     //***********************************************************************************
 
-    private void buildSCC() {
-        if (n2 > n * 2) {
-            digraph.desactivateNode(n2);
-            digraph.activateNode(n2);
-            for (int i = n; i < n2; i++) {
-                if (free.get(i)) {
-                    digraph.addArc(i, n2);
+    /**
+     * Tarjan's algorithm restricted to the nodes of the components of the modified variables,
+     * or to all the nodes if <code>full</code> is set to true.
+     * Arcs: variable to its non-matched values, matched value to its variable,
+     * free value to the sink and sink to matched values.
+     */
+    private void buildSCC(boolean full) {
+        for (int k = 0; k < nbModified; k++) {
+            dirty[scc[modified[k]].get()] = true;
+        }
+        for (int w = 0; w <= sink; w++) {
+            inSub[w] = full || dirty[scc[w].get()];
+            if (inSub[w]) {
+                index[w] = -1;
+                onStack[w] = false;
+            }
+        }
+        for (int k = 0; k < nbModified; k++) {
+            dirty[scc[modified[k]].get()] = false;
+        }
+        int counter = 0, top = 0;
+        for (int r = 0; r <= sink; r++) {
+            if (!inSub[r] || index[r] != -1) {
+                continue;
+            }
+            int depth = 0;
+            index[r] = low[r] = counter++;
+            stack[top++] = r;
+            onStack[r] = true;
+            call[depth++] = r;
+            initCursor(r);
+            while (depth > 0) {
+                int v = call[depth - 1];
+                int w = nextSuccessor(v);
+                if (w != -1) {
+                    if (index[w] == -1) {
+                        index[w] = low[w] = counter++;
+                        stack[top++] = w;
+                        onStack[w] = true;
+                        call[depth++] = w;
+                        initCursor(w);
+                    } else if (onStack[w] && index[w] < low[v]) {
+                        low[v] = index[w];
+                    }
                 } else {
-                    digraph.addArc(n2, i);
+                    depth--;
+                    if (depth > 0 && low[v] < low[call[depth - 1]]) {
+                        low[call[depth - 1]] = low[v];
+                    }
+                    if (low[v] == index[v]) {
+                        int x;
+                        do {
+                            x = stack[--top];
+                            onStack[x] = false;
+                            rep[x] = v;
+                        } while (x != v);
+                    }
                 }
             }
         }
-        SCCfinder.findAllSCC();
-        nodeSCC = SCCfinder.getNodesSCC();
-        digraph.desactivateNode(n2);
+        for (int w = 0; w <= sink; w++) {
+            if (inSub[w]) {
+                scc[w].set(rep[w]);
+            }
+        }
     }
 
-    protected void filter() throws ContradictionException {
-        buildSCC();
-        int j, ub;
-        IntVar v;
-        for (int i = 0; i < n; i++) {
-            v = vars[i];
-            ub = v.getUB();
-            for (int k = v.getLB(); k <= ub; k = v.nextValue(k)) {
-                j = map.get(k);
-                if (nodeSCC[i] != nodeSCC[j]) {
-                    if (matching[i].get() == j) {
-                        v.instantiateTo(k, aCause);
-                    } else {
-                        v.removeValue(k, aCause);
-                        digraph.removeArc(i, j);
-                    }
+    private void initCursor(int node) {
+        if (node < n) {
+            cursor[node] = vars[node].getLB();
+        } else {
+            cursor[node] = 0;
+        }
+    }
+
+    private int nextSuccessor(int node) {
+        if (node < n) {
+            IntVar v = vars[node];
+            int ub = v.getUB();
+            int mate = varMate[node].get();
+            for (int k = cursor[node]; k <= ub; k = cursor[node]) {
+                cursor[node] = v.nextValue(k);
+                int j = indexOf(k);
+                if (j != mate && inSub[n + j]) {
+                    return n + j;
+                }
+            }
+        } else if (node < sink) {
+            if (cursor[node] == 0) {
+                cursor[node] = 1;
+                int y = valMate[node - n].get();
+                int w = y == -1 ? sink : y;
+                if (inSub[w]) {
+                    return w;
+                }
+            }
+        } else {
+            while (cursor[node] < n) {
+                int j = varMate[cursor[node]++].get();
+                if (inSub[n + j]) {
+                    return n + j;
                 }
             }
         }
+        return -1;
+    }
+
+    protected void filter() throws ContradictionException {
         for (int i = 0; i < n; i++) {
-            v = vars[i];
-            if (!v.hasEnumeratedDomain()) {
-                ub = v.getUB();
-                for (int k = v.getLB(); k <= ub; k++) {
-                    j = map.get(k);
-                    if (!(digraph.arcExists(i, j) || digraph.arcExists(j, i))) {
-                        v.removeValue(k, aCause);
-                    }
-                }
-                int lb = v.getLB();
-                for (int k = v.getUB(); k >= lb; k--) {
-                    j = map.get(k);
-                    if (!(digraph.arcExists(i, j) || digraph.arcExists(j, i))) {
-                        v.removeValue(k, aCause);
+            if (!inSub[i]) {
+                continue;
+            }
+            IntVar v = vars[i];
+            int mate = varMate[i].get();
+            int s = scc[i].get();
+            if (v.hasEnumeratedDomain()) {
+                int ub = v.getUB();
+                for (int k = v.getLB(); k <= ub; k = v.nextValue(k)) {
+                    int j = indexOf(k);
+                    if (s != scc[n + j].get()) {
+                        if (mate == j) {
+                            v.instantiateTo(k, aCause);
+                            break;
+                        } else {
+                            v.removeValue(k, aCause);
+                        }
                     }
                 }
+            } else {
+                filterBounds(v, mate, s);
+            }
+        }
+    }
+
+    private void filterBounds(IntVar v, int mate, int s) throws ContradictionException {
+        int j = indexOf(v.getLB());
+        while (s != scc[n + j].get()) {
+            if (mate == j) {
+                v.instantiateTo(v.getLB(), aCause);
+                return;
+            }
+            v.removeValue(v.getLB(), aCause);
+            j = indexOf(v.getLB());
+        }
+        j = indexOf(v.getUB());
+        while (s != scc[n + j].get()) {
+            if (mate == j) {
+                v.instantiateTo(v.getUB(), aCause);
+                return;
             }
+            v.removeValue(v.getUB(), aCause);
+            j = indexOf(v.getUB());
         }
     }
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.constraints.nary.binpacking;
+
+import solver.Solver;
+import solver.constraints.IntConstraint;
+import solver.exception.SolverException;
+import solver.variables.IntVar;
+import util.ESat;
+import util.tools.ArrayUtils;
+
+/**
+ * Bin packing constraint: each item is packed into one bin,
+ * and the load of each bin is the sum of the sizes of the items packed into it.
+ * <br/>
+ * Unlike a decomposition, it does not create any variable, see {@link PropBinPacking}.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class BinPacking extends IntConstraint<IntVar> {
+
+    private final int n, m, offset;
+    private final int[] sizes;
+
+    public BinPacking(IntVar[] itemBin, int[] itemSize, IntVar[] binLoad, int offset) {
+        super(ArrayUtils.append(itemBin, binLoad), solverOf(binLoad));
+        if (itemBin.length != itemSize.length) {
+            throw new SolverException("BinPacking: ITEM_BIN and ITEM_SIZE must have the same length");
+        }
+        for (int i = 0; i < itemSize.length; i++) {
+            if (itemSize[i] < 0) {
+                throw new SolverException("BinPacking: the size of an item must be positive or null");
+            }
+        }
+        this.n = itemBin.length;
+        this.m = binLoad.length;
+        this.offset = offset;
+        this.sizes = itemSize;
+        setPropagators(new PropBinPacking(itemBin, itemSize, binLoad, offset));
+    }
+
+    private static Solver solverOf(IntVar[] binLoad) {
+        if (binLoad.length == 0) {
+            throw new SolverException("BinPacking: BIN_LOAD must contain at least one bin");
+        }
+        return binLoad[0].getSolver();
+    }
+
+    @Override
+    public ESat isSatisfied(int[] tuple) {
+        long[] loads = new long[m];
+        for (int i = 0; i < n; i++) {
+            int b = tuple[i] - offset;
+            if (b < 0 || b >= m) {
+                return ESat.FALSE;
+            }
+            loads[b] += sizes[i];
+        }
+        for (int b = 0; b < m; b++) {
+            if (loads[b] != tuple[n + b]) {
+                return ESat.FALSE;
+            }
+        }
+        return ESat.TRUE;
+    }
+
+    @Override
+    public String toString() {
+        return "BinPacking(" + n + " items, " + m + " bins)";
+    }
+}
@@ -0,0 +1,548 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.constraints.nary.binpacking;
+
+import memory.IStateInt;
+import solver.constraints.Propagator;
+import solver.constraints.PropagatorPriority;
+import solver.exception.ContradictionException;
+import solver.variables.EventType;
+import solver.variables.IntVar;
+import solver.variables.delta.IIntDeltaMonitor;
+import util.ESat;
+import util.objects.setDataStructures.swapList.Set_Std_Sparse;
+import util.procedure.IntProcedure;
+import util.tools.ArrayUtils;
+
+import java.util.Arrays;
+
+/**
+ * Propagator for the bin packing constraint, stated on the bin of each item and the load of each bin.
+ * <br/>
+ * For each bin, it maintains the load of the items packed into it (<i>required</i>) and
+ * the load of the items which may still be packed into it (<i>potential</i>), updated incrementally
+ * from the delta of the item variables. It applies the filtering rules of
+ * "A Constraint for Bin Packing", P. Shaw, CP 2004:
+ * <ul>
+ * <li>load maintenance: required <= load <= potential, and the sum of the loads equals the sum of the sizes,</li>
+ * <li>item elimination and commitment,</li>
+ * <li>knapsack reasoning on the candidate items of a bin (no subset of candidates fits the load bounds),</li>
+ * <li>the lower bound L2 of Martello and Toth on the number of bins needed.</li>
+ * </ul>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class PropBinPacking extends Propagator<IntVar> {
+
+    //***********************************************************************************
+    // VARIABLES
+    //***********************************************************************************
+
+    private final int n, m, offset;
+    private final int[] sizes;
+    private final int[] order; // items sorted by increasing size
+    private final int maxSize;
+    private final long total;
+    private final Set_Std_Sparse[] candidates; // unassigned items which can be packed into a bin
+    private final IStateInt[] required, potential;
+    private final IIntDeltaMonitor[] idms;
+    private final IntProcedure remProc;
+    private int item;
+    // bins to filter
+    private final int[] dirty;
+    private final boolean[] isDirty;
+    private int nbDirty;
+    private boolean loadChanged;
+    // bins on which the knapsack reasoning is applied: their load or their required load have changed
+    private final boolean[] knapsack;
+    // knapsack reasoning and bin lower bound
+    private final int[] buffer, gaps, values;
+    private final long[] sums;
+    private int alphaPrime, betaPrime;
+
+    //***********************************************************************************
+    // CONSTRUCTORS
+    //***********************************************************************************
+
+    /**
+     * Propagator for the bin packing constraint:
+     * the item <i>i</i> is packed into the bin <code>itemBin[i]-offset</code>,
+     * and the load of the bin <i>b</i>, <code>binLoad[b]</code>, is the sum of the sizes of the items packed into it.
+     *
+     * @param itemBin  bin of each item
+     * @param itemSize size of each item, positive or null
+     * @param binLoad  load of each bin
+     * @param offset   index of the first bin
+     */
+    public PropBinPacking(IntVar[] itemBin, int[] itemSize, IntVar[] binLoad, int offset) {
+        super(ArrayUtils.append(itemBin, binLoad), PropagatorPriority.QUADRATIC, true);
+        this.n = itemBin.length;
+        this.m = binLoad.length;
+        this.offset = offset;
+        this.sizes = itemSize;
+        long s = 0;
+        long[] sorted = new long[n];
+        for (int i = 0; i < n; i++) {
+            s += itemSize[i];
+            sorted[i] = ((long) itemSize[i] << 32) + i;
+        }
+        this.total = s;
+        Arrays.sort(sorted);
+        this.order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = (int) sorted[i];
+        }
+        this.maxSize = n > 0 ? itemSize[order[n - 1]] : 0;
+        this.candidates = new Set_Std_Sparse[m];
+        this.required = new IStateInt[m];
+        this.potential = new IStateInt[m];
+        for (int b = 0; b < m; b++) {
+            candidates[b] = new Set_Std_Sparse(environment, n);
+            required[b] = environment.makeInt(0);
+            potential[b] = environment.makeInt(0);
+        }
+        this.idms = new IIntDeltaMonitor[n];
+        for (int i = 0; i < n; i++) {
+            idms[i] = vars[i].monitorDelta(this);
+        }
+        this.remProc = new IntProcedure() {
+            @Override
+            public void execute(int v) throws ContradictionException {
+                int b = v - PropBinPacking.this.offset;
+                if (b >= 0 && b < m) {
+                    unlink(item, b);
+                }
+            }
+        };
+        this.dirty = new int[m];
+        this.isDirty = new boolean[m];
+        this.knapsack = new boolean[m];
+        this.buffer = new int[n];
+        this.gaps = new int[m];
+        this.values = new int[n + m];
+        this.sums = new long[n + m + 1];
+    }
+
+    //***********************************************************************************
+    // PROPAGATION
+    //***********************************************************************************
+
+    @Override
+    public int getPropagationConditions(int vIdx) {
+        if (vIdx < n) {
+            return EventType.INT_ALL_MASK();
+        }
+        return EventType.INSTANTIATE.mask + EventType.BOUND.mask;
+    }
+
+    @Override
+    public void propagate(int evtmask) throws ContradictionException {
+        if ((evtmask & EventType.FULL_PROPAGATION.mask) != 0) {
+            for (int b = 0; b < m; b++) {
+                candidates[b].clear();
+                required[b].set(0);
+                potential[b].set(0);
+                markDirty(b);
+                knapsack[b] = true;
+            }
+            for (int i = 0; i < n; i++) {
+                IntVar v = vars[i];
+                v.updateLowerBound(offset, aCause);
+                v.updateUpperBound(offset + m - 1, aCause);
+                if (v.instantiated()) {
+                    required[v.getValue() - offset].add(sizes[i]);
+                    potential[v.getValue() - offset].add(sizes[i]);
+                } else {
+                    int ub = v.getUB();
+                    for (int val = v.getLB(); val <= ub; val = v.nextValue(val)) {
+                        candidates[val - offset].add(i);
+                        potential[val - offset].add(sizes[i]);
+                    }
+                }
+            }
+            loadChanged = true;
+            filter();
+            for (int i = 0; i < n; i++) {
+                idms[i].unfreeze();
+            }
+        } else {
+            filter();
+        }
+    }
+
+    @Override
+    public void propagate(int idxVarInProp, int mask) throws ContradictionException {
+        if (idxVarInProp < n) {
+            item = idxVarInProp;
+            idms[item].freeze();
+            idms[item].forEach(remProc, EventType.REMOVE);
+            idms[item].unfreeze();
+            if (vars[item].instantiated()) {
+                commit(item, vars[item].getValue() - offset);
+            }
+        } else {
+            markDirty(idxVarInProp - n);
+            knapsack[idxVarInProp - n] = true;
+            loadChanged = true;
+        }
+        forcePropagate(EventType.CUSTOM_PROPAGATION);
+    }
+
+    private void filter() throws ContradictionException {
+        do {
+            if (loadChanged) {
+                loadChanged = false;
+                filterLoadSum();
+            }
+            while (nbDirty > 0) {
+                int b = dirty[--nbDirty];
+                isDirty[b] = false;
+                filterBin(b);
+            }
+        } while (loadChanged || nbDirty > 0);
+        filterNbBins();
+    }
+
+    /**
+     * The sum of the loads is equal to the sum of the sizes of the items
+     */
+    private void filterLoadSum() throws ContradictionException {
+        boolean again;
+        do {
+            again = false;
+            long sumLB = 0, sumUB = 0;
+            for (int b = 0; b < m; b++) {
+                sumLB += vars[n + b].getLB();
+                sumUB += vars[n + b].getUB();
+            }
+            if (sumLB > total || sumUB < total) {
+                contradiction(vars[n], "the loads cannot sum to the total size");
+            }
+            for (int b = 0; b < m; b++) {
+                IntVar load = vars[n + b];
+                int lb = load.getLB();
+                int ub = load.getUB();
+                if (load.updateLowerBound(toInt(total - sumUB + ub), aCause)
+                        | load.updateUpperBound(toInt(total - sumLB + lb), aCause)) {
+                    markDirty(b);
+                    knapsack[b] = true;
+                    again = true;
+                }
+            }
+        } while (again);
+    }
+
+    private static int toInt(long v) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, v));
+    }
+
+    private void filterBin(int b) throws ContradictionException {
+        IntVar load = vars[n + b];
+        Set_Std_Sparse cands = candidates[b];
+        boolean again;
+        do {
+            again = false;
+            int req = required[b].get();
+            int pot = potential[b].get();
+            loadChanged |= load.updateLowerBound(req, aCause) | load.updateUpperBound(pot, aCause);
+            int lb = load.getLB();
+            int ub = load.getUB();
+            // item elimination and commitment, only the largest items may be concerned
+            if (req + maxSize > ub || pot - maxSize < lb) {
+                for (int k = cands.getSize() - 1; k >= 0; k--) {
+                    int i = cands.get(k);
+                    if (req + sizes[i] > ub) {
+                        again |= removeBin(i, b);
+                    } else if (pot - sizes[i] < lb) {
+                        assign(i, b);
+                        again = true;
+                    }
+                }
+            }
+            if (!again && knapsack[b]) {
+                knapsack[b] = false;
+                again = filterKnapsack(b, req, pot, lb, ub);
+                loadChanged |= again;
+            }
+        } while (again);
+    }
+
+    /**
+     * Knapsack reasoning: the load of the bin minus its required load must be the sum of a subset of candidates
+     *
+     * @return true if the load has been modified
+     */
+    private boolean filterKnapsack(int b, int req, int pot, int lb, int ub) throws ContradictionException {
+        int alpha = lb - req;
+        int beta = ub - req;
+        int sum = pot - req;
+        // the partial sums of the candidates, taken in any order, increase by at most maxSize:
+        // one of them lies in any interval of [1, sum] at least as wide as maxSize
+        boolean interval = alpha > 0 && beta < sum && beta - alpha + 1 < maxSize;
+        boolean lower = alpha > 0 && alpha < sum && maxSize > 1;
+        boolean upper = beta > 0 && beta < sum && maxSize > 1;
+        if (!(interval || lower || upper)) {
+            return false;
+        }
+        Set_Std_Sparse cands = candidates[b];
+        int nb = cands.getSize();
+        for (int k = 0; k < nb; k++) {
+            buffer[k] = sizes[cands.get(k)];
+        }
+        Arrays.sort(buffer, 0, nb);
+        IntVar load = vars[n + b];
+        if (interval && noSum(nb, sum, alpha, beta)) {
+            contradiction(load, "no subset of the candidates fits in the load");
+        }
+        boolean modified = false;
+        if (lower && noSum(nb, sum, alpha, alpha)) {
+            modified = load.updateLowerBound(req + betaPrime, aCause);
+        }
+        if (upper && noSum(nb, sum, beta, beta)) {
+            modified |= load.updateUpperBound(req + alphaPrime, aCause);
+        }
+        return modified;
+    }
+
+    /**
+     * Detects if no subset of the <code>nb</code> first values of <code>buffer</code>, sorted in increasing order,
+     * sums into [alpha,beta].
+     * In that case, <code>alphaPrime</code> (resp. <code>betaPrime</code>) is the sum of a subset
+     * lower than <code>alpha</code> (resp. greater than <code>beta</code>).
+     * The detection is not complete.
+     */
+    private boolean noSum(int nb, int sum, int alpha, int beta) {
+        if (alpha <= 0 || beta >= sum) {
+            return false;
+        }
+        // the i^th largest value is buffer[nb - i], the i^th smallest is buffer[i - 1]
+        int sumA = 0, sumB, sumC = 0;
+        int k = 0, k1 = 0;
+        while (sumC + buffer[k1] < alpha) {
+            sumC += buffer[k1];
+            k1++;
+        }
+        sumB = buffer[k1];
+        while (sumA < alpha && sumB <= beta) {
+            k++;
+            sumA += buffer[nb - k];
+            if (sumA < alpha) {
+                k1--;
+                sumB += buffer[k1];
+                sumC -= buffer[k1];
+                while (sumA + sumC >= alpha) {
+                    k1--;
+                    sumC -= buffer[k1];
+                    sumB += buffer[k1] - buffer[k1 + k + 1];
+                }
+            }
+        }
+        alphaPrime = sumA + sumC;
+        betaPrime = sumB;
+        return sumA < alpha;
+    }
+
+    /**
+     * Lower bound L2 on the number of bins, computed with a uniform capacity C (the largest load upper bound):
+     * a bin of smaller capacity, or partially filled, is represented by an item filling the gap
+     */
+    private void filterNbBins() throws ContradictionException {
+        int C = 0;
+        for (int b = 0; b < m; b++) {
+            C = Math.max(C, vars[n + b].getUB());
+        }
+        if (C == 0) {
+            return;
+        }
+        // the items, by increasing size, merged with the gaps
+        int ng = 0;
+        for (int b = 0; b < m; b++) {
+            int gap = C - vars[n + b].getUB() + required[b].get();
+            if (gap > 0) {
+                gaps[ng++] = gap;
+            }
+        }
+        Arrays.sort(gaps, 0, ng);
+        int nb = 0;
+        int g = 0;
+        for (int k = 0; k < n; k++) {
+            int i = order[k];
+            if (sizes[i] > 0 && !vars[i].instantiated()) {
+                while (g < ng && gaps[g] < sizes[i]) {
+                    values[nb++] = gaps[g++];
+                }
+                values[nb++] = sizes[i];
+            }
+        }
+        while (g < ng) {
+            values[nb++] = gaps[g++];
+        }
+        // sums[j] : sum of the values from j to nb-1
+        sums[nb] = 0;
+        for (int j = nb - 1; j >= 0; j--) {
+            sums[j] = sums[j + 1] + values[j];
+        }
+        int h = firstGreaterThan(nb, C / 2); // items larger than C/2
+        int bound = nb - h;
+        int K = 0;
+        int c = 0;
+        while (bound <= m) {
+            int a = firstGreaterThan(nb, C - K); // items larger than C-K
+            long sumN2 = sums[h] - sums[a];
+            long sumN3 = sums[c] - sums[h];
+            long free = (long) (a - h) * C - sumN2;
+            if (sumN3 > free) {
+                bound = (int) Math.max(bound, nb - h + (sumN3 - free + C - 1) / C);
+            }
+            // next K: the next distinct value lower than or equal to C/2
+            while (c < h && values[c] <= K) {
+                c++;
+            }
+            if (c == h) {
+                break;
+            }
+            K = values[c];
+        }
+        if (bound > m) {
+            contradiction(vars[n], "more than " + m + " bins are needed");
+        }
+    }
+
+    private int firstGreaterThan(int nb, int t) {
+        int lo = 0, hi = nb;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] > t) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    //***********************************************************************************
+    // INCREMENTAL DATA STRUCTURES
+    //***********************************************************************************
+
+    private void markDirty(int b) {
+        if (!isDirty[b]) {
+            isDirty[b] = true;
+            dirty[nbDirty++] = b;
+        }
+    }
+
+    /**
+     * The item <code>i</code> can not be packed into the bin <code>b</code> anymore
+     */
+    private void unlink(int i, int b) {
+        if (candidates[b].remove(i)) {
+            potential[b].add(-sizes[i]);
+            markDirty(b);
+        }
+    }
+
+    /**
+     * The item <code>i</code> is packed into the bin <code>b</code>
+     */
+    private void commit(int i, int b) {
+        if (candidates[b].remove(i)) {
+            required[b].add(sizes[i]);
+            markDirty(b);
+            knapsack[b] = true;
+        }
+    }
+
+    private boolean removeBin(int i, int b) throws ContradictionException {
+        IntVar v = vars[i];
+        v.removeValue(b + offset, aCause);
+        if (v.contains(b + offset)) {
+            return false; // no hole in a bounded domain
+        }
+        unlink(i, b);
+        if (v.instantiated()) {
+            commit(i, v.getValue() - offset);
+        }
+        return true;
+    }
+
+    private void assign(int i, int b) throws ContradictionException {
+        IntVar v = vars[i];
+        int ub = v.getUB();
+        for (int val = v.getLB(); val <= ub; val = v.nextValue(val)) {
+            if (val != b + offset) {
+                unlink(i, val - offset);
+            }
+        }
+        v.instantiateTo(b + offset, aCause);
+        commit(i, b);
+    }
+
+    //***********************************************************************************
+    // INFO
+    //***********************************************************************************
+
+    @Override
+    public ESat isEntailed() {
+        long[] loads = new long[m];
+        for (int i = 0; i < n; i++) {
+            if (!vars[i].instantiated()) {
+                return ESat.UNDEFINED;
+            }
+            int b = vars[i].getValue() - offset;
+            if (b < 0 || b >= m) {
+                return ESat.FALSE;
+            }
+            loads[b] += sizes[i];
+        }
+        boolean all = true;
+        for (int b = 0; b < m; b++) {
+            IntVar load = vars[n + b];
+            if (loads[b] < load.getLB() || loads[b] > load.getUB() || !load.contains((int) loads[b])) {
+                return ESat.FALSE;
+            }
+            all &= load.instantiated();
+        }
+        return all ? ESat.TRUE : ESat.UNDEFINED;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder st = new StringBuilder();
+        st.append("PropBinPacking_(");
+        int i = 0;
+        for (; i < Math.min(4, n); i++) {
+            st.append(vars[i].getName()).append(", ");
+        }
+        if (i < n) {
+            st.append("...,");
+        }
+        st.append(m).append(" bins)");
+        return st.toString();
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.constraints.nary.cnf;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.set.hash.TIntHashSet;
+import memory.IStateInt;
+import solver.Solver;
+import solver.constraints.Propagator;
+import solver.constraints.PropagatorPriority;
+import solver.exception.ContradictionException;
+import solver.explanations.Deduction;
+import solver.explanations.Explanation;
+import solver.explanations.VariableState;
+import solver.variables.EventType;
+import solver.variables.IntVar;
+import util.ESat;
+
+import java.util.ArrayList;
+
+/**
+ * A propagator for learnt nogoods, stored as clauses in a {@link SatSolver}.
+ * <br/>
+ * The literals of the clauses are atoms over integer variables, <code>x = v</code> or <code>x &le; v</code>,
+ * created on demand. An atom is fixed in the clause store as soon as the domain of its variable fixes it,
+ * and each literal deduced by unit propagation is applied back to the domains.
+ * Deductions and failures are explained by the clauses which imply them.
+ * <br/>
+ * Clauses are added during search, with {@link #learn(int[])}, and attached on the next propagation,
+ * once the solver has backtracked. Less active clauses are regularly removed.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class PropNogoods extends Propagator<IntVar> {
+
+    private static final int EQ = 0, LE = 1;
+
+    final SatSolver sat_;
+
+    // number of trail markers of sat_ in the current world
+    final IStateInt sat_trail_;
+
+    // variable id -> index in vars
+    final TIntIntHashMap indices_;
+    // (index, kind, value) -> atom, ie, a variable of sat_
+    final TLongIntHashMap atoms_;
+    // index -> atoms of the variable
+    final TIntArrayList[] var_atoms_;
+    // atom -> index, kind and value
+    final TIntArrayList atom_var_, atom_kind_, atom_value_;
+
+    // clauses learnt and not attached yet
+    final ArrayList<int[]> pending_;
+    // indices of variables whose atoms may be fixed
+    final TIntArrayList to_sync_;
+    final TIntArrayList touched_;
+    // atoms already explained, for the current explanation
+    final TIntHashSet explained_;
+
+    // literal being applied on its variable, -1 otherwise
+    int applying_;
+    // literals which can not be true together, on failure
+    int[] conflict_;
+    // the empty clause has been learnt
+    boolean unsat_;
+    // maximum number of learnt clauses before reduction
+    double max_learnts_;
+
+    public PropNogoods(Solver solver, IntVar[] vars) {
+        super(solver, vars, PropagatorPriority.VERY_SLOW, true);
+        this.sat_ = new SatSolver();
+        this.sat_trail_ = solver.getEnvironment().makeInt();
+        this.indices_ = new TIntIntHashMap(vars.length, 0.5f, -1, -1);
+        for (int i = 0; i < vars.length; i++) {
+            indices_.put(vars[i].getId(), i);
+        }
+        this.atoms_ = new TLongIntHashMap(16, 0.5f, -1L, -1);
+        this.var_atoms_ = new TIntArrayList[vars.length];
+        this.atom_var_ = new TIntArrayList();
+        this.atom_kind_ = new TIntArrayList();
+        this.atom_value_ = new TIntArrayList();
+        this.pending_ = new ArrayList<int[]>();
+        this.to_sync_ = new TIntArrayList();
+        this.touched_ = new TIntArrayList();
+        this.explained_ = new TIntHashSet();
+        this.applying_ = -1;
+        this.max_learnts_ = Math.max(1000, vars.length);
+    }
+
+    @Override
+    public int getPropagationConditions(int vIdx) {
+        return EventType.INT_ALL_MASK();
+    }
+
+    @Override
+    public void propagate(int evtmask) throws ContradictionException {
+        to_sync_.resetQuick();
+        synchronize();
+        for (int i = 0; i < vars.length; i++) {
+            if (var_atoms_[i] != null) {
+                to_sync_.add(i);
+            }
+        }
+        fixpoint();
+    }
+
+    @Override
+    public void propagate(int idxVarInProp, int mask) throws ContradictionException {
+        to_sync_.resetQuick();
+        synchronize();
+        if (var_atoms_[idxVarInProp] != null) {
+            to_sync_.add(idxVarInProp);
+        }
+        fixpoint();
+    }
+
+    @Override
+    public ESat isEntailed() {
+        if (isCompletelyInstantiated()) {
+            for (int i = 0; i < sat_.learnts_.size(); i++) {
+                if (!isSatisfied(sat_.learnts_.get(i))) {
+                    return ESat.FALSE;
+                }
+            }
+            for (int i = 0; i < sat_.learnt_units_.size(); i++) {
+                if (!isSatisfied(sat_.learnt_units_.get(i))) {
+                    return ESat.FALSE;
+                }
+            }
+            return unsat_ ? ESat.FALSE : ESat.TRUE;
+        }
+        return ESat.UNDEFINED;
+    }
+
+    private boolean isSatisfied(SatSolver.Clause c) {
+        for (int j = 0; j < c.size(); j++) {
+            int lit = c._g(j);
+            if (status(SatSolver.var(lit)) == (SatSolver.sign(lit) ? 1 : 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void explain(Deduction d, Explanation e) {
+        explained_.clear();
+        if (d == null && conflict_ != null) {
+            // failure
+            for (int i = 0; i < conflict_.length; i++) {
+                explainTrue(conflict_[i], e);
+            }
+        } else if (d != null && applying_ > -1 && sat_.reason(SatSolver.var(applying_)) != null) {
+            // deduction
+            explainReason(SatSolver.var(applying_), e);
+        } else {
+            super.explain(d, e);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Get the literal <code>var = value</code> (resp. <code>var &le; value</code>) if <code>eq</code> is set to true
+     * (resp. false), or its negation if <code>truth</code> is set to false.
+     *
+     * @param var   an integer variable
+     * @param value a value
+     * @param eq    equality or inequality atom
+     * @param truth the atom or its negation
+     * @return the literal, -1 if <code>var</code> is not in the scope of <code>this</code>
+     */
+    public int literal(IntVar var, int value, boolean eq, boolean truth) {
+        int idx = indices_.get(var.getId());
+        if (idx == -1) {
+            return -1;
+        }
+        int kind = eq ? EQ : LE;
+        long key = ((long) idx << 33) | ((long) kind << 32) | (value & 0xFFFFFFFFL);
+        int atom = atoms_.get(key);
+        if (atom == -1) {
+            atom = sat_.newVariable();
+            atoms_.put(key, atom);
+            atom_var_.add(idx);
+            atom_kind_.add(kind);
+            atom_value_.add(value);
+            if (var_atoms_[idx] == null) {
+                var_atoms_[idx] = new TIntArrayList();
+            }
+            var_atoms_[idx].add(atom);
+        }
+        return SatSolver.makeLiteral(atom, truth);
+    }
+
+    /**
+     * Learn the clause made of <code>lits</code>, a disjunction of literals built with
+     * {@link #literal(IntVar, int, boolean, boolean)}.
+     * The clause is attached on the next propagation of <code>this</code>.
+     *
+     * @param lits literals of the clause
+     */
+    public void learn(int[] lits) {
+        pending_.add(lits);
+        sat_.decayClauses();
+    }
+
+    /**
+     * @return the number of learnt clauses currently stored
+     */
+    public int getNbClauses() {
+        return sat_.nLearnts() + sat_.learnt_units_.size() + (unsat_ ? 1 : 0);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    // restore the clause store to the current world, then attach the learnt clauses
+    private void synchronize() throws ContradictionException {
+        if (sat_trail_.get() < sat_.trailMarker()) {
+            sat_.cancelUntil(sat_trail_.get());
+        }
+        if (unsat_) {
+            conflict_ = new int[0];
+            contradiction(null, "empty nogood");
+        }
+        if (!sat_.propagateUnits()) {
+            fails();
+        }
+        applyTouched();
+        while (!pending_.isEmpty()) {
+            int[] lits = pending_.remove(pending_.size() - 1);
+            if (lits.length == 0) {
+                unsat_ = true;
+                conflict_ = lits;
+                contradiction(null, "empty nogood");
+            }
+            for (int i = 0; i < lits.length; i++) {
+                syncAtom(SatSolver.var(lits[i]));
+            }
+            if (!sat_.learnClause(lits)) {
+                fails();
+            }
+            applyTouched();
+            if (sat_.nLearnts() >= max_learnts_) {
+                sat_.reduceDB();
+                max_learnts_ *= 1.1;
+            }
+        }
+    }
+
+    // fix the atoms of the variables to synchronize, until no more variables have to be
+    private void fixpoint() throws ContradictionException {
+        while (!to_sync_.isEmpty()) {
+            int idx = to_sync_.removeAt(to_sync_.size() - 1);
+            TIntArrayList atoms = var_atoms_[idx];
+            for (int i = 0; i < atoms.size(); i++) {
+                syncAtom(atoms.get(i));
+            }
+        }
+    }
+
+    // if the domain of its variable fixes the atom, fix it in the clause store too and propagate
+    private void syncAtom(int atom) throws ContradictionException {
+        int st = status(atom);
+        if (st > -1) {
+            int lit = SatSolver.makeLiteral(atom, st == 1);
+            SatSolver.Boolean b = sat_.valueLit(lit);
+            if (b == SatSolver.Boolean.kFalse) {
+                conflict_ = new int[]{lit, SatSolver.negated(lit)};
+                contradiction(null, "nogood");
+            } else if (b == SatSolver.Boolean.kUndefined) {
+                if (!sat_.propagateOneLiteral(lit)) {
+                    fails();
+                }
+                applyTouched();
+            }
+        }
+    }
+
+    // apply the literals deduced by the clause store
+    private void applyTouched() throws ContradictionException {
+        sat_trail_.set(sat_.trailMarker());
+        touched_.resetQuick();
+        touched_.addAll(sat_.touched_variables_);
+        sat_.touched_variables_.clear();
+        for (int i = 0; i < touched_.size(); i++) {
+            int lit = touched_.get(i);
+            int atom = SatSolver.var(lit);
+            int idx = atom_var_.get(atom);
+            int value = atom_value_.get(atom);
+            IntVar var = vars[idx];
+            applying_ = lit;
+            try {
+                if (atom_kind_.get(atom) == EQ) {
+                    if (SatSolver.sign(lit)) {
+                        var.instantiateTo(value, this);
+                    } else {
+                        var.removeValue(value, this);
+                    }
+                } else {
+                    if (SatSolver.sign(lit)) {
+                        var.updateUpperBound(value, this);
+                    } else {
+                        var.updateLowerBound(value + 1, this);
+                    }
+                }
+            } finally {
+                applying_ = -1;
+            }
+            to_sync_.add(idx);
+        }
+    }
+
+    private void fails() throws ContradictionException {
+        SatSolver.Clause c = sat_.conflict_;
+        if (c != null) {
+            sat_.bumpClause(c);
+            conflict_ = new int[c.size()];
+            for (int i = 0; i < c.size(); i++) {
+                conflict_[i] = SatSolver.negated(c._g(i));
+            }
+        } else {
+            conflict_ = null;
+        }
+        contradiction(null, "nogood");
+    }
+
+    // 1 if the domain of the variable makes the atom true, 0 if it makes it false, -1 otherwise
+    private int status(int atom) {
+        IntVar var = vars[atom_var_.get(atom)];
+        int value = atom_value_.get(atom);
+        if (atom_kind_.get(atom) == EQ) {
+            if (!var.contains(value)) {
+                return 0;
+            }
+            return var.instantiated() ? 1 : -1;
+        } else {
+            if (var.getUB() <= value) {
+                return 1;
+            }
+            return var.getLB() > value ? 0 : -1;
+        }
+    }
+
+    // explain why the literal is true
+    private void explainTrue(int lit, Explanation e) {
+        int atom = SatSolver.var(lit);
+        if (explained_.add(atom)) {
+            boolean truth = SatSolver.sign(lit);
+            if (status(atom) == (truth ? 1 : 0) || sat_.reason(atom) == null) {
+                // established by the domain
+                IntVar var = vars[atom_var_.get(atom)];
+                if (atom_kind_.get(atom) == EQ) {
+                    if (truth) {
+                        var.explain(VariableState.DOM, e);
+                    } else {
+                        var.explain(VariableState.DOM, atom_value_.get(atom), e);
+                    }
+                } else {
+                    var.explain(truth ? VariableState.UB : VariableState.LB, e);
+                }
+            } else {
+                // deduced by the clause store, but not applied yet
+                explainReason(atom, e);
+            }
+        }
+    }
+
+    // explain the value of the atom by the other literals of its reason
+    private void explainReason(int atom, Explanation e) {
+        SatSolver.Clause reason = sat_.reason(atom);
+        sat_.bumpClause(reason);
+        for (int i = 0; i < reason.size(); i++) {
+            int lit = reason._g(i);
+            if (SatSolver.var(lit) != atom) {
+                explainTrue(SatSolver.negated(lit), e);
+            }
+        }
+    }
+}
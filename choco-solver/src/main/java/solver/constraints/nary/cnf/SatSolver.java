@@ -31,6 +31,8 @@ import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.hash.TIntObjectHashMap;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 
 /**
  * A MiniSat solver.
@@ -79,6 +81,19 @@ public class SatSolver {
     TIntArrayList temporary_add_vector_;
     TIntArrayList touched_variables_;
 
+    // List of learnt clauses, see learnClause(int[]).
+    ArrayList<Clause> learnts_;
+    // Learnt unit clauses, asserted again by propagateUnits().
+    ArrayList<Clause> learnt_units_;
+    // reasons_[var] is the clause which implied the current value of 'var', if any.
+    ArrayList<Clause> reasons_;
+    // trail_pos_[var] is the position of 'var' in 'trail_', when assigned.
+    TIntArrayList trail_pos_;
+    // The clause violated by the last failing propagation, if any.
+    Clause conflict_;
+    // Amount to bump learnt clauses with.
+    double cla_inc_;
+
 
     public SatSolver() {
         this.ok_ = true;
@@ -92,6 +107,11 @@ public class SatSolver {
         this.trail_markers_ = new TIntArrayList();
         this.temporary_add_vector_ = new TIntArrayList();
         this.touched_variables_ = new TIntArrayList();
+        this.learnts_ = new ArrayList<Clause>();
+        this.learnt_units_ = new ArrayList<Clause>();
+        this.reasons_ = new ArrayList<Clause>();
+        this.trail_pos_ = new TIntArrayList();
+        this.cla_inc_ = 1;
     }
 
     // Add a new variable.
@@ -100,6 +120,8 @@ public class SatSolver {
 //            watches_.resize(2 * v + 2);
 //        implies_.resize(2 * v.value() + 2);
         assignment_.put(v, Boolean.kUndefined);
+        reasons_.add(null);
+        trail_pos_.add(-1);
         return v;
     }
 
@@ -234,6 +256,7 @@ public class SatSolver {
     boolean propagateOneLiteral(int lit) {
         assert ok_;
         touched_variables_.clear();
+        conflict_ = null;
         if (!propagate()) {
             return false;
         }
@@ -248,10 +271,144 @@ public class SatSolver {
         // Unchecked enqueue
         assert valueLit(lit) == Boolean.kUndefined;
         assignment_.put(var(lit), makeBoolean(!sign(lit)));
+        reasons_.set(var(lit), null);
+        trail_pos_.set(var(lit), trail_.size());
         trail_.add(lit);
         return propagate();
     }
 
+    // Adds a learnt clause, the current assignment being not necessarily at root level.
+    // The first two literals are set to the best watches: true or undefined literals first,
+    // then false literals, the most recently assigned first.
+    // If the clause is unit under the current assignment, its first literal is enqueued,
+    // in a new trail marker, and propagated. Returns false in case of failure.
+    boolean learnClause(int[] ps) {
+        assert ps.length > 0;
+        touched_variables_.clear();
+        conflict_ = null;
+        Clause c = new Clause(ps);
+        c.learnt = true;
+        for (int k = 0; k < 2 && k < c.size(); k++) {
+            int best = k;
+            for (int i = k + 1; i < c.size(); i++) {
+                if (watchRank(c._g(i)) > watchRank(c._g(best))) {
+                    best = i;
+                }
+            }
+            int tmp = c._g(k);
+            c._s(k, c._g(best));
+            c._s(best, tmp);
+        }
+        bumpClause(c);
+        if (c.size() == 1) {
+            learnt_units_.add(c);
+        } else {
+            learnts_.add(c);
+            attachClause(c);
+        }
+        if (valueLit(c._g(0)) == Boolean.kFalse) {
+            conflict_ = c;
+            return false;
+        } else if (valueLit(c._g(0)) == Boolean.kUndefined
+                && (c.size() == 1 || valueLit(c._g(1)) == Boolean.kFalse)) {
+            pushTrailMarker();
+            uncheckedEnqueue(c._g(0), c);
+            return propagate();
+        }
+        return true;
+    }
+
+    // Asserts the learnt unit clauses, in a new trail marker if needed.
+    // Returns false in case of failure.
+    boolean propagateUnits() {
+        touched_variables_.clear();
+        conflict_ = null;
+        boolean pushed = false;
+        for (int i = 0; i < learnt_units_.size(); i++) {
+            Clause c = learnt_units_.get(i);
+            Boolean b = valueLit(c._g(0));
+            if (b == Boolean.kFalse) {
+                conflict_ = c;
+                return false;
+            } else if (b == Boolean.kUndefined) {
+                if (!pushed) {
+                    pushTrailMarker();
+                    pushed = true;
+                }
+                uncheckedEnqueue(c._g(0), c);
+            }
+        }
+        return !pushed || propagate();
+    }
+
+    // Removes half of the learnt clauses, the less active ones, except binary clauses and reasons.
+    void reduceDB() {
+        Collections.sort(learnts_, new Comparator<Clause>() {
+            @Override
+            public int compare(Clause c1, Clause c2) {
+                return Double.compare(c1.activity, c2.activity);
+            }
+        });
+        int half = learnts_.size() / 2;
+        int j = 0;
+        for (int i = 0; i < learnts_.size(); i++) {
+            Clause c = learnts_.get(i);
+            if (i < half && c.size() > 2 && !locked(c)) {
+                // watchers are removed lazily, on propagation
+                c.removed = true;
+            } else {
+                learnts_.set(j++, c);
+            }
+        }
+        for (int k = learnts_.size() - 1; k >= j; k--) {
+            learnts_.remove(k);
+        }
+    }
+
+    // Increases the activity of a learnt clause.
+    void bumpClause(Clause c) {
+        if (c.learnt) {
+            c.activity += cla_inc_;
+            if (c.activity > 1e20) {
+                for (int i = 0; i < learnts_.size(); i++) {
+                    learnts_.get(i).activity *= 1e-20;
+                }
+                cla_inc_ *= 1e-20;
+            }
+        }
+    }
+
+    // Makes the next bumps weigh more than the previous ones.
+    void decayClauses() {
+        cla_inc_ /= 0.999;
+    }
+
+    // The number of learnt clauses.
+    int nLearnts() {
+        return learnts_.size();
+    }
+
+    // The clause which implied the current value of 'x', null if it was decided.
+    Clause reason(int x) {
+        return reasons_.get(x);
+    }
+
+    // A clause is locked if it is the reason of the current value of its first literal.
+    private boolean locked(Clause c) {
+        return reasons_.get(var(c._g(0))) == c && valueLit(c._g(0)) == Boolean.kTrue;
+    }
+
+    // The higher, the better watch the literal is.
+    private int watchRank(int l) {
+        Boolean b = valueLit(l);
+        if (b == Boolean.kTrue) {
+            return Integer.MAX_VALUE;
+        } else if (b == Boolean.kUndefined) {
+            return Integer.MAX_VALUE - 1;
+        }
+        return trail_pos_.get(var(l));
+    }
+
 
     private int incrementVariableCounter() {
         return num_vars_++;
@@ -264,11 +421,18 @@ public class SatSolver {
 
     // Enqueue a literal. Assumes value of literal is undefined.
     void uncheckedEnqueue(int l) {
+        uncheckedEnqueue(l, null);
+    }
+
+    // Enqueue a literal implied by 'reason'. Assumes value of literal is undefined.
+    void uncheckedEnqueue(int l, Clause reason) {
         assert valueLit(l) == Boolean.kUndefined;
         if (assignment_.get(var(l)) == Boolean.kUndefined) {
             touched_variables_.add(l);
         }
         assignment_.put(var(l), sign(l) ? Boolean.kFalse : Boolean.kTrue);
+        reasons_.set(var(l), reason);
+        trail_pos_.set(var(l), trail_.size());
         trail_.add(l);
     }
 
@@ -321,6 +485,11 @@ public class SatSolver {
             int i = 0;
             int j = 0;
             while (ws != null && i < ws.size()) {
+                // Drop the watchers of removed clauses:
+                if (ws.get(i).clause.removed) {
+                    i++;
+                    continue;
+                }
                 // Try to avoid inspecting the clause:
                 int blocker = ws.get(i).blocker;
                 if (valueLit(blocker) == Boolean.kTrue) {
@@ -369,13 +538,14 @@ public class SatSolver {
                     ws.set(j++, w);
                     if (valueLit(first) == Boolean.kFalse) {
                         result = false;
+                        conflict_ = cr;
                         qhead_ = trail_.size();
                         // Copy the remaining watches_:
                         while (i < ws.size()) {
                             ws.set(j++, ws.get(i++));
                         }
                     } else {
-                        uncheckedEnqueue(first);
+                        uncheckedEnqueue(first, cr);
                     }
                 }
             }
@@ -448,6 +618,10 @@ public class SatSolver {
      */
     class Clause {
         private int[] literals_;
+        // learnt clauses only
+        boolean learnt;
+        double activity;
+        boolean removed;
 
         public Clause(int[] ps) {
             literals_ = ps.clone();
@@ -49,11 +49,24 @@ import java.util.List;
  */
 public class GlobalCardinality extends IntConstraint<IntVar> {
 
+    /**
+     * Filtering level on the decision variables.
+     * <br/><b>DEFAULT</b>: counting filter only, no particular consistency,
+     * <br/><b>BC</b>: bound consistency with respect to the bounds of the cardinality variables.
+     */
+    public static enum Consistency {
+        DEFAULT, BC
+    }
+
     private final int nbvars;
     private final int[] values;
     private final TIntIntHashMap map;
 
     public GlobalCardinality(IntVar[] vars, int[] values, IntVar[] cards, Solver solver) {
+        this(vars, values, cards, Consistency.DEFAULT, solver);
+    }
+
+    public GlobalCardinality(IntVar[] vars, int[] values, IntVar[] cards, Consistency consistency, Solver solver) {
         super(ArrayUtils.append(vars, cards), solver);
         assert values.length == cards.length;
         this.nbvars = vars.length;
@@ -68,7 +81,14 @@ public class GlobalCardinality extends IntConstraint<IntVar> {
                 throw new UnsupportedOperationException("ERROR: multiple occurrences of value: " + v);
             }
         }
-        this.setPropagators(new PropFastGCC(vars, values, map, cards));
+        switch (consistency) {
+            case BC:
+                this.setPropagators(new PropFastGCC(vars, values, map, cards), new PropBoundGCC(vars, map, cards));
+                break;
+            case DEFAULT:
+            default:
+                this.setPropagators(new PropFastGCC(vars, values, map, cards));
+        }
     }
 
     public static Constraint[] reformulate(IntVar[] vars, IntVar[] card, Solver solver) {
@@ -118,78 +138,4 @@ public class GlobalCardinality extends IntConstraint<IntVar> {
         }
         return ESat.TRUE;
     }
-
-    //	// need to fix propagators before using this
-    //	public static enum Consistency {
-    //		AC, AC_ON_CARDS, BC
-    //	}
-    //		switch (consistency) {
-    //			case AC:
-    //				setPropagators(new PropGCC_AC_Cards_Fast(vars, values, cards, this, solver));
-    //				return;
-    //			case AC_ON_CARDS:
-    //				setPropagators(new PropGCC_AC_Cards_AC(vars, values, cards, this, solver));
-    //				return;
-    //			case BC:
-    //			default:
-    //				//CPRU  double to simulate idempotency
-    //				setPropagators(new PropBoundGlobalCardinality(vars, cards, values[0], values[values.length - 1], solver, this),
-    //						new PropBoundGlobalCardinality(vars, cards, values[0], values[values.length - 1], solver, this));
-    //
-    //		}
-    //	/**
-    //	 * Each values VALUES[i] should be taken exactly OCCURRENCES[i] variables of VARS.
-    //	 * <br/>
-    //	 * The level of consistency should be chosen among BC and AC.
-    //	 * <p/>
-    //	 * <b>BC</b>: ensures Bound Consistency,
-    //	 * <br/><b>AC</b>: ensures Arc Consistency.
-    //	 *
-    //	 * @param VARS        collection of variables
-    //	 * @param VALUES      collection of constrained values
-    //	 * @param OCCURRENCES collection of cardinality variables
-    //	 * @param CLOSED      restricts domains of VARS to VALUES if set to true
-    //	 * @param CONSISTENCY consistency level, among {"BC", "AC"}
-    //	 */
-    //	public static GlobalCardinality global_cardinality(IntVar[] VARS, int[] VALUES, IntVar[] OCCURRENCES, boolean CLOSED,
-    //													   String CONSISTENCY) {
-    //		Solver solver = VARS[0].getSolver();
-    //
-    //		TIntObjectHashMap<IntVar> map = new TIntObjectHashMap<IntVar>(VALUES.length);
-    //		for (int i = 0; i < VALUES.length; i++) {
-    //			map.put(VALUES[i], OCCURRENCES[i]);
-    //		}
-    //
-    //		int n = VARS.length;
-    //		Arrays.sort(VALUES);
-    //		int min = VALUES[0];
-    //		int max = VALUES[VALUES.length - 1];
-    //
-    //		for (int v = 0; v < VARS.length; v++) {
-    //			IntVar var = VARS[v];
-    //			if (min > var.getLB()) {
-    //				min = var.getLB();
-    //			}
-    //			if (max < var.getUB()) {
-    //				max = var.getUB();
-    //			}
-    //		}
-    //
-    //		IntVar[] cards = new IntVar[max - min + 1];
-    //		int[] values = new int[max - min + 1];
-    //		for (int i = min; i <= max; i++) {
-    //			values[i - min] = i;
-    //			if (map.containsKey(i)) {
-    //				cards[i - min] = map.get(i);
-    //			} else {
-    //				if (CLOSED) {
-    //					cards[i - min] = VariableFactory.fixed(0, solver);
-    //				} else {
-    //					cards[i - min] = VariableFactory.bounded(StringUtils.randomName(), 0, n, solver);
-    //				}
-    //			}
-    //		}
-    //		return new GlobalCardinality(VARS, values, cards, GlobalCardinality.Consistency.valueOf(CONSISTENCY), solver);
-    //
-    //	}
 }
@@ -0,0 +1,589 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.constraints.nary.globalcardinality;
+
+import gnu.trove.map.hash.TIntIntHashMap;
+import solver.constraints.Propagator;
+import solver.constraints.PropagatorPriority;
+import solver.exception.ContradictionException;
+import solver.variables.EventType;
+import solver.variables.IntVar;
+import util.ESat;
+import util.tools.ArrayUtils;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Propagator for Global Cardinality Constraint (GCC) ensuring bound consistency on the decision variables,
+ * with respect to the bounds of the cardinality variables.
+ * <br/>
+ * Based on: "An Efficient Bounds Consistency Algorithm for the Global Cardinality Constraint"</br>
+ * C.-G. Quimper, A. Lopez-Ortiz, P. van Beek, A. Golynski
+ * <br/>
+ * Runs in O(n.log(n) + d) per call, where d is the size of the union of the initial domains;
+ * no flow is built. The cardinality variables are not filtered here (see {@link PropFastGCC}).
+ * <br/>
+ * The path compression and the filtering passes are adapted from
+ * {@link solver.constraints.deprecatedPropagators.PropBoundGlobalCardinality}, by Hadrien Cambazard.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class PropBoundGCC extends Propagator<IntVar> {
+
+    private final int n;
+    private final TIntIntHashMap map;
+    private final int firstValue, range;
+
+    private final int[] t; // Tree links
+    private final int[] d; // Diffs between critical capacities
+    private final int[] h; // Hall interval links
+    private final int[] bounds;
+    private final int[] stableInterval;
+    private final int[] potentialStableSets;
+    private final int[] newMin;
+    private int nbBounds;
+
+    private final Interval[] minsorted, maxsorted;
+    // the algorithm runs over the ranks of the values which can be taken at least once
+    private final int[] rankToValue, lowRank, uppRank;
+    private final int[] minOcc, maxOcc;
+    private final PartialSum l, u;
+
+    private boolean changed;
+
+    /**
+     * Propagator for Global Cardinality Constraint (GCC) ensuring bound consistency
+     *
+     * @param decvars            decision variables
+     * @param map                maps a restricted value to the index of its cardinality variable
+     * @param valueCardinalities cardinality variables
+     */
+    public PropBoundGCC(IntVar[] decvars, TIntIntHashMap map, IntVar[] valueCardinalities) {
+        super(ArrayUtils.append(decvars, valueCardinalities), PropagatorPriority.LINEAR, true);
+        this.n = decvars.length;
+        this.map = map;
+        int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            min = Math.min(min, vars[i].getLB());
+            max = Math.max(max, vars[i].getUB());
+        }
+        this.firstValue = min;
+        this.range = max - min + 1;
+        t = new int[2 * n + 2];
+        d = new int[2 * n + 2];
+        h = new int[2 * n + 2];
+        bounds = new int[2 * n + 2];
+        stableInterval = new int[2 * n + 2];
+        potentialStableSets = new int[2 * n + 2];
+        newMin = new int[n];
+        minsorted = new Interval[n];
+        maxsorted = new Interval[n];
+        for (int i = 0; i < n; i++) {
+            Interval interval = new Interval();
+            interval.var = vars[i];
+            minsorted[i] = interval;
+            maxsorted[i] = interval;
+        }
+        rankToValue = new int[range];
+        lowRank = new int[range];
+        uppRank = new int[range];
+        minOcc = new int[range];
+        maxOcc = new int[range];
+        l = new PartialSum(range);
+        u = new PartialSum(range);
+    }
+
+    @Override
+    public int getPropagationConditions(int vIdx) {
+        return EventType.INSTANTIATE.mask + EventType.BOUND.mask;
+    }
+
+    @Override
+    public void propagate(int evtmask) throws ContradictionException {
+        do {
+            changed = false;
+            filter();
+        } while (changed);
+    }
+
+    @Override
+    public void propagate(int varIdx, int mask) throws ContradictionException {
+        forcePropagate(EventType.CUSTOM_PROPAGATION);
+    }
+
+    @Override
+    public ESat isEntailed() {
+        if (!isCompletelyInstantiated()) {
+            return ESat.UNDEFINED;
+        }
+        int[] occ = new int[vars.length - n];
+        for (int i = 0; i < n; i++) {
+            int v = vars[i].getValue();
+            if (map.containsKey(v)) {
+                occ[map.get(v)]++;
+            }
+        }
+        for (int j = 0; j < occ.length; j++) {
+            if (vars[n + j].getValue() != occ[j]) {
+                return ESat.FALSE;
+            }
+        }
+        return ESat.TRUE;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder st = new StringBuilder();
+        st.append("PropBoundGCC_(");
+        int i = 0;
+        for (; i < Math.min(4, vars.length); i++) {
+            st.append(vars[i].getName()).append(", ");
+        }
+        if (i < vars.length - 2) {
+            st.append("...,");
+        }
+        st.append(vars[vars.length - 1].getName()).append(")");
+        return st.toString();
+    }
+
+    //***********************************************************************************
+    // FILTERING
+    //***********************************************************************************
+
+    private void filter() throws ContradictionException {
+        // values with a null maximum occurrence are skipped, so that any interval of ranks has a positive capacity
+        int k = 0;
+        for (int i = 0; i < range; i++) {
+            int v = firstValue + i;
+            int min = 0, max = n;
+            if (map.containsKey(v)) {
+                IntVar card = vars[n + map.get(v)];
+                min = card.getLB();
+                max = card.getUB();
+            }
+            lowRank[i] = k;
+            if (max > 0) {
+                rankToValue[k] = v;
+                minOcc[k] = min;
+                maxOcc[k] = max;
+                k++;
+            }
+            uppRank[i] = k - 1;
+        }
+        if (k == 0) {
+            contradiction(null, "");
+        }
+        l.compute(minOcc, k);
+        u.compute(maxOcc, k);
+        for (int i = 0; i < n; i++) {
+            Interval interval = minsorted[i];
+            interval.lb = lowRank[interval.var.getLB() - firstValue];
+            interval.ub = uppRank[interval.var.getUB() - firstValue];
+            if (interval.lb > interval.ub) {
+                contradiction(interval.var, "");
+            }
+            updateLowerBound(interval.var, interval.lb);
+            updateUpperBound(interval.var, interval.ub);
+        }
+        sortIt();
+        // values that must be taken before the smallest lower bound or after the largest upper bound
+        if (l.sum(l.minValue(), minsorted[0].lb - 1) > 0
+                || l.sum(maxsorted[n - 1].ub + 1, l.maxValue()) > 0) {
+            contradiction(null, "");
+        }
+        filterLowerMax();
+        filterLowerMin();
+        filterUpperMax();
+        filterUpperMin();
+    }
+
+    private void updateLowerBound(IntVar var, int rank) throws ContradictionException {
+        changed |= var.updateLowerBound(rankToValue[rank], aCause);
+    }
+
+    private void updateUpperBound(IntVar var, int rank) throws ContradictionException {
+        changed |= var.updateUpperBound(rankToValue[rank], aCause);
+    }
+
+    private void sortIt() {
+        Arrays.sort(minsorted, SORT.MIN);
+        Arrays.sort(maxsorted, SORT.MAX);
+
+        int min = minsorted[0].lb;
+        int max = maxsorted[0].ub + 1;
+        int last = l.firstValue + 1;
+        int nb = 0;
+        bounds[0] = last;
+
+        int i = 0, j = 0;
+        while (true) {
+            if (i < n && min <= max) {
+                if (min != last) {
+                    bounds[++nb] = last = min;
+                }
+                minsorted[i].minrank = nb;
+                if (++i < n) {
+                    min = minsorted[i].lb;
+                }
+            } else {
+                if (max != last) {
+                    bounds[++nb] = last = max;
+                }
+                maxsorted[j].maxrank = nb;
+                if (++j == n) {
+                    break;
+                }
+                max = maxsorted[j].ub + 1;
+            }
+        }
+        nbBounds = nb;
+        bounds[nb + 1] = u.lastValue + 1;
+    }
+
+    private static void pathset(int[] tab, int start, int end, int to) {
+        int next = start;
+        int prev = next;
+        while (prev != end) {
+            next = tab[prev];
+            tab[prev] = to;
+            prev = next;
+        }
+    }
+
+    private static int pathmin(int[] tab, int i) {
+        while (tab[i] < i) {
+            i = tab[i];
+        }
+        return i;
+    }
+
+    private static int pathmax(int[] tab, int i) {
+        while (tab[i] > i) {
+            i = tab[i];
+        }
+        return i;
+    }
+
+    /**
+     * Shrinks the lower bounds with respect to the maximum occurrences
+     */
+    private void filterLowerMax() throws ContradictionException {
+        int i, j, w, x, y, z;
+        for (i = 1; i <= nbBounds + 1; i++) {
+            t[i] = h[i] = i - 1;
+            d[i] = u.sum(bounds[i - 1], bounds[i] - 1);
+        }
+        for (i = 0; i < n; i++) { // visit intervals in increasing max order
+            x = maxsorted[i].minrank;
+            y = maxsorted[i].maxrank;
+            j = t[z = pathmax(t, x + 1)];
+            if (--d[z] == 0) {
+                t[z = pathmax(t, t[z] = z + 1)] = j;
+            }
+            pathset(t, x + 1, z, z);
+            if (d[z] < u.sum(bounds[y], bounds[z] - 1)) {
+                contradiction(null, "");
+            }
+            if (h[x] > x) {
+                w = pathmax(h, h[x]);
+                updateLowerBound(maxsorted[i].var, bounds[w]);
+                pathset(h, x, w, w);
+            }
+            if (d[z] == u.sum(bounds[y], bounds[z] - 1)) {
+                pathset(h, h[y], j - 1, y); // mark hall interval
+                h[y] = j - 1;
+            }
+        }
+    }
+
+    /**
+     * Shrinks the upper bounds with respect to the maximum occurrences
+     */
+    private void filterUpperMax() throws ContradictionException {
+        int i, j, w, x, y, z;
+        for (i = 0; i <= nbBounds; i++) {
+            d[i] = u.sum(bounds[i], bounds[t[i] = h[i] = i + 1] - 1);
+        }
+        for (i = n; --i >= 0; ) { // visit intervals in decreasing min order
+            x = minsorted[i].maxrank;
+            y = minsorted[i].minrank;
+            j = t[z = pathmin(t, x - 1)];
+            if (--d[z] == 0) {
+                t[z = pathmin(t, t[z] = z - 1)] = j;
+            }
+            pathset(t, x - 1, z, z);
+            if (d[z] < u.sum(bounds[z], bounds[y] - 1)) {
+                contradiction(null, "");
+            }
+            if (h[x] < x) {
+                w = pathmin(h, h[x]);
+                updateUpperBound(minsorted[i].var, bounds[w] - 1);
+                pathset(h, x, w, w);
+            }
+            if (d[z] == u.sum(bounds[z], bounds[y] - 1)) {
+                pathset(h, h[y], j + 1, y);
+                h[y] = j + 1;
+            }
+        }
+    }
+
+    /**
+     * Shrinks the lower bounds with respect to the minimum occurrences
+     */
+    private void filterLowerMin() throws ContradictionException {
+        int i, j, w, x, y, z, v;
+        for (w = i = nbBounds + 1; i > 0; i--) {
+            potentialStableSets[i] = stableInterval[i] = i - 1;
+            d[i] = l.sum(bounds[i - 1], bounds[i] - 1);
+            // a null capacity between both bounds denotes an unstable set
+            if (d[i] == 0) {
+                h[i - 1] = w;
+            } else {
+                w = h[w] = i - 1;
+            }
+        }
+        for (i = w = nbBounds + 1; i >= 0; i--) {
+            if (d[i] == 0) {
+                t[i] = w;
+            } else {
+                w = t[w] = i;
+            }
+        }
+        for (i = 0; i < n; i++) { // visit intervals in increasing max order
+            x = maxsorted[i].minrank;
+            y = maxsorted[i].maxrank;
+            j = t[z = pathmax(t, x + 1)];
+            if (z != x + 1) {
+                // if bounds[z] - 1 belongs to a stable set, [bounds[x], bounds[z]) is a sub set of this stable set
+                v = potentialStableSets[w = pathmax(potentialStableSets, x + 1)];
+                pathset(potentialStableSets, x + 1, w, w);
+                w = y < z ? y : z;
+                pathset(potentialStableSets, potentialStableSets[w], v, w);
+                potentialStableSets[w] = v;
+            }
+            if (d[z] <= l.sum(bounds[y], bounds[z] - 1)) {
+                // (potentialStableSets[y], y] is a stable set
+                w = pathmax(stableInterval, potentialStableSets[y]);
+                pathset(stableInterval, potentialStableSets[y], w, w);
+                pathset(stableInterval, stableInterval[y], v = stableInterval[w], y);
+                stableInterval[y] = v;
+            } else {
+                if (--d[z] == 0) {
+                    t[z = pathmax(t, t[z] = z + 1)] = j;
+                }
+                // remind the new lower bound in case the variable does not belong to a stable set
+                if (h[x] > x) {
+                    w = newMin[i] = pathmax(h, x);
+                    pathset(h, x, w, w);
+                } else {
+                    newMin[i] = x;
+                }
+                if (d[z] == l.sum(bounds[y], bounds[z] - 1)) {
+                    if (h[y] > y) {
+                        y = h[y];
+                    }
+                    pathset(h, h[y], j - 1, y); // mark the new unstable set
+                    h[y] = j - 1;
+                }
+            }
+            pathset(t, x + 1, z, z);
+        }
+        // failure set
+        if (h[nbBounds] != 0) {
+            contradiction(null, "");
+        }
+        // the stable interval structure is not modified anymore: compress it once for all
+        for (i = nbBounds + 1; i > 0; i--) {
+            if (stableInterval[i] > i) {
+                stableInterval[i] = w;
+            } else {
+                w = i;
+            }
+        }
+        for (i = n - 1; i >= 0; i--) {
+            x = maxsorted[i].minrank;
+            y = maxsorted[i].maxrank;
+            if ((stableInterval[x] <= x) || (y > stableInterval[x])) {
+                updateLowerBound(maxsorted[i].var, l.skipNonNullElementsRight(bounds[newMin[i]]));
+            }
+        }
+    }
+
+    /**
+     * Shrinks the upper bounds with respect to the minimum occurrences,
+     * must be called after {@link #filterLowerMin()} which computes the stable intervals
+     */
+    private void filterUpperMin() throws ContradictionException {
+        int i, w = 0;
+        for (i = 0; i <= nbBounds; i++) {
+            d[i] = l.sum(bounds[i], bounds[i + 1] - 1);
+            if (d[i] == 0) {
+                t[i] = w;
+            } else {
+                w = t[w] = i;
+            }
+        }
+        t[w] = i;
+        w = 0;
+        for (i = 1; i <= nbBounds; i++) {
+            if (d[i - 1] == 0) {
+                h[i] = w;
+            } else {
+                w = h[w] = i;
+            }
+        }
+        h[w] = i;
+        for (i = n - 1; i >= 0; i--) { // visit intervals in decreasing min order
+            int x = minsorted[i].maxrank;
+            int y = minsorted[i].minrank;
+            int z = pathmin(t, x - 1);
+            int j = t[z];
+            if (d[z] > l.sum(bounds[z], bounds[y] - 1)) {
+                if (--d[z] == 0) {
+                    t[z] = z - 1;
+                    z = pathmin(t, t[z]);
+                    t[z] = j;
+                }
+                if (h[x] < x) {
+                    w = pathmin(h, h[x]);
+                    newMin[i] = w; // stores the new max
+                    pathset(h, x, w, w);
+                } else {
+                    newMin[i] = x;
+                }
+                if (d[z] == l.sum(bounds[z], bounds[y] - 1)) {
+                    if (h[y] < y) {
+                        y = h[y];
+                    }
+                    pathset(h, h[y], j + 1, y);
+                    h[y] = j + 1;
+                }
+            }
+            pathset(t, x - 1, z, z);
+        }
+        for (i = n - 1; i >= 0; i--) {
+            int x = minsorted[i].minrank;
+            int y = minsorted[i].maxrank;
+            if ((stableInterval[x] <= x) || (y > stableInterval[x])) {
+                updateUpperBound(minsorted[i].var, l.skipNonNullElementsLeft(bounds[newMin[i]] - 1));
+            }
+        }
+    }
+
+    //***********************************************************************************
+    // DATA STRUCTURES
+    //***********************************************************************************
+
+    private static final class Interval {
+        int minrank, maxrank;
+        int lb, ub; // ranks of the bounds
+        IntVar var;
+    }
+
+    private static enum SORT implements Comparator<Interval> {
+        MAX {
+            @Override
+            public int compare(Interval o1, Interval o2) {
+                return o1.ub - o2.ub;
+            }
+        },
+        MIN {
+            @Override
+            public int compare(Interval o1, Interval o2) {
+                return o1.lb - o2.lb;
+            }
+        }
+    }
+
+    /**
+     * Partial sums of the occurrences over ranks 0 to count - 1, padded with two elements of weight 1 on each side.
+     * Allows to skip ranks with null occurrences in constant time.
+     */
+    private static final class PartialSum {
+        private final int[] sum;
+        private final int[] ds;
+        private final int firstValue;
+        private int lastValue, range;
+
+        PartialSum(int capacity) {
+            this.sum = new int[capacity + 5];
+            this.ds = new int[capacity + 5];
+            this.firstValue = -3;
+        }
+
+        void compute(int[] elt, int count) {
+            range = count;
+            lastValue = count + 1;
+            sum[0] = 0;
+            sum[1] = 1;
+            sum[2] = 2;
+            int i, j;
+            for (i = 2; i < range + 2; i++) {
+                sum[i + 1] = sum[i] + elt[i - 2];
+            }
+            sum[i + 1] = sum[i] + 1;
+            sum[i + 2] = sum[i + 1] + 1;
+
+            i = range + 3;
+            for (j = i + 1; i > 0; ) {
+                while (sum[i] == sum[i - 1]) {
+                    ds[i--] = j;
+                }
+                j = ds[j] = i--;
+            }
+            ds[j] = 0;
+        }
+
+        int sum(int from, int to) {
+            if (from <= to) {
+                return sum[to - firstValue] - sum[from - firstValue - 1];
+            } else {
+                return sum[to - firstValue - 1] - sum[from - firstValue];
+            }
+        }
+
+        int minValue() {
+            return firstValue + 3;
+        }
+
+        int maxValue() {
+            return lastValue - 2;
+        }
+
+        int skipNonNullElementsRight(int value) {
+            value -= firstValue;
+            return (ds[value] < value ? value : ds[value]) + firstValue;
+        }
+
+        int skipNonNullElementsLeft(int value) {
+            value -= firstValue;
+            return (ds[value] > value ? ds[ds[value]] : value) + firstValue;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.constraints.nary.mdd;
+
+import solver.Solver;
+import solver.constraints.IntConstraint;
+import solver.variables.IntVar;
+import solver.variables.Variable;
+import util.ESat;
+
+/**
+ * A constraint which ensures that a sequence of variables is assigned to a path of a multi-valued decision diagram.
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class MDD extends IntConstraint<IntVar> {
+
+    final MultivaluedDecisionDiagram mdd;
+
+    public MDD(IntVar[] vars, MultivaluedDecisionDiagram mdd, Solver solver) {
+        super(vars, solver);
+        this.mdd = mdd;
+        setPropagators(new PropMDD(vars, mdd));
+    }
+
+    @Override
+    public ESat isSatisfied(int[] tuple) {
+        return ESat.eval(mdd.contains(tuple));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(32);
+        sb.append("MDD(");
+        for (int i = 0; i < vars.length; i++) {
+            if (i > 0) sb.append(", ");
+            Variable var = vars[i];
+            sb.append(var.getName());
+        }
+        sb.append(")");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,455 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.constraints.nary.mdd;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.set.hash.TIntHashSet;
+import solver.constraints.nary.automata.FA.FiniteAutomaton;
+import solver.constraints.nary.automata.FA.IAutomaton;
+import solver.exception.SolverException;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A reduced multi-valued decision diagram, defining a set of tuples of a given length.
+ * <br/>
+ * The diagram is layered: nodes of layer <code>i</code> have outgoing arcs labelled with values of the
+ * <code>i</code>-th element of the tuples, leading to nodes of layer <code>i+1</code>.
+ * Node 0 is the root, the last node is the terminal node; a tuple is accepted iff it labels a path from the root
+ * to the terminal node. Equivalent nodes are merged, and nodes from which the terminal node can not be reached are removed.
+ * <br/>
+ * The diagram is stored as flat arrays and is never modified once built:
+ * it can be shared by several constraints and solvers.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class MultivaluedDecisionDiagram implements Serializable {
+
+    // number of layers of arcs, ie, length of the tuples
+    final int nbLayers;
+    // nodes of layer l are in [layers[l], layers[l+1])
+    final int[] layers;
+    // arcs going out of node n are in [outs[n], outs[n+1]), sorted by value
+    final int[] outs;
+    // arc -> origin, value and destination
+    final int[] arcFrom, arcVal, arcTo;
+    // arcs coming into node n are inArcs[ins[n]] to inArcs[ins[n+1]-1]
+    final int[] ins, inArcs;
+
+    private MultivaluedDecisionDiagram(int nbLayers, int[] layers, int[] outs, int[] arcFrom, int[] arcVal, int[] arcTo) {
+        this.nbLayers = nbLayers;
+        this.layers = layers;
+        this.outs = outs;
+        this.arcFrom = arcFrom;
+        this.arcVal = arcVal;
+        this.arcTo = arcTo;
+        int nbNodes = outs.length - 1;
+        this.ins = new int[nbNodes + 1];
+        for (int a = 0; a < arcTo.length; a++) {
+            ins[arcTo[a] + 1]++;
+        }
+        for (int n = 0; n < nbNodes; n++) {
+            ins[n + 1] += ins[n];
+        }
+        this.inArcs = new int[arcTo.length];
+        int[] pos = Arrays.copyOf(ins, nbNodes);
+        for (int a = 0; a < arcTo.length; a++) {
+            inArcs[pos[arcTo[a]]++] = a;
+        }
+    }
+
+    //***********************************************************************************
+    // Builders
+    //***********************************************************************************
+
+    /**
+     * Build the reduced diagram of a set of tuples of the same length.
+     * Tuples are sorted and inserted one by one, the nodes being merged as soon as they are completed,
+     * so that the memory needed is bounded by the size of the final diagram.
+     *
+     * @param tuples a set of tuples, possibly with duplicates
+     * @return a diagram accepting exactly the tuples
+     */
+    public static MultivaluedDecisionDiagram fromTuples(List<int[]> tuples) {
+        return fromTuples(tuples.toArray(new int[tuples.size()][]));
+    }
+
+    /**
+     * Build the reduced diagram of a set of tuples of the same length.
+     *
+     * @param tuples a set of tuples, possibly with duplicates; the array is sorted in place
+     * @return a diagram accepting exactly the tuples
+     * @see #fromTuples(java.util.List)
+     */
+    public static MultivaluedDecisionDiagram fromTuples(int[][] tuples) {
+        if (tuples.length == 0) {
+            throw new SolverException("MDD: the set of tuples is empty");
+        }
+        final int n = tuples[0].length;
+        for (int t = 1; t < tuples.length; t++) {
+            if (tuples[t].length != n) {
+                throw new SolverException("MDD: tuples of different lengths");
+            }
+        }
+        Arrays.sort(tuples, new Comparator<int[]>() {
+            @Override
+            public int compare(int[] t1, int[] t2) {
+                for (int i = 0; i < n; i++) {
+                    if (t1[i] != t2[i]) {
+                        return t1[i] < t2[i] ? -1 : 1;
+                    }
+                }
+                return 0;
+            }
+        });
+        Register register = new Register(n);
+        // open[d]: arcs of the node of layer d on the path of the last tuple, its last arc leads to open[d+1]
+        TIntArrayList[] open = new TIntArrayList[n];
+        for (int d = 0; d < n; d++) {
+            open[d] = new TIntArrayList();
+        }
+        int[] previous = null;
+        for (int t = 0; t < tuples.length; t++) {
+            int[] tuple = tuples[t];
+            int p = 0;
+            if (previous != null) {
+                while (p < n && previous[p] == tuple[p]) {
+                    p++;
+                }
+                if (p == n) {
+                    continue; // duplicate
+                }
+                close(open, p, register);
+            }
+            for (int d = p; d < n; d++) {
+                open[d].add(tuple[d]);
+                open[d].add(d == n - 1 ? Register.TT : -1);
+            }
+            previous = tuple;
+        }
+        close(open, 0, register);
+        int root = register.get(0, open[0].toArray());
+        return register.compile(root);
+    }
+
+    // register the nodes of the current path below layer p
+    private static void close(TIntArrayList[] open, int p, Register register) {
+        for (int d = open.length - 1; d > p; d--) {
+            int id = register.get(d, open[d].toArray());
+            open[d].resetQuick();
+            open[d - 1].setQuick(open[d - 1].size() - 1, id);
+        }
+    }
+
+    /**
+     * Build the reduced diagram of the words of <code>values.length</code> symbols recognized by an automaton,
+     * possibly non-deterministic, the <code>i</code>-th symbol being taken in <code>values[i]</code>.
+     *
+     * @param automaton an automaton
+     * @param values    candidate symbols of each position
+     * @return a diagram accepting exactly the words of the automaton
+     */
+    public static MultivaluedDecisionDiagram fromAutomaton(IAutomaton automaton, int[][] values) {
+        int n = values.length;
+        // unfold the automaton, each node being a set of states
+        ArrayList<ArrayList<StateSet>> sets = new ArrayList<ArrayList<StateSet>>();
+        ArrayList<ArrayList<int[]>> arcs = new ArrayList<ArrayList<int[]>>();
+        StateSet init = new StateSet(new int[]{automaton.getInitialState()});
+        sets.add(new ArrayList<StateSet>());
+        sets.get(0).add(init);
+        TIntHashSet nexts = new TIntHashSet();
+        TIntHashSet tmp = new TIntHashSet();
+        for (int l = 0; l < n; l++) {
+            HashMap<StateSet, Integer> next = new HashMap<StateSet, Integer>();
+            ArrayList<StateSet> nsets = new ArrayList<StateSet>();
+            ArrayList<int[]> larcs = new ArrayList<int[]>();
+            ArrayList<StateSet> cur = sets.get(l);
+            for (int s = 0; s < cur.size(); s++) {
+                TIntArrayList edges = new TIntArrayList();
+                int[] vals = values[l].clone();
+                Arrays.sort(vals);
+                for (int v = 0; v < vals.length; v++) {
+                    if (v > 0 && vals[v] == vals[v - 1]) {
+                        continue;
+                    }
+                    nexts.clear();
+                    for (int k : cur.get(s).states) {
+                        tmp.clear();
+                        automaton.delta(k, vals[v], tmp);
+                        nexts.addAll(tmp);
+                    }
+                    if (nexts.isEmpty()) {
+                        continue;
+                    }
+                    int[] st = nexts.toArray();
+                    Arrays.sort(st);
+                    StateSet ss = new StateSet(st);
+                    Integer id = next.get(ss);
+                    if (id == null) {
+                        id = nsets.size();
+                        next.put(ss, id);
+                        nsets.add(ss);
+                    }
+                    edges.add(vals[v]);
+                    edges.add(id);
+                }
+                larcs.add(edges.toArray());
+            }
+            sets.add(nsets);
+            arcs.add(larcs);
+        }
+        // reduce, from the last layer to the first one
+        Register register = new Register(n);
+        ArrayList<StateSet> last = sets.get(n);
+        int[] ids = new int[last.size()];
+        for (int s = 0; s < ids.length; s++) {
+            ids[s] = -1;
+            for (int k : last.get(s).states) {
+                if (automaton.isFinal(k)) {
+                    ids[s] = Register.TT;
+                    break;
+                }
+            }
+        }
+        for (int l = n - 1; l >= 0; l--) {
+            ArrayList<int[]> larcs = arcs.get(l);
+            int[] lids = new int[larcs.size()];
+            TIntArrayList edges = new TIntArrayList();
+            for (int s = 0; s < lids.length; s++) {
+                edges.resetQuick();
+                int[] e = larcs.get(s);
+                for (int k = 0; k < e.length; k += 2) {
+                    if (ids[e[k + 1]] != -1) {
+                        edges.add(e[k]);
+                        edges.add(ids[e[k + 1]]);
+                    }
+                }
+                lids[s] = edges.isEmpty() ? -1 : register.get(l, edges.toArray());
+            }
+            ids = lids;
+        }
+        if (ids[0] == -1) {
+            throw new SolverException("MDD: the automaton accepts no word of length " + n);
+        }
+        return register.compile(ids[0]);
+    }
+
+    /**
+     * Build the reduced diagram of the words of <code>length</code> symbols recognized by an automaton,
+     * symbols being taken in its alphabet.
+     *
+     * @param automaton an automaton
+     * @param length    length of the words
+     * @return a diagram accepting exactly the words of the automaton
+     */
+    public static MultivaluedDecisionDiagram fromAutomaton(FiniteAutomaton automaton, int length) {
+        int[] alphabet = automaton.getAlphabet().toArray();
+        int[][] values = new int[length][];
+        for (int i = 0; i < length; i++) {
+            values[i] = alphabet;
+        }
+        return fromAutomaton(automaton, values);
+    }
+
+    //***********************************************************************************
+    // Accessors
+    //***********************************************************************************
+
+    /**
+     * @return length of the tuples
+     */
+    public int getNbLayers() {
+        return nbLayers;
+    }
+
+    public int getNbNodes() {
+        return outs.length - 1;
+    }
+
+    public int getNbArcs() {
+        return arcTo.length;
+    }
+
+    /**
+     * @return index of the terminal node
+     */
+    public int getTerminal() {
+        return outs.length - 2;
+    }
+
+    /**
+     * @param tuple a tuple
+     * @return true iff the tuple is accepted
+     */
+    public boolean contains(int[] tuple) {
+        if (tuple.length != nbLayers) {
+            return false;
+        }
+        int node = 0;
+        for (int l = 0; l < nbLayers; l++) {
+            int a = Arrays.binarySearch(arcVal, outs[node], outs[node + 1], tuple[l]);
+            if (a < 0) {
+                return false;
+            }
+            node = arcTo[a];
+        }
+        return true;
+    }
+
+    /**
+     * @return number of tuples accepted
+     */
+    public long count() {
+        long[] paths = new long[getNbNodes()];
+        paths[getTerminal()] = 1;
+        for (int n = getNbNodes() - 2; n >= 0; n--) {
+            for (int a = outs[n]; a < outs[n + 1]; a++) {
+                paths[n] += paths[arcTo[a]];
+            }
+        }
+        return paths[0];
+    }
+
+    @Override
+    public String toString() {
+        return "MDD(" + nbLayers + " layers, " + getNbNodes() + " nodes, " + getNbArcs() + " arcs)";
+    }
+
+    //***********************************************************************************
+    // Reduction
+    //***********************************************************************************
+
+    private static final class StateSet {
+        final int[] states;
+        final int hash;
+
+        StateSet(int[] states) {
+            this.states = states;
+            this.hash = Arrays.hashCode(states);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof StateSet && Arrays.equals(states, ((StateSet) o).states);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Unique table of nodes: a node is defined by its layer and its arcs, as (value, node) couples sorted by value.
+     */
+    private static final class Register {
+
+        static final int TT = 0;
+
+        final int nbLayers;
+        final HashMap<StateSet, Integer>[] unique;
+        final ArrayList<int[]> arcs = new ArrayList<int[]>();
+        final TIntArrayList layer = new TIntArrayList();
+
+        @SuppressWarnings("unchecked")
+        Register(int nbLayers) {
+            this.nbLayers = nbLayers;
+            this.unique = new HashMap[nbLayers];
+            for (int l = 0; l < nbLayers; l++) {
+                unique[l] = new HashMap<StateSet, Integer>();
+            }
+            arcs.add(new int[0]);
+            layer.add(nbLayers);
+        }
+
+        int get(int l, int[] edges) {
+            StateSet key = new StateSet(edges);
+            Integer id = unique[l].get(key);
+            if (id == null) {
+                id = arcs.size();
+                unique[l].put(key, id);
+                arcs.add(edges);
+                layer.add(l);
+            }
+            return id;
+        }
+
+        MultivaluedDecisionDiagram compile(int root) {
+            // number the nodes reachable from the root, layer by layer
+            TIntIntHashMap index = new TIntIntHashMap(16, 0.5f, -1, -1);
+            TIntArrayList order = new TIntArrayList();
+            int[] layers = new int[nbLayers + 2];
+            order.add(root);
+            index.put(root, 0);
+            int from = 0;
+            for (int l = 0; l < nbLayers; l++) {
+                layers[l] = from;
+                int to = order.size();
+                for (int i = from; i < to; i++) {
+                    int[] e = arcs.get(order.getQuick(i));
+                    for (int k = 1; k < e.length; k += 2) {
+                        if (e[k] != TT && !index.containsKey(e[k])) {
+                            index.put(e[k], order.size());
+                            order.add(e[k]);
+                        }
+                    }
+                }
+                from = to;
+            }
+            layers[nbLayers] = order.size();
+            index.put(TT, order.size());
+            order.add(TT);
+            layers[nbLayers + 1] = order.size();
+            int nbArcs = 0;
+            for (int i = 0; i < order.size(); i++) {
+                nbArcs += arcs.get(order.getQuick(i)).length / 2;
+            }
+            int[] outs = new int[order.size() + 1];
+            int[] arcFrom = new int[nbArcs], arcVal = new int[nbArcs], arcTo = new int[nbArcs];
+            int a = 0;
+            for (int i = 0; i < order.size(); i++) {
+                outs[i] = a;
+                int[] e = arcs.get(order.getQuick(i));
+                for (int k = 0; k < e.length; k += 2) {
+                    arcFrom[a] = i;
+                    arcVal[a] = e[k];
+                    arcTo[a] = index.get(e[k + 1]);
+                    a++;
+                }
+            }
+            outs[order.size()] = a;
+            return new MultivaluedDecisionDiagram(nbLayers, layers, outs, arcFrom, arcVal, arcTo);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.constraints.nary.mdd;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntIntHashMap;
+import memory.IStateInt;
+import solver.constraints.Propagator;
+import solver.constraints.PropagatorPriority;
+import solver.exception.ContradictionException;
+import solver.exception.SolverException;
+import solver.variables.EventType;
+import solver.variables.IntVar;
+import solver.variables.delta.IIntDeltaMonitor;
+import util.ESat;
+import util.procedure.UnaryIntProcedure;
+
+/**
+ * A propagator for the MDD constraint, based on MDD4R (G. Perez, J-C. Regin, "Improving GAC-4 for Table and MDD Constraints", CP'14).
+ * <br/>
+ * The diagram is shared and read-only; the alive arcs are stored in reversible sparse sets:
+ * the outgoing arcs and the incoming arcs of each node, and the arcs of each value of each variable.
+ * When a value is removed, its arcs are deleted; a node without outgoing (resp. incoming) arcs is deleted
+ * with its incoming (resp. outgoing) arcs, and a value without arcs is removed from its variable.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class PropMDD extends Propagator<IntVar> {
+
+    final MultivaluedDecisionDiagram mdd;
+
+    // sparse sets of arcs: permutation, position of each arc in the permutation, start and reversible size of each set
+    final int[] outPerm, outPos;
+    final IStateInt[] outSize;
+    final int[] inPerm, inPos;
+    final IStateInt[] inSize;
+    final int[] valPerm, valPos, valStart;
+    final IStateInt[] valSize;
+    // value index -> value and layer; arc -> value index
+    final int[] valValue, valLayer, arcVal;
+    // layer -> value -> value index
+    final TIntIntHashMap[] valIndex;
+
+    // arcs to delete
+    final TIntArrayList toDelete;
+
+    protected final IIntDeltaMonitor[] idms;
+    protected final RemProc rem_proc;
+
+    public PropMDD(IntVar[] variables, MultivaluedDecisionDiagram mdd) {
+        super(variables, PropagatorPriority.QUADRATIC, true);
+        if (variables.length != mdd.getNbLayers()) {
+            throw new SolverException("MDD: " + variables.length + " variables for " + mdd.getNbLayers() + " layers");
+        }
+        this.mdd = mdd;
+        int nbNodes = mdd.getNbNodes();
+        int nbArcs = mdd.getNbArcs();
+        outPerm = new int[nbArcs];
+        outPos = new int[nbArcs];
+        inPerm = mdd.inArcs.clone();
+        inPos = new int[nbArcs];
+        for (int a = 0; a < nbArcs; a++) {
+            outPerm[a] = outPos[a] = a;
+            inPos[inPerm[a]] = a;
+        }
+        outSize = new IStateInt[nbNodes];
+        inSize = new IStateInt[nbNodes];
+        for (int n = 0; n < nbNodes; n++) {
+            outSize[n] = environment.makeInt(mdd.outs[n + 1] - mdd.outs[n]);
+            inSize[n] = environment.makeInt(mdd.ins[n + 1] - mdd.ins[n]);
+        }
+        // group arcs by variable and value
+        valIndex = new TIntIntHashMap[vars.length];
+        arcVal = new int[nbArcs];
+        TIntArrayList counts = new TIntArrayList();
+        TIntArrayList values = new TIntArrayList();
+        TIntArrayList lyrs = new TIntArrayList();
+        for (int l = 0; l < vars.length; l++) {
+            valIndex[l] = new TIntIntHashMap(16, 0.5f, Integer.MIN_VALUE, -1);
+            for (int a = mdd.outs[mdd.layers[l]]; a < mdd.outs[mdd.layers[l + 1]]; a++) {
+                int vi = valIndex[l].get(mdd.arcVal[a]);
+                if (vi == -1) {
+                    vi = values.size();
+                    valIndex[l].put(mdd.arcVal[a], vi);
+                    values.add(mdd.arcVal[a]);
+                    lyrs.add(l);
+                    counts.add(0);
+                }
+                arcVal[a] = vi;
+                counts.setQuick(vi, counts.getQuick(vi) + 1);
+            }
+        }
+        int nbValues = values.size();
+        valValue = values.toArray();
+        valLayer = lyrs.toArray();
+        valStart = new int[nbValues + 1];
+        valSize = new IStateInt[nbValues];
+        for (int vi = 0; vi < nbValues; vi++) {
+            valStart[vi + 1] = valStart[vi] + counts.getQuick(vi);
+            valSize[vi] = environment.makeInt(counts.getQuick(vi));
+        }
+        valPerm = new int[nbArcs];
+        valPos = new int[nbArcs];
+        int[] pos = new int[nbValues];
+        System.arraycopy(valStart, 0, pos, 0, nbValues);
+        for (int a = 0; a < nbArcs; a++) {
+            int p = pos[arcVal[a]]++;
+            valPerm[p] = a;
+            valPos[a] = p;
+        }
+        toDelete = new TIntArrayList();
+        this.idms = new IIntDeltaMonitor[vars.length];
+        for (int i = 0; i < vars.length; i++) {
+            idms[i] = vars[i].monitorDelta(this);
+        }
+        rem_proc = new RemProc(this);
+    }
+
+    @Override
+    public int getPropagationConditions(int vIdx) {
+        return EventType.INT_ALL_MASK();
+    }
+
+    @Override
+    public void propagate(int evtmask) throws ContradictionException {
+        for (int l = 0; l < vars.length; l++) {
+            int[] keys = valIndex[l].keys();
+            for (int k = 0; k < keys.length; k++) {
+                if (!vars[l].contains(keys[k])) {
+                    deleteValue(valIndex[l].get(keys[k]));
+                }
+            }
+        }
+        deleteArcs();
+        for (int l = 0; l < vars.length; l++) {
+            IntVar var = vars[l];
+            int left = Integer.MIN_VALUE;
+            int right = left;
+            int ub = var.getUB();
+            for (int v = var.getLB(); v <= ub; v = var.nextValue(v)) {
+                int vi = valIndex[l].get(v);
+                if (vi == -1 || valSize[vi].get() == 0) {
+                    if (v == right + 1) {
+                        right = v;
+                    } else {
+                        var.removeInterval(left, right, aCause);
+                        left = right = v;
+                    }
+                }
+            }
+            var.removeInterval(left, right, aCause);
+        }
+        for (int i = 0; i < idms.length; i++) {
+            idms[i].unfreeze();
+        }
+    }
+
+    @Override
+    public void propagate(int varIdx, int mask) throws ContradictionException {
+        idms[varIdx].freeze();
+        idms[varIdx].forEach(rem_proc.set(varIdx), EventType.REMOVE);
+        idms[varIdx].unfreeze();
+        deleteArcs();
+    }
+
+    // schedule the deletion of the arcs of a value
+    private void deleteValue(int vi) {
+        if (vi > -1) {
+            for (int p = valStart[vi], end = valStart[vi] + valSize[vi].get(); p < end; p++) {
+                toDelete.add(valPerm[p]);
+            }
+        }
+    }
+
+    private void deleteArcs() throws ContradictionException {
+        int[] outs = mdd.outs, ins = mdd.ins;
+        try {
+            while (!toDelete.isEmpty()) {
+                int a = toDelete.removeAt(toDelete.size() - 1);
+                int from = mdd.arcFrom[a];
+                if (outPos[a] >= outs[from] + outSize[from].get()) {
+                    continue; // already deleted
+                }
+                // from the outgoing arcs of its origin
+                int size = remove(outPerm, outPos, outs[from], outSize[from], a);
+                if (size == 0) {
+                    for (int p = ins[from], end = ins[from] + inSize[from].get(); p < end; p++) {
+                        toDelete.add(inPerm[p]);
+                    }
+                }
+                // from the incoming arcs of its destination
+                int to = mdd.arcTo[a];
+                size = remove(inPerm, inPos, ins[to], inSize[to], a);
+                if (size == 0) {
+                    for (int p = outs[to], end = outs[to] + outSize[to].get(); p < end; p++) {
+                        toDelete.add(outPerm[p]);
+                    }
+                }
+                // from the arcs of its value
+                int vi = arcVal[a];
+                size = remove(valPerm, valPos, valStart[vi], valSize[vi], a);
+                if (size == 0) {
+                    vars[valLayer[vi]].removeValue(valValue[vi], aCause);
+                }
+            }
+            if (outSize[0].get() == 0) {
+                contradiction(vars[0], "MDD: no path left");
+            }
+        } finally {
+            // on failure, pending arcs must not be deleted from the restored state
+            toDelete.resetQuick();
+        }
+    }
+
+    private static int remove(int[] perm, int[] pos, int start, IStateInt size, int a) {
+        int s = size.get() - 1;
+        int last = start + s;
+        int p = pos[a];
+        int b = perm[last];
+        perm[p] = b;
+        pos[b] = p;
+        perm[last] = a;
+        pos[a] = last;
+        size.set(s);
+        return s;
+    }
+
+    @Override
+    public ESat isEntailed() {
+        if (isCompletelyInstantiated()) {
+            int[] tuple = new int[vars.length];
+            for (int i = 0; i < vars.length; i++) {
+                tuple[i] = vars[i].getValue();
+            }
+            return ESat.eval(mdd.contains(tuple));
+        }
+        return ESat.UNDEFINED;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(32);
+        sb.append("MDD(");
+        for (int i = 0; i < vars.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(vars[i].getName());
+        }
+        sb.append(")");
+        return sb.toString();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private static class RemProc implements UnaryIntProcedure<Integer> {
+
+        private final PropMDD p;
+        private int idxVar;
+
+        public RemProc(PropMDD p) {
+            this.p = p;
+        }
+
+        @Override
+        public UnaryIntProcedure set(Integer idxVar) {
+            this.idxVar = idxVar;
+            return this;
+        }
+
+        @Override
+        public void execute(int i) throws ContradictionException {
+            p.deleteValue(p.valIndex[idxVar].get(i));
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.constraints.symmetry;
+
+import gnu.trove.list.array.TIntArrayList;
+import memory.IStateInt;
+import solver.Solver;
+import solver.constraints.Propagator;
+import solver.constraints.PropagatorPriority;
+import solver.exception.ContradictionException;
+import solver.variables.EventType;
+import solver.variables.IntVar;
+import util.ESat;
+
+import java.util.ArrayList;
+
+/**
+ * A propagator for nogoods posted during search by {@link SBDS}.
+ * <br/>
+ * A nogood is a set of literals <code>vars[i] = v</code> which can not be all true.
+ * Nogoods are stacked: the ones added in a world are forgotten on backtrack.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class PropSymmetricNogoods extends Propagator<IntVar> {
+
+    // nogoods, as indices of variables and values
+    final ArrayList<int[]> ng_vars_, ng_vals_;
+    // number of nogoods in the current world
+    final IStateInt size_;
+    // index of variable -> nogoods involving it, in increasing order
+    final TIntArrayList[] occurrences_;
+    // nogoods from that index have not been propagated yet
+    int fresh_;
+
+    public PropSymmetricNogoods(Solver solver, IntVar[] vars) {
+        super(solver, vars, PropagatorPriority.LINEAR, true);
+        this.ng_vars_ = new ArrayList<int[]>();
+        this.ng_vals_ = new ArrayList<int[]>();
+        this.size_ = solver.getEnvironment().makeInt(0);
+        this.occurrences_ = new TIntArrayList[vars.length];
+        for (int i = 0; i < vars.length; i++) {
+            occurrences_[i] = new TIntArrayList();
+        }
+    }
+
+    /**
+     * Add a nogood, valid until the current world is backtracked.
+     * It will be propagated on the next call to this.
+     *
+     * @param idx indices of the variables
+     * @param val values of the literals
+     */
+    public void addNogood(int[] idx, int[] val) {
+        int size = size_.get();
+        // forget nogoods of backtracked worlds
+        for (int k = ng_vars_.size() - 1; k >= size; k--) {
+            int[] ng = ng_vars_.remove(k);
+            ng_vals_.remove(k);
+            for (int i = 0; i < ng.length; i++) {
+                TIntArrayList occ = occurrences_[ng[i]];
+                if (!occ.isEmpty() && occ.getQuick(occ.size() - 1) == k) {
+                    occ.removeAt(occ.size() - 1);
+                }
+            }
+        }
+        fresh_ = Math.min(fresh_, size);
+        ng_vars_.add(idx);
+        ng_vals_.add(val);
+        for (int i = 0; i < idx.length; i++) {
+            occurrences_[idx[i]].add(size);
+        }
+        size_.set(size + 1);
+    }
+
+    /**
+     * @return number of active nogoods
+     */
+    public int getNbNogoods() {
+        return size_.get();
+    }
+
+    @Override
+    public int getPropagationConditions(int vIdx) {
+        return EventType.INT_ALL_MASK();
+    }
+
+    @Override
+    public void propagate(int evtmask) throws ContradictionException {
+        int size = size_.get();
+        fresh_ = size;
+        for (int k = 0; k < size; k++) {
+            filter(k);
+        }
+    }
+
+    @Override
+    public void propagate(int idxVarInProp, int mask) throws ContradictionException {
+        int size = size_.get();
+        if (fresh_ < size) {
+            int from = fresh_;
+            fresh_ = size;
+            for (int k = from; k < size; k++) {
+                filter(k);
+            }
+        }
+        if (EventType.isInstantiate(mask)) {
+            TIntArrayList occ = occurrences_[idxVarInProp];
+            for (int j = 0; j < occ.size(); j++) {
+                int k = occ.getQuick(j);
+                if (k >= size) {
+                    break;
+                }
+                filter(k);
+            }
+        }
+    }
+
+    private void filter(int k) throws ContradictionException {
+        int[] idx = ng_vars_.get(k);
+        int[] val = ng_vals_.get(k);
+        int free = -1;
+        for (int i = 0; i < idx.length; i++) {
+            IntVar var = vars[idx[i]];
+            if (!var.contains(val[i])) {
+                return;
+            }
+            if (!var.instantiated()) {
+                if (free > -1) {
+                    return;
+                }
+                free = i;
+            }
+        }
+        if (free == -1) {
+            contradiction(vars[idx[0]], "symmetric nogood");
+        }
+        vars[idx[free]].removeValue(val[free], aCause);
+    }
+
+    @Override
+    public ESat isEntailed() {
+        int size = size_.get();
+        boolean all = true;
+        for (int k = 0; k < size; k++) {
+            int[] idx = ng_vars_.get(k);
+            int[] val = ng_vals_.get(k);
+            boolean sat = false;
+            for (int i = 0; i < idx.length && !sat; i++) {
+                IntVar var = vars[idx[i]];
+                if (!var.contains(val[i])) {
+                    sat = true;
+                } else if (!var.instantiated()) {
+                    all = false;
+                    sat = true;
+                }
+            }
+            if (!sat) {
+                return ESat.FALSE;
+            }
+        }
+        return all ? ESat.TRUE : ESat.UNDEFINED;
+    }
+
+    @Override
+    public String toString() {
+        return "SymmetricNogoods(" + size_.get() + ")";
+    }
+}
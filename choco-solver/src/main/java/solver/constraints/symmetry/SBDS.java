@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.constraints.symmetry;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntIntHashMap;
+import solver.Solver;
+import solver.constraints.Constraint;
+import solver.search.loop.monitors.IMonitorDownBranch;
+import solver.search.strategy.assignments.DecisionOperator;
+import solver.search.strategy.decision.Decision;
+import solver.search.strategy.decision.RootDecision;
+import solver.search.strategy.decision.fast.FastDecision;
+import solver.variables.IntVar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Symmetry Breaking During Search.
+ * <br/>
+ * On refutation of a decision <code>x = v</code> taken under the assignments <code>A</code>,
+ * the nogood <code>g(A) &and; g(x = v)</code> is posted for each symmetry <code>g</code>,
+ * until the refuted decision itself is backtracked.
+ * Only assignment decisions are considered (see {@link FastDecision});
+ * when the path leading to a decision contains others, nothing is posted.
+ * <br/>
+ * Symmetries are typically generators of the symmetry group, such as transpositions;
+ * solutions symmetric to already explored ones are pruned, not all of them.
+ * <br/>
+ * Should not be combined with other symmetry breaking constraints.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class SBDS implements IMonitorDownBranch {
+
+    final Solver solver;
+    final Symmetry[] symmetries;
+    final PropSymmetricNogoods nogoods;
+    // for each symmetry, index in nogoods -> index in the symmetry, -1 if the variable is not involved
+    final int[][] locals;
+    // for each symmetry, index in the symmetry -> index in nogoods
+    final int[][] globals;
+
+    // literals of the current path, the refuted one last
+    final TIntArrayList path_vars = new TIntArrayList();
+    final TIntArrayList path_vals = new TIntArrayList();
+    final TIntIntHashMap image = new TIntIntHashMap(16, 0.5f, -1, Integer.MIN_VALUE);
+    final TIntIntHashMap indices;
+
+    long nbNogoods;
+
+    public SBDS(Solver solver, Symmetry... symmetries) {
+        this.solver = solver;
+        this.symmetries = symmetries;
+        this.indices = new TIntIntHashMap(16, 0.5f, -1, -1);
+        ArrayList<IntVar> scope = new ArrayList<IntVar>();
+        this.globals = new int[symmetries.length][];
+        for (int s = 0; s < symmetries.length; s++) {
+            IntVar[] vars = symmetries[s].getVars();
+            globals[s] = new int[vars.length];
+            for (int i = 0; i < vars.length; i++) {
+                int idx = indices.get(vars[i].getId());
+                if (idx == -1) {
+                    idx = scope.size();
+                    indices.put(vars[i].getId(), idx);
+                    scope.add(vars[i]);
+                }
+                globals[s][i] = idx;
+            }
+        }
+        this.locals = new int[symmetries.length][scope.size()];
+        for (int s = 0; s < symmetries.length; s++) {
+            Arrays.fill(locals[s], -1);
+            for (int i = 0; i < globals[s].length; i++) {
+                locals[s][globals[s][i]] = i;
+            }
+        }
+        IntVar[] vars = scope.toArray(new IntVar[scope.size()]);
+        this.nogoods = new PropSymmetricNogoods(solver, vars);
+        Constraint<IntVar, PropSymmetricNogoods> cstr = new Constraint<IntVar, PropSymmetricNogoods>(vars, solver);
+        cstr.setPropagators(nogoods);
+        solver.post(cstr);
+        solver.getSearchLoop().plugSearchMonitor(this);
+    }
+
+    /**
+     * @return number of nogoods posted since the beginning of the resolution
+     */
+    public long getNbNogoods() {
+        return nbNogoods;
+    }
+
+    @Override
+    public void beforeDownLeftBranch() {
+    }
+
+    @Override
+    public void afterDownLeftBranch() {
+    }
+
+    @Override
+    public void beforeDownRightBranch() {
+        if (collectPath(solver.getSearchLoop().decision)) {
+            for (int s = 0; s < symmetries.length; s++) {
+                postImage(s);
+            }
+        }
+    }
+
+    @Override
+    public void afterDownRightBranch() {
+    }
+
+    /**
+     * Collect the assignments leading to the decision about to be refuted, followed by this one.
+     *
+     * @return false if the path can not be expressed as assignments
+     */
+    private boolean collectPath(Decision refuted) {
+        path_vars.resetQuick();
+        path_vals.resetQuick();
+        if (!add(refuted, true)) {
+            return false;
+        }
+        Decision dec = refuted.getPrevious();
+        while (dec != null && dec != RootDecision.ROOT) {
+            // a refuted decision is implied by the assignments before it, it can be ignored
+            if (dec.getBranch() == 1 && !add(dec, false)) {
+                return false;
+            }
+            dec = dec.getPrevious();
+        }
+        return true;
+    }
+
+    private boolean add(Decision dec, boolean last) {
+        if (!(dec instanceof FastDecision)) {
+            return false;
+        }
+        FastDecision fd = (FastDecision) dec;
+        int idx = indices.get(fd.getDecisionVariable().getId());
+        if (fd.getDecOp() != DecisionOperator.int_eq || idx == -1) {
+            return false;
+        }
+        if (last) {
+            path_vars.add(idx);
+            path_vals.add(fd.getDecisionValue());
+        } else {
+            path_vars.insert(0, idx);
+            path_vals.insert(0, fd.getDecisionValue());
+        }
+        return true;
+    }
+
+    private void postImage(int s) {
+        Symmetry sym = symmetries[s];
+        IntVar[] vars = nogoods.getVars();
+        image.clear();
+        for (int i = 0; i < path_vars.size(); i++) {
+            int idx = path_vars.getQuick(i);
+            int val = path_vals.getQuick(i);
+            int local = locals[s][idx];
+            if (local > -1) {
+                idx = globals[s][sym.imageVar(local)];
+                val = sym.imageVal(val);
+            }
+            if (!vars[idx].contains(val)) {
+                return; // already satisfied
+            }
+            int prev = image.put(idx, val);
+            if (prev != Integer.MIN_VALUE && prev != val) {
+                return; // can not be violated
+            }
+        }
+        if (image.size() == path_vars.size()) {
+            boolean identity = true;
+            for (int i = 0; i < path_vars.size() && identity; i++) {
+                identity = image.get(path_vars.getQuick(i)) == path_vals.getQuick(i);
+            }
+            if (identity) {
+                return; // that is the refutation
+            }
+        }
+        nogoods.addNogood(image.keys(), image.values());
+        nbNogoods++;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.constraints.symmetry;
+
+import solver.exception.SolverException;
+import solver.variables.IntVar;
+
+import java.util.Arrays;
+
+/**
+ * A symmetry of a problem, defined as a permutation of variables combined with a permutation of values.
+ * <br/>
+ * It maps the literal <code>vars[i] = v</code> onto <code>vars[varMap[i]] = valMap[v - offset]</code>;
+ * values out of <code>[offset, offset + |valMap|-1]</code> are left unchanged.
+ * A null <code>varMap</code> (resp. <code>valMap</code>) stands for the identity.
+ * <br/>
+ * Any solution of the problem must be mapped onto a solution by the symmetry.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class Symmetry {
+
+    final IntVar[] vars;
+    final int[] varMap;
+    final int offset;
+    final int[] valMap;
+
+    public Symmetry(IntVar[] vars, int[] varMap, int offset, int[] valMap) {
+        if (varMap != null && (varMap.length != vars.length || !isPermutation(varMap))) {
+            throw new SolverException("Symmetry: " + Arrays.toString(varMap) + " is not a permutation of the variables");
+        }
+        if (valMap != null) {
+            int[] shifted = new int[valMap.length];
+            for (int i = 0; i < valMap.length; i++) {
+                shifted[i] = valMap[i] - offset;
+            }
+            if (!isPermutation(shifted)) {
+                throw new SolverException("Symmetry: " + Arrays.toString(valMap) + " is not a permutation of the values");
+            }
+        }
+        this.vars = vars;
+        this.varMap = varMap;
+        this.offset = offset;
+        this.valMap = valMap;
+    }
+
+    private static boolean isPermutation(int[] map) {
+        boolean[] seen = new boolean[map.length];
+        for (int i = 0; i < map.length; i++) {
+            if (map[i] < 0 || map[i] >= map.length || seen[map[i]]) {
+                return false;
+            }
+            seen[map[i]] = true;
+        }
+        return true;
+    }
+
+    public IntVar[] getVars() {
+        return vars;
+    }
+
+    /**
+     * @param i index of a variable
+     * @return index of the image of <code>vars[i]</code>
+     */
+    public int imageVar(int i) {
+        return varMap == null ? i : varMap[i];
+    }
+
+    /**
+     * @param value a value
+     * @return image of <code>value</code>
+     */
+    public int imageVal(int value) {
+        if (valMap != null && value >= offset && value - offset < valMap.length) {
+            return valMap[value - offset];
+        }
+        return value;
+    }
+
+    /**
+     * @return true if the symmetry does not change values
+     */
+    public boolean isVariableSymmetry() {
+        if (valMap != null) {
+            for (int i = 0; i < valMap.length; i++) {
+                if (valMap[i] != offset + i) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder st = new StringBuilder("Symmetry(");
+        for (int i = 0; i < vars.length; i++) {
+            if (imageVar(i) != i) {
+                st.append(vars[i].getName()).append("->").append(vars[imageVar(i)].getName()).append(' ');
+            }
+        }
+        if (valMap != null) {
+            for (int i = 0; i < valMap.length; i++) {
+                if (valMap[i] != offset + i) {
+                    st.append(offset + i).append("->").append(valMap[i]).append(' ');
+                }
+            }
+        }
+        return st.append(')').toString();
+    }
+}
@@ -187,6 +187,18 @@ public class ExplanationEngine implements Serializable {
         return null;
     }
 
+    /**
+     * Provides the recorded explanation in database for the deduction <code>deduction</code>,
+     * <code>null</code> if the deduction has not been explained (for instance, a left branching decision).
+     * The result will depend upon the recording policy of the engine
+     *
+     * @param deduction a deduction
+     * @return an explanation
+     */
+    public Explanation retrieve(Deduction deduction) {
+        return null;
+    }
+
     /**
      * provides a BranchingDecision associated to a decision
      *
@@ -30,6 +30,7 @@ package solver.explanations;
 import solver.Solver;
 import solver.explanations.strategies.ConflictBasedBackjumping;
 import solver.explanations.strategies.IDecisionJumper;
+import solver.explanations.strategies.LazyClauseGeneration;
 import solver.explanations.strategies.PathRepair;
 import solver.explanations.strategies.jumper.RandomDecisionJumper;
 
@@ -85,6 +86,17 @@ public enum ExplanationFactory {
         public void plugin(Solver solver, boolean flattened) {
             plugExpl(solver, flattened);
         }
+    },
+    /**
+     * add a lazy clause generation policy on contradiction to an explained solver.
+     * It learns a nogood from each contradiction, on top of a Conflict-based jumping policy.
+     * Explanations are never flattened.
+     */
+    LCG {
+        @Override
+        public void plugin(Solver solver, boolean flattened) {
+            lcg(solver);
+        }
     };
 
     /**
@@ -102,6 +114,19 @@ public enum ExplanationFactory {
                 : new RecorderExplanationEngine(solver));
     }
 
+    /**
+     * add a lazy clause generation policy on contradiction to an explained solver.
+     * It learns a nogood from each contradiction, on top of a Conflict-based jumping policy.
+     * It must be called once the model is declared.
+     *
+     * @param solver solver which is explained
+     * @return the lazy clause generation policy, see {@link LazyClauseGeneration#getActivity(solver.variables.IntVar)}
+     */
+    public static LazyClauseGeneration lcg(Solver solver) {
+        plugExpl(solver, false);
+        return new LazyClauseGeneration(solver.getExplainer());
+    }
+
     /**
      * add a path-repair policy on contradiction to an explained solver.
      * It backtracks up to a random decision involved in the explanation.
@@ -67,6 +67,8 @@ public class RecorderExplanationEngine extends ExplanationEngine implements IMon
     protected TIntHashSet toexpand = new TIntHashSet();
     protected CircularQueue<Deduction> pending = new CircularQueue<Deduction>(16);
 
+    protected int stamp; // number of value removals explained
+
     public RecorderExplanationEngine(Solver solver) {
         super(solver);
         if (!Configuration.PLUG_EXPLANATION) {
@@ -125,6 +127,11 @@ public class RecorderExplanationEngine extends ExplanationEngine implements IMon
         return database.get(getValueRemoval(var, val).id);
     }
 
+    @Override
+    public Explanation retrieve(Deduction deduction) {
+        return database.get(deduction.id);
+    }
+
     public ValueRemoval getValueRemoval(IntVar var, int val) {
         int vid = var.getId();
         ValueRemoval vr;
@@ -210,7 +217,9 @@ public class RecorderExplanationEngine extends ExplanationEngine implements IMon
 
     private void explainValueRemoval(IntVar var, int val, ICause cause) {
         // 1. retrieve the deduction
-        Deduction vr = getValueRemoval(var, val);
+        ValueRemoval vr = getValueRemoval(var, val);
+        vr.world = solver.getEnvironment().getWorldIndex();
+        vr.stamp = stamp++;
         // 2. get the previous explanation, if any
         Explanation expl = database.get(vr.id);
         if (expl == null) {
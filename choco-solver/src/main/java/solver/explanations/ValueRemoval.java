@@ -41,6 +41,8 @@ import solver.variables.Variable;
 public class ValueRemoval extends Deduction {
     Variable var;
     int val;
+    int world = -1; // world index of the last removal
+    int stamp = -1; // rank of the last removal
 
     public ValueRemoval(Variable v, int n) {
         super(Type.ValRem);
@@ -52,6 +54,25 @@ public class ValueRemoval extends Deduction {
         return val;
     }
 
+    /**
+     * Returns the world index in which the value was last removed, -1 if the removal has not been explained.
+     *
+     * @return a world index
+     */
+    public int getWorld() {
+        return world;
+    }
+
+    /**
+     * Returns the rank of the last removal of the value, among all removals explained so far.
+     * Removals explained later have a greater rank.
+     *
+     * @return a rank
+     */
+    public int getStamp() {
+        return stamp;
+    }
+
     @Override
     public Variable getVar() {
         return var;
@@ -80,6 +80,7 @@ public class ConflictBasedBackjumping implements IDynamicBacktrackingAlgorithm,
             } else {
                 cex.c.explain(null, expl);
             }
+            onConflict(expl);
             Explanation complete = mExplanationEngine.flatten(expl);
             if (Configuration.PRINT_EXPLANATION && LOGGER.isInfoEnabled()) {
                 mExplanationEngine.onContradiction(cex, complete);
@@ -92,6 +93,14 @@ public class ConflictBasedBackjumping implements IDynamicBacktrackingAlgorithm,
         }
     }
 
+    /**
+     * Called on each explained contradiction, before computing the backjump.
+     *
+     * @param conflict explanation of the contradiction, not flattened
+     */
+    protected void onConflict(Explanation conflict) {
+    }
+
     @Override
     public void onSolution() {
         // we need to prepare a "false" backtrack on this decision
@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.explanations.strategies;
+
+import gnu.trove.map.hash.TIntDoubleHashMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.set.hash.TIntHashSet;
+import solver.constraints.Constraint;
+import solver.constraints.nary.cnf.PropNogoods;
+import solver.constraints.nary.cnf.SatSolver;
+import solver.exception.SolverException;
+import solver.explanations.*;
+import solver.search.strategy.assignments.DecisionOperator;
+import solver.search.strategy.decision.Decision;
+import solver.search.strategy.decision.RootDecision;
+import solver.search.strategy.decision.fast.FastDecision;
+import solver.variables.IntVar;
+import solver.variables.Variable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Lazy clause generation on top of conflict-based backjumping.
+ * <br/>
+ * On each failure, the explanation of the failure is resolved against the explanations of the deductions made
+ * at the current decision level, until only one of them remains (first unique implication point).
+ * The resulting nogood is expressed over atoms <code>x = v</code> and <code>x &le; v</code>,
+ * and learnt as a clause by a {@link PropNogoods}, which propagates it for the rest of the search.
+ * <br/>
+ * The variables involved in conflicts are bumped, VSIDS-like, see {@link #getActivity(IntVar)} and
+ * {@link solver.search.strategy.selectors.variables.VSIDS}.
+ * <br/>
+ * It requires non-flattened explanations, and only observes the integer variables declared before its creation.
+ * Nogoods are learnt from failures whose decisions are {@link FastDecision}s.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class LazyClauseGeneration extends ConflictBasedBackjumping {
+
+    private static final double VAR_DECAY = 0.95;
+
+    final PropNogoods nogoods;
+
+    // decision id -> decision level, for the current failure
+    final TIntIntHashMap levels = new TIntIntHashMap(16, 0.5f, -1, -1);
+    // deductions already considered, for the current failure
+    final TIntHashSet seen = new TIntHashSet();
+    // deductions of the current level, the most recent first
+    final PriorityQueue<Deduction> current = new PriorityQueue<Deduction>(16, new Comparator<Deduction>() {
+        @Override
+        public int compare(Deduction d1, Deduction d2) {
+            return stamp(d2) - stamp(d1);
+        }
+    });
+    // deductions of the nogood
+    final ArrayList<Deduction> nogood = new ArrayList<Deduction>();
+    final TIntHashSet literals = new TIntHashSet();
+
+    // variable id -> activity
+    final TIntDoubleHashMap activity = new TIntDoubleHashMap();
+    double var_inc = 1;
+
+    long nbLearnt;
+
+    public LazyClauseGeneration(ExplanationEngine mExplanationEngine) {
+        super(mExplanationEngine);
+        if (!(mExplanationEngine instanceof RecorderExplanationEngine)
+                || mExplanationEngine instanceof FlattenedRecorderExplanationEngine) {
+            throw new SolverException("Lazy clause generation requires non-flattened recorded explanations");
+        }
+        IntVar[] all = mSolver.retrieveIntVars();
+        ArrayList<IntVar> vars = new ArrayList<IntVar>(all.length);
+        for (int i = 0; i < all.length; i++) {
+            if ((all[i].getTypeAndKind() & Variable.VAR) != 0) {
+                vars.add(all[i]);
+            }
+        }
+        IntVar[] scope = vars.toArray(new IntVar[vars.size()]);
+        nogoods = new PropNogoods(mSolver, scope);
+        Constraint<IntVar, PropNogoods> cstr = new Constraint<IntVar, PropNogoods>(scope, mSolver);
+        cstr.setPropagators(nogoods);
+        mSolver.post(cstr);
+    }
+
+    @Override
+    protected void onConflict(Explanation conflict) {
+        var_inc /= VAR_DECAY;
+        // 1. compute the level of each decision
+        levels.clear();
+        int level = mSolver.getEnvironment().getWorldIndex();
+        int top = level;
+        Decision dec = mSolver.getSearchLoop().decision;
+        while (dec != RootDecision.ROOT) {
+            levels.put(dec.getId(), level--);
+            dec = dec.getPrevious();
+        }
+        int root = level;
+        // 2. resolve the deductions of the current level, the most recent first, until one is left
+        seen.clear();
+        current.clear();
+        nogood.clear();
+        boolean ok = true;
+        int nbd = conflict.nbDeductions();
+        for (int i = 0; i < nbd && ok; i++) {
+            ok = visit(conflict.getDeduction(i), root, top);
+        }
+        while (ok && current.size() > 1) {
+            Deduction d = current.poll();
+            Explanation e = mExplanationEngine.retrieve(d);
+            if (e == null) {
+                nogood.add(d);
+            } else {
+                nbd = e.nbDeductions();
+                for (int i = 0; i < nbd && ok; i++) {
+                    ok = visit(e.getDeduction(i), root, top);
+                }
+            }
+        }
+        nogood.addAll(current);
+        // 3. turn the nogood into a clause
+        if (ok) {
+            literals.clear();
+            for (int i = 0; i < nogood.size() && ok; i++) {
+                int lit = literal(nogood.get(i));
+                ok = lit > -1 && !literals.contains(SatSolver.negated(lit));
+                literals.add(lit);
+            }
+            // an empty nogood is left to backjumping
+            if (ok && literals.size() > 0) {
+                nbLearnt++;
+                nogoods.learn(literals.toArray());
+            }
+        }
+    }
+
+    // consider a deduction, return false if the nogood cannot be computed
+    private boolean visit(Deduction d, int root, int top) {
+        if (!seen.add(d.getId())) {
+            return true;
+        }
+        switch (d.getmType()) {
+            case PropAct: {
+                Explanation e = mExplanationEngine.retrieve(d);
+                int nbd = e == null ? 0 : e.nbDeductions();
+                boolean ok = true;
+                for (int i = 0; i < nbd && ok; i++) {
+                    ok = visit(e.getDeduction(i), root, top);
+                }
+                return ok;
+            }
+            case ValRem: {
+                int world = ((ValueRemoval) d).getWorld();
+                if (world > root) { // otherwise, holds at root node
+                    bump(d.getVar());
+                    if (world >= top) {
+                        current.add(d);
+                    } else {
+                        nogood.add(d);
+                    }
+                }
+                return true;
+            }
+            case DecLeft:
+            case DecRight: {
+                int level = levels.get(((BranchingDecision) d).getDecision().getId());
+                if (level == -1) {
+                    return false;
+                }
+                bump(d.getVar());
+                if (level >= top) {
+                    current.add(d);
+                } else {
+                    nogood.add(d);
+                }
+                return true;
+            }
+            default:
+                return false;
+        }
+    }
+
+    // the literal of the clause which negates the deduction, -1 if there is none
+    private int literal(Deduction d) {
+        if (!(d.getVar() instanceof IntVar)) {
+            return -1;
+        }
+        IntVar var = (IntVar) d.getVar();
+        if (d.getmType() == Deduction.Type.ValRem) {
+            int val = ((ValueRemoval) d).getVal();
+            if (mExplanationEngine.getRemovedValues(var).isEnumerated()) {
+                // var != val
+                return var.contains(val) ? -1 : nogoods.literal(var, val, true, true);
+            } else if (val < var.getLB()) {
+                // var > val
+                return nogoods.literal(var, val, false, true);
+            } else if (val > var.getUB()) {
+                // var < val
+                return nogoods.literal(var, val - 1, false, false);
+            }
+            return -1;
+        }
+        Decision decision = ((BranchingDecision) d).getDecision();
+        if (!(decision instanceof FastDecision)) {
+            return -1;
+        }
+        DecisionOperator<IntVar> op = ((FastDecision) decision).getDecOp();
+        int val = ((FastDecision) decision).getDecisionValue();
+        boolean left = d.getmType() == Deduction.Type.DecLeft;
+        if (op == DecisionOperator.int_eq) {
+            return nogoods.literal(var, val, true, !left);
+        } else if (op == DecisionOperator.int_neq) {
+            return nogoods.literal(var, val, true, left);
+        } else if (op == DecisionOperator.int_split) {
+            return nogoods.literal(var, val, false, !left);
+        } else if (op == DecisionOperator.int_reverse_split) {
+            return nogoods.literal(var, val - 1, false, left);
+        }
+        return -1;
+    }
+
+    private static int stamp(Deduction d) {
+        // decisions come first in their level
+        return d.getmType() == Deduction.Type.ValRem ? ((ValueRemoval) d).getStamp() : -1;
+    }
+
+    private void bump(Variable var) {
+        if (activity.adjustOrPutValue(var.getId(), var_inc, var_inc) > 1e100) {
+            for (int key : activity.keys()) {
+                activity.put(key, activity.get(key) * 1e-100);
+            }
+            var_inc *= 1e-100;
+        }
+    }
+
+    /**
+     * Return the activity of <code>var</code>: the more recently and frequently it is involved in conflicts,
+     * the higher.
+     *
+     * @param var a variable
+     * @return its activity
+     */
+    public double getActivity(IntVar var) {
+        return activity.get(var.getId());
+    }
+
+    /**
+     * @return the number of nogoods learnt so far
+     */
+    public long getNbLearnt() {
+        return nbLearnt;
+    }
+
+    /**
+     * @return the propagator of the learnt nogoods
+     */
+    public PropNogoods getNogoods() {
+        return nogoods;
+    }
+}
@@ -40,6 +40,7 @@ import solver.Solver;
 import solver.exception.ContradictionException;
 import solver.search.strategy.assignments.DecisionOperator;
 import solver.search.strategy.decision.Decision;
+import solver.search.strategy.decision.RootDecision;
 import solver.search.strategy.decision.fast.FastDecision;
 import solver.search.strategy.strategy.AbstractStrategy;
 import solver.variables.IntVar;
@@ -47,6 +48,11 @@ import util.PoolManager;
 
 /**
  * Class that defines a branching strategy over the objective variable
+ * <br/>
+ * As long as the decisions of the current branch are all objective decisions,
+ * the refutation of a decision proves a bound of the objective (there is no better solution beyond it).
+ * Such a bound is given to the {@link IntObjectiveManager}, so it is kept across restarts,
+ * and, with DICHOTOMIC, a new split is made in the remaining domain.
  *
  * @author Jean-Guillaume Fages
  * @since Oct. 2012
@@ -152,7 +158,9 @@ public class ObjectiveStrategy extends AbstractStrategy<IntVar> {
     @Override
     public Decision getDecision() {
         if (solver.getMeasures().getSolutionCount() == 0
-                || (nbSols == solver.getMeasures().getSolutionCount() && optPolicy == OptimizationPolicy.DICHOTOMIC)) {
+                || (nbSols == solver.getMeasures().getSolutionCount() && optPolicy == OptimizationPolicy.DICHOTOMIC
+                && !(isObjectiveDecision(solver.getSearchLoop().decision)
+                && !solver.getSearchLoop().decision.hasNext() && isProven(solver.getSearchLoop().decision)))) {
             return null;
         }
         if (obj.instantiated()) {
@@ -175,11 +183,50 @@ public class ObjectiveStrategy extends AbstractStrategy<IntVar> {
         int target;
         target = (globalLB * coefLB + globalUB * coefUB) / (coefLB + coefUB);
         FastDecision dec = pool.getE();
-        if (dec == null) dec = new FastDecision(pool);
+        if (dec == null) dec = new ObjectiveDecision(pool);
         dec.set(obj, target, decOperator);
         return dec;
     }
 
+    /**
+     * @return true if <code>decision</code> has been computed by this
+     */
+    private boolean isObjectiveDecision(Decision decision) {
+        return decision instanceof ObjectiveDecision && ((ObjectiveDecision) decision).getStrategy() == this;
+    }
+
+    /**
+     * A refutation of <code>decision</code> is valid for the whole search space
+     * if it only depends on decisions computed by this, since they all bound the objective.
+     *
+     * @param decision a decision of this strategy
+     * @return true if the refutation of <code>decision</code> proves a bound of the objective
+     */
+    private boolean isProven(Decision decision) {
+        Decision d = decision;
+        while (d != RootDecision.ROOT) {
+            if (!isObjectiveDecision(d)) {
+                return false;
+            }
+            d = d.getPrevious();
+        }
+        return true;
+    }
+
+    /**
+     * A decision over the objective variable, which knows the strategy that computed it.
+     */
+    private class ObjectiveDecision extends FastDecision {
+
+        ObjectiveDecision(PoolManager<FastDecision> poolManager) {
+            super(poolManager);
+        }
+
+        ObjectiveStrategy getStrategy() {
+            return ObjectiveStrategy.this;
+        }
+    }
+
     private DecisionOperator<IntVar> decUB = new DecisionOperator<IntVar>() {
         @Override
         public void apply(IntVar var, int value, ICause cause) throws ContradictionException {
@@ -189,7 +236,11 @@ public class ObjectiveStrategy extends AbstractStrategy<IntVar> {
         @Override
         public void unapply(IntVar var, int value, ICause cause) throws ContradictionException {
             globalLB = value + 1;
-//            solver.getSearchLoop().getObjectivemanager().updateLB(globalLB);
+            ObjectiveManager man = solver.getSearchLoop().getObjectivemanager();
+            if (man.getPolicy() == ResolutionPolicy.MINIMIZE && man instanceof IntObjectiveManager
+                    && isProven((Decision) cause)) {
+                ((IntObjectiveManager) man).updateBestLB(globalLB);
+            }
             var.updateLowerBound(globalLB, cause);
         }
 
@@ -218,7 +269,11 @@ public class ObjectiveStrategy extends AbstractStrategy<IntVar> {
         @Override
         public void unapply(IntVar var, int value, ICause cause) throws ContradictionException {
             globalUB = value - 1;
-//            solver.getSearchLoop().getObjectivemanager().updateUB(globalUB);
+            ObjectiveManager man = solver.getSearchLoop().getObjectivemanager();
+            if (man.getPolicy() == ResolutionPolicy.MAXIMIZE && man instanceof IntObjectiveManager
+                    && isProven((Decision) cause)) {
+                ((IntObjectiveManager) man).updateBestUB(globalUB);
+            }
             var.updateUpperBound(globalUB, cause);
         }
 
@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.objective;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A set of mutually non-dominated points, each of them associated with an object (commonly a solution).
+ * All the objectives are minimized: a point <code>p</code> dominates a point <code>q</code>
+ * iff <code>p[i] <= q[i]</code> for every objective <code>i</code>.
+ * <br/>
+ * The points are stored in a flat array of integers.
+ * With two objectives, the points are sorted by increasing first objective (thus, by decreasing second objective),
+ * so that dominance queries run in logarithmic time.
+ * Otherwise, they are scanned.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class ParetoFront<E> {
+
+    private final int k; // number of objectives
+    private int[] values; // the i^th point is stored in values[i * k .. (i + 1) * k - 1]
+    private Object[] data;
+    private int size;
+
+    /**
+     * Create an empty front over <code>k</code> objectives.
+     *
+     * @param k number of objectives
+     */
+    public ParetoFront(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("A Pareto front requires at least one objective");
+        }
+        this.k = k;
+        this.values = new int[8 * k];
+        this.data = new Object[8];
+    }
+
+    /**
+     * @return the number of objectives
+     */
+    public int getNbObjectives() {
+        return k;
+    }
+
+    /**
+     * @return the number of points of the front
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param i index of a point
+     * @param j index of an objective
+     * @return the value of the objective <code>j</code> of the <code>i</code>^th point
+     */
+    public int get(int i, int j) {
+        return values[i * k + j];
+    }
+
+    /**
+     * @param i index of a point
+     * @return the object associated with the <code>i</code>^th point
+     */
+    @SuppressWarnings("unchecked")
+    public E getData(int i) {
+        return (E) data[i];
+    }
+
+    /**
+     * @return the objects associated with the points of the front
+     */
+    @SuppressWarnings("unchecked")
+    public List<E> getAllData() {
+        List<E> list = new ArrayList<E>(size);
+        for (int i = 0; i < size; i++) {
+            list.add((E) data[i]);
+        }
+        return list;
+    }
+
+    public void clear() {
+        Arrays.fill(data, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Add <code>point</code> to the front, unless it is dominated.
+     * The points dominated by <code>point</code> are removed.
+     *
+     * @param point  values of the objectives
+     * @param object the object associated with <code>point</code>
+     * @return <code>true</code> if <code>point</code> has been added
+     */
+    public boolean add(int[] point, E object) {
+        if (dominates(point)) {
+            return false;
+        }
+        if (k == 2) {
+            // the dominated points are those with p0 >= point[0] and p1 >= point[1]:
+            // a contiguous range, starting at the insertion position
+            int from = firstGreaterOrEqual0(point[0]);
+            int to = from;
+            while (to < size && values[2 * to + 1] >= point[1]) {
+                to++;
+            }
+            if (to - from != 1) {
+                int osize = size;
+                ensureCapacity(size - (to - from) + 1);
+                System.arraycopy(values, 2 * to, values, 2 * (from + 1), 2 * (size - to));
+                System.arraycopy(data, to, data, from + 1, size - to);
+                size += 1 - (to - from);
+                if (osize > size) {
+                    Arrays.fill(data, size, osize, null);
+                }
+            }
+            values[2 * from] = point[0];
+            values[2 * from + 1] = point[1];
+            data[from] = object;
+        } else {
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                if (!isDominated(i, point)) {
+                    if (n != i) {
+                        System.arraycopy(values, i * k, values, n * k, k);
+                        data[n] = data[i];
+                    }
+                    n++;
+                }
+            }
+            Arrays.fill(data, n, size, null);
+            size = n;
+            ensureCapacity(size + 1);
+            System.arraycopy(point, 0, values, size * k, k);
+            data[size++] = object;
+        }
+        return true;
+    }
+
+    /**
+     * @param point values of the objectives
+     * @return <code>true</code> if a point of the front dominates (or is equal to) <code>point</code>
+     */
+    public boolean dominates(int[] point) {
+        if (k == 2) {
+            int i = lastLowerOrEqual0(point[0]);
+            return i >= 0 && values[2 * i + 1] <= point[1];
+        }
+        for (int i = 0; i < size; i++) {
+            if (dominates(i, point, -1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compute the smallest value of the objective <code>j</code> among the points which dominate <code>lbs</code>
+     * on every other objective.
+     * Any point not dominated by the front, and greater or equal to <code>lbs</code>,
+     * is strictly smaller than this value on the objective <code>j</code>.
+     *
+     * @param lbs lower bounds of the objectives
+     * @param j   index of an objective
+     * @return the smallest value of the objective <code>j</code>, or <code>Integer.MAX_VALUE</code> if no point applies
+     */
+    public int bound(int[] lbs, int j) {
+        if (k == 2) {
+            int i;
+            if (j == 1) {
+                i = lastLowerOrEqual0(lbs[0]);
+            } else {
+                i = firstLowerOrEqual1(lbs[1]);
+                if (i == size) {
+                    i = -1;
+                }
+            }
+            return i >= 0 ? values[2 * i + j] : Integer.MAX_VALUE;
+        }
+        int b = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            if (values[i * k + j] < b && dominates(i, lbs, j)) {
+                b = values[i * k + j];
+            }
+        }
+        return b;
+    }
+
+    // true if the i^th point is lower or equal to point, on every objective but 'except'
+    private boolean dominates(int i, int[] point, int except) {
+        int o = i * k;
+        for (int j = 0; j < k; j++) {
+            if (j != except && values[o + j] > point[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isDominated(int i, int[] point) {
+        int o = i * k;
+        for (int j = 0; j < k; j++) {
+            if (values[o + j] < point[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 2 objectives: index of the last point whose first objective is lower or equal to v, -1 if none
+    private int lastLowerOrEqual0(int v) {
+        return firstGreaterOrEqual0(v + 1) - 1;
+    }
+
+    // 2 objectives: index of the first point whose first objective is greater or equal to v, size if none
+    private int firstGreaterOrEqual0(int v) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[2 * mid] < v) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // 2 objectives: index of the first point whose second objective is lower or equal to v, size if none
+    private int firstLowerOrEqual1(int v) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[2 * mid + 1] > v) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private void ensureCapacity(int n) {
+        if (n > data.length) {
+            int capacity = Math.max(n, data.length * 3 / 2 + 1);
+            values = Arrays.copyOf(values, capacity * k);
+            data = Arrays.copyOf(data, capacity);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder st = new StringBuilder("{");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                st.append(", ");
+            }
+            st.append('(');
+            for (int j = 0; j < k; j++) {
+                if (j > 0) {
+                    st.append(',');
+                }
+                st.append(values[i * k + j]);
+            }
+            st.append(')');
+        }
+        return st.append('}').toString();
+    }
+}
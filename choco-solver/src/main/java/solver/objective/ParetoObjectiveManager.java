@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.objective;
+
+import solver.ResolutionPolicy;
+import solver.Solver;
+import solver.constraints.Constraint;
+import solver.exception.ContradictionException;
+import solver.exception.SolverException;
+import solver.explanations.Deduction;
+import solver.explanations.Explanation;
+import solver.explanations.VariableState;
+import solver.search.solution.Solution;
+import solver.variables.EventType;
+import solver.variables.IntVar;
+
+import java.util.List;
+
+/**
+ * Class that monitors several objective functions, all minimized or all maximized,
+ * and maintains the Pareto front of the solutions found so far.
+ * <br/>
+ * Each new solution is added to the front, and the solutions it dominates are removed.
+ * A {@link PropParetoDominance} propagator prevents the solver from computing dominated solutions.
+ * Thus, once the search is complete, the front is made of all the Pareto optimal solutions
+ * (one per point of the objective space).
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class ParetoObjectiveManager extends ObjectiveManager {
+
+    final IntVar[] objectives;
+    final Solver solver;
+    final ParetoFront<Solution> front;
+    final PropParetoDominance propagator;
+    final int[] point;
+
+    /**
+     * Creates a multi-objective optimization manager.
+     * Posts the dominance constraint in <code>solver</code>.
+     *
+     * @param objectives variables (represent the values of a solution)
+     * @param policy     MINIMIZE or MAXIMIZE, applies to every objective
+     * @param solver     the solver
+     */
+    public ParetoObjectiveManager(IntVar[] objectives, ResolutionPolicy policy, Solver solver) {
+        super(policy, solver.getMeasures());
+        if (policy == ResolutionPolicy.SATISFACTION) {
+            throw new SolverException("ParetoObjectiveManager can not be used with ResolutionPolicy.SATISFACTION.");
+        }
+        if (objectives.length < 2) {
+            throw new SolverException("ParetoObjectiveManager requires at least two objectives");
+        }
+        this.objectives = objectives.clone();
+        this.solver = solver;
+        this.front = new ParetoFront<Solution>(objectives.length);
+        this.point = new int[objectives.length];
+        this.propagator = new PropParetoDominance(this.objectives, policy == ResolutionPolicy.MAXIMIZE, front);
+        Constraint<IntVar, PropParetoDominance> c = new Constraint<IntVar, PropParetoDominance>(this.objectives, solver);
+        c.setPropagators(propagator);
+        solver.postCut(c);
+    }
+
+    /**
+     * @return the Pareto optimal solutions found so far
+     */
+    public List<Solution> getParetoFront() {
+        return front.getAllData();
+    }
+
+    /**
+     * @return the points of the objective space reached by the Pareto optimal solutions found so far,
+     * expressed in the minimization space (values are negated when maximizing)
+     */
+    public ParetoFront<Solution> getFront() {
+        return front;
+    }
+
+    public IntVar[] getObjectives() {
+        return objectives;
+    }
+
+    /**
+     * @return the best value of the first objective over the front
+     */
+    @Override
+    public Integer getBestSolutionValue() {
+        if (front.size() == 0) {
+            return policy == ResolutionPolicy.MINIMIZE ? objectives[0].getUB() : objectives[0].getLB();
+        }
+        int best = Integer.MAX_VALUE;
+        for (int i = 0; i < front.size(); i++) {
+            best = Math.min(best, front.get(i, 0));
+        }
+        return policy == ResolutionPolicy.MINIMIZE ? best : -best;
+    }
+
+    /**
+     * Informs the manager that a new solution has been found
+     */
+    @Override
+    public void update() {
+        for (int i = 0; i < objectives.length; i++) {
+            point[i] = policy == ResolutionPolicy.MINIMIZE ? objectives[i].getValue() : -objectives[i].getValue();
+        }
+        Solution solution = new Solution();
+        solution.record(solver);
+        front.add(point, solution);
+    }
+
+    /**
+     * Prevent the solver from computing dominated solutions
+     *
+     * @throws ContradictionException
+     */
+    @Override
+    public void postDynamicCut() throws ContradictionException {
+        // the front may have changed without any event on the objectives
+        if (propagator.isActive()) {
+            propagator.propagate(EventType.FULL_PROPAGATION.strengthened_mask);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Pareto front of %d point(s)", front.size());
+    }
+
+    @Override
+    public void explain(Deduction d, Explanation e) {
+        for (int i = 0; i < objectives.length; i++) {
+            objectives[i].explain(VariableState.DOM, e);
+        }
+    }
+}
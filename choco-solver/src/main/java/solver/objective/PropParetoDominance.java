@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.objective;
+
+import solver.constraints.Propagator;
+import solver.constraints.PropagatorPriority;
+import solver.exception.ContradictionException;
+import solver.variables.EventType;
+import solver.variables.IntVar;
+import util.ESat;
+
+/**
+ * Propagator which forbids the solutions dominated by (or equal to) a point of a Pareto front.
+ * The objectives are either all minimized, or all maximized.
+ * <br/>
+ * A branch whose bounds are dominated by a point of the front fails;
+ * and when a point dominates the bounds on every objective but one, this objective is bounded.
+ * The front is modified by {@link ParetoObjectiveManager}, which also calls this propagator on each node.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class PropParetoDominance extends Propagator<IntVar> {
+
+    private final ParetoFront<?> front;
+    private final boolean maximize;
+    private final int[] lbs; // bounds of the objectives, in the minimization space
+
+    /**
+     * @param objectives the objective variables
+     * @param maximize   set to <code>true</code> if the objectives are maximized, <code>false</code> otherwise
+     * @param front      the front of the non-dominated solutions, in the minimization space
+     *                   (values are negated when <code>maximize</code> is set to <code>true</code>)
+     */
+    public PropParetoDominance(IntVar[] objectives, boolean maximize, ParetoFront<?> front) {
+        super(objectives, PropagatorPriority.LINEAR, false);
+        this.front = front;
+        this.maximize = maximize;
+        this.lbs = new int[objectives.length];
+    }
+
+    @Override
+    public int getPropagationConditions(int vIdx) {
+        return EventType.INSTANTIATE.mask + (maximize ? EventType.DECUPP.mask : EventType.INCLOW.mask);
+    }
+
+    @Override
+    public void propagate(int evtmask) throws ContradictionException {
+        if (front.size() == 0) {
+            return;
+        }
+        // only the upper bounds are modified (in the minimization space), so one pass is enough
+        for (int i = 0; i < vars.length; i++) {
+            lbs[i] = maximize ? -vars[i].getUB() : vars[i].getLB();
+        }
+        for (int j = 0; j < vars.length; j++) {
+            int b = front.bound(lbs, j);
+            if (b != Integer.MAX_VALUE) {
+                if (maximize) {
+                    vars[j].updateLowerBound(1 - b, aCause);
+                } else {
+                    vars[j].updateUpperBound(b - 1, aCause);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void propagate(int idxVarInProp, int mask) throws ContradictionException {
+        forcePropagate(EventType.CUSTOM_PROPAGATION);
+    }
+
+    @Override
+    public ESat isEntailed() {
+        for (int i = 0; i < vars.length; i++) {
+            lbs[i] = maximize ? -vars[i].getUB() : vars[i].getLB();
+        }
+        if (front.dominates(lbs)) {
+            return ESat.FALSE;
+        }
+        return isCompletelyInstantiated() ? ESat.TRUE : ESat.UNDEFINED;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder st = new StringBuilder("PARETO(");
+        for (int i = 0; i < vars.length; i++) {
+            if (i > 0) st.append(",");
+            st.append(vars[i].getName());
+        }
+        return st.append(")").toString();
+    }
+}
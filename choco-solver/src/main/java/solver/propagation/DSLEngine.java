@@ -224,4 +224,9 @@ public class DSLEngine implements IPropagationEngine {
     public void dynamicAddition(Constraint c, boolean cut) {
         throw new UnsupportedOperationException();
     }
+
+    @Override
+    public void dynamicDeletion(Constraint c) {
+        throw new UnsupportedOperationException();
+    }
 }
@@ -114,4 +114,14 @@ public interface IPropagationEngine extends Serializable {
     void desactivatePropagator(Propagator propagator);
 
     void dynamicAddition(Constraint c, boolean cut);
+
+    /**
+     * Remove the propagators of <code>c</code>, previously added with {@link #dynamicAddition(Constraint, boolean)},
+     * from the propagation engine.
+     * The propagators must be neither active nor scheduled, that is, the state preceding the addition
+     * should have been restored beforehand.
+     *
+     * @param c the constraint to remove
+     */
+    void dynamicDeletion(Constraint c);
 }
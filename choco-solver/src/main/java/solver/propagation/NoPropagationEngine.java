@@ -95,5 +95,9 @@ public enum NoPropagationEngine implements IPropagationEngine {
         @Override
         public void dynamicAddition(Constraint c, boolean cut) {
         }
+
+        @Override
+        public void dynamicDeletion(Constraint c) {
+        }
     };
 }
@@ -0,0 +1,460 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.propagation;
+
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.slf4j.LoggerFactory;
+import solver.ICause;
+import solver.Solver;
+import solver.constraints.Constraint;
+import solver.constraints.Propagator;
+import solver.exception.ContradictionException;
+import solver.exception.SolverException;
+import solver.search.loop.monitors.IMonitorClose;
+import solver.variables.EventType;
+import solver.variables.Variable;
+import util.tools.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * A propagation engine which wraps another one in order to profile the propagators.
+ * <br/>
+ * For each propagator, it records the number of calls to its filtering algorithms,
+ * the number of events it has been scheduled on, the number of modifications it produced, the number of useless calls
+ * (calls which ended without modifying any variable) and the number of fails.
+ * The wall time of the calls is measured on a sample of calls (one call every <code>period</code>, on average),
+ * and extrapolated to all calls.
+ * <br/>
+ * The wrapped engine must implement {@link IProfilable}, and the profiling engine must be declared as the engine
+ * of the solver, see {@link solver.search.loop.monitors.SearchMonitorFactory#profile(solver.Solver, int)}.
+ * A report, sorted by decreasing time and aggregated by constraint class, is logged on each closing of the search.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class ProfilingEngine implements IPropagationEngine, IMonitorClose {
+
+    private static final int TOP = 10;
+
+    private final Solver solver;
+    private final IPropagationEngine engine;
+    private final int period;
+    private final Random random;
+
+    private int[] id2idx; // mapping between propagator ID and its index in the statistics arrays
+    private Propagator[] propagators;
+    private int size;
+
+    private long[] calls, events, prunings, useless, fails;
+    private long[] sampledCalls, sampledTime;
+
+    private long modifications; // number of variable modifications since the creation of this
+    private int countdown; // number of calls before the next timed one
+
+    /**
+     * Wrap <code>engine</code> to profile the propagators of <code>solver</code>.
+     *
+     * @param solver the solver
+     * @param engine the engine to profile, must implement {@link IProfilable}
+     * @param period the time is measured on 1 call out of <code>period</code>, on average (1 to time every call)
+     */
+    public ProfilingEngine(Solver solver, IPropagationEngine engine, int period) {
+        if (!(engine instanceof IProfilable)) {
+            throw new SolverException(engine.getClass().getSimpleName() + " cannot be profiled");
+        }
+        if (period < 1) {
+            throw new SolverException("ProfilingEngine: the sampling period must be strictly positive");
+        }
+        this.solver = solver;
+        this.engine = engine;
+        this.period = period;
+        this.random = new Random(0);
+        this.countdown = period;
+        this.id2idx = new int[0];
+        this.propagators = new Propagator[16];
+        this.calls = new long[16];
+        this.events = new long[16];
+        this.prunings = new long[16];
+        this.useless = new long[16];
+        this.fails = new long[16];
+        this.sampledCalls = new long[16];
+        this.sampledTime = new long[16];
+        Constraint[] constraints = solver.getCstrs();
+        for (int c = 0; c < constraints.length; c++) {
+            declare(constraints[c].getPropagators());
+        }
+        ((IProfilable) engine).setProfiler(this);
+    }
+
+    private void declare(Propagator[] cprops) {
+        int nsize = size + cprops.length;
+        if (nsize > propagators.length) {
+            int capacity = Math.max(nsize, propagators.length * 3 / 2 + 1);
+            propagators = Arrays.copyOf(propagators, capacity);
+            calls = Arrays.copyOf(calls, capacity);
+            events = Arrays.copyOf(events, capacity);
+            prunings = Arrays.copyOf(prunings, capacity);
+            useless = Arrays.copyOf(useless, capacity);
+            fails = Arrays.copyOf(fails, capacity);
+            sampledCalls = Arrays.copyOf(sampledCalls, capacity);
+            sampledTime = Arrays.copyOf(sampledTime, capacity);
+        }
+        for (int j = 0; j < cprops.length; j++) {
+            int id = cprops[j].getId();
+            if (id >= id2idx.length) {
+                int osize = id2idx.length;
+                id2idx = Arrays.copyOf(id2idx, Math.max(id + 1, solver.getNbIdElt()));
+                Arrays.fill(id2idx, osize, id2idx.length, -1);
+            }
+            id2idx[id] = size;
+            propagators[size++] = cprops[j];
+        }
+    }
+
+    private int index(Propagator propagator) {
+        int id = propagator.getId();
+        return id < id2idx.length ? id2idx[id] : -1;
+    }
+
+    //****************************************************************************************************************//
+    //**************************************** EXECUTION *************************************************************//
+    //****************************************************************************************************************//
+
+    /**
+     * Execute the fine-grained filtering algorithm of <code>propagator</code> and records statistics.
+     * Called by the wrapped engine.
+     */
+    public void propagate(Propagator propagator, int idxVarInProp, int mask) throws ContradictionException {
+        int idx = index(propagator);
+        if (idx == -1) {
+            propagator.propagate(idxVarInProp, mask);
+            return;
+        }
+        calls[idx]++;
+        long stamp = modifications;
+        if (--countdown > 0) {
+            propagator.propagate(idxVarInProp, mask);
+        } else {
+            countdown = nextCountdown();
+            long start = System.nanoTime();
+            try {
+                propagator.propagate(idxVarInProp, mask);
+            } finally {
+                sampledTime[idx] += System.nanoTime() - start;
+                sampledCalls[idx]++;
+            }
+        }
+        if (stamp == modifications) {
+            useless[idx]++;
+        }
+    }
+
+    /**
+     * Execute the coarse-grained filtering algorithm of <code>propagator</code> and records statistics.
+     * Called by the wrapped engine.
+     */
+    public void propagate(Propagator propagator, int evtmask) throws ContradictionException {
+        int idx = index(propagator);
+        if (idx == -1) {
+            propagator.propagate(evtmask);
+            return;
+        }
+        calls[idx]++;
+        long stamp = modifications;
+        if (--countdown > 0) {
+            propagator.propagate(evtmask);
+        } else {
+            countdown = nextCountdown();
+            long start = System.nanoTime();
+            try {
+                propagator.propagate(evtmask);
+            } finally {
+                sampledTime[idx] += System.nanoTime() - start;
+                sampledCalls[idx]++;
+            }
+        }
+        if (stamp == modifications) {
+            useless[idx]++;
+        }
+    }
+
+    /**
+     * Record an event received by <code>propagator</code>.
+     * Called by the wrapped engine, each time it schedules <code>propagator</code> on a variable modification.
+     */
+    public void onSchedule(Propagator propagator) {
+        int idx = index(propagator);
+        if (idx > -1) {
+            events[idx]++;
+        }
+    }
+
+    private int nextCountdown() {
+        // jitter the period to avoid aliasing with regular propagation patterns
+        return period == 1 ? 1 : 1 + random.nextInt(2 * period - 1);
+    }
+
+    //****************************************************************************************************************//
+    //**************************************** ENGINE ****************************************************************//
+    //****************************************************************************************************************//
+
+    @Override
+    public boolean isInitialized() {
+        return engine.isInitialized();
+    }
+
+    @Override
+    public void propagate() throws ContradictionException {
+        engine.propagate();
+    }
+
+    @Override
+    public void flush() {
+        engine.flush();
+    }
+
+    @Override
+    public void fails(ICause cause, Variable variable, String message) throws ContradictionException {
+        if (cause instanceof Propagator) {
+            int idx = index((Propagator) cause);
+            if (idx > -1) {
+                fails[idx]++;
+            }
+        }
+        engine.fails(cause, variable, message);
+    }
+
+    @Override
+    public ContradictionException getContradictionException() {
+        return engine.getContradictionException();
+    }
+
+    @Override
+    public void clear() {
+        engine.clear();
+    }
+
+    @Override
+    public void onVariableUpdate(Variable variable, EventType type, ICause cause) throws ContradictionException {
+        modifications++;
+        if (cause instanceof Propagator) {
+            int idx = index((Propagator) cause);
+            if (idx > -1) {
+                prunings[idx]++;
+            }
+        }
+        engine.onVariableUpdate(variable, type, cause);
+    }
+
+    @Override
+    public void onPropagatorExecution(Propagator propagator) {
+        engine.onPropagatorExecution(propagator);
+    }
+
+    @Override
+    public void desactivatePropagator(Propagator propagator) {
+        engine.desactivatePropagator(propagator);
+    }
+
+    @Override
+    public void dynamicAddition(Constraint c, boolean cut) {
+        declare(c.getPropagators());
+        engine.dynamicAddition(c, cut);
+    }
+
+    @Override
+    public void dynamicDeletion(Constraint c) {
+        engine.dynamicDeletion(c);
+    }
+
+    //****************************************************************************************************************//
+    //**************************************** STATISTICS ************************************************************//
+    //****************************************************************************************************************//
+
+    /**
+     * @return the wrapped engine
+     */
+    public IPropagationEngine getEngine() {
+        return engine;
+    }
+
+    public long getCalls(Propagator propagator) {
+        int idx = index(propagator);
+        return idx > -1 ? calls[idx] : 0;
+    }
+
+    public long getEvents(Propagator propagator) {
+        int idx = index(propagator);
+        return idx > -1 ? events[idx] : 0;
+    }
+
+    public long getPrunings(Propagator propagator) {
+        int idx = index(propagator);
+        return idx > -1 ? prunings[idx] : 0;
+    }
+
+    public long getUselessCalls(Propagator propagator) {
+        int idx = index(propagator);
+        return idx > -1 ? useless[idx] : 0;
+    }
+
+    public long getFails(Propagator propagator) {
+        int idx = index(propagator);
+        return idx > -1 ? fails[idx] : 0;
+    }
+
+    /**
+     * @return the estimated time, in nanoseconds, spent in the filtering algorithms of <code>propagator</code>
+     */
+    public long getTime(Propagator propagator) {
+        int idx = index(propagator);
+        return idx > -1 ? time(idx) : 0;
+    }
+
+    private long time(int idx) {
+        if (sampledCalls[idx] == 0) {
+            return 0;
+        }
+        return (long) ((double) sampledTime[idx] * calls[idx] / sampledCalls[idx]);
+    }
+
+    /**
+     * Build a report of the statistics, aggregated per constraint class, then for the most expensive propagators.
+     * Both parts are sorted by decreasing time.
+     *
+     * @return the report
+     */
+    public String report() {
+        // aggregate per constraint class
+        TObjectIntHashMap<Class> c2i = new TObjectIntHashMap<Class>(16, .5f, -1);
+        ArrayList<String> names = new ArrayList<String>();
+        long[][] stats = new long[size][];
+        int nbClasses = 0;
+        for (int i = 0; i < size; i++) {
+            Class clazz = propagators[i].getConstraint().getClass();
+            int k = c2i.get(clazz);
+            if (k == -1) {
+                k = nbClasses++;
+                c2i.put(clazz, k);
+                names.add(clazz.getSimpleName());
+                stats[k] = new long[7];
+            }
+            add(stats[k], i);
+        }
+        StringBuilder st = new StringBuilder();
+        st.append("- Propagation profile (time sampled on 1 call out of ").append(period).append(")\n");
+        Integer[] order = sort(stats, nbClasses);
+        header(st, "Constraint class");
+        for (int k = 0; k < nbClasses; k++) {
+            line(st, names.get(order[k]), stats[order[k]]);
+        }
+        st.append(StringUtils.pad("", 124, "-")).append("\n");
+        // most expensive propagators
+        long[][] pstats = new long[size][];
+        for (int i = 0; i < size; i++) {
+            pstats[i] = new long[7];
+            add(pstats[i], i);
+        }
+        order = sort(pstats, size);
+        header(st, "Top propagators");
+        for (int k = 0; k < Math.min(TOP, size); k++) {
+            line(st, propagators[order[k]].toString(), pstats[order[k]]);
+        }
+        st.append(StringUtils.pad("", 124, "-")).append("\n");
+        return st.toString();
+    }
+
+    private void add(long[] stat, int i) {
+        stat[0] += time(i);
+        stat[1] += calls[i];
+        stat[2] += events[i];
+        stat[3] += prunings[i];
+        stat[4] += useless[i];
+        stat[5] += fails[i];
+    }
+
+    private static Integer[] sort(final long[][] stats, int n) {
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                long t1 = stats[o1][0], t2 = stats[o2][0];
+                if (t1 == t2) {
+                    t1 = stats[o1][1];
+                    t2 = stats[o2][1];
+                }
+                return t1 > t2 ? -1 : (t1 == t2 ? 0 : 1);
+            }
+        });
+        return order;
+    }
+
+    private static void header(StringBuilder st, String title) {
+        st.append(StringUtils.pad("", 124, "-")).append("\n");
+        st.append("| ").append(StringUtils.pad(title, 40, " "));
+        st.append("| ").append(StringUtils.pad("time (ms)", 12, " "));
+        st.append("| ").append(StringUtils.pad("calls", 12, " "));
+        st.append("| ").append(StringUtils.pad("events", 12, " "));
+        st.append("| ").append(StringUtils.pad("prunings", 12, " "));
+        st.append("| ").append(StringUtils.pad("useless", 12, " "));
+        st.append("| ").append(StringUtils.pad("fails", 8, " "));
+        st.append("|\n");
+        st.append(StringUtils.pad("", 124, "-")).append("\n");
+    }
+
+    private static void line(StringBuilder st, String name, long[] stat) {
+        if (name.length() > 40) {
+            name = name.substring(0, 37) + "...";
+        }
+        st.append("| ").append(StringUtils.pad(name, 40, " "));
+        st.append("| ").append(StringUtils.pad(String.format("%.3f", stat[0] / 1000000d), -12, " "));
+        st.append("| ").append(StringUtils.pad("" + stat[1], -12, " "));
+        st.append("| ").append(StringUtils.pad("" + stat[2], -12, " "));
+        st.append("| ").append(StringUtils.pad("" + stat[3], -12, " "));
+        st.append("| ").append(StringUtils.pad("" + stat[4], -12, " "));
+        st.append("| ").append(StringUtils.pad("" + stat[5], -8, " "));
+        st.append("|\n");
+    }
+
+    @Override
+    public void beforeClose() {
+    }
+
+    @Override
+    public void afterClose() {
+        if (LoggerFactory.getLogger("solver").isInfoEnabled()) {
+            LoggerFactory.getLogger("solver").info(report());
+        }
+    }
+}
@@ -27,15 +27,20 @@
 package solver.propagation;
 
 import solver.Solver;
+import solver.propagation.generator.Arc;
+import solver.propagation.generator.EngineCompiler;
+import solver.propagation.generator.Queue;
 import solver.propagation.hardcoded.PropagatorEngine;
 import solver.propagation.hardcoded.SevenQueuesPropagatorEngine;
 import solver.propagation.hardcoded.VariableEngine;
 
+import java.util.List;
+
 /**
  * A factory to build a propagation engine.
  * There are two types of engines:
  * <br/>- hard coded ones ({@code VARIABLEDRIVEN}, {@code PROPAGATORDRIVEN}, ...),
- * <br/>- DSL based one ({@code DSLDRIVEN})
+ * <br/>- DSL based ones ({@code DSLDRIVEN}, {@code COMPILED})
  * <br/>
  * The second type enable to declare a specific behavior: a propagation strategy
  *
@@ -84,6 +89,17 @@ public enum PropagationEngineFactory {
         }
     },
 
+    /**
+     * Create an engine compiled from a queue of all the arcs of the solver, see {@link EngineCompiler}.
+     */
+    COMPILED() {
+        @Override
+        public IPropagationEngine make(Solver solver) {
+            List<Arc> arcs = Arc.populate(solver);
+            return EngineCompiler.make(solver, new Queue<Arc>(arcs.toArray(new Arc[arcs.size()])));
+        }
+    },
+
     DEFAULT() {
         @Override
         public IPropagationEngine make(Solver solver) {
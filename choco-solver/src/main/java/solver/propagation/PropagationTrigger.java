@@ -58,6 +58,7 @@ public class PropagationTrigger implements Serializable {
     // stores the world of the last propagation of the cuts
     TIntArrayList dyn_world = new TIntArrayList();
     int size;
+    ProfilingEngine profiler; // if not null, executes the propagators
 
     public PropagationTrigger(IPropagationEngine engine, Solver solver) {
         this.engine = engine;
@@ -82,6 +83,24 @@ public class PropagationTrigger implements Serializable {
         size++;
     }
 
+    public void remove(Propagator propagator) {
+        int idx = sta_propagators.indexOf(propagator);
+        if (idx > -1) {
+            sta_propagators.remove(idx);
+            size--;
+        }
+        idx = dyn_propagators.indexOf(propagator);
+        if (idx > -1) {
+            dyn_propagators.remove(idx);
+            dyn_world.removeAt(idx);
+            size--;
+        }
+    }
+
+    public void setProfiler(ProfilingEngine profiler) {
+        this.profiler = profiler;
+    }
+
     public boolean needToRun() {
         return size > 0;
     }
@@ -119,7 +138,11 @@ public class PropagationTrigger implements Serializable {
         }
         if (toPropagate.isStateLess()) {
             toPropagate.setActive();
-            toPropagate.propagate(EventType.FULL_PROPAGATION.strengthened_mask);
+            if (profiler == null) {
+                toPropagate.propagate(EventType.FULL_PROPAGATION.strengthened_mask);
+            } else {
+                profiler.propagate(toPropagate, EventType.FULL_PROPAGATION.strengthened_mask);
+            }
             engine.onPropagatorExecution(toPropagate);
         }
     }
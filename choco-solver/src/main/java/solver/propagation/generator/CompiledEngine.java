@@ -0,0 +1,494 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.propagation.generator;
+
+import solver.Configuration;
+import solver.ICause;
+import solver.Solver;
+import solver.constraints.Constraint;
+import solver.constraints.Propagator;
+import solver.exception.ContradictionException;
+import solver.exception.SolverException;
+import solver.propagation.IPropagationEngine;
+import solver.propagation.IPropagationStrategy;
+import solver.propagation.PropagationTrigger;
+import solver.propagation.hardcoded.util.AId2AbId;
+import solver.propagation.hardcoded.util.IId2AbId;
+import solver.propagation.hardcoded.util.MId2AbId;
+import solver.propagation.queues.CircularQueue;
+import solver.variables.EventType;
+import solver.variables.Variable;
+import util.tools.ArrayUtils;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Base class of the propagation engines generated by {@link EngineCompiler}.
+ * <br/>
+ * Arcs of the propagation strategy are flattened into arrays, indexed by their rank in the strategy,
+ * so that the arcs of a same leaf are contiguous.
+ * The generated subclass implements the strategy itself: one queue (or bitset) per node of the strategy,
+ * and the iteration policies of the nodes, without any call to the DSL objects.
+ * <br/>
+ * Propagators added after the compilation (cuts, temporary constraints) are out of the strategy:
+ * they are scheduled in a queue of propagators, as in {@link solver.propagation.hardcoded.PropagatorEngine},
+ * which is executed once the compiled strategy is empty.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public abstract class CompiledEngine implements IPropagationEngine {
+
+    protected final ContradictionException exception;
+
+    protected final IPropagationStrategy strategy; // the compiled strategy
+
+    protected final Variable[] avar; // variable of each arc
+    protected final Propagator[] aprop; // propagator of each arc
+    protected final int[] aidx; // index of the variable in the propagator of each arc
+    protected final int[] amask; // pending events of each arc
+    protected final int[] aleaf; // leaf node of each arc
+
+    protected final int[] offsets; // for each node, index of its first arc (leaves only)
+    protected final int[] sizes; // for each node, number of elements
+
+    protected final int[][] varcs; // arcs of each variable
+    protected final int[][] parcs; // arcs of each propagator
+    protected final IId2AbId v2i; // mapping between variable ID and its absolute index
+    protected final IId2AbId p2i; // mapping between propagator ID and its absolute index
+
+    final PropagationTrigger trigger; // an object that starts the propagation
+
+    // propagators added after the compilation
+    protected Propagator[] dprops; // dynamic propagators
+    protected final IId2AbId d2i; // mapping between dynamic propagator ID and its index
+    protected boolean[] dschedule; // is a dynamic propagator scheduled?
+    protected BitSet[] deventsets; // pending events of each dynamic propagator
+    protected final CircularQueue<Propagator> dqueue;
+    protected Propagator lastProp; // the dynamic propagator being executed
+
+    /**
+     * @param solver   the solver
+     * @param strategy the compiled strategy
+     * @param arcs     arcs of the strategy, in the order of the leaves
+     * @param aleaf    leaf node of each arc
+     * @param offsets  for each node, index of its first arc
+     * @param sizes    for each node, number of elements
+     */
+    protected CompiledEngine(Solver solver, IPropagationStrategy strategy, Arc[] arcs, int[] aleaf,
+                             int[] offsets, int[] sizes) {
+        this.exception = new ContradictionException();
+        this.strategy = strategy;
+        this.trigger = new PropagationTrigger(this, solver);
+        this.aleaf = aleaf;
+        this.offsets = offsets;
+        this.sizes = sizes;
+
+        int n = arcs.length;
+        avar = new Variable[n];
+        aprop = new Propagator[n];
+        aidx = new int[n];
+        amask = new int[n];
+        for (int a = 0; a < n; a++) {
+            avar[a] = arcs[a].var;
+            aprop[a] = arcs[a].prop;
+            aidx[a] = arcs[a].idxVinP;
+        }
+
+        Variable[] variables = solver.getVars();
+        int m = Integer.MAX_VALUE, M = Integer.MIN_VALUE;
+        for (int i = 0; i < variables.length; i++) {
+            m = Math.min(m, variables[i].getId());
+            M = Math.max(M, variables[i].getId());
+        }
+        v2i = new AId2AbId(m, M, -1);
+        for (int i = 0; i < variables.length; i++) {
+            v2i.set(variables[i].getId(), i);
+        }
+        varcs = index(n, variables.length, avar, v2i);
+
+        List<Propagator> _propagators = new ArrayList<Propagator>();
+        Constraint[] constraints = solver.getCstrs();
+        m = Integer.MAX_VALUE;
+        M = Integer.MIN_VALUE;
+        for (int c = 0; c < constraints.length; c++) {
+            Propagator[] cprops = constraints[c].getPropagators();
+            for (int j = 0; j < cprops.length; j++) {
+                _propagators.add(cprops[j]);
+                m = Math.min(m, cprops[j].getId());
+                M = Math.max(M, cprops[j].getId());
+            }
+        }
+        Propagator[] propagators = _propagators.toArray(new Propagator[_propagators.size()]);
+        trigger.addAll(propagators);
+        p2i = new AId2AbId(m, M, -1);
+        for (int j = 0; j < propagators.length; j++) {
+            p2i.set(propagators[j].getId(), j);
+        }
+        parcs = index(n, propagators.length, aprop, p2i);
+
+        dprops = new Propagator[0];
+        d2i = new MId2AbId(8, -1);
+        dschedule = new boolean[0];
+        deventsets = new BitSet[0];
+        dqueue = new CircularQueue<Propagator>(8);
+    }
+
+    // group arcs by variable (resp. propagator)
+    private static int[][] index(int n, int size, Object[] of, IId2AbId x2i) {
+        int[] count = new int[size];
+        int[] idx = new int[n];
+        for (int a = 0; a < n; a++) {
+            int id = of[a] instanceof Variable ? ((Variable) of[a]).getId() : ((Propagator) of[a]).getId();
+            idx[a] = x2i.get(id);
+            if (idx[a] < 0) {
+                throw new SolverException("CompiledEngine: " + of[a] + " is unknown in the solver");
+            }
+            count[idx[a]]++;
+        }
+        int[][] arcs = new int[size][];
+        for (int i = 0; i < size; i++) {
+            arcs[i] = new int[count[i]];
+            count[i] = 0;
+        }
+        for (int a = 0; a < n; a++) {
+            arcs[idx[a]][count[idx[a]]++] = a;
+        }
+        return arcs;
+    }
+
+    @Override
+    public boolean isInitialized() {
+        return true;
+    }
+
+    @Override
+    public void propagate() throws ContradictionException {
+        if (trigger.needToRun()) {
+            trigger.propagate();
+        }
+        execute();
+        while (!dqueue.isEmpty()) {
+            lastProp = dqueue.pollFirst();
+            int aid = d2i.get(lastProp.getId());
+            dschedule[aid] = false;
+            BitSet evtset = deventsets[aid];
+            for (int v = evtset.nextSetBit(0); v >= 0; v = evtset.nextSetBit(v + 1)) {
+                if (Configuration.PRINT_PROPAGATION) {
+                    IPropagationEngine.Trace.printPropagation(lastProp.getVar(v), lastProp);
+                }
+                evtset.clear(v);
+                int mask = lastProp.getMask(v);
+                lastProp.clearMask(v);
+                lastProp.fineERcalls++;
+                lastProp.propagate(v, mask);
+            }
+            execute();
+        }
+    }
+
+    @Override
+    public void flush() {
+        flushAll();
+        if (lastProp != null) {
+            flushDynamic(lastProp);
+        }
+        while (!dqueue.isEmpty()) {
+            flushDynamic(dqueue.pollFirst());
+        }
+    }
+
+    private void flushDynamic(Propagator propagator) {
+        int aid = d2i.get(propagator.getId());
+        if (aid > -1) {
+            BitSet evtset = deventsets[aid];
+            for (int p = evtset.nextSetBit(0); p >= 0; p = evtset.nextSetBit(p + 1)) {
+                propagator.clearMask(p);
+            }
+            evtset.clear();
+            dschedule[aid] = false;
+        }
+        propagator.flushPendingEvt();
+    }
+
+    @Override
+    public void fails(ICause cause, Variable variable, String message) throws ContradictionException {
+        throw exception.set(cause, variable, message);
+    }
+
+    @Override
+    public ContradictionException getContradictionException() {
+        return exception;
+    }
+
+    @Override
+    public void clear() {
+        throw new SolverException("Clearing the engine is not enough!");
+    }
+
+    @Override
+    public void onVariableUpdate(Variable variable, EventType type, ICause cause) throws ContradictionException {
+        if (Configuration.PRINT_VAR_EVENT) {
+            IPropagationEngine.Trace.printModification(variable, type, cause);
+        }
+        int vid = v2i.get(variable.getId());
+        if (vid > -1) {
+            int[] arcs = varcs[vid];
+            for (int i = 0; i < arcs.length; i++) {
+                int a = arcs[i];
+                Propagator prop = aprop[a];
+                if (prop != cause && prop.isActive() && prop.advise(aidx[a], type.mask)) {
+                    update(a, type.strengthened_mask);
+                }
+            }
+        }
+        if (dprops.length > 0) {
+            int nbp = variable.getNbProps();
+            for (int p = 0; p < nbp; p++) {
+                Propagator prop = variable.getPropagator(p);
+                int aid = d2i.get(prop.getId());
+                int pindice = variable.getIndiceInPropagator(p);
+                if (aid > -1 && cause != prop && prop.isActive() && prop.advise(pindice, type.mask)) {
+                    if (prop.updateMask(pindice, type)) {
+                        if (Configuration.PRINT_SCHEDULE) {
+                            IPropagationEngine.Trace.printSchedule(prop);
+                        }
+                        deventsets[aid].set(pindice);
+                    }
+                    if (!dschedule[aid]) {
+                        dqueue.addLast(prop);
+                        dschedule[aid] = true;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onPropagatorExecution(Propagator propagator) {
+        desactivatePropagator(propagator);
+    }
+
+    @Override
+    public void desactivatePropagator(Propagator propagator) {
+        int pid = p2i.get(propagator.getId());
+        if (pid > -1) {
+            int[] arcs = parcs[pid];
+            for (int i = 0; i < arcs.length; i++) {
+                // the arc is not removed from its node, it will be ignored on execution
+                flushArc(arcs[i]);
+            }
+        } else {
+            // not removed from the queue either, but without pending event
+            int aid = d2i.get(propagator.getId());
+            assert aid > -1 : "try to desactivate an unknown propagator";
+            BitSet evtset = deventsets[aid];
+            for (int p = evtset.nextSetBit(0); p >= 0; p = evtset.nextSetBit(p + 1)) {
+                propagator.clearMask(p);
+            }
+            evtset.clear();
+            propagator.flushPendingEvt();
+        }
+    }
+
+    @Override
+    public void dynamicAddition(Constraint c, boolean cut) {
+        Propagator[] cprops = c.getPropagators();
+        int osize = dprops.length;
+        int nsize = osize + cprops.length;
+        Propagator[] _dprops = dprops;
+        dprops = new Propagator[nsize];
+        System.arraycopy(_dprops, 0, dprops, 0, osize);
+        System.arraycopy(cprops, 0, dprops, osize, cprops.length);
+        boolean[] _dschedule = dschedule;
+        dschedule = new boolean[nsize];
+        System.arraycopy(_dschedule, 0, dschedule, 0, osize);
+        BitSet[] _deventsets = deventsets;
+        deventsets = new BitSet[nsize];
+        System.arraycopy(_deventsets, 0, deventsets, 0, osize);
+        for (int j = osize; j < nsize; j++) {
+            d2i.set(dprops[j].getId(), j);
+            deventsets[j] = new BitSet(dprops[j].getNbVars());
+            trigger.add(dprops[j], cut);
+        }
+    }
+
+    @Override
+    public void dynamicDeletion(Constraint c) {
+        Propagator[] cprops = c.getPropagators();
+        for (int i = 0; i < cprops.length; i++) {
+            Propagator prop = cprops[i];
+            trigger.remove(prop);
+            if (p2i.get(prop.getId()) > -1) {
+                // a compiled propagator: its arcs stay in the strategy, they are ignored once inactive
+                desactivatePropagator(prop);
+            }
+        }
+        int nsize = 0;
+        for (int j = 0; j < dprops.length; j++) {
+            if (!ArrayUtils.contains(cprops, dprops[j])) {
+                nsize++;
+            }
+        }
+        if (nsize < dprops.length) {
+            Propagator[] _dprops = dprops;
+            boolean[] _dschedule = dschedule;
+            BitSet[] _deventsets = deventsets;
+            dprops = new Propagator[nsize];
+            dschedule = new boolean[nsize];
+            deventsets = new BitSet[nsize];
+            for (int j = 0, k = 0; j < _dprops.length; j++) {
+                if (ArrayUtils.contains(cprops, _dprops[j])) {
+                    assert !_dschedule[j] : "delete a scheduled propagator";
+                    d2i.set(_dprops[j].getId(), -1);
+                    if (lastProp == _dprops[j]) {
+                        lastProp = null;
+                    }
+                } else {
+                    dprops[k] = _dprops[j];
+                    dschedule[k] = _dschedule[j];
+                    deventsets[k] = _deventsets[j];
+                    d2i.set(dprops[k].getId(), k);
+                    k++;
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return strategy.toString();
+    }
+
+    /**
+     * Record <code>mask</code> on the arc <code>a</code>, and schedule it if it is not already.
+     */
+    protected abstract void update(int a, int mask);
+
+    /**
+     * Execute the root node of the strategy.
+     */
+    protected abstract void execute() throws ContradictionException;
+
+    /**
+     * Flush every node of the strategy.
+     */
+    protected abstract void flushAll();
+
+    //****************************************************************************************************************//
+    // helpers of the generated code
+
+    /**
+     * The arc <code>a</code> is about to be scheduled.
+     */
+    protected final void pending(int a) {
+        if (Configuration.PRINT_SCHEDULE) {
+            IPropagationEngine.Trace.printSchedule(aprop[a]);
+        }
+        aprop[a].incNbPendingEvt();
+    }
+
+    /**
+     * Propagate the pending events of the arc <code>a</code>.
+     */
+    protected final void executeArc(int a) throws ContradictionException {
+        int mask = amask[a];
+        if (mask > 0) {
+            amask[a] = 0; // and clean up mask
+            Propagator prop = aprop[a];
+            if (Configuration.PRINT_PROPAGATION) {
+                IPropagationEngine.Trace.printPropagation(avar[a], prop);
+            }
+            prop.fineERcalls++;
+            prop.decNbPendingEvt();
+            prop.propagate(aidx[a], mask);
+        }
+    }
+
+    /**
+     * Forget the pending events of the arc <code>a</code>.
+     */
+    protected final void flushArc(int a) {
+        if (amask[a] > 0) {
+            amask[a] = 0;
+            aprop[a].decNbPendingEvt();
+        }
+    }
+
+    /**
+     * Grow a circular queue, its elements are moved at the beginning of the new array.
+     */
+    protected static int[] grow(int[] queue, int head, int size) {
+        int[] tmp = new int[queue.length * 2 + 1];
+        for (int i = 0; i < size; i++) {
+            int j = head + i;
+            tmp[i] = queue[j < queue.length ? j : j - queue.length];
+        }
+        return tmp;
+    }
+
+    /**
+     * Set the bit <code>i</code>.
+     *
+     * @return true if it was not set
+     */
+    protected static boolean setBit(long[] words, int i) {
+        long mask = 1L << i;
+        long w = words[i >> 6];
+        words[i >> 6] = w | mask;
+        return (w & mask) == 0;
+    }
+
+    /**
+     * Clear the bit <code>i</code>, which is set.
+     */
+    protected static void clearBit(long[] words, int i) {
+        words[i >> 6] &= ~(1L << i);
+    }
+
+    /**
+     * @return the index of the first bit set from <code>from</code>, -1 if none
+     */
+    protected static int nextSetBit(long[] words, int from) {
+        int u = from >> 6;
+        if (u >= words.length) {
+            return -1;
+        }
+        long w = words[u] & (-1L << from);
+        while (true) {
+            if (w != 0) {
+                return (u << 6) + Long.numberOfTrailingZeros(w);
+            }
+            if (++u == words.length) {
+                return -1;
+            }
+            w = words[u];
+        }
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.propagation.generator;
+
+import gnu.trove.list.array.TIntArrayList;
+import memory.IEnvironment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import solver.Solver;
+import solver.exception.SolverException;
+import solver.propagation.DSLEngine;
+import solver.propagation.IPropagationEngine;
+import solver.propagation.IPropagationStrategy;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URI;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A factory of propagation engines specialised for a propagation strategy.
+ * <br/>
+ * The strategy, made of {@link Queue} and {@link Sort} nodes whose leaves are {@link Arc}s, is translated
+ * into a subclass of {@link CompiledEngine}: each node gets its own queue (or bitset) of elements,
+ * and its iteration policy is written in its own method, so that no call to the DSL objects remains
+ * on scheduling or propagation.
+ * The source is compiled in memory with the system Java compiler, and loaded through a dedicated class loader.
+ * Compiled classes only depend on the shape of the strategy, so they are shared between solvers.
+ * <p/>
+ * When the strategy is not supported (other nodes, arcs shared by several leaves, ...)
+ * or when no compiler is available (the JVM is not a JDK), a {@link DSLEngine} interpreting the strategy
+ * is returned instead.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public final class EngineCompiler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("solver");
+
+    private static final String PACKAGE = "solver.propagation.generator";
+
+    // source of the engines, with a generic name -> constructor of the compiled class
+    private static final Map<String, Constructor<?>> CACHE = new HashMap<String, Constructor<?>>();
+
+    private static int nbClasses;
+
+    private EngineCompiler() {
+    }
+
+    /**
+     * Build a propagation engine for <code>solver</code>, driven by <code>strategy</code>.
+     * The arcs of the strategy are expected to be built from the constraints posted in <code>solver</code>,
+     * see {@link Arc#populate(solver.Solver)}.
+     *
+     * @param solver   a solver
+     * @param strategy a propagation strategy
+     * @return a compiled engine, or a {@link DSLEngine} if the strategy can not be compiled
+     */
+    public static IPropagationEngine make(Solver solver, IPropagationStrategy strategy) {
+        Shape shape = new Shape();
+        String reason = shape.analyse(strategy);
+        if (reason == null) {
+            Constructor<?> constructor = compile(shape);
+            if (constructor != null) {
+                try {
+                    return (IPropagationEngine) constructor.newInstance(solver, strategy, shape.arcs(), shape.aleaf.toArray(),
+                            shape.offsets.toArray(), shape.sizes.toArray());
+                } catch (InstantiationException e) {
+                    reason = e.toString();
+                } catch (IllegalAccessException e) {
+                    reason = e.toString();
+                } catch (InvocationTargetException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    reason = e.getCause().toString();
+                }
+            } else {
+                reason = "the strategy can not be compiled";
+            }
+        }
+        LOGGER.debug("EngineCompiler: {}, the strategy is interpreted", reason);
+        DSLEngine engine = new DSLEngine(solver);
+        List<Arc> arcs = new ArrayList<Arc>();
+        collect(strategy, arcs);
+        for (int i = 0; i < arcs.size(); i++) {
+            engine.declareArc(arcs.get(i));
+        }
+        engine.set(strategy);
+        return engine;
+    }
+
+    // collect the arcs of any strategy
+    private static void collect(Object element, List<Arc> arcs) {
+        if (element instanceof Arc) {
+            arcs.add((Arc) element);
+        } else if (element instanceof PropagationStrategy) {
+            Object[] elements = ((PropagationStrategy) element).array();
+            for (int i = 0; i < elements.length; i++) {
+                collect(elements[i], arcs);
+            }
+        } else {
+            throw new SolverException("EngineCompiler: unknown element " + element);
+        }
+    }
+
+    //****************************************************************************************************************//
+
+    /**
+     * Shape of a strategy: its nodes, in pre-order, and its arcs, ordered by leaf.
+     */
+    static final class Shape {
+        final List<PropagationStrategy> nodes = new ArrayList<PropagationStrategy>();
+        final TIntArrayList parents = new TIntArrayList(); // parent of each node, -1 for the root
+        final TIntArrayList ranks = new TIntArrayList(); // index of each node in its parent
+        final List<int[]> children = new ArrayList<int[]>(); // children of each node, null for a leaf
+        final TIntArrayList offsets = new TIntArrayList(); // index of the first arc of each node
+        final TIntArrayList sizes = new TIntArrayList(); // number of elements of each node
+        final List<Arc> arcs = new ArrayList<Arc>();
+        final TIntArrayList aleaf = new TIntArrayList();
+        final IdentityHashMap<Object, Object> seen = new IdentityHashMap<Object, Object>();
+
+        /**
+         * @return null if the strategy is supported, the reason why it is not otherwise
+         */
+        String analyse(Object strategy) {
+            return analyse(strategy, -1, 0);
+        }
+
+        private String analyse(Object element, int parent, int rank) {
+            if (!(element instanceof Queue || element instanceof Sort)) {
+                return "unsupported node " + element.getClass().getSimpleName();
+            }
+            if (seen.put(element, element) != null) {
+                return "a node appears twice";
+            }
+            PropagationStrategy node = (PropagationStrategy) element;
+            int k = nodes.size();
+            nodes.add(node);
+            parents.add(parent);
+            ranks.add(rank);
+            offsets.add(arcs.size());
+            Object[] elements = node.array();
+            sizes.add(elements.length);
+            boolean leaf = elements.length == 0 || elements[0] instanceof Arc;
+            children.add(leaf ? null : new int[elements.length]);
+            for (int i = 0; i < elements.length; i++) {
+                if (leaf) {
+                    if (!(elements[i] instanceof Arc)) {
+                        return "a node mixes arcs and nodes";
+                    }
+                    if (seen.put(elements[i], elements[i]) != null) {
+                        return "an arc appears twice";
+                    }
+                    arcs.add((Arc) elements[i]);
+                    aleaf.add(k);
+                } else {
+                    children.get(k)[i] = nodes.size();
+                    String reason = analyse(elements[i], k, i);
+                    if (reason != null) {
+                        return reason;
+                    }
+                }
+            }
+            return null;
+        }
+
+        Arc[] arcs() {
+            return arcs.toArray(new Arc[arcs.size()]);
+        }
+
+        boolean isLeaf(int k) {
+            return children.get(k) == null;
+        }
+
+        boolean isSort(int k) {
+            return nodes.get(k) instanceof Sort;
+        }
+
+        PropagationStrategy.P policy(int k) {
+            return nodes.get(k).iteration;
+        }
+    }
+
+    //****************************************************************************************************************//
+
+    private static synchronized Constructor<?> compile(Shape shape) {
+        String key = SourceWriter.write(shape, "CompiledEngine_");
+        if (CACHE.containsKey(key)) {
+            return CACHE.get(key);
+        }
+        String name = "CompiledEngine_" + (nbClasses++);
+        Constructor<?> constructor = null;
+        try {
+            byte[] bytes = javac(PACKAGE + "." + name, SourceWriter.write(shape, name));
+            if (bytes != null) {
+                Class<?> clazz = new EngineLoader(CompiledEngine.class.getClassLoader()).define(PACKAGE + "." + name, bytes);
+                constructor = clazz.getConstructor(Solver.class, IPropagationStrategy.class, Arc[].class,
+                        int[].class, int[].class, int[].class);
+            }
+        } catch (NoSuchMethodException e) {
+            LOGGER.debug("EngineCompiler: {}", e.toString());
+        } catch (LinkageError e) {
+            LOGGER.debug("EngineCompiler: {}", e.toString());
+        }
+        CACHE.put(key, constructor);
+        return constructor;
+    }
+
+    // compile the source in memory, return null on failure
+    private static byte[] javac(final String name, final String source) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            LOGGER.debug("EngineCompiler: no Java compiler available");
+            return null;
+        }
+        StandardJavaFileManager std = compiler.getStandardFileManager(null, null, null);
+        final Map<String, ByteArrayOutputStream> classes = new HashMap<String, ByteArrayOutputStream>();
+        JavaFileManager manager = new ForwardingJavaFileManager<StandardJavaFileManager>(std) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, final String className,
+                                                       JavaFileObject.Kind kind, FileObject sibling) {
+                return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                        classes.put(className, bytes);
+                        return bytes;
+                    }
+                };
+            }
+        };
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///" + name.replace('.', '/') + ".java"),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        StringWriter errors = new StringWriter();
+        List<String> options = Arrays.asList("-classpath", classpath(), "-g:none", "-nowarn");
+        Boolean ok = compiler.getTask(errors, manager, null, options, null, Collections.singletonList(file)).call();
+        if (!Boolean.TRUE.equals(ok) || !classes.containsKey(name)) {
+            LOGGER.debug("EngineCompiler: compilation failed\n{}", errors);
+            return null;
+        }
+        return classes.get(name).toByteArray();
+    }
+
+    // the class path of the application, completed with the location of the classes the generated code refers to
+    private static String classpath() {
+        StringBuilder cp = new StringBuilder(System.getProperty("java.class.path", ""));
+        Class[] refs = {CompiledEngine.class, IEnvironment.class, TIntArrayList.class, Logger.class};
+        for (int i = 0; i < refs.length; i++) {
+            try {
+                CodeSource source = refs[i].getProtectionDomain().getCodeSource();
+                if (source != null && source.getLocation() != null) {
+                    cp.append(File.pathSeparatorChar).append(new File(source.getLocation().toURI()).getPath());
+                }
+            } catch (Exception e) {
+                LOGGER.debug("EngineCompiler: {}", e.toString());
+            }
+        }
+        return cp.toString();
+    }
+
+    /**
+     * A class loader dedicated to one compiled engine.
+     */
+    private static final class EngineLoader extends ClassLoader {
+
+        EngineLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.propagation.generator;
+
+/**
+ * Writes the Java source of a {@link CompiledEngine} for a given strategy shape.
+ * <br/>
+ * For each node <code>k</code>, the generated class declares:
+ * <br/>- <code>e{k}</code>: is the node scheduled in its parent,
+ * <br/>- <code>l{k}</code>: the last element executed,
+ * <br/>- <code>q{k}, h{k}, n{k}</code>: a circular queue of elements (for {@link Queue})
+ * or <code>b{k}, c{k}</code>: a bitset of elements and its cardinality (for {@link Sort}),
+ * <br/>- <code>o{k}</code>: the index of the first arc of a leaf,
+ * <br/>
+ * and the methods <code>s{k}(int)</code> (schedule an element), <code>x{k}()</code> (execute the node)
+ * and <code>f{k}()</code> (flush the node).
+ * Elements of a node are designated by their index in the node.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+final class SourceWriter {
+
+    private final EngineCompiler.Shape shape;
+    private final StringBuilder out = new StringBuilder(4096);
+
+    private SourceWriter(EngineCompiler.Shape shape) {
+        this.shape = shape;
+    }
+
+    static String write(EngineCompiler.Shape shape, String name) {
+        SourceWriter w = new SourceWriter(shape);
+        w.write(name);
+        return w.out.toString();
+    }
+
+    private void l(String line) {
+        out.append(line).append('\n');
+    }
+
+    private void write(String name) {
+        int nb = shape.nodes.size();
+        l("package solver.propagation.generator;");
+        l("");
+        l("public final class " + name + " extends CompiledEngine {");
+        for (int k = 0; k < nb; k++) {
+            if (k > 0) {
+                l("    private boolean e" + k + ";");
+            }
+            l("    private int l" + k + " = -1;");
+            if (shape.isSort(k)) {
+                l("    private final long[] b" + k + ";");
+                l("    private int c" + k + ";");
+            } else {
+                l("    private int[] q" + k + ";");
+                l("    private int h" + k + ", n" + k + ";");
+            }
+            if (shape.isLeaf(k)) {
+                l("    private final int o" + k + ";");
+            }
+        }
+        l("");
+        l("    public " + name + "(solver.Solver solver, solver.propagation.IPropagationStrategy strategy, Arc[] arcs,");
+        l("            int[] aleaf, int[] offsets, int[] sizes) {");
+        l("        super(solver, strategy, arcs, aleaf, offsets, sizes);");
+        for (int k = 0; k < nb; k++) {
+            if (shape.isSort(k)) {
+                l("        b" + k + " = new long[(sizes[" + k + "] >> 6) + 1];");
+            } else {
+                l("        q" + k + " = new int[sizes[" + k + "] / 2 + 1];");
+            }
+            if (shape.isLeaf(k)) {
+                l("        o" + k + " = offsets[" + k + "];");
+            }
+        }
+        l("    }");
+        writeUpdate();
+        l("");
+        l("    protected void execute() throws solver.exception.ContradictionException {");
+        l("        x0();");
+        l("    }");
+        l("");
+        l("    protected void flushAll() {");
+        l("        f0();");
+        l("    }");
+        for (int k = 0; k < nb; k++) {
+            writeSchedule(k);
+            writeExecute(k);
+            writeFlush(k);
+            if (!shape.isLeaf(k)) {
+                writeDispatch(k);
+            }
+        }
+        l("}");
+    }
+
+    // schedule the node k in its parent, if it is not already
+    private String scheduleInParent(int k) {
+        return "if (!e" + k + ") { s" + shape.parents.get(k) + "(" + shape.ranks.get(k) + "); }";
+    }
+
+    private void writeUpdate() {
+        l("");
+        l("    protected void update(int a, int mask) {");
+        l("        if (amask[a] == 0) {");
+        l("            pending(a);");
+        StringBuilder already = new StringBuilder();
+        int nbLeaves = 0;
+        for (int k = 0; k < shape.nodes.size(); k++) {
+            if (shape.isLeaf(k) && shape.sizes.get(k) > 0) {
+                nbLeaves++;
+            }
+        }
+        if (nbLeaves == 1) {
+            for (int k = 0; k < shape.nodes.size(); k++) {
+                if (shape.isLeaf(k) && shape.sizes.get(k) > 0) {
+                    l("            s" + k + "(a - o" + k + ");");
+                    if (k > 0) {
+                        already.append("            ").append(scheduleInParent(k)).append('\n');
+                    }
+                }
+            }
+        } else if (nbLeaves > 1) {
+            l("            switch (aleaf[a]) {");
+            already.append("            switch (aleaf[a]) {\n");
+            for (int k = 0; k < shape.nodes.size(); k++) {
+                if (shape.isLeaf(k) && shape.sizes.get(k) > 0) {
+                    l("                case " + k + ":");
+                    l("                    s" + k + "(a - o" + k + ");");
+                    l("                    break;");
+                    if (k > 0) {
+                        already.append("                case ").append(k).append(":\n");
+                        already.append("                    ").append(scheduleInParent(k)).append('\n');
+                        already.append("                    break;\n");
+                    }
+                }
+            }
+            l("            }");
+            already.append("            }\n");
+        }
+        l("        } else {");
+        l("            if (solver.Configuration.PRINT_SCHEDULE) {");
+        l("                solver.propagation.IPropagationEngine.Trace.printAlreadySchedule(aprop[a]);");
+        l("            }");
+        out.append(already);
+        l("        }");
+        l("        amask[a] |= mask;");
+        l("    }");
+    }
+
+    private void writeSchedule(int k) {
+        l("");
+        l("    private void s" + k + "(int e) {");
+        if (shape.isSort(k)) {
+            l("        if (setBit(b" + k + ", e)) {");
+            l("            c" + k + "++;");
+            l("        }");
+        } else {
+            l("        int t = h" + k + " + n" + k + ";");
+            l("        if (n" + k + " == q" + k + ".length) {");
+            l("            q" + k + " = grow(q" + k + ", h" + k + ", n" + k + ");");
+            l("            h" + k + " = 0;");
+            l("            t = n" + k + ";");
+            l("        } else if (t >= q" + k + ".length) {");
+            l("            t -= q" + k + ".length;");
+            l("        }");
+            l("        q" + k + "[t] = e;");
+            l("        n" + k + "++;");
+        }
+        if (!shape.isLeaf(k)) {
+            l("        m" + k + "(e, true);");
+        }
+        if (k > 0) {
+            l("        " + scheduleInParent(k));
+        }
+        l("    }");
+    }
+
+    // pop an element of a queue into 'e'
+    private String poll(int k) {
+        return "int e = q" + k + "[h" + k + "]; if (++h" + k + " == q" + k + ".length) { h" + k + " = 0; } n" + k + "--;";
+    }
+
+    // execute the element 'e' of node k
+    private String body(int k) {
+        if (shape.isLeaf(k)) {
+            return "l" + k + " = e; executeArc(o" + k + " + e);";
+        }
+        return "l" + k + " = e; m" + k + "(e, false); if (!x" + k + "c(e) && !en" + k + "(e)) { s" + k + "(e); }";
+    }
+
+    private void writeExecute(int k) {
+        l("");
+        l("    private boolean x" + k + "() throws solver.exception.ContradictionException {");
+        PropagationStrategy.P policy = shape.policy(k);
+        if (shape.isSort(k)) {
+            String b = "b" + k, c = "c" + k;
+            switch (policy) {
+                case pickOne:
+                    l("        if (" + c + " > 0) {");
+                    l("            int e = nextSetBit(" + b + ", 0); clearBit(" + b + ", e); " + c + "--;");
+                    l("            " + body(k));
+                    l("        }");
+                    l("        return " + c + " == 0;");
+                    break;
+                case sweepUp:
+                    l("        for (int e = nextSetBit(" + b + ", 0); e >= 0; e = nextSetBit(" + b + ", e + 1)) {");
+                    l("            clearBit(" + b + ", e); " + c + "--;");
+                    l("            " + body(k));
+                    l("        }");
+                    l("        return " + c + " == 0;");
+                    break;
+                case loopOut:
+                    l("        int e = nextSetBit(" + b + ", 0);");
+                    l("        while (" + c + " > 0) {");
+                    l("            clearBit(" + b + ", e); " + c + "--;");
+                    l("            " + body(k));
+                    l("            e = nextSetBit(" + b + ", e + 1);");
+                    l("            if (e == -1) { e = nextSetBit(" + b + ", 0); }");
+                    l("        }");
+                    l("        return true;");
+                    break;
+                case clearOut:
+                default:
+                    l("        while (" + c + " > 0) {");
+                    l("            int e = nextSetBit(" + b + ", 0); clearBit(" + b + ", e); " + c + "--;");
+                    l("            " + body(k));
+                    l("        }");
+                    l("        return true;");
+                    break;
+            }
+        } else {
+            if (policy == PropagationStrategy.P.pickOne) {
+                l("        if (n" + k + " > 0) {");
+                l("            " + poll(k));
+                l("            " + body(k));
+                l("        }");
+                l("        return n" + k + " == 0;");
+            } else { // sweepUp and loopOut behave like clearOut
+                l("        while (n" + k + " > 0) {");
+                l("            " + poll(k));
+                l("            " + body(k));
+                l("        }");
+                l("        return true;");
+            }
+        }
+        l("    }");
+    }
+
+    private void writeFlush(int k) {
+        String flush = shape.isLeaf(k) ? "flushArc(o" + k + " + e);" : "f" + k + "c(e); m" + k + "(e, false);";
+        l("");
+        l("    private void f" + k + "() {");
+        l("        if (l" + k + " != -1) {");
+        l("            " + (shape.isLeaf(k) ? "flushArc(o" + k + " + l" + k + ");" : "f" + k + "c(l" + k + ");"));
+        l("        }");
+        if (shape.isSort(k)) {
+            l("        while (c" + k + " > 0) {");
+            l("            int e = nextSetBit(b" + k + ", 0); clearBit(b" + k + ", e); c" + k + "--;");
+        } else {
+            l("        while (n" + k + " > 0) {");
+            l("            " + poll(k));
+        }
+        l("            l" + k + " = e; " + flush);
+        l("        }");
+        l("    }");
+    }
+
+    // dispatch on the children of an inner node
+    private void writeDispatch(int k) {
+        int[] children = shape.children.get(k);
+        l("");
+        l("    private boolean x" + k + "c(int i) throws solver.exception.ContradictionException {");
+        l("        switch (i) {");
+        for (int i = 0; i < children.length; i++) {
+            l("            case " + i + ": return x" + children[i] + "();");
+        }
+        l("            default: return true;");
+        l("        }");
+        l("    }");
+        l("");
+        l("    private boolean en" + k + "(int i) {");
+        l("        switch (i) {");
+        for (int i = 0; i < children.length; i++) {
+            l("            case " + i + ": return e" + children[i] + ";");
+        }
+        l("            default: return false;");
+        l("        }");
+        l("    }");
+        l("");
+        l("    private void m" + k + "(int i, boolean b) {");
+        l("        switch (i) {");
+        for (int i = 0; i < children.length; i++) {
+            l("            case " + i + ": e" + children[i] + " = b; break;");
+        }
+        l("            default: break;");
+        l("        }");
+        l("    }");
+        l("");
+        l("    private void f" + k + "c(int i) {");
+        l("        switch (i) {");
+        for (int i = 0; i < children.length; i++) {
+            l("            case " + i + ": f" + children[i] + "(); break;");
+        }
+        l("            default: break;");
+        l("        }");
+        l("    }");
+    }
+}
@@ -34,13 +34,16 @@ import solver.Solver;
 import solver.constraints.Constraint;
 import solver.constraints.Propagator;
 import solver.exception.ContradictionException;
+import solver.propagation.IProfilable;
 import solver.propagation.IPropagationEngine;
+import solver.propagation.ProfilingEngine;
 import solver.propagation.PropagationTrigger;
 import solver.propagation.hardcoded.util.AId2AbId;
 import solver.propagation.hardcoded.util.IId2AbId;
 import solver.propagation.queues.CircularQueue;
 import solver.variables.EventType;
 import solver.variables.Variable;
+import util.tools.ArrayUtils;
 
 import java.util.ArrayList;
 import java.util.BitSet;
@@ -58,7 +61,7 @@ import java.util.List;
  * @author Charles Prud'homme
  * @since 05/07/12
  */
-public class PropagatorEngine implements IPropagationEngine {
+public class PropagatorEngine implements IPropagationEngine, IProfilable {
 
     protected final ContradictionException exception; // the exception in case of contradiction
     protected final IEnvironment environment; // environment of backtrackable objects
@@ -75,6 +78,8 @@ public class PropagatorEngine implements IPropagationEngine {
 
     final PropagationTrigger trigger; // an object that starts the propagation
 
+    ProfilingEngine profiler; // if not null, executes the propagators
+
     public PropagatorEngine(Solver solver) {
         this.exception = new ContradictionException();
         this.environment = solver.getEnvironment();
@@ -152,7 +157,11 @@ public class PropagatorEngine implements IPropagationEngine {
                 lastProp.clearMask(v);
                 // run propagation on the specific event
                 lastProp.fineERcalls++;
-                lastProp.propagate(v, mask);
+                if (profiler == null) {
+                    lastProp.propagate(v, mask);
+                } else {
+                    profiler.propagate(lastProp, v, mask);
+                }
             }
             // This part is for debugging only!!
             if (Configuration.Idem.disabled != Configuration.IDEMPOTENCY) {
@@ -199,6 +208,9 @@ public class PropagatorEngine implements IPropagationEngine {
             Propagator prop = variable.getPropagator(p);
             int pindice = variable.getIndiceInPropagator(p);
             if (cause != prop && prop.isActive() && prop.advise(pindice, type.mask)) {
+                if (profiler != null) {
+                    profiler.onSchedule(prop);
+                }
                 int aid = p2i.get(prop.getId());
                 if (prop.updateMask(pindice, type)) { // not scheduled yet
                     assert !eventsets[aid].get(pindice);
@@ -269,4 +281,38 @@ public class PropagatorEngine implements IPropagationEngine {
             eventsets[i] = new BitSet(nbv);
         }
     }
+
+    @Override
+    public void dynamicDeletion(Constraint c) {
+        Propagator[] cprops = c.getPropagators();
+        int nsize = propagators.length - cprops.length;
+        Propagator[] _propagators = propagators;
+        boolean[] _schedule = schedule;
+        BitSet[] _eventsets = eventsets;
+        propagators = new Propagator[nsize];
+        schedule = new boolean[nsize];
+        eventsets = new BitSet[nsize];
+        for (int j = 0, k = 0; j < _propagators.length; j++) {
+            if (ArrayUtils.contains(cprops, _propagators[j])) {
+                assert !_schedule[j] : "delete a scheduled propagator";
+                p2i.set(_propagators[j].getId(), -1);
+                trigger.remove(_propagators[j]);
+                if (lastProp == _propagators[j]) {
+                    lastProp = null;
+                }
+            } else {
+                propagators[k] = _propagators[j];
+                schedule[k] = _schedule[j];
+                eventsets[k] = _eventsets[j];
+                p2i.set(propagators[k].getId(), k);
+                k++;
+            }
+        }
+    }
+
+    @Override
+    public void setProfiler(ProfilingEngine profiler) {
+        this.profiler = profiler;
+        trigger.setProfiler(profiler);
+    }
 }
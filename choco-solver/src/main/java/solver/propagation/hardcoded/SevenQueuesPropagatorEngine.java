@@ -33,7 +33,9 @@ import solver.Solver;
 import solver.constraints.Constraint;
 import solver.constraints.Propagator;
 import solver.exception.ContradictionException;
+import solver.propagation.IProfilable;
 import solver.propagation.IPropagationEngine;
+import solver.propagation.ProfilingEngine;
 import solver.propagation.PropagationTrigger;
 import solver.propagation.hardcoded.util.AId2AbId;
 import solver.propagation.hardcoded.util.IId2AbId;
@@ -41,6 +43,7 @@ import solver.propagation.queues.CircularQueue;
 import solver.variables.EventType;
 import solver.variables.Variable;
 import util.objects.IntCircularQueue;
+import util.tools.ArrayUtils;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -58,7 +61,7 @@ import java.util.List;
  * @author Charles Prud'homme
  * @since 05/07/12
  */
-public class SevenQueuesPropagatorEngine implements IPropagationEngine {
+public class SevenQueuesPropagatorEngine implements IPropagationEngine, IProfilable {
 
     private static final int WORD_MASK = 0xffffffff;
 
@@ -78,6 +81,8 @@ public class SevenQueuesPropagatorEngine implements IPropagationEngine {
 
     final PropagationTrigger trigger; // an object that starts the propagation
 
+    ProfilingEngine profiler; // if not null, executes the propagators
+
 
     public SevenQueuesPropagatorEngine(Solver solver) {
         this(solver, false);
@@ -166,7 +171,11 @@ public class SevenQueuesPropagatorEngine implements IPropagationEngine {
                     lastProp.clearMask(v);
                     // run propagation on the specific event
                     lastProp.fineERcalls++;
-                    lastProp.propagate(v, mask);
+                    if (profiler == null) {
+                        lastProp.propagate(v, mask);
+                    } else {
+                        profiler.propagate(lastProp, v, mask);
+                    }
                 }
             }
 //            notEmpty.clear(i);
@@ -232,6 +241,9 @@ public class SevenQueuesPropagatorEngine implements IPropagationEngine {
                 prop = vpropagators[p];
                 pindice = vindices[p];
                 if (cause != prop && prop.isActive() && prop.advise(pindice, type.mask)) {
+                    if (profiler != null) {
+                        profiler.onSchedule(prop);
+                    }
                     int aid = p2i.get(prop.getId());
                     if (prop.updateMask(pindice, type)) {
                         if (Configuration.PRINT_SCHEDULE) {
@@ -255,6 +267,9 @@ public class SevenQueuesPropagatorEngine implements IPropagationEngine {
                 prop = vpropagators[p];
                 pindice = vindices[p];
                 if (prop.isActive() && prop.advise(pindice, type.mask)) {
+                    if (profiler != null) {
+                        profiler.onSchedule(prop);
+                    }
                     int aid = p2i.get(prop.getId());
                     if (prop.updateMask(pindice, type)) {
                         if (Configuration.PRINT_SCHEDULE) {
@@ -330,4 +345,38 @@ public class SevenQueuesPropagatorEngine implements IPropagationEngine {
             eventsets[i] = new IntCircularQueue(nbv);
         }
     }
+
+    @Override
+    public void dynamicDeletion(Constraint c) {
+        Propagator[] cprops = c.getPropagators();
+        int nsize = propagators.length - cprops.length;
+        Propagator[] _propagators = propagators;
+        short[] _scheduled = scheduled;
+        IntCircularQueue[] _eventsets = eventsets;
+        propagators = new Propagator[nsize];
+        scheduled = new short[nsize];
+        eventsets = new IntCircularQueue[nsize];
+        for (int j = 0, k = 0; j < _propagators.length; j++) {
+            if (ArrayUtils.contains(cprops, _propagators[j])) {
+                assert _scheduled[j] == 0 : "delete a scheduled propagator";
+                p2i.set(_propagators[j].getId(), -1);
+                trigger.remove(_propagators[j]);
+                if (lastProp == _propagators[j]) {
+                    lastProp = null;
+                }
+            } else {
+                propagators[k] = _propagators[j];
+                scheduled[k] = _scheduled[j];
+                eventsets[k] = _eventsets[j];
+                p2i.set(propagators[k].getId(), k);
+                k++;
+            }
+        }
+    }
+
+    @Override
+    public void setProfiler(ProfilingEngine profiler) {
+        this.profiler = profiler;
+        trigger.setProfiler(profiler);
+    }
 }
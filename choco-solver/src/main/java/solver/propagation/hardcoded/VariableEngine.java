@@ -33,13 +33,16 @@ import solver.Solver;
 import solver.constraints.Constraint;
 import solver.constraints.Propagator;
 import solver.exception.ContradictionException;
+import solver.propagation.IProfilable;
 import solver.propagation.IPropagationEngine;
+import solver.propagation.ProfilingEngine;
 import solver.propagation.PropagationTrigger;
 import solver.propagation.hardcoded.util.AId2AbId;
 import solver.propagation.hardcoded.util.IId2AbId;
 import solver.propagation.queues.CircularQueue;
 import solver.variables.EventType;
 import solver.variables.Variable;
+import util.tools.ArrayUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -58,7 +61,7 @@ import java.util.List;
  * @author Charles Prud'homme
  * @since 05/07/12
  */
-public class VariableEngine implements IPropagationEngine {
+public class VariableEngine implements IPropagationEngine, IProfilable {
 
     protected final ContradictionException exception; // the exception in case of contradiction
     protected final IEnvironment environment; // environment of backtrackable objects
@@ -77,6 +80,8 @@ public class VariableEngine implements IPropagationEngine {
 
     final PropagationTrigger trigger; // an object that starts the propagation
 
+    ProfilingEngine profiler; // if not null, executes the propagators
+
 
     public VariableEngine(Solver solver) {
         this.exception = new ContradictionException();
@@ -157,7 +162,11 @@ public class VariableEngine implements IPropagationEngine {
                 lastProp.clearMask(vIp);
                 // run propagation on the specific evt
                 lastProp.fineERcalls++;
-                lastProp.propagate(lastVar.getIndiceInPropagator(p), mask);
+                if (profiler == null) {
+                    lastProp.propagate(lastVar.getIndiceInPropagator(p), mask);
+                } else {
+                    profiler.propagate(lastProp, lastVar.getIndiceInPropagator(p), mask);
+                }
             }
         }
     }
@@ -204,6 +213,9 @@ public class VariableEngine implements IPropagationEngine {
             Propagator prop = variable.getPropagator(p);
             int pindice = variable.getIndiceInPropagator(p);
             if (cause != prop && prop.isActive() && prop.advise(pindice, type.mask)) {
+                if (profiler != null) {
+                    profiler.onSchedule(prop);
+                }
                 if (prop.updateMask(pindice, type)) {
                     assert !eventsets[vid].get(p);
                     if (Configuration.PRINT_SCHEDULE) {
@@ -270,4 +282,27 @@ public class VariableEngine implements IPropagationEngine {
         }
 
     }
+
+    @Override
+    public void dynamicDeletion(Constraint c) {
+        Propagator[] cprops = c.getPropagators();
+        Propagator[] _propagators = propagators;
+        propagators = new Propagator[_propagators.length - cprops.length];
+        for (int j = 0, k = 0; j < _propagators.length; j++) {
+            if (ArrayUtils.contains(cprops, _propagators[j])) {
+                trigger.remove(_propagators[j]);
+                if (lastProp == _propagators[j]) {
+                    lastProp = null;
+                }
+            } else {
+                propagators[k++] = _propagators[j];
+            }
+        }
+    }
+
+    @Override
+    public void setProfiler(ProfilingEngine profiler) {
+        this.profiler = profiler;
+        trigger.setProfiler(profiler);
+    }
 }
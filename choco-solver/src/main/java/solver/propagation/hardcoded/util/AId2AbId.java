@@ -46,7 +46,7 @@ public class AId2AbId implements IId2AbId {
     @Override
     public int get(int key) {
         key -= offset;
-        if (key < 0 || key > size) return noValue;
+        if (key < 0 || key >= size) return noValue;
         return map[key];
     }
 
@@ -57,6 +57,7 @@ public class AId2AbId implements IId2AbId {
             int[] tmp = map;
             map = new int[idx + 1];
             System.arraycopy(tmp, 0, map, 0, size);
+            Arrays.fill(map, size, idx, noValue);
             size = map.length;
         }
         map[idx] = value;
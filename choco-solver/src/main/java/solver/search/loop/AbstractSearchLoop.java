@@ -168,6 +168,19 @@ public abstract class AbstractSearchLoop implements ISearchLoop {
      * </ul>
      */
     public void reset() {
+        // if a resolution has already been done
+        if(rootWorldIndex>-1){
+            resetSearch();
+            solver.set(NoPropagationEngine.SINGLETON);
+        }
+    }
+
+    /**
+     * This method enables to solve a problem another time, from the state preceding the last resolution:
+     * it does the same as {@link #reset()}, but keeps the propagation engine, so the constraints
+     * already propagated are not propagated again.
+     */
+    public void resetSearch() {
         // if a resolution has already been done
         if(rootWorldIndex>-1){
             this.nextState = INIT;
@@ -176,7 +189,13 @@ public abstract class AbstractSearchLoop implements ISearchLoop {
             timeStamp++;
             rootWorldIndex = -1;
             searchWorldIndex = -1;
-            solver.set(NoPropagationEngine.SINGLETON);
+            hasReachedLimit = false;
+            Decision tmp;
+            while (decision != RootDecision.ROOT) {
+                tmp = decision;
+                decision = tmp.getPrevious();
+                tmp.free();
+            }
             this.measures.reset();
         }
     }
@@ -370,6 +389,11 @@ public abstract class AbstractSearchLoop implements ISearchLoop {
         }
     }
 
+    @Override
+    public void unplugSearchMonitor(ISearchMonitor sm) {
+        smList.remove(sm);
+    }
+
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     /////////////////////////////////////// SETTERS ////////////////////////////////////////////////////////////////////
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -57,4 +57,11 @@ public interface ISearchLoop extends Serializable {
      * @param sm
      */
     void plugSearchMonitor(ISearchMonitor sm);
+
+    /**
+     * Unplug a search monitor, does nothing if it is not plugged
+     *
+     * @param sm
+     */
+    void unplugSearchMonitor(ISearchMonitor sm);
 }
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.search.loop;
+
+import solver.Solver;
+import solver.exception.ContradictionException;
+import solver.exception.SolverException;
+import solver.search.strategy.decision.Decision;
+import solver.search.strategy.decision.RootDecision;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A binary search loop which backs up the state of the solver every <code>k</code> levels only,
+ * instead of at each node.
+ * <br/>
+ * On backtrack, the state of a node which has not been backed up is rebuilt from the closest checkpoint above it,
+ * by replaying the decisions of the path (see {@link Decision#getPrevious()}) and propagating them.
+ * This divides the size of the trail by up to <code>k</code>, at the cost of recomputations.
+ * <br/>
+ * When built with a range of values, <code>k</code> is adapted during search to the observed cost of propagation:
+ * it is divided by 2 when recomputation takes more than the given share of the time spent in propagation,
+ * and multiplied by 2 when it takes less than half of it.
+ * <br/>
+ * Monitors or strategies which expect one world per decision (explanation-based backjumping, symmetry breaking during search)
+ * should not be used with this search loop.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class RecomputationSearchLoop extends BinarySearchLoop {
+
+    // number of nodes between two adaptations of k
+    private static final int WINDOW = 1000;
+
+    final int kMin, kMax;
+    final double overhead;
+    int k;
+
+    // depth of the current decision
+    int depth;
+    // pushed[i] is true iff a world has been pushed before applying the decision of level i
+    boolean[] pushed = new boolean[64];
+    final ArrayList<Decision> replay = new ArrayList<Decision>();
+
+    // time spent propagating and recomputing, in the current window
+    long propagationTime, recomputationTime;
+    int nodes;
+    long nbRecomputations;
+
+    /**
+     * Create a search loop which pushes a world every <code>k</code> levels
+     *
+     * @param solver a solver
+     * @param k      distance between two checkpoints
+     */
+    public RecomputationSearchLoop(Solver solver, int k) {
+        this(solver, k, k, 0d);
+    }
+
+    /**
+     * Create a search loop which pushes a world every <code>k</code> levels,
+     * with <code>k</code> adapted in <code>[kMin, kMax]</code>
+     * so that recomputation costs about <code>overhead</code> times the propagation.
+     *
+     * @param solver   a solver
+     * @param kMin     minimal distance between two checkpoints
+     * @param kMax     maximal distance between two checkpoints
+     * @param overhead maximal ratio of recomputation time to propagation time
+     */
+    public RecomputationSearchLoop(Solver solver, int kMin, int kMax, double overhead) {
+        super(solver);
+        if (kMin < 1 || kMax < kMin) {
+            throw new SolverException("RecomputationSearchLoop: invalid distance between checkpoints [" + kMin + "," + kMax + "]");
+        }
+        this.kMin = kMin;
+        this.kMax = kMax;
+        this.k = kMin;
+        this.overhead = overhead;
+    }
+
+    /**
+     * @return current distance between two checkpoints
+     */
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * @return number of times a state has been rebuilt
+     */
+    public long getNbRecomputations() {
+        return nbRecomputations;
+    }
+
+    @Override
+    protected void downLeftBranch() {
+        depth++;
+        downBranch();
+    }
+
+    @Override
+    protected void downBranch() {
+        if (depth == pushed.length) {
+            pushed = Arrays.copyOf(pushed, depth * 3 / 2 + 1);
+        }
+        pushed[depth] = (depth - 1) % k == 0;
+        if (pushed[depth]) {
+            env.worldPush();
+        }
+        long start = System.nanoTime();
+        try {
+            decision.buildNext();
+            objectivemanager.apply(decision);
+            objectivemanager.postDynamicCut();
+
+            solver.getEngine().propagate();
+            moveTo(OPEN_NODE);
+        } catch (ContradictionException e) {
+            solver.getEngine().flush();
+            moveTo(stateAfterFail);
+            jumpTo = 1;
+            smList.onContradiction(e);
+        }
+        propagationTime += System.nanoTime() - start;
+        if (kMax > kMin && ++nodes == WINDOW) {
+            adapt();
+        }
+    }
+
+    @Override
+    protected void upBranch() {
+        if (decision == RootDecision.ROOT) {
+            env.worldPop();
+            interrupt(MSG_ROOT);
+            return;
+        }
+        jumpTo--;
+        if (jumpTo <= 0 && decision.hasNext()) {
+            // the right branch is applied on the state of the parent node
+            if (restoreParent()) {
+                moveTo(DOWN_RIGHT_BRANCH);
+                return;
+            }
+            // the parent node is not consistent anymore (eg, because of a cut): it fails in turn
+            jumpTo = 1;
+            moveTo(UP_BRANCH);
+        } else {
+            dropParent();
+        }
+        Decision tmp = decision;
+        decision = decision.getPrevious();
+        tmp.free();
+        depth--;
+    }
+
+    /**
+     * Leave the current decision without rebuilding the state of the parent node, which is not needed
+     * as the search goes up again: the state is the one of the closest checkpoint, until a right branch requires
+     * the state of an ancestor.
+     */
+    private void dropParent() {
+        env.worldPop();
+        if (!pushed[depth]) {
+            // stands for the world of the parent node, the next backtrack pops it
+            env.worldPush();
+        }
+    }
+
+    /**
+     * Restore the state preceding the application of the current decision.
+     *
+     * @return false if the state can not be rebuilt
+     */
+    private boolean restoreParent() {
+        env.worldPop();
+        if (pushed[depth]) {
+            return true;
+        }
+        // rebuild the state from the closest checkpoint
+        long start = System.nanoTime();
+        nbRecomputations++;
+        env.worldPush();
+        replay.clear();
+        Decision d = decision.getPrevious();
+        int level = depth - 1;
+        while (true) {
+            replay.add(d);
+            if (pushed[level]) {
+                break;
+            }
+            d = d.getPrevious();
+            level--;
+        }
+        boolean ok = true;
+        try {
+            for (int i = replay.size() - 1; i >= 0; i--) {
+                objectivemanager.apply(replay.get(i));
+            }
+            objectivemanager.postDynamicCut();
+            solver.getEngine().propagate();
+        } catch (ContradictionException e) {
+            solver.getEngine().flush();
+            ok = false;
+        }
+        recomputationTime += System.nanoTime() - start;
+        return ok;
+    }
+
+    private void adapt() {
+        if (recomputationTime > overhead * propagationTime) {
+            k = Math.max(kMin, k / 2);
+        } else if (2 * recomputationTime < overhead * propagationTime) {
+            k = Math.min(kMax, k * 2);
+        }
+        nodes = 0;
+        propagationTime = recomputationTime = 0;
+    }
+
+    @Override
+    public void restoreRootNode() {
+        super.restoreRootNode();
+        depth = 0;
+    }
+
+    @Override
+    public void resetSearch() {
+        super.resetSearch();
+        depth = 0;
+    }
+}
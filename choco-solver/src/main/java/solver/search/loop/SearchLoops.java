@@ -43,6 +43,12 @@ public enum SearchLoops {
             solver.set(new BinarySearchLoop(solver));
         }
     },
+    RECOMPUTATION() {
+        @Override
+        public void make(Solver solver) {
+            solver.set(new RecomputationSearchLoop(solver, 1, 256, 0.25));
+        }
+    },
     DEFAULT() {
         @Override
         public void make(Solver solver) {
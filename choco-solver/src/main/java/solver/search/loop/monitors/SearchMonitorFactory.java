@@ -27,12 +27,20 @@
 package solver.search.loop.monitors;
 
 import solver.Solver;
+import solver.propagation.IPropagationEngine;
+import solver.propagation.NoPropagationEngine;
+import solver.propagation.ProfilingEngine;
+import solver.propagation.hardcoded.SevenQueuesPropagatorEngine;
 import solver.search.limits.*;
 import solver.search.loop.AbstractSearchLoop;
+import solver.search.loop.monitors.trace.SearchTrace;
+import solver.search.measure.LiveMeasures;
 import solver.search.restart.GeometricalRestartStrategy;
 import solver.search.restart.LubyRestartStrategy;
 import solver.variables.Variable;
 
+import java.io.File;
+
 /**
  * <br/>
  *
@@ -219,6 +227,49 @@ public class SearchMonitorFactory {
         }
     }
 
+    /**
+     * Publish the measures of the solver every <code>batch</code> nodes, fails or restarts (and on each solution),
+     * so that they can be read from another thread without slowing down the resolution.
+     *
+     * @param solver the solver to observe
+     * @param batch  number of nodes, fails and restarts between two publications
+     * @return the live measures, see {@link LiveMeasures#snapshot()}
+     */
+    public static LiveMeasures liveMeasures(Solver solver, int batch) {
+        LiveMeasures live = new LiveMeasures(solver, batch);
+        solver.getSearchLoop().plugSearchMonitor(live);
+        return live;
+    }
+
+    /**
+     * Publish the measures of the solver every <code>batch</code> nodes, fails or restarts (and on each solution),
+     * and expose them as a MBean in the platform MBean server.
+     * <br/>
+     * The MBean stays registered until {@link LiveMeasures#unregister()} is called.
+     *
+     * @param solver the solver to observe
+     * @param batch  number of nodes, fails and restarts between two publications
+     * @return the registered live measures
+     */
+    public static LiveMeasures jmx(Solver solver, int batch) {
+        LiveMeasures live = liveMeasures(solver, batch);
+        live.register();
+        return live;
+    }
+
+    /**
+     * Write a compact binary trace of the search tree in <code>file</code>, on a background thread.
+     * The trace is closed at the end of the resolution, and can be converted into CPViz log files with
+     * {@link solver.search.loop.monitors.trace.TraceConverter}.
+     *
+     * @param solver the solver to observe
+     * @param file   the trace file, overwritten
+     * @return the search trace, to declare domain snapshots
+     */
+    public static SearchTrace trace(Solver solver, File file) {
+        return new SearchTrace(solver, file);
+    }
+
     /**
      * Branch a luby restart strategy to the solver
      *
@@ -262,6 +313,29 @@ public class SearchMonitorFactory {
         solver.getSearchLoop().plugSearchMonitor(new LogPropagationCount(solver));
     }
 
+    /**
+     * Profile the propagators: wrap the propagation engine of <code>solver</code> into a {@link ProfilingEngine},
+     * which records the number of calls, events, prunings, useless calls and fails of each propagator,
+     * and estimates the time spent in each of them.
+     * A report is printed on each closing of the search.
+     * <br/>
+     * Must be called once the model is fully stated, and the engine (if any) is declared.
+     *
+     * @param solver         a solver
+     * @param samplingPeriod the time is measured on 1 call out of <code>samplingPeriod</code>, on average
+     * @return the profiling engine, to query the statistics
+     */
+    public static ProfilingEngine profile(Solver solver, int samplingPeriod) {
+        IPropagationEngine engine = solver.getEngine();
+        if (engine == NoPropagationEngine.SINGLETON) {
+            engine = new SevenQueuesPropagatorEngine(solver);
+        }
+        ProfilingEngine profiler = new ProfilingEngine(solver, engine, samplingPeriod);
+        solver.set(profiler);
+        solver.getSearchLoop().plugSearchMonitor(profiler);
+        return profiler;
+    }
+
     /**
      * Print the total number of events per variable
      *
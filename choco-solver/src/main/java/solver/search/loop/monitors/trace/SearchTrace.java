@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.search.loop.monitors.trace;
+
+import memory.IStateLong;
+import solver.Solver;
+import solver.exception.ContradictionException;
+import solver.exception.SolverException;
+import solver.search.loop.monitors.IMonitorClose;
+import solver.search.loop.monitors.IMonitorContradiction;
+import solver.search.loop.monitors.IMonitorDownBranch;
+import solver.search.loop.monitors.IMonitorInitPropagation;
+import solver.search.loop.monitors.IMonitorSolution;
+import solver.search.strategy.decision.Decision;
+import solver.variables.IntVar;
+import solver.variables.SetVar;
+import solver.variables.Variable;
+import util.iterators.DisposableValueIterator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.BitSet;
+
+/**
+ * A search monitor which writes a compact binary trace of the search tree, see {@link TraceFormat}.
+ * <br/>
+ * It records the same events as {@link solver.search.loop.monitors.cpviz.Visualization} (nodes, failures
+ * and solutions), and snapshots of domains on demand.
+ * Records are encoded on the solver thread into a lock-free ring buffer, which is drained by a background thread
+ * into a memory-mapped file, so the resolution is only slowed down when the ring is full.
+ * <br/>
+ * The trace is closed at the end of the resolution; it can be converted into CPViz log files with
+ * {@link TraceConverter}.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class SearchTrace implements IMonitorInitPropagation, IMonitorDownBranch, IMonitorContradiction,
+        IMonitorSolution, IMonitorClose {
+
+    private static final int DEFAULT_CAPACITY = 1 << 20;
+
+    final Solver solver;
+
+    private final TraceBuffer buffer;
+
+    private final TraceWriter writer;
+
+    private final IStateLong parent_id;
+
+    private long node_id;
+
+    private boolean hasFailed;
+
+    private final BitSet named = new BitSet(); // ids of the variables whose name has been written
+
+    private byte[] record = new byte[64];
+
+    private IntVar[] onSolution; // variables to snapshot on each solution
+
+    private boolean closed;
+
+    /**
+     * Trace the resolution of <code>solver</code> into <code>file</code>, with a ring buffer of 1MB.
+     *
+     * @param solver the solver to trace
+     * @param file   the trace file, overwritten
+     */
+    public SearchTrace(Solver solver, File file) {
+        this(solver, file, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Trace the resolution of <code>solver</code> into <code>file</code>.
+     *
+     * @param solver   the solver to trace
+     * @param file     the trace file, overwritten
+     * @param capacity capacity of the ring buffer, in bytes
+     */
+    public SearchTrace(Solver solver, File file, int capacity) {
+        this.solver = solver;
+        this.parent_id = solver.getEnvironment().makeLong();
+        this.buffer = new TraceBuffer(capacity);
+        try {
+            this.writer = new TraceWriter(buffer, file);
+        } catch (IOException e) {
+            throw new SolverException("SearchTrace: unable to open " + file + ", " + e.getMessage());
+        }
+        solver.getSearchLoop().plugSearchMonitor(this);
+    }
+
+    /**
+     * Write a snapshot of the domains of <code>vars</code>, attached to the last node.
+     *
+     * @param vars integer variables
+     */
+    public void snapshot(IntVar... vars) {
+        for (int i = 0; i < vars.length; i++) {
+            name(vars[i]);
+        }
+        int pos = 0;
+        ensure(6);
+        record[pos++] = TraceFormat.DOMAINS;
+        pos = TraceFormat.putVarint(record, pos, vars.length);
+        for (int i = 0; i < vars.length; i++) {
+            int size = vars[i].getDomainSize();
+            int lb = vars[i].getLB();
+            int ub = vars[i].getUB();
+            boolean holes = size != ub - lb + 1;
+            pos = ensure(pos, 25 + (holes ? 5 * size : 0));
+            pos = TraceFormat.putVarint(record, pos, vars[i].getId());
+            pos = TraceFormat.putVarint(record, pos, size);
+            pos = TraceFormat.putSigned(record, pos, lb);
+            pos = TraceFormat.putVarint(record, pos, (long) ub - lb);
+            if (holes) {
+                DisposableValueIterator it = vars[i].getValueIterator(true);
+                int prev = it.next();
+                while (it.hasNext()) {
+                    int v = it.next();
+                    pos = TraceFormat.putVarint(record, pos, v - prev);
+                    prev = v;
+                }
+                it.dispose();
+            }
+        }
+        buffer.write(record, 0, pos);
+    }
+
+    /**
+     * Write a snapshot of the domains of <code>vars</code> on each solution.
+     *
+     * @param vars integer variables
+     */
+    public void snapshotOnSolution(IntVar... vars) {
+        this.onSolution = vars;
+    }
+
+    /**
+     * Write the remaining records and close the trace file.
+     * Called at the end of the resolution; events occurring after are ignored.
+     */
+    public void close() {
+        if (!closed) {
+            closed = true;
+            buffer.write(new byte[]{TraceFormat.END}, 0, 1);
+            try {
+                writer.close();
+            } catch (IOException e) {
+                throw new SolverException("SearchTrace: unable to write the trace, " + e.getMessage());
+            }
+        }
+    }
+
+    //****************************************************************************************************************//
+
+    @Override
+    public void beforeInitialPropagation() {
+        node_id = 0;
+        parent_id.set(0);
+        record[0] = TraceFormat.ROOT;
+        buffer.write(record, 0, 1);
+    }
+
+    @Override
+    public void afterInitialPropagation() {
+    }
+
+    @Override
+    public void beforeDownLeftBranch() {
+    }
+
+    @Override
+    public void afterDownLeftBranch() {
+        node();
+    }
+
+    @Override
+    public void beforeDownRightBranch() {
+    }
+
+    @Override
+    public void afterDownRightBranch() {
+        node();
+    }
+
+    @Override
+    public void onContradiction(ContradictionException cex) {
+        hasFailed = true;
+    }
+
+    @Override
+    public void onSolution() {
+        record[0] = TraceFormat.SUCC;
+        buffer.write(record, 0, 1);
+        if (onSolution != null) {
+            snapshot(onSolution);
+        }
+    }
+
+    @Override
+    public void beforeClose() {
+    }
+
+    @Override
+    public void afterClose() {
+        close();
+    }
+
+    private void node() {
+        node_id++;
+        Decision decision = solver.getSearchLoop().decision;
+        Variable var = decision.getDecisionVariable();
+        int size = 0;
+        if (var instanceof IntVar) {
+            size = ((IntVar) var).getDomainSize();
+        } else if (var instanceof SetVar) {
+            size = ((SetVar) var).getEnvelopeSize();
+        }
+        Object value = decision.getDecisionValue();
+        name(var);
+        int pos = 0;
+        record[pos++] = hasFailed ? TraceFormat.FAIL : TraceFormat.TRY;
+        pos = TraceFormat.putVarint(record, pos, node_id - parent_id.get());
+        pos = TraceFormat.putVarint(record, pos, var.getId());
+        pos = TraceFormat.putVarint(record, pos, size);
+        pos = TraceFormat.putSigned(record, pos, value instanceof Integer ? (Integer) value : 0);
+        buffer.write(record, 0, pos);
+        hasFailed = false;
+        parent_id.set(node_id);
+    }
+
+    // write the name of the variable, once
+    private void name(Variable var) {
+        int id = var.getId();
+        if (!named.get(id)) {
+            named.set(id);
+            String name = var.getName();
+            int pos = 0;
+            ensure(11 + name.length());
+            record[pos++] = TraceFormat.NAME;
+            pos = TraceFormat.putVarint(record, pos, id);
+            pos = TraceFormat.putVarint(record, pos, name.length());
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                record[pos++] = (byte) (c < 128 ? c : '?');
+            }
+            buffer.write(record, 0, pos);
+        }
+    }
+
+    private void ensure(int size) {
+        if (record.length < size) {
+            record = new byte[Math.max(size, record.length * 2)];
+        }
+    }
+
+    // ensure that size bytes can be written from pos, return pos
+    private int ensure(int pos, int size) {
+        if (record.length < pos + size) {
+            byte[] tmp = new byte[Math.max(pos + size, record.length * 2)];
+            System.arraycopy(record, 0, tmp, 0, pos);
+            record = tmp;
+        }
+        return pos;
+    }
+}
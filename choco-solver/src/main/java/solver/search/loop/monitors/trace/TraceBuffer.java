@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.search.loop.monitors.trace;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A lock-free ring of bytes, between one producer (the solver thread) and one consumer (the writer thread).
+ * <br/>
+ * The producer publishes the number of bytes written, the consumer the number of bytes read;
+ * the producer only waits when the ring is full.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+final class TraceBuffer {
+
+    private static final long PARK = 10000; // ns, waiting time of the producer when the ring is full
+
+    private final byte[] ring;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // number of bytes written
+    private final AtomicLong tail = new AtomicLong(); // number of bytes read
+
+    private long written; // the producer view of head
+    private long read; // the producer view of tail, may be late
+    private volatile boolean closed; // the consumer does not read anymore
+
+    /**
+     * @param capacity capacity of the ring, rounded up to a power of 2
+     */
+    TraceBuffer(int capacity) {
+        int c = Integer.highestOneBit(Math.max(capacity, 64) - 1) << 1;
+        this.ring = new byte[c];
+        this.mask = c - 1;
+    }
+
+    /**
+     * Copy <code>len</code> bytes of <code>src</code> into the ring, wait for free space if needed.
+     * Only called by the producer.
+     */
+    void write(byte[] src, int off, int len) {
+        if (closed) {
+            return;
+        }
+        while (len > 0) {
+            long free = ring.length - (written - read);
+            if (free == 0) {
+                read = tail.get();
+                free = ring.length - (written - read);
+                if (free == 0) {
+                    if (closed) {
+                        return;
+                    }
+                    LockSupport.parkNanos(PARK);
+                    continue;
+                }
+            }
+            int n = (int) Math.min(free, len);
+            int p = (int) (written & mask);
+            int first = Math.min(n, ring.length - p);
+            System.arraycopy(src, off, ring, p, first);
+            System.arraycopy(src, off + first, ring, 0, n - first);
+            written += n;
+            off += n;
+            len -= n;
+            head.lazySet(written);
+        }
+    }
+
+    /**
+     * Give the available bytes to <code>sink</code>, and release them.
+     * Only called by the consumer.
+     *
+     * @return the number of bytes consumed
+     */
+    int drainTo(TraceWriter sink) throws IOException {
+        long t = tail.get();
+        int n = (int) (head.get() - t);
+        if (n > 0) {
+            int p = (int) (t & mask);
+            int first = Math.min(n, ring.length - p);
+            sink.put(ring, p, first);
+            sink.put(ring, 0, n - first);
+            tail.lazySet(t + n);
+        }
+        return n;
+    }
+
+    /**
+     * The consumer stops reading, the producer must not wait anymore.
+     */
+    void close() {
+        closed = true;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+}
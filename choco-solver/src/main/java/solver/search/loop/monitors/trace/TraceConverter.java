@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.search.loop.monitors.trace;
+
+import org.slf4j.helpers.MessageFormatter;
+import solver.search.loop.monitors.cpviz.Show;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import static solver.search.loop.monitors.cpviz.CPVizConstant.*;
+
+/**
+ * Offline conversion of a search tree trace written by {@link SearchTrace} into CPViz log files:
+ * <code>configuration.xml</code>, <code>tree.xml</code> and <code>visualization.xml</code>.
+ * <br/>
+ * Domain snapshots are displayed by a single "vector" visualizer, one state per snapshot.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public final class TraceConverter {
+
+    private TraceConverter() {
+    }
+
+    /**
+     * Convert <code>trace</code> into CPViz log files, in <code>dir</code>.
+     *
+     * @param trace  a trace file
+     * @param dir    output directory, created if needed
+     * @param pbname name of the treated problem
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void toCPViz(File trace, File dir, String pbname) throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("unable to create " + dir);
+        }
+        // first pass: size of the vector visualizer
+        int nbVars = 0, min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+        TraceReader reader = new TraceReader(trace);
+        for (int type = reader.next(); type != TraceFormat.END; type = reader.next()) {
+            if (type == TraceFormat.DOMAINS) {
+                nbVars = Math.max(nbVars, reader.getNbVariables());
+                for (int i = 0; i < reader.getNbVariables(); i++) {
+                    min = Math.min(min, reader.getSnapshotLB(i));
+                    max = Math.max(max, reader.getSnapshotUB(i));
+                }
+            }
+        }
+        boolean viz = nbVars > 0;
+
+        Writer conf = open(dir, "configuration.xml");
+        try {
+            line(conf, HEADER);
+            line(conf, C_CONF_TAG_IN, dir.getPath(), pbname);
+            line(conf, C_TOOL_TAG, Show.TREE, LAYOUT, COMPACT, ALL, "500", "500", "tree-" + pbname);
+            if (viz) {
+                line(conf, C_TOOL_TAG, Show.VIZ, LAYOUT, EXPANDED, ALL, "500", "500", "visualization-" + pbname);
+            }
+            line(conf, C_CONF_TAG_OUT);
+        } finally {
+            conf.close();
+        }
+
+        Writer tree = open(dir, "tree.xml");
+        Writer visu = viz ? open(dir, "visualization.xml") : null;
+        try {
+            line(tree, HEADER);
+            line(tree, T_TREE_TAG_IN);
+            if (viz) {
+                line(visu, HEADER);
+                line(visu, V_VISUALIZATION_TAG_IN);
+                line(visu, V_VISUALIZER_TAG, 1, "vector", EXPANDED, nbVars, max - min + 1,
+                        " group=\"1\" min=\"" + min + "\" max=\"" + max + "\"");
+            }
+            StringBuilder st = new StringBuilder();
+            long state = 0;
+            reader = new TraceReader(trace);
+            for (int type = reader.next(); type != TraceFormat.END; type = reader.next()) {
+                switch (type) {
+                    case TraceFormat.ROOT:
+                        line(tree, T_ROOT_TAG);
+                        break;
+                    case TraceFormat.TRY:
+                    case TraceFormat.FAIL:
+                        line(tree, type == TraceFormat.TRY ? T_TRY_TAG : T_FAIL_TAG,
+                                reader.getNode(), reader.getParent(), reader.getVariableName(),
+                                reader.getSize(), reader.getValue());
+                        break;
+                    case TraceFormat.SUCC:
+                        line(tree, T_SUCC_TAG, reader.getNode());
+                        break;
+                    case TraceFormat.DOMAINS:
+                        line(visu, V_STATE_TAG_IN, state++, reader.getNode());
+                        line(visu, V_VISUALIZER_STATE_TAG_IN, 1);
+                        for (int i = 0; i < reader.getNbVariables(); i++) {
+                            int lb = reader.getSnapshotLB(i);
+                            int ub = reader.getSnapshotUB(i);
+                            if (lb == ub) {
+                                line(visu, V_INTEGER_TAG, "\t\t\t", i + 1, lb);
+                            } else {
+                                st.setLength(0);
+                                int[] values = reader.getSnapshotValues(i);
+                                if (values != null) {
+                                    for (int j = 0; j < values.length; j++) {
+                                        st.append(values[j]).append(' ');
+                                    }
+                                } else {
+                                    st.append(lb).append(" .. ").append(ub);
+                                }
+                                line(visu, V_DVAR_TAG, "\t\t\t", i + 1, st);
+                            }
+                        }
+                        line(visu, V_VISUALIZER_STATE_TAG_OUT);
+                        line(visu, V_STATE_TAG_OUT);
+                        break;
+                }
+            }
+            line(tree, T_TREE_TAG_OUT);
+            if (viz) {
+                line(visu, V_VISUALIZATION_TAG_OUT);
+            }
+        } finally {
+            tree.close();
+            if (visu != null) {
+                visu.close();
+            }
+        }
+    }
+
+    private static Writer open(File dir, String name) throws IOException {
+        return new BufferedWriter(new FileWriter(new File(dir, name)));
+    }
+
+    private static void line(Writer out, String format, Object... args) throws IOException {
+        out.write(MessageFormatter.arrayFormat(format, args).getMessage());
+        out.write('\n');
+    }
+
+    /**
+     * Convert a trace into CPViz log files.
+     *
+     * @param args trace file, output directory and problem name (optional)
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: TraceConverter <trace> <directory> [<name>]");
+            System.exit(1);
+        }
+        toCPViz(new File(args[0]), new File(args[1]), args.length > 2 ? args[2] : "trace");
+    }
+}
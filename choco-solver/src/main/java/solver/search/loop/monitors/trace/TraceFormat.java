@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.search.loop.monitors.trace;
+
+/**
+ * The binary format of search trees traces written by {@link SearchTrace}.
+ * <br/>
+ * A trace starts with the 4-byte {@link #MAGIC} number, followed by records.
+ * A record starts with its type (one byte), followed by its fields, encoded as unsigned varints
+ * (7 bits per byte, least significant group first); signed values are zigzag-encoded first.
+ * <br/>- {@link #ROOT}: the root node (id 0),
+ * <br/>- {@link #TRY} and {@link #FAIL}: a node, whose id is the number of nodes before it:
+ * <code>id - parent</code>, variable id, domain size and decision value (signed),
+ * <br/>- {@link #SUCC}: the last node is a solution,
+ * <br/>- {@link #NAME}: a variable id, the length of its name and its name (ASCII),
+ * written before the first record referring to the variable,
+ * <br/>- {@link #DOMAINS}: a snapshot of domains at the last node: the number of variables, then for each of them,
+ * its id, its domain size, its lower bound (signed) and <code>upper bound - lower bound</code>;
+ * if the domain has holes, the <code>size - 1</code> gaps between consecutive values follow.
+ * <br/>
+ * A zero byte ({@link #END}) ends the trace.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public final class TraceFormat {
+
+    /**
+     * "CTR1"
+     */
+    public static final int MAGIC = 0x43545231;
+
+    public static final byte END = 0;
+    public static final byte ROOT = 1;
+    public static final byte TRY = 2;
+    public static final byte FAIL = 3;
+    public static final byte SUCC = 4;
+    public static final byte NAME = 5;
+    public static final byte DOMAINS = 6;
+
+    private TraceFormat() {
+    }
+
+    /**
+     * Write <code>value</code> as an unsigned varint in <code>buf</code>, at <code>pos</code>.
+     *
+     * @return the position after the varint
+     */
+    static int putVarint(byte[] buf, int pos, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf[pos++] = (byte) value;
+        return pos;
+    }
+
+    /**
+     * Write <code>value</code> as a zigzag-encoded varint in <code>buf</code>, at <code>pos</code>.
+     *
+     * @return the position after the varint
+     */
+    static int putSigned(byte[] buf, int pos, long value) {
+        return putVarint(buf, pos, (value << 1) ^ (value >> 63));
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
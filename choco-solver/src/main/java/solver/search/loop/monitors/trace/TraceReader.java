@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.search.loop.monitors.trace;
+
+import solver.exception.SolverException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A sequential reader of search trees traces written by {@link SearchTrace}.
+ * <br/>
+ * Each call to {@link #next()} reads a record and returns its type, the fields of the record are then available
+ * through the getters. {@link TraceFormat#NAME} records are consumed silently.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class TraceReader {
+
+    private final MappedByteBuffer data;
+
+    private final List<String> names = new ArrayList<String>();
+
+    private long node, parent;
+
+    private int var, size, value;
+
+    // last snapshot
+    private int nbVars;
+    private int[] vars = new int[16], sizes = new int[16], lbs = new int[16], ubs = new int[16];
+    private int[][] values = new int[16][];
+
+    /**
+     * Open the trace <code>file</code>.
+     *
+     * @param file a trace file
+     * @throws IOException if the file cannot be read
+     */
+    public TraceReader(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            data = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        } finally {
+            raf.close();
+        }
+        if (data.remaining() < 4 || data.getInt() != TraceFormat.MAGIC) {
+            throw new SolverException("TraceReader: " + file + " is not a search trace");
+        }
+    }
+
+    /**
+     * Read the next record.
+     *
+     * @return its type, {@link TraceFormat#END} when the end of the trace is reached
+     */
+    public int next() {
+        while (data.hasRemaining()) {
+            byte type = data.get();
+            switch (type) {
+                case TraceFormat.END:
+                    data.position(data.limit());
+                    return TraceFormat.END;
+                case TraceFormat.ROOT:
+                    node = parent = 0;
+                    return type;
+                case TraceFormat.TRY:
+                case TraceFormat.FAIL:
+                    node++;
+                    parent = node - varint();
+                    var = (int) varint();
+                    size = (int) varint();
+                    value = (int) signed();
+                    return type;
+                case TraceFormat.SUCC:
+                    return type;
+                case TraceFormat.NAME:
+                    readName();
+                    break;
+                case TraceFormat.DOMAINS:
+                    readDomains();
+                    return type;
+                default:
+                    throw new SolverException("TraceReader: unknown record " + type + " at " + (data.position() - 1));
+            }
+        }
+        return TraceFormat.END;
+    }
+
+    /**
+     * @return id of the last node read (or of the node a snapshot or a solution refers to)
+     */
+    public long getNode() {
+        return node;
+    }
+
+    /**
+     * @return id of the parent of the last node read
+     */
+    public long getParent() {
+        return parent;
+    }
+
+    /**
+     * @return id of the decision variable of the last node read
+     */
+    public int getVariable() {
+        return var;
+    }
+
+    /**
+     * @return name of the decision variable of the last node read
+     */
+    public String getVariableName() {
+        return getName(var);
+    }
+
+    /**
+     * @return domain size of the decision variable of the last node read
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return decision value of the last node read
+     */
+    public int getValue() {
+        return value;
+    }
+
+    /**
+     * @param id id of a variable
+     * @return its name, as written in the trace
+     */
+    public String getName(int id) {
+        return id < names.size() && names.get(id) != null ? names.get(id) : "X" + id;
+    }
+
+    /**
+     * @return number of variables in the last snapshot
+     */
+    public int getNbVariables() {
+        return nbVars;
+    }
+
+    /**
+     * @param i index of a variable in the last snapshot
+     * @return its id
+     */
+    public int getSnapshotVariable(int i) {
+        return vars[i];
+    }
+
+    public int getSnapshotSize(int i) {
+        return sizes[i];
+    }
+
+    public int getSnapshotLB(int i) {
+        return lbs[i];
+    }
+
+    public int getSnapshotUB(int i) {
+        return ubs[i];
+    }
+
+    /**
+     * @param i index of a variable in the last snapshot
+     * @return its values, <code>null</code> if its domain is an interval
+     */
+    public int[] getSnapshotValues(int i) {
+        return values[i];
+    }
+
+    //****************************************************************************************************************//
+
+    private void readName() {
+        int id = (int) varint();
+        int length = (int) varint();
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) data.get();
+        }
+        while (names.size() <= id) {
+            names.add(null);
+        }
+        names.set(id, new String(chars));
+    }
+
+    private void readDomains() {
+        nbVars = (int) varint();
+        if (vars.length < nbVars) {
+            vars = new int[nbVars];
+            sizes = new int[nbVars];
+            lbs = new int[nbVars];
+            ubs = new int[nbVars];
+            values = new int[nbVars][];
+        }
+        for (int i = 0; i < nbVars; i++) {
+            vars[i] = (int) varint();
+            sizes[i] = (int) varint();
+            lbs[i] = (int) signed();
+            ubs[i] = (int) (lbs[i] + varint());
+            if (sizes[i] != ubs[i] - lbs[i] + 1) {
+                int[] vals = new int[sizes[i]];
+                vals[0] = lbs[i];
+                for (int j = 1; j < vals.length; j++) {
+                    vals[j] = (int) (vals[j - 1] + varint());
+                }
+                values[i] = vals;
+            } else {
+                values[i] = null;
+            }
+        }
+    }
+
+    private long varint() {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private long signed() {
+        return TraceFormat.unzigzag(varint());
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.search.loop.monitors.trace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The consumer of a {@link TraceBuffer}: a background thread which copies the bytes of the ring
+ * into a memory-mapped file, mapped by chunks.
+ * On close, the remaining bytes are written, and the file is truncated to the size of the trace.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+final class TraceWriter implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("solver");
+
+    private static final int CHUNK = 1 << 20; // size of a mapped region
+    private static final long IDLE = 100000; // ns, waiting time when the ring is empty
+
+    private final TraceBuffer buffer;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private MappedByteBuffer map;
+    private long base; // position of the mapped region in the file
+    private final Thread thread;
+    private volatile boolean closing;
+    private IOException failure;
+
+    TraceWriter(TraceBuffer buffer, File file) throws IOException {
+        this.buffer = buffer;
+        this.raf = new RandomAccessFile(file, "rw");
+        this.channel = raf.getChannel();
+        this.map = channel.map(FileChannel.MapMode.READ_WRITE, 0, CHUNK);
+        this.map.putInt(TraceFormat.MAGIC);
+        this.thread = new Thread(this, "trace-writer-" + file.getName());
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                if (buffer.drainTo(this) == 0) {
+                    if (closing) {
+                        if (buffer.drainTo(this) == 0) {
+                            break;
+                        }
+                    } else {
+                        LockSupport.parkNanos(IDLE);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+            LOGGER.error("SearchTrace: unable to write the trace, {}", e.toString());
+        } finally {
+            buffer.close();
+        }
+    }
+
+    /**
+     * Append <code>len</code> bytes of <code>src</code> to the file.
+     */
+    void put(byte[] src, int off, int len) throws IOException {
+        while (len > 0) {
+            if (!map.hasRemaining()) {
+                map.force();
+                base += map.position();
+                map = channel.map(FileChannel.MapMode.READ_WRITE, base, CHUNK);
+            }
+            int n = Math.min(len, map.remaining());
+            map.put(src, off, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Write the remaining bytes, then close the file.
+     *
+     * @throws IOException if the trace can not be written
+     */
+    void close() throws IOException {
+        closing = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (failure == null && map.hasRemaining()) {
+                map.put(TraceFormat.END);
+            }
+            map.force();
+            long size = base + map.position();
+            map = null;
+            try {
+                channel.truncate(size);
+            } catch (IOException e) {
+                // the region is still mapped on some platforms, then the trace ends with zeros, read as END
+                LOGGER.debug("SearchTrace: unable to truncate the trace, {}", e.toString());
+            }
+        } finally {
+            raf.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
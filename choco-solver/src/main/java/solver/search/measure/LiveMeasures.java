@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.search.measure;
+
+import solver.Solver;
+import solver.exception.ContradictionException;
+import solver.exception.SolverException;
+import solver.search.loop.monitors.*;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A search monitor which publishes the measures of a running solver, so that they can be read from any other thread.
+ * <br/>
+ * The measures are copied from the solver thread every <code>batch</code> nodes, fails or restarts,
+ * and on each solution and closing of the search, into a padded array of counters.
+ * Each publication is protected by a sequence number, so that {@link #snapshot()} never blocks the solver
+ * and always returns a consistent set of values.
+ * <br/>
+ * Counting the propagations requires to scan all the propagators: on periodic publications, they are only
+ * recounted when a snapshot has been taken since the previous publication. So the propagation counts
+ * of a snapshot may be one batch late, unless it follows a solution or the closing of the search.
+ * <br/>
+ * The measures can also be exposed through JMX, see {@link #register()}.
+ *
+ * @author agent
+ * @see solver.search.loop.monitors.SearchMonitorFactory#liveMeasures(solver.Solver, int)
+ * @since 19/10/26
+ */
+public class LiveMeasures implements LiveMeasuresMBean, IMonitorInitPropagation, IMonitorOpenNode,
+        IMonitorContradiction, IMonitorSolution, IMonitorRestart, IMonitorClose {
+
+    public static final int DEFAULT_BATCH = 1024;
+
+    // the counters are surrounded by cache lines of padding, to avoid false sharing with other solvers
+    private static final int PAD = 8;
+    private static final int SEQ = PAD;
+    private static final int TIME = SEQ + 1;
+    private static final int SOLUTIONS = TIME + 1;
+    private static final int NODES = SOLUTIONS + 1;
+    private static final int BACKTRACKS = NODES + 1;
+    private static final int FAILS = BACKTRACKS + 1;
+    private static final int RESTARTS = FAILS + 1;
+    private static final int PROPAGATIONS = RESTARTS + 1;
+    private static final int EVENTS = PROPAGATIONS + 1;
+    private static final int DEPTH = EVENTS + 1;
+    private static final int MAX_DEPTH = DEPTH + 1;
+    private static final int OBJECTIVE = MAX_DEPTH + 1;
+    private static final int BEST = OBJECTIVE + 1;
+    private static final int SIZE = BEST + 1 + PAD;
+
+    private final Solver solver;
+
+    private final IMeasures measures;
+
+    private final int batch;
+
+    private final AtomicLongArray cells;
+
+    // number of nodes, fails and restarts since the last publication, only modified by the solver thread
+    private int tick;
+
+    // set when a snapshot is taken: the propagation counts have to be refreshed on the next publication
+    private volatile boolean read;
+
+    private ObjectName name;
+
+    /**
+     * Create a live view of the measures of <code>solver</code>.
+     * The monitor still has to be plugged into the search loop.
+     *
+     * @param solver the solver to observe
+     * @param batch  number of nodes, fails and restarts between two publications
+     */
+    public LiveMeasures(Solver solver, int batch) {
+        if (batch < 1) {
+            throw new SolverException("LiveMeasures: batch must be strictly positive");
+        }
+        this.solver = solver;
+        this.measures = solver.getMeasures();
+        this.batch = batch;
+        this.cells = new AtomicLongArray(SIZE);
+        this.cells.set(BEST, Double.doubleToRawLongBits(Double.NaN));
+    }
+
+    /**
+     * Copy the current measures into the shared counters.
+     * <b>Must be called from the solver thread.</b>
+     */
+    public void publish() {
+        publish(true);
+    }
+
+    private void publish(boolean propagations) {
+        tick = 0;
+        measures.updateTimeCount();
+        if (propagations || read) {
+            read = false;
+            measures.updatePropagationCount();
+        }
+        long seq = cells.get(SEQ);
+        // an odd sequence number indicates that a publication is in progress
+        cells.lazySet(SEQ, seq + 1);
+        cells.lazySet(TIME, (long) (measures.getTimeCount() * 1000 * 1000));
+        cells.lazySet(SOLUTIONS, measures.getSolutionCount());
+        cells.lazySet(NODES, measures.getNodeCount());
+        cells.lazySet(BACKTRACKS, measures.getBackTrackCount());
+        cells.lazySet(FAILS, measures.getFailCount());
+        cells.lazySet(RESTARTS, measures.getRestartCount());
+        cells.lazySet(PROPAGATIONS, measures.getPropagationsCount());
+        cells.lazySet(EVENTS, measures.getEventsCount());
+        cells.lazySet(DEPTH, measures.getCurrentDepth());
+        cells.lazySet(MAX_DEPTH, measures.getMaxDepth());
+        boolean objective = measures.hasObjective();
+        double best = Double.NaN;
+        if (objective && measures.getSolutionCount() > 0) {
+            best = measures.getBestSolutionValue().doubleValue();
+        }
+        cells.lazySet(OBJECTIVE, objective ? 1 : 0);
+        cells.lazySet(BEST, Double.doubleToRawLongBits(best));
+        cells.lazySet(SEQ, seq + 2);
+    }
+
+    /**
+     * Return the last published measures.
+     * This method can be called from any thread, it does not lock and never slows down the solver.
+     *
+     * @return a consistent snapshot of the measures
+     */
+    public MeasuresSnapshot snapshot() {
+        read = true;
+        long seq;
+        MeasuresSnapshot snapshot;
+        do {
+            seq = cells.get(SEQ);
+            while ((seq & 1) != 0) {
+                Thread.yield();
+                seq = cells.get(SEQ);
+            }
+            snapshot = new MeasuresSnapshot(
+                    cells.get(TIME),
+                    cells.get(SOLUTIONS),
+                    cells.get(NODES),
+                    cells.get(BACKTRACKS),
+                    cells.get(FAILS),
+                    cells.get(RESTARTS),
+                    cells.get(PROPAGATIONS),
+                    cells.get(EVENTS),
+                    cells.get(DEPTH),
+                    cells.get(MAX_DEPTH),
+                    cells.get(OBJECTIVE) == 1,
+                    Double.longBitsToDouble(cells.get(BEST)));
+        } while (seq != cells.get(SEQ));
+        return snapshot;
+    }
+
+    private void tick() {
+        if (++tick >= batch) {
+            publish(false);
+        }
+    }
+
+    //****************************************************************************************************************//
+    //**************************************** JMX *******************************************************************//
+    //****************************************************************************************************************//
+
+    /**
+     * Register <code>this</code> in the platform MBean server,
+     * under the name <code>choco:type=Solver,name=&lt;solver name&gt;,id=&lt;unique id&gt;</code>.
+     */
+    public void register() {
+        if (name == null) {
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                name = new ObjectName("choco:type=Solver,name=" + ObjectName.quote(String.valueOf(solver.getName()))
+                        + ",id=" + System.identityHashCode(this));
+                server.registerMBean(this, name);
+            } catch (JMException e) {
+                name = null;
+                throw new SolverException("Unable to register the measures of " + solver.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Remove <code>this</code> from the platform MBean server, if it has been registered.
+     */
+    public void unregister() {
+        if (name != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            } catch (JMException e) {
+                throw new SolverException("Unable to unregister the measures of " + solver.getName() + ": " + e.getMessage());
+            } finally {
+                name = null;
+            }
+        }
+    }
+
+    /**
+     * @return the JMX name of <code>this</code>, <code>null</code> if not registered
+     */
+    public ObjectName getObjectName() {
+        return name;
+    }
+
+    @Override
+    public String getSolverName() {
+        return solver.getName();
+    }
+
+    @Override
+    public float getTimeCount() {
+        return snapshot().getTimeCount();
+    }
+
+    @Override
+    public long getSolutionCount() {
+        return snapshot().getSolutionCount();
+    }
+
+    @Override
+    public long getNodeCount() {
+        return snapshot().getNodeCount();
+    }
+
+    @Override
+    public long getBackTrackCount() {
+        return snapshot().getBackTrackCount();
+    }
+
+    @Override
+    public long getFailCount() {
+        return snapshot().getFailCount();
+    }
+
+    @Override
+    public long getRestartCount() {
+        return snapshot().getRestartCount();
+    }
+
+    @Override
+    public long getPropagationsCount() {
+        return snapshot().getPropagationsCount();
+    }
+
+    @Override
+    public long getEventsCount() {
+        return snapshot().getEventsCount();
+    }
+
+    @Override
+    public long getCurrentDepth() {
+        return snapshot().getCurrentDepth();
+    }
+
+    @Override
+    public long getMaxDepth() {
+        return snapshot().getMaxDepth();
+    }
+
+    @Override
+    public double getBestBound() {
+        return snapshot().getBestBound();
+    }
+
+    @Override
+    public double getNodesPerSecond() {
+        return snapshot().getNodesPerSecond();
+    }
+
+    @Override
+    public double getFailsPerSecond() {
+        return snapshot().getFailsPerSecond();
+    }
+
+    @Override
+    public double getPropagationsPerSecond() {
+        return snapshot().getPropagationsPerSecond();
+    }
+
+    //****************************************************************************************************************//
+    //**************************************** MONITORS **************************************************************//
+    //****************************************************************************************************************//
+
+    @Override
+    public void beforeInitialPropagation() {
+    }
+
+    @Override
+    public void afterInitialPropagation() {
+        publish();
+    }
+
+    @Override
+    public void beforeOpenNode() {
+        tick();
+    }
+
+    @Override
+    public void afterOpenNode() {
+    }
+
+    @Override
+    public void onContradiction(ContradictionException cex) {
+        tick();
+    }
+
+    @Override
+    public void onSolution() {
+        publish();
+    }
+
+    @Override
+    public void beforeRestart() {
+    }
+
+    @Override
+    public void afterRestart() {
+        tick();
+    }
+
+    @Override
+    public void beforeClose() {
+    }
+
+    @Override
+    public void afterClose() {
+        publish();
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.search.measure;
+
+import java.io.Serializable;
+
+/**
+ * An immutable and consistent copy of the search measures, at a given point of the resolution.
+ * <br/>
+ * Snapshots are produced by {@link LiveMeasures#snapshot()}, and can be safely read from any thread.
+ * All the values of a snapshot have been published together by the solver thread.
+ *
+ * @author agent
+ * @see LiveMeasures
+ * @since 19/10/26
+ */
+public final class MeasuresSnapshot implements Serializable {
+
+    private static final float IN_MS = 1000 * 1000f;
+
+    private static final float IN_SEC = 1000 * IN_MS;
+
+    private final long timeCount;
+
+    private final long solutionCount;
+
+    private final long nodeCount;
+
+    private final long backtrackCount;
+
+    private final long failCount;
+
+    private final long restartCount;
+
+    private final long propagationCount, eventCount;
+
+    private final long currentDepth, maxDepth;
+
+    private final boolean hasObjective;
+
+    private final double bestBound;
+
+    MeasuresSnapshot(long timeCount, long solutionCount, long nodeCount, long backtrackCount, long failCount,
+                     long restartCount, long propagationCount, long eventCount, long currentDepth, long maxDepth,
+                     boolean hasObjective, double bestBound) {
+        this.timeCount = timeCount;
+        this.solutionCount = solutionCount;
+        this.nodeCount = nodeCount;
+        this.backtrackCount = backtrackCount;
+        this.failCount = failCount;
+        this.restartCount = restartCount;
+        this.propagationCount = propagationCount;
+        this.eventCount = eventCount;
+        this.currentDepth = currentDepth;
+        this.maxDepth = maxDepth;
+        this.hasObjective = hasObjective;
+        this.bestBound = bestBound;
+    }
+
+    /**
+     * @return the time count in milliseconds, when the snapshot has been published
+     */
+    public float getTimeCount() {
+        return timeCount / IN_MS;
+    }
+
+    public long getSolutionCount() {
+        return solutionCount;
+    }
+
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    public long getBackTrackCount() {
+        return backtrackCount;
+    }
+
+    public long getFailCount() {
+        return failCount;
+    }
+
+    public long getRestartCount() {
+        return restartCount;
+    }
+
+    /**
+     * @return the number of coarse propagations
+     */
+    public long getPropagationsCount() {
+        return propagationCount;
+    }
+
+    /**
+     * @return the number of fine propagations
+     */
+    public long getEventsCount() {
+        return eventCount;
+    }
+
+    public long getCurrentDepth() {
+        return currentDepth;
+    }
+
+    public long getMaxDepth() {
+        return maxDepth;
+    }
+
+    public boolean hasObjective() {
+        return hasObjective;
+    }
+
+    /**
+     * @return the best objective value found so far, or <code>NaN</code> if there is no objective or no solution yet
+     */
+    public double getBestBound() {
+        return bestBound;
+    }
+
+    /**
+     * @return the average number of nodes per second since the beginning of the resolution
+     */
+    public double getNodesPerSecond() {
+        return rate(nodeCount);
+    }
+
+    /**
+     * @return the average number of fails per second since the beginning of the resolution
+     */
+    public double getFailsPerSecond() {
+        return rate(failCount);
+    }
+
+    /**
+     * @return the average number of propagations (fine and coarse) per second since the beginning of the resolution
+     */
+    public double getPropagationsPerSecond() {
+        return rate(propagationCount + eventCount);
+    }
+
+    private double rate(long count) {
+        return timeCount > 0 ? count * (double) IN_SEC / timeCount : 0d;
+    }
+
+    public String toOneShortLineString() {
+        StringBuilder st = new StringBuilder(256);
+        st.append(String.format("%d Solutions, ", solutionCount));
+        if (hasObjective && solutionCount > 0) {
+            st.append(String.format("Best %s, ", bestBound));
+        }
+        st.append(String.format("Time %.3fs, %d Nodes (%,.1f n/s), %d Backtracks, %d Fails (%,.1f f/s), %d Restarts, Depth %d",
+                timeCount / IN_SEC,
+                nodeCount,
+                getNodesPerSecond(),
+                backtrackCount,
+                failCount,
+                getFailsPerSecond(),
+                restartCount,
+                currentDepth));
+        return st.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toOneShortLineString();
+    }
+}
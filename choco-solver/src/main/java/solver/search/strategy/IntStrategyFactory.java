@@ -28,6 +28,10 @@
 package solver.search.strategy;
 
 import solver.Solver;
+import solver.explanations.strategies.LazyClauseGeneration;
+import solver.search.strategy.selectors.InValueIterator;
+import solver.search.strategy.selectors.VariableSelector;
+import solver.search.strategy.selectors.values.InDomainLast;
 import solver.search.strategy.selectors.values.InDomainMax;
 import solver.search.strategy.selectors.values.InDomainMiddle;
 import solver.search.strategy.selectors.values.InDomainMin;
@@ -109,6 +113,18 @@ public class IntStrategyFactory {
     }
 
 
+    /**
+     * Assignment strategy combining <code>VSIDS</code> and <code>InDomainMin</code>:
+     * the most active variable in the conflicts analysed by <code>LCG</code> is selected first.
+     *
+     * @param VARS list of variables
+     * @param LCG  a lazy clause generation policy, see {@link solver.explanations.ExplanationFactory#lcg(Solver)}
+     * @return assignment strategy
+     */
+    public static AbstractStrategy<IntVar> vsids_InDomainMin(IntVar[] VARS, LazyClauseGeneration LCG) {
+        return new Assignment(new VSIDS(VARS, LCG), new InDomainMin());
+    }
+
     /**
      * Assignment strategy combining <code>FirstFail</code> and <code>InDomainMiddle</code>
      *
@@ -161,6 +177,32 @@ public class IntStrategyFactory {
         return new Assignment(new DomOverWDeg(VARS, SEED), new InDomainMin());
     }
 
+    /**
+     * Assignment strategy combining <code>VARSELECTOR</code> and phase saving:
+     * a variable is first assigned to the last value it was given (by a decision, before a restart or in a solution),
+     * if it still belongs to its domain, otherwise to the value selected by <code>VALSELECTOR</code>.
+     *
+     * @param VARSELECTOR a variable selector
+     * @param VALSELECTOR a value selector, used when no value is remembered
+     * @return assignment strategy
+     */
+    public static AbstractStrategy<IntVar> phaseSaving(VariableSelector<IntVar> VARSELECTOR, InValueIterator VALSELECTOR) {
+        return new Assignment(VARSELECTOR, new InDomainLast(VARSELECTOR.getScope(), VALSELECTOR, true));
+    }
+
+    /**
+     * Assignment strategy combining <code>VARSELECTOR</code> and solution-guided value selection:
+     * a variable is first assigned to its value in the last solution found, if it still belongs to its domain,
+     * otherwise to the value selected by <code>VALSELECTOR</code>.
+     *
+     * @param VARSELECTOR a variable selector
+     * @param VALSELECTOR a value selector, used when no solution has been found yet
+     * @return assignment strategy
+     */
+    public static AbstractStrategy<IntVar> solutionGuided(VariableSelector<IntVar> VARSELECTOR, InValueIterator VALSELECTOR) {
+        return new Assignment(VARSELECTOR, new InDomainLast(VARSELECTOR.getScope(), VALSELECTOR, false));
+    }
+
     /**
      * Create an Activity based search strategy.
      * <p/>
@@ -107,6 +107,16 @@ public abstract class Decision<V extends Variable> implements Identity, ICause,
         return branch < 2;
     }
 
+    /**
+     * Return the branch currently explored: 1 when the decision is applied, 2 when it is refuted
+     * (0 while it is not built yet)
+     *
+     * @return the current branch
+     */
+    public int getBranch() {
+        return branch;
+    }
+
     /**
      * Build the refutation, hasNext() must be called before
      */
@@ -65,6 +65,10 @@ public class FastDecision extends Decision<IntVar> {
         }
     }
 
+    public DecisionOperator<IntVar> getDecOp() {
+        return assignment;
+    }
+
     public void set(IntVar v, int value, DecisionOperator<IntVar> assignment) {
         super.set(v);
         this.value = value;
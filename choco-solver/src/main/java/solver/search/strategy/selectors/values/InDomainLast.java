@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.search.strategy.selectors.values;
+
+import solver.Solver;
+import solver.search.loop.monitors.IMonitorRestart;
+import solver.search.loop.monitors.IMonitorSolution;
+import solver.search.strategy.selectors.InValueIterator;
+import solver.variables.IntVar;
+
+import java.util.Arrays;
+
+/**
+ * Assigns the value a variable was last given, if it still belongs to its domain,
+ * otherwise delegates the choice to another value selector.
+ * <br/>
+ * The remembered values are either:
+ * <ul>
+ * <li>the values of the last solution found (solution-guided search),</li>
+ * <li>or, with phase saving, the last value each variable was assigned to:
+ * by a decision, in the state preceding a restart, or in a solution.</li>
+ * </ul>
+ * The values survive restarts, and are stored in an array indexed by variable ID.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class InDomainLast implements InValueIterator, IMonitorSolution, IMonitorRestart {
+
+    final IntVar[] vars;
+    final InValueIterator fallback;
+    final boolean phaseSaving;
+    final int[] values; // remembered value, per variable ID
+    final boolean[] known; // is there a remembered value, per variable ID
+
+    /**
+     * Create a value selector which first tries the last value of a variable.
+     *
+     * @param vars        the variables to remember the values of
+     * @param fallback    value selector used when there is no remembered value, or when it has been removed
+     * @param phaseSaving set to <code>true</code> to remember the last value assigned to each variable,
+     *                    <code>false</code> to remember the last solution only
+     */
+    public InDomainLast(IntVar[] vars, InValueIterator fallback, boolean phaseSaving) {
+        this.vars = vars.clone();
+        this.fallback = fallback;
+        this.phaseSaving = phaseSaving;
+        int max = -1;
+        for (int i = 0; i < vars.length; i++) {
+            max = Math.max(max, vars[i].getId());
+        }
+        this.values = new int[max + 1];
+        this.known = new boolean[max + 1];
+        if (vars.length > 0) {
+            Solver solver = vars[0].getSolver();
+            solver.getSearchLoop().plugSearchMonitor(this);
+        }
+    }
+
+    @Override
+    public int selectValue(IntVar var) {
+        int id = var.getId();
+        int value;
+        if (id < known.length && known[id] && var.contains(values[id])) {
+            value = values[id];
+        } else {
+            value = fallback.selectValue(var);
+        }
+        if (phaseSaving && id < known.length) {
+            values[id] = value;
+            known[id] = true;
+        }
+        return value;
+    }
+
+    /**
+     * @param var a variable
+     * @return <code>true</code> if a value is remembered for <code>var</code>
+     */
+    public boolean hasValue(IntVar var) {
+        int id = var.getId();
+        return id < known.length && known[id];
+    }
+
+    /**
+     * @param var a variable
+     * @return the value remembered for <code>var</code>, see {@link #hasValue(solver.variables.IntVar)}
+     */
+    public int getValue(IntVar var) {
+        return values[var.getId()];
+    }
+
+    /**
+     * Forget the remembered values.
+     */
+    public void clear() {
+        Arrays.fill(known, false);
+    }
+
+    private void recordInstantiated() {
+        for (int i = 0; i < vars.length; i++) {
+            if (vars[i].instantiated()) {
+                int id = vars[i].getId();
+                values[id] = vars[i].getValue();
+                known[id] = true;
+            }
+        }
+    }
+
+    @Override
+    public void onSolution() {
+        recordInstantiated();
+    }
+
+    @Override
+    public void beforeRestart() {
+        if (phaseSaving) {
+            recordInstantiated();
+        }
+    }
+
+    @Override
+    public void afterRestart() {
+    }
+}
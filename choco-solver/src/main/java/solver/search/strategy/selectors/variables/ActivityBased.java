@@ -34,6 +34,7 @@ import gnu.trove.map.hash.TIntIntHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import solver.Solver;
+import solver.exception.ContradictionException;
 import solver.exception.SolverException;
 import solver.explanations.Deduction;
 import solver.explanations.Explanation;
@@ -51,8 +52,15 @@ import solver.variables.IntVar;
 import util.PoolManager;
 import util.iterators.DisposableValueIterator;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Implementation of the search described in:
@@ -70,6 +78,10 @@ public class ActivityBased extends AbstractStrategy<IntVar> implements IMonitorD
 
     static final double ONE = 1.0f;
 
+    static final int PROBES_PER_ROUND = 8; // number of probes run by each thread between two merges
+
+    static final int MAX_ROUNDS = 64; // maximum number of rounds of the parallel sampling phase
+
     static final double[] distribution = new double[]{// two-sided 95%
             999.99d,
             12.706f, 4.303f, 3.182f, 2.776f, 2.571f, // 1...5
@@ -139,6 +151,10 @@ public class ActivityBased extends AbstractStrategy<IntVar> implements IMonitorD
 
     java.util.Random random; //  a random object for the sampling phase
 
+    int nbThreads = 1; // number of threads used for the sampling phase
+
+    boolean solutionFound; // on a copy of the solver, does a probe reach a solution
+
     PoolManager<FastDecision> decisionPool;
 
     int currentVar = -1, currentVal = -1;
@@ -180,6 +196,21 @@ public class ActivityBased extends AbstractStrategy<IntVar> implements IMonitorD
 //        init(vars);
     }
 
+    /**
+     * Set the number of threads used for the sampling phase.
+     * Each thread runs random probes on its own copy of the solver, by rounds of {@link #PROBES_PER_ROUND} probes;
+     * after each round, the activities are merged and the sampling phase stops as soon as the estimation is
+     * precise enough.
+     * With one thread (default), the sampling phase is run by the search loop, with restarts.
+     *
+     * @param nbThreads number of threads
+     */
+    public void setInitThreads(int nbThreads) {
+        if (nbThreads > 0) {
+            this.nbThreads = nbThreads;
+        }
+    }
+
     @Override
     public void init() {
         for (int i = 0; i < vars.length; i++) {
@@ -191,6 +222,9 @@ public class ActivityBased extends AbstractStrategy<IntVar> implements IMonitorD
                 vAct[i] = new ArrayVal(ampl, vars[i].getLB());
             }
         }
+        if (nbThreads > 1 && sampling) {
+            parallelSampling();
+        }
     }
 
     @Override
@@ -360,44 +394,169 @@ public class ActivityBased extends AbstractStrategy<IntVar> implements IMonitorD
     @Override
     public void afterRestart() {
         if (sampling) {
-            nb_probes++;
-            for (int i = 0; i < A.length; i++) {
-                double activity = A[i];
-                double oldmA = mA[i];
-
-                double U = activity - oldmA;
-                mA[i] += (U / nb_probes);
-                sA[i] += (U * (activity - mA[i]));
-                A[i] = 0;
-                vAct[i].update(nb_probes);
-            }
-            // check if sampling is still required
-//            logger.info("<<<<START check");
-            int idx = 0;
-            while (idx < vars.length && checkInterval(idx)) {
-                idx++;
-//                logger.info("inc {}", idx);
-            }
-//            logger.info(">>>>END check");
+            updateStatistics();
             //BEWARE: when it fails very soon (after 1 node), it worths forcing sampling
-            if (nb_probes > samplingIterationForced && idx == vars.length) {
-                if (logger.isInfoEnabled()) {
-                    solver.getMeasures().updateTimeCount();
-                    //logger.info(">> STOP SAMPLING: {}", solver.getMeasures().toOneShortLineString());
-                    //logger.info(">> {}", Arrays.toString(mA));
+            if (isSamplingOver()) {
+                stopSampling();
+            }
+        }
+    }
+
+    /**
+     * Update the mean and the variance of the activities with the last probe.
+     */
+    private void updateStatistics() {
+        nb_probes++;
+        for (int i = 0; i < A.length; i++) {
+            double activity = A[i];
+            double oldmA = mA[i];
+
+            double U = activity - oldmA;
+            mA[i] += (U / nb_probes);
+            sA[i] += (U * (activity - mA[i]));
+            A[i] = 0;
+            vAct[i].update(nb_probes);
+        }
+    }
+
+    /**
+     * @return true if enough probes have been run, and the estimation of each activity is precise enough
+     */
+    private boolean isSamplingOver() {
+        // check if sampling is still required
+        int idx = 0;
+        while (idx < vars.length && checkInterval(idx)) {
+            idx++;
+        }
+        return nb_probes > samplingIterationForced && idx == vars.length;
+    }
+
+    /**
+     * End the sampling phase: estimated activities are used from now on, and restarts are geometrical.
+     */
+    private void stopSampling() {
+        if (logger.isInfoEnabled()) {
+            solver.getMeasures().updateTimeCount();
+            //logger.info(">> STOP SAMPLING: {}", solver.getMeasures().toOneShortLineString());
+            //logger.info(">> {}", Arrays.toString(mA));
+        }
+        sampling = false;
+        solver.getSearchLoop().restartAfterEachFail(false);
+        // then copy values estimated
+        System.arraycopy(mA, 0, A, 0, mA.length);
+        for (int i = 0; i < A.length; i++) {
+            vAct[i].transfer();
+        }
+//                solver.getSearchLoop().restartAfterEachSolution(false);
+        SearchMonitorFactory.geometrical(solver, 3 * vars.length, r,
+                new FailCounter(3 * vars.length), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Run the sampling phase with <code>nbThreads</code> workers, each of them on its own copy of the solver.
+     * If a probe reaches a solution, or if the estimation is not precise enough after {@link #MAX_ROUNDS} rounds,
+     * the sampling phase goes on in the search loop, starting from the merged activities.
+     */
+    private void parallelSampling() {
+        final byte[] image = ParallelInit.image(this);
+        if (image == null) {
+            return;
+        }
+        final long[] seeds = new long[nbThreads];
+        for (int w = 0; w < nbThreads; w++) {
+            seeds[w] = random.nextLong();
+        }
+        final ActivityBased[] copies = new ActivityBased[nbThreads];
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+        try {
+            boolean over = false;
+            for (int round = 0; round < MAX_ROUNDS && !over; round++) {
+                List<Callable<ActivityBased>> tasks = new ArrayList<Callable<ActivityBased>>(nbThreads);
+                for (int w = 0; w < nbThreads; w++) {
+                    final int k = w;
+                    tasks.add(new Callable<ActivityBased>() {
+                        @Override
+                        public ActivityBased call() {
+                            ActivityBased copy = copies[k];
+                            if (copy == null) {
+                                copy = (ActivityBased) ParallelInit.restore(image);
+                                copy.random = new java.util.Random(seeds[k]);
+                            }
+                            for (int p = 0; p < PROBES_PER_ROUND; p++) {
+                                copy.probe();
+                            }
+                            return copy;
+                        }
+                    });
                 }
-                sampling = false;
-                solver.getSearchLoop().restartAfterEachFail(false);
-                // then copy values estimated
-                System.arraycopy(mA, 0, A, 0, mA.length);
-                for (int i = 0; i < A.length; i++) {
-                    vAct[i].transfer();
+                List<ActivityBased> results = ParallelInit.invokeAll(executor, tasks);
+                boolean solution = false;
+                for (int w = 0; w < nbThreads; w++) {
+                    copies[w] = results.get(w);
+                    solution |= copies[w].solutionFound;
                 }
-//                solver.getSearchLoop().restartAfterEachSolution(false);
-                SearchMonitorFactory.geometrical(solver, 3 * vars.length, r,
-                        new FailCounter(3 * vars.length), Integer.MAX_VALUE);
+                merge(copies);
+                over = solution || isSamplingOver();
+                if (over && !solution) {
+                    stopSampling();
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Run a probe on the solver: variables are assigned, as in the sampling phase of the search loop,
+     * until a failure or a solution is reached, then the statistics are updated and the state is restored.
+     */
+    private void probe() {
+        solver.getEnvironment().worldPush();
+        try {
+            Decision<IntVar> decision = getDecision();
+            while (decision != null) {
+                beforeDownLeftBranch();
+                decision.buildNext();
+                try {
+                    decision.apply();
+                    solver.getEngine().propagate();
+                } finally {
+                    afterDownLeftBranch();
+                    decision.free();
+                }
+                decision = getDecision();
+            }
+            solutionFound = true;
+        } catch (ContradictionException e) {
+            solver.getEngine().flush();
+        }
+        solver.getEnvironment().worldPop();
+        updateStatistics();
+    }
 
+    /**
+     * Set the statistics to the ones of the probes run on <code>copies</code>:
+     * means and variances are combined, weighted by the number of probes.
+     *
+     * @param copies strategies run on copies of the solver
+     */
+    private void merge(ActivityBased[] copies) {
+        nb_probes = 0;
+        for (int i = 0; i < vars.length; i++) {
+            mA[i] = 0;
+            sA[i] = 0;
+            vAct[i].reset();
+        }
+        for (int w = 0; w < copies.length; w++) {
+            ActivityBased copy = copies[w];
+            int n = nb_probes + copy.nb_probes;
+            for (int i = 0; i < vars.length; i++) {
+                double delta = copy.mA[i] - mA[i];
+                mA[i] += delta * copy.nb_probes / n;
+                sA[i] += copy.sA[i] + delta * delta * nb_probes * copy.nb_probes / n;
+                vAct[i].merge(copy.vAct[i], (double) copy.nb_probes / n);
             }
+            nb_probes = n;
         }
     }
 
@@ -419,7 +578,7 @@ public class ActivityBased extends AbstractStrategy<IntVar> implements IMonitorD
 
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
-    private static interface IVal {
+    private static interface IVal extends Serializable {
 
         double activity(int value);
 
@@ -428,6 +587,13 @@ public class ActivityBased extends AbstractStrategy<IntVar> implements IMonitorD
         void update(int nb_probes);
 
         void transfer();
+
+        void reset();
+
+        /**
+         * Add the activities of <code>other</code>, the mean is weighted by <code>w</code>.
+         */
+        void merge(IVal other, double w);
     }
 
     private static final class ArrayVal implements IVal {
@@ -470,6 +636,21 @@ public class ActivityBased extends AbstractStrategy<IntVar> implements IMonitorD
         public void transfer() {
             System.arraycopy(mAv, 0, Av, 0, size);
         }
+
+        @Override
+        public void reset() {
+            Arrays.fill(Av, 0);
+            Arrays.fill(mAv, 0);
+        }
+
+        @Override
+        public void merge(IVal other, double w) {
+            ArrayVal o = (ArrayVal) other;
+            for (int j = 0; j < size; j++) {
+                Av[j] += o.Av[j];
+                mAv[j] += w * (o.mAv[j] - mAv[j]);
+            }
+        }
     }
 
     private static final class MapVal implements IVal {
@@ -512,6 +693,29 @@ public class ActivityBased extends AbstractStrategy<IntVar> implements IMonitorD
             Av.clear();
             Av.putAll(mAv);
         }
+
+        @Override
+        public void reset() {
+            Av.clear();
+            mAv.clear();
+        }
+
+        @Override
+        public void merge(IVal other, double w) {
+            MapVal o = (MapVal) other;
+            int[] keys = o.Av.keys();
+            for (int j = 0; j < keys.length; j++) {
+                Av.adjustOrPutValue(keys[j], o.Av.get(keys[j]), o.Av.get(keys[j]));
+            }
+            keys = mAv.keys();
+            for (int j = 0; j < keys.length; j++) {
+                mAv.put(keys[j], (1 - w) * mAv.get(keys[j]));
+            }
+            keys = o.mAv.keys();
+            for (int j = 0; j < keys.length; j++) {
+                mAv.adjustOrPutValue(keys[j], w * o.mAv.get(keys[j]), w * o.mAv.get(keys[j]));
+            }
+        }
     }
 
 }
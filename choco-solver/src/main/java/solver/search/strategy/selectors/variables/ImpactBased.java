@@ -47,7 +47,12 @@ import solver.variables.Variable;
 import util.PoolManager;
 import util.iterators.DisposableValueIterator;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Implementation of the search described in:
@@ -89,6 +94,10 @@ public class ImpactBased extends AbstractStrategy<IntVar> implements IMonitorDow
 
     protected long timeLimit = Integer.MAX_VALUE; // a time limit for init()
 
+    protected int nbThreads = 1; // number of threads used by init()
+
+    TIntArrayList removals; // on a copy of the solver, pairs (variable index, value) removed by init()
+
     /**
      * Create an Impact-based search strategy with Node Impact strategy.
      * <p/>
@@ -194,6 +203,20 @@ public class ImpactBased extends AbstractStrategy<IntVar> implements IMonitorDow
         }
     }
 
+    /**
+     * Set the number of threads used to compute the impacts on initialisation.
+     * Each thread probes a part of the variables on its own copy of the solver, then the impacts are merged
+     * and the values detected as inconsistent are removed from the domains.
+     * With one thread (default), the impacts are computed on the solver itself.
+     *
+     * @param nbThreads number of threads
+     */
+    public void setInitThreads(int nbThreads) {
+        if (nbThreads > 0) {
+            this.nbThreads = nbThreads;
+        }
+    }
+
     @Override
     public void init() throws ContradictionException {
         long tl = System.currentTimeMillis() + this.timeLimit;
@@ -204,57 +227,10 @@ public class ImpactBased extends AbstractStrategy<IntVar> implements IMonitorDow
         double before = searchSpaceSize();
         searchSpaceSize.set(before);
         learnsAndFails = false;
-        loop:
-        for (int i = 0; i < vars.length; i++) {
-            IntVar v = vars[i];
-            int offset = v.getLB();
-            int UB = v.getUB();
-            int dsz = UB - offset + 1;//v.getDomainSize();
-            if (!v.instantiated()) { // if the variable is not instantiated
-                Ilabel[i] = new double[v.hasEnumeratedDomain() ? dsz : 1];
-                offsets[i] = offset;
-
-                if (v.hasEnumeratedDomain()) {
-                    if (v.getDomainSize() < split) { // try each value
-                        DisposableValueIterator it = v.getValueIterator(true);
-                        while (it.hasNext()) {
-                            if (System.currentTimeMillis() > tl) {
-                                break loop;
-                            }
-                            int a = it.next();
-                            double im = computeImpact(v, a, before);
-                            Ilabel[i][a - offset] = im;
-                        }
-                        it.dispose();
-                    } else { // estimate per subdomains
-                        int step = 0;
-                        int size = dsz / split;
-                        DisposableValueIterator it = v.getValueIterator(true);
-                        while (it.hasNext()) {
-                            if (System.currentTimeMillis() > tl) {
-                                break loop;
-                            }
-                            int a = it.next();
-                            double im;
-                            if (step % size == 0) {
-                                im = computeImpact(v, a, before);
-                            } else {
-                                im = Ilabel[i][a - 1 - offset];
-                            }
-                            Ilabel[i][a - offset] = im;
-                            step++;
-                        }
-                        it.dispose();
-                    }
-                } else {
-                    if (System.currentTimeMillis() > tl) {
-                        break;
-                    }
-                    // A. choose 3 values in the domain to have an estimation of the impact
-                    double i1 = computeImpact(v, v.getLB(), before);
-                    double i2 = computeImpact(v, v.getUB(), before);
-                    double i3 = computeImpact(v, (v.getLB() + v.getUB()) / 2, before);
-                    Ilabel[i][0] = (i1 + i2 + i3) / 3d;
+        if (nbThreads == 1 || vars.length == 1 || !parallelInit(before, tl)) {
+            for (int i = 0; i < vars.length; i++) {
+                if (!initImpacts(i, before, tl)) {
+                    break;
                 }
             }
         }
@@ -278,6 +254,132 @@ public class ImpactBased extends AbstractStrategy<IntVar> implements IMonitorDow
     }
 
 
+    /**
+     * Estimate the impacts of the assignments of the variable <code>i</code>.
+     *
+     * @param i      index of the variable
+     * @param before search space size before the assignments
+     * @param tl     time limit of the initialisation
+     * @return false if the time limit has been reached
+     */
+    private boolean initImpacts(int i, double before, long tl) {
+        IntVar v = vars[i];
+        int offset = v.getLB();
+        int UB = v.getUB();
+        int dsz = UB - offset + 1;//v.getDomainSize();
+        if (!v.instantiated()) { // if the variable is not instantiated
+            Ilabel[i] = new double[v.hasEnumeratedDomain() ? dsz : 1];
+            offsets[i] = offset;
+
+            if (v.hasEnumeratedDomain()) {
+                if (v.getDomainSize() < split) { // try each value
+                    DisposableValueIterator it = v.getValueIterator(true);
+                    while (it.hasNext()) {
+                        if (System.currentTimeMillis() > tl) {
+                            return false;
+                        }
+                        int a = it.next();
+                        double im = computeImpact(i, a, before);
+                        Ilabel[i][a - offset] = im;
+                    }
+                    it.dispose();
+                } else { // estimate per subdomains
+                    int step = 0;
+                    int size = dsz / split;
+                    DisposableValueIterator it = v.getValueIterator(true);
+                    while (it.hasNext()) {
+                        if (System.currentTimeMillis() > tl) {
+                            return false;
+                        }
+                        int a = it.next();
+                        double im;
+                        if (step % size == 0) {
+                            im = computeImpact(i, a, before);
+                        } else {
+                            im = Ilabel[i][a - 1 - offset];
+                        }
+                        Ilabel[i][a - offset] = im;
+                        step++;
+                    }
+                    it.dispose();
+                }
+            } else {
+                if (System.currentTimeMillis() > tl) {
+                    return false;
+                }
+                // A. choose 3 values in the domain to have an estimation of the impact
+                double i1 = computeImpact(i, v.getLB(), before);
+                double i2 = computeImpact(i, v.getUB(), before);
+                double i3 = computeImpact(i, (v.getLB() + v.getUB()) / 2, before);
+                Ilabel[i][0] = (i1 + i2 + i3) / 3d;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Estimate the impacts with <code>nbThreads</code> workers, each of them probing the variables
+     * <code>w, w + nbThreads, w + 2*nbThreads, ...</code> on its own copy of the solver.
+     * The impacts are then copied back, and the values which lead to a failure on a copy are removed.
+     *
+     * @param before search space size before the assignments
+     * @param tl     time limit of the initialisation
+     * @return false if the solver can not be copied, nothing has been done then
+     */
+    private boolean parallelInit(final double before, final long tl) {
+        final byte[] image = ParallelInit.image(this);
+        if (image == null) {
+            return false;
+        }
+        final int n = Math.min(nbThreads, vars.length);
+        List<Callable<ImpactBased>> tasks = new ArrayList<Callable<ImpactBased>>(n);
+        for (int w = 0; w < n; w++) {
+            final int first = w;
+            tasks.add(new Callable<ImpactBased>() {
+                @Override
+                public ImpactBased call() {
+                    ImpactBased copy = (ImpactBased) ParallelInit.restore(image);
+                    copy.removals = new TIntArrayList();
+                    for (int i = first; i < copy.vars.length; i += n) {
+                        if (!copy.initImpacts(i, before, tl)) {
+                            break;
+                        }
+                    }
+                    return copy;
+                }
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(n);
+        List<ImpactBased> copies;
+        try {
+            copies = ParallelInit.invokeAll(executor, tasks);
+        } finally {
+            executor.shutdown();
+        }
+        for (int w = 0; w < n; w++) {
+            ImpactBased copy = copies.get(w);
+            for (int i = w; i < vars.length; i += n) {
+                Ilabel[i] = copy.Ilabel[i];
+                offsets[i] = copy.offsets[i];
+            }
+        }
+        // values removed by the workers are removed from the solver itself
+        try {
+            for (int w = 0; w < n; w++) {
+                TIntArrayList rem = copies.get(w).removals;
+                for (int k = 0; k < rem.size(); k += 2) {
+                    lAfVar = vars[rem.getQuick(k)];
+                    lAfVar.removeValue(rem.getQuick(k + 1), this);
+                }
+            }
+            solver.getEngine().propagate();
+        } catch (ContradictionException e) {
+            learnsAndFails = true;
+            solver.getEngine().flush();
+        }
+        return true;
+    }
+
     @Override
     public void beforeDownLeftBranch() {
     }
@@ -338,12 +440,13 @@ public class ImpactBased extends AbstractStrategy<IntVar> implements IMonitorDow
     /**
      * Compute the impact of an <b>assignment</b>
      *
-     * @param v      the variable
+     * @param idx    index of the variable
      * @param a      the value
      * @param before search space size before the assignment
      * @return the impact I(v = a)
      */
-    private double computeImpact(IntVar v, int a, double before) {
+    private double computeImpact(int idx, int a, double before) {
+        IntVar v = vars[idx];
         solver.getEnvironment().worldPush();
         double after;
         try {
@@ -356,6 +459,10 @@ public class ImpactBased extends AbstractStrategy<IntVar> implements IMonitorDow
             solver.getEngine().flush();
             solver.getEnvironment().worldPop();
             // if the value leads to fail, then the value can be removed from the domain
+            if (removals != null) {
+                removals.add(idx);
+                removals.add(a);
+            }
             try {
                 v.removeValue(a, this);
                 solver.getEngine().propagate();
@@ -414,7 +521,7 @@ public class ImpactBased extends AbstractStrategy<IntVar> implements IMonitorDow
                             DisposableValueIterator it = v.getValueIterator(true);
                             while (it.hasNext()) {
                                 int a = it.next();
-                                double im = computeImpact(v, a, before);
+                                double im = computeImpact(i, a, before);
                                 updateImpact(im, i, a);
                             }
                             it.dispose();
@@ -426,7 +533,7 @@ public class ImpactBased extends AbstractStrategy<IntVar> implements IMonitorDow
                                 int a = it.next();
                                 double im;
                                 if (step % size == 0) {
-                                    im = computeImpact(v, a, before);
+                                    im = computeImpact(i, a, before);
                                 } else {
                                     im = Ilabel[i][a - 1 - offset];
                                 }
@@ -437,9 +544,9 @@ public class ImpactBased extends AbstractStrategy<IntVar> implements IMonitorDow
                         }
                     } else {
                         // A. choose 3 values in the domain to have an estimation of the impact
-                        double i1 = computeImpact(v, v.getLB(), before);
-                        double i2 = computeImpact(v, v.getUB(), before);
-                        double i3 = computeImpact(v, (v.getLB() + v.getUB()) / 2, before);
+                        double i1 = computeImpact(i, v.getLB(), before);
+                        double i2 = computeImpact(i, v.getUB(), before);
+                        double i3 = computeImpact(i, (v.getLB() + v.getUB()) / 2, before);
                         updateImpact((i1 + i2 + i3) / 3d, i, 0);
                     }
                 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.search.strategy.selectors.variables;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import solver.exception.SolverException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Utilities to run the initialisation phase of a black-box strategy on copies of the solver.
+ * <br/>
+ * A strategy is serialized once, together with the solver it refers to, then each worker thread
+ * restores its own copy and works on it, independently of the others.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+final class ParallelInit {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("solver");
+
+    private ParallelInit() {
+    }
+
+    /**
+     * Serialize <code>strategy</code>, and the whole object graph it refers to.
+     *
+     * @param strategy a strategy
+     * @return the serialized strategy, or <code>null</code> if one of the objects can not be serialized
+     */
+    static byte[] image(Object strategy) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try {
+            ObjectOutputStream out = new ObjectOutputStream(baos);
+            out.writeObject(strategy);
+            out.close();
+            return baos.toByteArray();
+        } catch (IOException e) {
+            LOGGER.debug("parallel initialisation is not available: {}", e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Restore a copy of a strategy from its image.
+     *
+     * @param image a serialized strategy
+     * @return a new copy of the strategy
+     */
+    static Object restore(byte[] image) {
+        try {
+            ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(image));
+            return in.readObject();
+        } catch (IOException e) {
+            throw new SolverException("ParallelInit: unable to restore a copy of the strategy, " + e);
+        } catch (ClassNotFoundException e) {
+            throw new SolverException("ParallelInit: unable to restore a copy of the strategy, " + e);
+        }
+    }
+
+    /**
+     * Execute <code>tasks</code> and wait for their results.
+     *
+     * @param executor the executor of the tasks
+     * @param tasks    tasks to execute
+     * @param <T>      type of the results
+     * @return results of the tasks, in the same order
+     */
+    static <T> List<T> invokeAll(ExecutorService executor, List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<T>(tasks.size());
+        try {
+            List<Future<T>> futures = executor.invokeAll(tasks);
+            for (int i = 0; i < futures.size(); i++) {
+                results.add(futures.get(i).get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SolverException("ParallelInit: interrupted while waiting for the workers");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new SolverException("ParallelInit: a worker failed, " + e.getCause());
+        }
+        return results;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.search.strategy.selectors.variables;
+
+import solver.explanations.strategies.LazyClauseGeneration;
+import solver.search.strategy.selectors.VariableSelector;
+import solver.variables.IntVar;
+
+/**
+ * <b>VSIDS</b> variable selector.
+ * It chooses the non-instantiated variable with the highest activity, as computed by a lazy clause generation
+ * policy: the more recently and frequently a variable is involved in conflicts, the more active it is.
+ * Ties are broken by the order of the variables.
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class VSIDS implements VariableSelector<IntVar> {
+
+    /* list of variables */
+    IntVar[] variables;
+
+    final LazyClauseGeneration lcg;
+
+    /* index of the most active variable */
+    int best_idx;
+
+    public VSIDS(IntVar[] variables, LazyClauseGeneration lcg) {
+        this.variables = variables.clone();
+        this.lcg = lcg;
+    }
+
+    @Override
+    public IntVar[] getScope() {
+        return variables;
+    }
+
+    @Override
+    public boolean hasNext() {
+        int idx = 0;
+        for (; idx < variables.length && variables[idx].instantiated(); idx++) {
+        }
+        return idx < variables.length;
+    }
+
+    @Override
+    public void advance() {
+        double best = -1;
+        for (int idx = 0; idx < variables.length; idx++) {
+            if (!variables[idx].instantiated()) {
+                double a = lcg.getActivity(variables[idx]);
+                if (a > best) {
+                    best = a;
+                    best_idx = idx;
+                }
+            }
+        }
+    }
+
+    @Override
+    public IntVar getVariable() {
+        return variables[best_idx];
+    }
+}
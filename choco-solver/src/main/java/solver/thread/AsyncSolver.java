@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.thread;
+
+import solver.ResolutionPolicy;
+import solver.Solver;
+import solver.exception.SolverException;
+import solver.variables.IntVar;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs resolutions asynchronously on an executor.
+ * <br/>
+ * Each call submits one resolution and returns a {@link SolveFuture} giving access to the final {@link SolveResult},
+ * to the {@link CancelToken} polled by the search loop and, optionally, to a bounded {@link SolutionStream}.
+ * Many resolutions can run concurrently, as long as each one works on its own {@link Solver}:
+ * once submitted, a solver belongs to the executor thread and must not be read before the future completes.
+ * <br/>
+ * The token and the solution stream are plugged as search monitors during the resolution, and unplugged once it is over.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class AsyncSolver {
+
+    private final ExecutorService executor;
+
+    private final int streamCapacity;
+
+    /**
+     * Creates an asynchronous solver submitting resolutions to <code>executor</code>, without solution streams.
+     *
+     * @param executor the executor running the resolutions
+     */
+    public AsyncSolver(ExecutorService executor) {
+        this(executor, 0);
+    }
+
+    /**
+     * Creates an asynchronous solver submitting resolutions to <code>executor</code>.
+     * If <code>streamCapacity</code> is positive, each resolution publishes its solutions in a {@link SolutionStream}
+     * of that capacity, which must then be consumed: a full stream blocks the search.
+     *
+     * @param executor       the executor running the resolutions
+     * @param streamCapacity capacity of the solution streams, 0 to disable them
+     */
+    public AsyncSolver(ExecutorService executor, int streamCapacity) {
+        if (streamCapacity < 0) {
+            throw new IllegalArgumentException("streamCapacity must be non-negative");
+        }
+        this.executor = executor;
+        this.streamCapacity = streamCapacity;
+    }
+
+    /**
+     * Submits {@link Solver#findSolution()}.
+     */
+    public SolveFuture findSolution(Solver solver, CancelToken token) {
+        return submit(solver, token, ResolutionPolicy.SATISFACTION, null, true);
+    }
+
+    /**
+     * Submits {@link Solver#findAllSolutions()}.
+     */
+    public SolveFuture findAllSolutions(Solver solver, CancelToken token) {
+        return submit(solver, token, ResolutionPolicy.SATISFACTION, null, false);
+    }
+
+    /**
+     * Submits {@link Solver#findOptimalSolution(ResolutionPolicy, IntVar)}.
+     */
+    public SolveFuture findOptimalSolution(Solver solver, CancelToken token, ResolutionPolicy policy, IntVar objective) {
+        if (policy == ResolutionPolicy.SATISFACTION) {
+            throw new SolverException("AsyncSolver.findOptimalSolution(...) can not be called with ResolutionPolicy.SATISFACTION.");
+        }
+        if (objective == null) {
+            throw new SolverException("No objective variable has been defined");
+        }
+        return submit(solver, token, policy, objective, false);
+    }
+
+    private SolveFuture submit(Solver solver, CancelToken token, ResolutionPolicy policy, IntVar objective,
+                               boolean stopAtFirst) {
+        CancelMonitor monitor = new CancelMonitor(solver, token);
+        SolutionStream stream = streamCapacity > 0 ? new SolutionStream(solver, token, streamCapacity) : null;
+        SolveFuture future = new SolveFuture(new Resolution(solver, token, monitor, stream, policy, objective, stopAtFirst),
+                token, stream);
+        executor.execute(future);
+        return future;
+    }
+
+    /**
+     * The resolution itself, run in the executor thread.
+     */
+    private static final class Resolution implements Callable<SolveResult> {
+
+        private final Solver solver;
+        private final CancelToken token;
+        private final CancelMonitor monitor;
+        private final SolutionStream stream;
+        private final ResolutionPolicy policy;
+        private final IntVar objective;
+        private final boolean stopAtFirst;
+
+        Resolution(Solver solver, CancelToken token, CancelMonitor monitor, SolutionStream stream,
+                   ResolutionPolicy policy, IntVar objective, boolean stopAtFirst) {
+            this.solver = solver;
+            this.token = token;
+            this.monitor = monitor;
+            this.stream = stream;
+            this.policy = policy;
+            this.objective = objective;
+            this.stopAtFirst = stopAtFirst;
+        }
+
+        @Override
+        public SolveResult call() {
+            try {
+                if (token.isStopRequested()) { // stopped while waiting in the executor queue
+                    return new SolveResult(solver, stopStatus());
+                }
+                solver.getSearchLoop().plugSearchMonitor(monitor);
+                if (stream != null) {
+                    solver.getSearchLoop().plugSearchMonitor(stream);
+                }
+                if (policy != ResolutionPolicy.SATISFACTION) {
+                    solver.findOptimalSolution(policy, objective);
+                } else if (stopAtFirst) {
+                    solver.findSolution();
+                } else {
+                    solver.findAllSolutions();
+                }
+                SolveResult.Status status;
+                if (monitor.hasInterrupted()) {
+                    status = stopStatus();
+                } else if (solver.hasReachedLimit()) {
+                    status = SolveResult.Status.LIMIT;
+                } else {
+                    status = SolveResult.Status.COMPLETE;
+                }
+                return new SolveResult(solver, status);
+            } finally {
+                solver.getSearchLoop().unplugSearchMonitor(monitor);
+                if (stream != null) {
+                    solver.getSearchLoop().unplugSearchMonitor(stream);
+                    stream.close();
+                }
+            }
+        }
+
+        private SolveResult.Status stopStatus() {
+            return token.hasExpired() ? SolveResult.Status.EXPIRED : SolveResult.Status.CANCELLED;
+        }
+    }
+}
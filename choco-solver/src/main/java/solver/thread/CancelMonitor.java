@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.thread;
+
+import solver.Solver;
+import solver.search.loop.monitors.IMonitorOpenNode;
+
+/**
+ * A search monitor which polls a {@link CancelToken} before opening a node,
+ * and interrupts the search loop, as a limit would do, once the token is stopped.
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class CancelMonitor implements IMonitorOpenNode {
+
+    private final Solver solver;
+
+    private final CancelToken token;
+
+    private boolean interrupted;
+
+    public CancelMonitor(Solver solver, CancelToken token) {
+        this.solver = solver;
+        this.token = token;
+    }
+
+    @Override
+    public void beforeOpenNode() {
+        if (!interrupted && token.isStopRequested()) {
+            interrupted = true;
+            solver.getSearchLoop().reachLimit();
+        }
+    }
+
+    @Override
+    public void afterOpenNode() {
+    }
+
+    /**
+     * @return <code>true</code> if the search loop has been interrupted by this monitor
+     */
+    public boolean hasInterrupted() {
+        return interrupted;
+    }
+}
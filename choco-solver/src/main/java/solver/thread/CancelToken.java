@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.thread;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread-safe token to stop a resolution cooperatively.
+ * <br/>
+ * The token is stopped either explicitly, by calling {@link #cancel()} from any thread,
+ * or implicitly, once its deadline (if any) is over.
+ * The search loop polls the token at node boundaries, through a {@link CancelMonitor},
+ * and interrupts itself as soon as the token is stopped.
+ * <br/>
+ * The deadline is set on creation, so the time a request waits in the executor queue counts against it.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public final class CancelToken {
+
+    private static final int ACTIVE = 0, CANCELLED = 1, EXPIRED = 2;
+
+    private final AtomicInteger state = new AtomicInteger(ACTIVE);
+
+    private final boolean hasDeadline;
+
+    private final long deadline; // in ns, compared to System.nanoTime()
+
+    /**
+     * Creates a token with no deadline: it can only be stopped with {@link #cancel()}.
+     */
+    public CancelToken() {
+        this.hasDeadline = false;
+        this.deadline = 0;
+    }
+
+    /**
+     * Creates a token which expires <code>timeout</code> after its creation.
+     *
+     * @param timeout the maximum duration allowed
+     * @param unit    the unit of <code>timeout</code>
+     */
+    public CancelToken(long timeout, TimeUnit unit) {
+        this.hasDeadline = true;
+        this.deadline = System.nanoTime() + unit.toNanos(timeout);
+    }
+
+    /**
+     * Requests the resolution to stop.
+     *
+     * @return <code>true</code> if this call stopped the token, <code>false</code> if it was already stopped
+     */
+    public boolean cancel() {
+        return state.compareAndSet(ACTIVE, CANCELLED);
+    }
+
+    /**
+     * Checks whether the resolution should stop, that is, the token has been cancelled or its deadline is over.
+     * Cheap enough to be called on each node of the search tree.
+     *
+     * @return <code>true</code> if the resolution should stop
+     */
+    public boolean isStopRequested() {
+        if (state.get() != ACTIVE) {
+            return true;
+        }
+        if (hasDeadline && System.nanoTime() - deadline >= 0) {
+            state.compareAndSet(ACTIVE, EXPIRED);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return <code>true</code> if the token has been stopped by a call to {@link #cancel()}
+     */
+    public boolean isCancelled() {
+        return state.get() == CANCELLED;
+    }
+
+    /**
+     * @return <code>true</code> if the token has been stopped because its deadline is over
+     */
+    public boolean hasExpired() {
+        return state.get() == EXPIRED;
+    }
+}
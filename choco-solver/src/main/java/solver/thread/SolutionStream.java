@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.thread;
+
+import solver.Solver;
+import solver.search.loop.monitors.IMonitorSolution;
+import solver.search.solution.Solution;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded stream of the solutions found by a resolution running in another thread.
+ * <br/>
+ * Solutions are delivered in the order they are found, which, when optimizing, is the order of improving objective values.
+ * The stream applies backpressure: once <code>capacity</code> solutions are waiting to be consumed,
+ * the search thread blocks on the next solution until the consumer takes one, or until the {@link CancelToken} is stopped
+ * (in which case the solution is dropped).
+ * <br/>
+ * The end of the stream is signaled by {@link #take()} returning <code>null</code>.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class SolutionStream implements IMonitorSolution {
+
+    private static final Object END = new Object();
+
+    private static final long POLL_MS = 10;
+
+    private final Solver solver;
+
+    private final CancelToken token;
+
+    private final Semaphore permits;
+
+    private final BlockingQueue<Object> queue;
+
+    /**
+     * Creates a stream recording the solutions of <code>solver</code>.
+     *
+     * @param solver   the solver to listen to
+     * @param token    the token which unblocks the search thread when the resolution is stopped
+     * @param capacity maximum number of solutions not consumed yet
+     */
+    public SolutionStream(Solver solver, CancelToken token, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.solver = solver;
+        this.token = token;
+        this.permits = new Semaphore(capacity);
+        this.queue = new LinkedBlockingQueue<Object>();
+    }
+
+    @Override
+    public void onSolution() {
+        try {
+            while (!permits.tryAcquire(POLL_MS, TimeUnit.MILLISECONDS)) {
+                if (token.isStopRequested()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            token.cancel();
+            Thread.currentThread().interrupt();
+            return;
+        }
+        Solution solution = new Solution();
+        solution.record(solver);
+        queue.add(solution);
+    }
+
+    /**
+     * Signals the end of the stream. Called by the search thread once the resolution is over.
+     */
+    void close() {
+        queue.add(END);
+    }
+
+    /**
+     * Waits for the next solution.
+     *
+     * @return the next solution, or <code>null</code> if the resolution is over and all solutions have been consumed
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public Solution take() throws InterruptedException {
+        return unwrap(queue.take());
+    }
+
+    /**
+     * Waits, at most <code>timeout</code>, for the next solution.
+     *
+     * @param timeout maximum time to wait
+     * @param unit    the unit of <code>timeout</code>
+     * @return the next solution, or <code>null</code> if the resolution is over and all solutions have been consumed,
+     *         or if no solution came in time (see {@link #isOver()} to distinguish both cases)
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public Solution poll(long timeout, TimeUnit unit) throws InterruptedException {
+        Object o = queue.poll(timeout, unit);
+        return o == null ? null : unwrap(o);
+    }
+
+    /**
+     * @return <code>true</code> if the resolution is over and all solutions have been consumed
+     */
+    public boolean isOver() {
+        return queue.peek() == END;
+    }
+
+    private Solution unwrap(Object o) {
+        if (o == END) {
+            queue.add(END); // leave the marker for further calls
+            return null;
+        }
+        permits.release();
+        return (Solution) o;
+    }
+}
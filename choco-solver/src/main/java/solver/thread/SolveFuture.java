@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.thread;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+/**
+ * The pending result of a resolution submitted to an {@link AsyncSolver}.
+ * <br/>
+ * Cancelling the future stops its {@link CancelToken}: the resolution ends at the next node
+ * and {@link #get()} returns a {@link SolveResult} with status {@link SolveResult.Status#CANCELLED}
+ * and the final measures, instead of throwing a <code>CancellationException</code>.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class SolveFuture extends FutureTask<SolveResult> {
+
+    private final CancelToken token;
+
+    private final SolutionStream stream;
+
+    SolveFuture(Callable<SolveResult> callable, CancelToken token, SolutionStream stream) {
+        super(callable);
+        this.token = token;
+        this.stream = stream;
+    }
+
+    /**
+     * Stops the token of the resolution, the search thread is never interrupted.
+     *
+     * @param mayInterruptIfRunning ignored, the search loop stops cooperatively
+     * @return <code>false</code> if the resolution is already over or stopped
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return !isDone() && token.cancel();
+    }
+
+    /**
+     * @return the token polled by the search loop of this resolution
+     */
+    public CancelToken getToken() {
+        return token;
+    }
+
+    /**
+     * @return the stream of solutions found, <code>null</code> if the resolution was submitted without one
+     */
+    public SolutionStream getSolutions() {
+        return stream;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.thread;
+
+import solver.Solver;
+import solver.search.measure.IMeasures;
+import util.ESat;
+
+/**
+ * An immutable snapshot of the outcome of a resolution: why it stopped, the feasibility status and the search measures.
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public final class SolveResult {
+
+    /**
+     * Why a resolution stopped.
+     */
+    public enum Status {
+        /**
+         * The search space has been fully explored (or the first solution found, when only one is required).
+         */
+        COMPLETE,
+        /**
+         * A limit declared on the solver has been reached.
+         */
+        LIMIT,
+        /**
+         * The {@link CancelToken} has been cancelled.
+         */
+        CANCELLED,
+        /**
+         * The deadline of the {@link CancelToken} is over.
+         */
+        EXPIRED
+    }
+
+    private final Status status;
+    private final ESat feasible;
+    private final boolean objectiveOptimal;
+    private final Number bestSolutionValue;
+    private final long solutionCount, nodeCount, backtrackCount, failCount, restartCount;
+    private final float timeCount;
+
+    SolveResult(Solver solver, Status status) {
+        IMeasures measures = solver.getMeasures();
+        this.status = status;
+        this.feasible = solver.isFeasible();
+        this.objectiveOptimal = measures.hasObjective() && measures.isObjectiveOptimal();
+        this.bestSolutionValue = measures.hasObjective() ? measures.getBestSolutionValue() : null;
+        this.solutionCount = measures.getSolutionCount();
+        this.nodeCount = measures.getNodeCount();
+        this.backtrackCount = measures.getBackTrackCount();
+        this.failCount = measures.getFailCount();
+        this.restartCount = measures.getRestartCount();
+        this.timeCount = measures.getTimeCount();
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return <code>ESat.TRUE</code> if a solution has been found, <code>ESat.FALSE</code> if the problem has been proven
+     *         to be unsatisfiable, <code>ESat.UNDEFINED</code> otherwise
+     */
+    public ESat isFeasible() {
+        return feasible;
+    }
+
+    public boolean isObjectiveOptimal() {
+        return objectiveOptimal;
+    }
+
+    /**
+     * @return the objective value of the best solution found, <code>null</code> if the problem has no objective
+     */
+    public Number getBestSolutionValue() {
+        return bestSolutionValue;
+    }
+
+    public long getSolutionCount() {
+        return solutionCount;
+    }
+
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    public long getBackTrackCount() {
+        return backtrackCount;
+    }
+
+    public long getFailCount() {
+        return failCount;
+    }
+
+    public long getRestartCount() {
+        return restartCount;
+    }
+
+    /**
+     * @return the resolution time count in milliseconds
+     */
+    public float getTimeCount() {
+        return timeCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s, %s, %d Solutions, %s%.3fms, %d Nodes, %d Backtracks, %d Fails, %d Restarts",
+                status, feasible, solutionCount,
+                bestSolutionValue != null ? "Objective: " + bestSolutionValue + (objectiveOptimal ? " (optimal), " : ", ") : "",
+                timeCount, nodeCount, backtrackCount, failCount, restartCount);
+    }
+}
@@ -48,6 +48,10 @@ public class ThreadSolver extends Thread {
 
     private boolean saf = true;
 
+    private ResolutionPolicy policy = ResolutionPolicy.SATISFACTION;
+
+    private IntVar objective;
+
 
     public ThreadSolver(Solver solver) {
         this.creationTime -= System.nanoTime();
@@ -63,18 +67,18 @@ public class ThreadSolver extends Thread {
         if (solver.getEngine() == NoPropagationEngine.SINGLETON) {
             solver.set(new PropagatorEngine(solver));
         }
+        // the objective manager is set by the solving thread, not by the caller of start()
+        solver.getSearchLoop().setObjectivemanager(new IntObjectiveManager(objective, policy, solver));
         solver.getSearchLoop().getMeasures().setReadingTimeCount(creationTime + System.nanoTime());
         solver.getSearchLoop().launch(saf);
     }
 
     public void findSolution() {
-        solver.getSearchLoop().setObjectivemanager(new IntObjectiveManager(null, ResolutionPolicy.SATISFACTION, solver));
         this.saf = true;
         start();
     }
 
     public void findAllSolutions() {
-        solver.getSearchLoop().setObjectivemanager(new IntObjectiveManager(null, ResolutionPolicy.SATISFACTION, solver));
         this.saf = false;
         start();
     }
@@ -84,7 +88,8 @@ public class ThreadSolver extends Thread {
             throw new UnsupportedOperationException("cannot optimize a satisfaction problem!");
         }
         this.saf = false;
-        solver.getSearchLoop().setObjectivemanager(new IntObjectiveManager(objective, policy, solver));
+        this.policy = policy;
+        this.objective = objective;
         start();
     }
 
@@ -129,6 +129,17 @@ public abstract class AbstractVariable<D extends IDelta, V extends Variable<D>>
         constraints[cLast++] = constraint;
     }
 
+    public void undeclareIn(Constraint constraint) {
+        int i = cLast - 1; // most of the time, the last declared one
+        while (i >= 0 && constraints[i] != constraint) {
+            i--;
+        }
+        if (i >= 0) {
+            System.arraycopy(constraints, i + 1, constraints, i, cLast - i - 1);
+            constraints[--cLast] = null;
+        }
+    }
+
     public int link(Propagator propagator, int idxInProp) {
         //ensure capacity
         if (pIdx == propagators.length) {
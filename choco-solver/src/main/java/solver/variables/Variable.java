@@ -89,6 +89,13 @@ public interface Variable<D extends IDelta> extends Identity, Serializable, Comp
      */
     void declareIn(Constraint constraint);
 
+    /**
+     * Unlink a constraint from a variable
+     *
+     * @param constraint a constraint declared in this
+     */
+    void undeclareIn(Constraint constraint);
+
     /**
      * Return the array of propagators this
      *
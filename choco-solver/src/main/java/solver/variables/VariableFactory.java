@@ -594,6 +594,8 @@ public class VariableFactory {
      * <p/>
      * The resulting IntVar does not have explicit domain: it relies on the domain of VAR for reading and writing operations.
      * Any operations on this will transformed to operations on VAR following the offset rules.
+     * <p/>
+     * If VAR is itself an offset, scale, minus or affine view, the views are composed, see {@link #affine(IntVar, int, int)}.
      *
      * @param VAR  an integer variable
      * @param CSTE a constant
@@ -602,7 +604,7 @@ public class VariableFactory {
         if (CSTE == 0) {
             return VAR;
         }
-        return new OffsetView(VAR, CSTE, VAR.getSolver());
+        return affine(VAR, 1, CSTE);
     }
 
     /**
@@ -647,45 +649,103 @@ public class VariableFactory {
      * <p/>
      * The resulting IntVar does not have explicit domain: it relies on the domain of VAR for reading and writing operations.
      * Any operations on this will transformed to operations on VAR following the "minus" rules.
+     * <p/>
+     * If VAR is itself an offset, scale, minus or affine view, the views are composed, see {@link #affine(IntVar, int, int)}:
+     * in particular, minus(minus(X)) returns X.
      *
      * @param VAR an integer variable
      */
     public static IntVar minus(IntVar VAR) {
-        return new MinusView(VAR, VAR.getSolver());
+        return affine(VAR, -1, 0);
     }
 
     /**
-     * Create a view over VAR such that: VAR&times;CSTE (CSTE&gt;-2).
+     * Create a view over VAR such that: VAR&times;CSTE.
      * <p/>
-     * <br/>- if CSTE &lt; -1, throws an exception;
      * <br/>- if CSTE = -1, returns a minus view;
      * <br/>- if CSTE = 0, returns a fixed variable;
      * <br/>- if CSTE = 1, returns VAR;
+     * <br/>- if CSTE &lt; -1, returns an affine view;
      * <br/>- otherwise, returns a scale view;
      * <p/>
      * The resulting IntVar does not have explicit domain: it relies on the domain of VAR for reading and writing operations.
      * Any operations on this will transformed to operations on VAR following the "scale" rules.
+     * <p/>
+     * If VAR is itself an offset, scale, minus or affine view, the views are composed, see {@link #affine(IntVar, int, int)}.
      *
      * @param VAR  an integer variable
      * @param CSTE a constant.
      */
     public static IntVar scale(IntVar VAR, int CSTE) {
-        if (CSTE == -1) {
-            return minus(VAR);
+        if (CSTE == 0) {
+            return fixed(0, VAR.getSolver());
+        } else if (CSTE == 1) {
+            return VAR;
         }
-        if (CSTE < 0) {
-            throw new UnsupportedOperationException("scale required positive coefficient!");
-        } else {
-            IntVar var;
-            if (CSTE == 0) {
-                var = fixed(0, VAR.getSolver());
-            } else if (CSTE == 1) {
-                var = VAR;
+        return affine(VAR, CSTE, 0);
+    }
+
+    /**
+     * Create a view over VAR such that: A&times;VAR+B.
+     * <p/>
+     * Chains of offset, scale, minus and affine views are folded: if VAR is such a view, defined on X,
+     * the resulting view is directly defined on X.
+     * Thus, whatever the number of views composed, an event on X is transformed once.
+     * <br/>- if A = 0, returns a fixed variable;
+     * <br/>- if A = 1 and B = 0, returns X;
+     * <br/>- if A = 1, returns an offset view over X;
+     * <br/>- if A = -1 and B = 0, returns a minus view over X;
+     * <br/>- if A &gt; 1 and B = 0, returns a scale view over X;
+     * <br/>- otherwise, returns an affine view over X.
+     * <p/>
+     * The resulting IntVar does not have explicit domain: it relies on the domain of X for reading and writing operations.
+     *
+     * @param VAR an integer variable
+     * @param A   a coefficient
+     * @param B   a constant
+     */
+    public static IntVar affine(IntVar VAR, int A, int B) {
+        Solver solver = VAR.getSolver();
+        if (A == 0) {
+            return fixed(B, solver);
+        }
+        // fold the views: the result is a * x + b
+        IntVar x = VAR;
+        long a = A, b = B;
+        while (true) {
+            long na = a, nb = b;
+            IntVar nx;
+            if (x instanceof OffsetView) {
+                nb = b + a * ((OffsetView) x).cste;
+                nx = ((OffsetView) x).getVariable();
+            } else if (x instanceof ScaleView) {
+                na = a * ((ScaleView) x).cste;
+                nx = ((ScaleView) x).getVariable();
+            } else if (x instanceof MinusView) {
+                na = -a;
+                nx = ((MinusView) x).getVariable();
+            } else if (x instanceof AffineView) {
+                na = a * ((AffineView) x).a;
+                nb = b + a * ((AffineView) x).b;
+                nx = ((AffineView) x).getVariable();
             } else {
-                var = new ScaleView(VAR, CSTE, VAR.getSolver());
+                break;
             }
-            return var;
+            if (na != (int) na || nb != (int) nb) {
+                break; // overflow, the views are not composed any further
+            }
+            a = na;
+            b = nb;
+            x = nx;
+        }
+        if (a == 1) {
+            return b == 0 ? x : new OffsetView(x, (int) b, solver);
+        } else if (a == -1 && b == 0) {
+            return new MinusView(x, solver);
+        } else if (a > 1 && b == 0) {
+            return new ScaleView(x, (int) a, solver);
         }
+        return new AffineView(x, (int) a, (int) b, solver);
     }
 
     /**
@@ -52,6 +52,9 @@ import util.tools.StringUtils;
 
 /**
  * <br/>IntVar implementation for quite small domains bit with very distant values e.g. {-51900,42,235923}
+ * <br/>The values are stored in a sorted array, the current domain is a bitset of indexes in that array.
+ * A value is mapped to its index through an open-addressing hash table, so that removal, instantiation and
+ * membership are done in constant time, whatever the range of the values.
  *
  * @author Charles Prud'homme, Jean-Guillaume Fages
  * @since 14/05/2013
@@ -74,6 +77,9 @@ public final class BitsetArrayIntVarImpl extends AbstractVariable<IEnumDelta, In
     private final IStateInt SIZE;
     //offset of the lower bound and the first value in the domain
     private final int LENGTH;
+    // open-addressing hash table: index+1 of a value in values, 0 for an empty slot
+    private final int[] table;
+    private final int shift;
 
     private IEnumDelta delta = NoDelta.singleton;
 
@@ -93,6 +99,56 @@ public final class BitsetArrayIntVarImpl extends AbstractVariable<IEnumDelta, In
         this.LB = env.makeInt(0);
         this.UB = env.makeInt(LENGTH - 1);
         this.SIZE = env.makeInt(LENGTH);
+        int bits = 1;
+        while ((1 << bits) < 2 * LENGTH) {
+            bits++;
+        }
+        this.table = new int[1 << bits];
+        this.shift = 32 - bits;
+        for (int i = 0; i < LENGTH; i++) {
+            int slot = hash(values[i]);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & (table.length - 1);
+            }
+            table[slot] = i + 1;
+        }
+    }
+
+    private int hash(int value) {
+        return (value * 0x9E3779B9) >>> shift;
+    }
+
+    /**
+     * @param value a value
+     * @return the index of <code>value</code> in <code>values</code>, -1 if the value is unknown
+     */
+    private int indexOf(int value) {
+        int slot = hash(value);
+        int i;
+        while ((i = table[slot]) != 0) {
+            if (values[i - 1] == value) {
+                return i - 1;
+            }
+            slot = (slot + 1) & (table.length - 1);
+        }
+        return -1;
+    }
+
+    /**
+     * @param value a value
+     * @return the index of the smallest value of <code>values</code> greater than or equal to <code>value</code>
+     */
+    private int ceilIndex(int value) {
+        int lo = 0, hi = LENGTH;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] < value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
     }
 
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -120,17 +176,8 @@ public final class BitsetArrayIntVarImpl extends AbstractVariable<IEnumDelta, In
 //        records.forEach(beforeModification.set(this, EventType.REMOVE, cause));
         assert cause != null;
         ICause antipromo = cause;
-        if (value < values[LB.get()] || value > values[UB.get()]) {
-            return false;
-        }
-        int index = -1;
-        for (int i = indexes.nextSetBit(LB.get()); i >= 0 && values[i] <= value; i = indexes.nextSetBit(i + 1)) {
-            if (values[i] == value) {
-                index = i;
-                break;
-            }
-        }
-        if (index != -1) {
+        int index = indexOf(value);
+        if (index != -1 && indexes.get(index)) {
             if (SIZE.get() == 1) {
                 if (Configuration.PLUG_EXPLANATION) {
                     solver.getExplainer().removeValue(this, value, antipromo);
@@ -214,14 +261,8 @@ public final class BitsetArrayIntVarImpl extends AbstractVariable<IEnumDelta, In
             }
             return false;
         } else {
-            int index = -1;
-            for (int i = indexes.nextSetBit(LB.get()); i >= 0 && values[i] <= value; i = indexes.nextSetBit(i + 1)) {
-                if (values[i] == value) {
-                    index = i;
-                    break;
-                }
-            }
-            if (index != -1) {
+            int index = indexOf(value);
+            if (index != -1 && indexes.get(index)) {
                 if (reactOnRemoval) {
                     for (int i = indexes.nextSetBit(LB.get()); i >= 0; i = indexes.nextSetBit(i + 1)) {
                         if (i != index) {
@@ -292,8 +333,7 @@ public final class BitsetArrayIntVarImpl extends AbstractVariable<IEnumDelta, In
             } else {
                 EventType e = EventType.INCLOW;
                 int index;
-                for (index = indexes.nextSetBit(LB.get()); index >= 0 && values[index] < value; index = indexes.nextSetBit(index + 1)) {
-                }
+                index = indexes.nextSetBit(ceilIndex(value));
                 assert index >= 0 && values[index] >= value;
                 if (reactOnRemoval) {
                     //BEWARE: this loop significantly decreases performances
@@ -349,8 +389,7 @@ public final class BitsetArrayIntVarImpl extends AbstractVariable<IEnumDelta, In
             } else {
                 EventType e = EventType.DECUPP;
                 int index;
-                for (index = indexes.prevSetBit(UB.get()); index >= 0 && values[index] > value; index = indexes.prevSetBit(index - 1)) {
-                }
+                index = indexes.prevSetBit(ceilIndex(value + 1) - 1);
                 assert index >= 0 && values[index] <= value;
                 if (reactOnRemoval) {
                     //BEWARE: this loop significantly decreases performances
@@ -391,14 +430,8 @@ public final class BitsetArrayIntVarImpl extends AbstractVariable<IEnumDelta, In
     }
 
     public boolean contains(int aValue) {
-        if (aValue >= getLB() && aValue <= getUB()) {
-            for (int i = indexes.nextSetBit(LB.get()); i >= 0 && values[i] <= aValue; i = indexes.nextSetBit(i + 1)) {
-                if (values[i] == aValue) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        int index = indexOf(aValue);
+        return index != -1 && indexes.get(index);
     }
 
     /**
@@ -439,9 +472,7 @@ public final class BitsetArrayIntVarImpl extends AbstractVariable<IEnumDelta, In
         int lb = getLB();
         if (aValue < lb) return lb;
         if (aValue >= getUB()) return Integer.MAX_VALUE;
-        int i;
-        for (i = indexes.nextSetBit(LB.get()); i >= 0 && values[i] <= aValue; i = indexes.nextSetBit(i + 1)) {
-        }
+        int i = indexes.nextSetBit(ceilIndex(aValue + 1));
         return (i >= 0) ? values[i] : Integer.MAX_VALUE;
     }
 
@@ -450,9 +481,7 @@ public final class BitsetArrayIntVarImpl extends AbstractVariable<IEnumDelta, In
         int ub = getUB();
         if (aValue > ub) return ub;
         if (aValue <= getLB()) return Integer.MIN_VALUE;
-        int i;
-        for (i = indexes.prevSetBit(UB.get()); i >= 0 && values[i] >= aValue; i = indexes.prevSetBit(i - 1)) {
-        }
+        int i = indexes.prevSetBit(ceilIndex(aValue) - 1);
         return (i >= 0) ? values[i] : Integer.MIN_VALUE;
     }
 
@@ -0,0 +1,501 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.variables.view;
+
+import solver.ICause;
+import solver.Solver;
+import solver.exception.ContradictionException;
+import solver.explanations.Explanation;
+import solver.explanations.VariableState;
+import solver.variables.EventType;
+import solver.variables.IntVar;
+import solver.variables.VariableFactory;
+import solver.variables.delta.IIntDeltaMonitor;
+import solver.variables.delta.IntDelta;
+import solver.variables.delta.NoDelta;
+import util.iterators.DisposableRangeIterator;
+import util.iterators.DisposableValueIterator;
+
+/**
+ * declare an IntVar based on X, A and B, such as A * X + B, with A different from 0.
+ * <p/>
+ * It is the result of the composition of offset, scale and minus views made by {@link VariableFactory}:
+ * events of X are transformed once, whatever the number of views composed.
+ * <p/>
+ * Based on "Views and Iterators for Generic Constraint Implementations" <br/>
+ * C. Shulte and G. Tack.<br/>
+ * Eleventh International Conference on Principles and Practice of Constraint Programming
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public final class AffineView extends IntView<IntDelta, IntVar<IntDelta>> {
+
+    public final int a, b;
+
+    public AffineView(final IntVar var, final int a, final int b, Solver solver) {
+        super("(" + a + "*" + var.getName() + "+" + b + ")", var, solver);
+        assert (a != 0) : "view coefficient must be different from 0";
+        this.a = a;
+        this.b = b;
+    }
+
+    // floor((v - b) / a)
+    private int floor(int v) {
+        return clamp(floorDiv((long) v - b, a));
+    }
+
+    // ceil((v - b) / a)
+    private int ceil(int v) {
+        return clamp(-floorDiv(b - (long) v, a));
+    }
+
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        if ((x % y != 0) && ((x ^ y) < 0)) {
+            q--;
+        }
+        return q;
+    }
+
+    private static int clamp(long v) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, v));
+    }
+
+    // true if v = a * x + b for some integer x
+    private boolean reachable(int v) {
+        return ((long) v - b) % a == 0;
+    }
+
+    private int image(int x) {
+        return a * x + b;
+    }
+
+    @Override
+    public IIntDeltaMonitor monitorDelta(ICause propagator) {
+        var.createDelta();
+        if (var.getDelta() == NoDelta.singleton) {
+            return IIntDeltaMonitor.Default.NONE;
+        }
+        return new ViewDeltaMonitor(var.monitorDelta(propagator), propagator) {
+            @Override
+            protected int transform(int value) {
+                return a * value + b;
+            }
+        };
+    }
+
+    @Override
+    public boolean removeValue(int value, ICause cause) throws ContradictionException {
+        assert cause != null;
+        if (reachable(value)) {
+            int inf = getLB();
+            int sup = getUB();
+            if (inf <= value && value <= sup) {
+                EventType e = EventType.REMOVE;
+                boolean done = var.removeValue(floor(value), this);
+                if (done) {
+                    if (value == inf) {
+                        e = EventType.INCLOW;
+                    } else if (value == sup) {
+                        e = EventType.DECUPP;
+                    }
+                    if (this.instantiated()) {
+                        e = EventType.INSTANTIATE;
+                    }
+                    this.notifyPropagators(e, cause);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean removeInterval(int from, int to, ICause cause) throws ContradictionException {
+        assert cause != null;
+        if (from <= getLB()) {
+            return updateLowerBound(to + 1, cause);
+        } else if (getUB() <= to) {
+            return updateUpperBound(from - 1, cause);
+        } else {
+            boolean done;
+            if (a > 0) {
+                done = var.removeInterval(ceil(from), floor(to), this);
+            } else {
+                done = var.removeInterval(ceil(to), floor(from), this);
+            }
+            if (done) {
+                notifyPropagators(EventType.REMOVE, cause);
+            }
+            return done;
+        }
+    }
+
+    @Override
+    public boolean instantiateTo(int value, ICause cause) throws ContradictionException {
+        assert cause != null;
+        if (!reachable(value)) {
+            this.contradiction(cause, EventType.INSTANTIATE, "outside domain");
+        }
+        boolean done = var.instantiateTo(floor(value), this);
+        if (done) {
+            notifyPropagators(EventType.INSTANTIATE, cause);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean updateLowerBound(int value, ICause cause) throws ContradictionException {
+        assert cause != null;
+        int old = this.getLB();
+        if (old < value) {
+            EventType e = EventType.INCLOW;
+            boolean done;
+            if (a > 0) {
+                done = var.updateLowerBound(ceil(value), this);
+            } else {
+                done = var.updateUpperBound(floor(value), this);
+            }
+            if (instantiated()) {
+                e = EventType.INSTANTIATE;
+            }
+            if (done) {
+                this.notifyPropagators(e, cause);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean updateUpperBound(int value, ICause cause) throws ContradictionException {
+        assert cause != null;
+        int old = this.getUB();
+        if (old > value) {
+            EventType e = EventType.DECUPP;
+            boolean done;
+            if (a > 0) {
+                done = var.updateUpperBound(floor(value), this);
+            } else {
+                done = var.updateLowerBound(ceil(value), this);
+            }
+            if (instantiated()) {
+                e = EventType.INSTANTIATE;
+            }
+            if (done) {
+                this.notifyPropagators(e, cause);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(int value) {
+        return reachable(value) && var.contains(floor(value));
+    }
+
+    @Override
+    public boolean instantiatedTo(int value) {
+        return reachable(value) && var.instantiatedTo(floor(value));
+    }
+
+    @Override
+    public int getValue() {
+        return image(var.getValue());
+    }
+
+    @Override
+    public int getLB() {
+        return a > 0 ? image(var.getLB()) : image(var.getUB());
+    }
+
+    @Override
+    public int getUB() {
+        return a > 0 ? image(var.getUB()) : image(var.getLB());
+    }
+
+    @Override
+    public int nextValue(int v) {
+        if (a > 0) {
+            int value = var.nextValue(floor(v));
+            return value == Integer.MAX_VALUE ? value : image(value);
+        } else {
+            int value = var.previousValue(ceil(v));
+            return value == Integer.MIN_VALUE ? Integer.MAX_VALUE : image(value);
+        }
+    }
+
+    @Override
+    public int previousValue(int v) {
+        if (a > 0) {
+            int value = var.previousValue(ceil(v));
+            return value == Integer.MIN_VALUE ? value : image(value);
+        } else {
+            int value = var.nextValue(floor(v));
+            return value == Integer.MAX_VALUE ? Integer.MIN_VALUE : image(value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "(" + this.a + " * " + this.var.toString() + " + " + this.b + ") = [" + getLB() + "," + getUB() + "]";
+    }
+
+    @Override
+    public IntVar duplicate() {
+        return VariableFactory.affine(this.var, this.a, this.b);
+    }
+
+    @Override
+    public void explain(VariableState what, int val, Explanation to) {
+        var.explain(what, floor(val), to);
+    }
+
+    @Override
+    public void explain(VariableState what, Explanation to) {
+        if (a > 0) {
+            var.explain(what, to);
+        } else {
+            switch (what) {
+                case UB:
+                    var.explain(VariableState.LB, to);
+                    break;
+                case LB:
+                    var.explain(VariableState.UB, to);
+                    break;
+                default:
+                    var.explain(what, to);
+                    break;
+            }
+        }
+    }
+
+    @Override
+    public DisposableValueIterator getValueIterator(boolean bottomUp) {
+        if (_viterator == null || !_viterator.isReusable()) {
+            _viterator = new DisposableValueIterator() {
+
+                DisposableValueIterator vit;
+
+                @Override
+                public void bottomUpInit() {
+                    super.bottomUpInit();
+                    vit = var.getValueIterator(a > 0);
+                }
+
+                @Override
+                public void topDownInit() {
+                    super.topDownInit();
+                    vit = var.getValueIterator(a < 0);
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return a > 0 ? vit.hasNext() : vit.hasPrevious();
+                }
+
+                @Override
+                public boolean hasPrevious() {
+                    return a > 0 ? vit.hasPrevious() : vit.hasNext();
+                }
+
+                @Override
+                public int next() {
+                    return image(a > 0 ? vit.next() : vit.previous());
+                }
+
+                @Override
+                public int previous() {
+                    return image(a > 0 ? vit.previous() : vit.next());
+                }
+
+                @Override
+                public void dispose() {
+                    super.dispose();
+                    vit.dispose();
+                }
+            };
+        }
+        if (bottomUp) {
+            _viterator.bottomUpInit();
+        } else {
+            _viterator.topDownInit();
+        }
+        return _viterator;
+    }
+
+    @Override
+    public DisposableRangeIterator getRangeIterator(boolean bottomUp) {
+        if (_riterator == null || !_riterator.isReusable()) {
+            if (a == 1 || a == -1) {
+                // ranges are kept
+                _riterator = new DisposableRangeIterator() {
+
+                    DisposableRangeIterator vir;
+
+                    @Override
+                    public void bottomUpInit() {
+                        super.bottomUpInit();
+                        vir = var.getRangeIterator(a > 0);
+                    }
+
+                    @Override
+                    public void topDownInit() {
+                        super.topDownInit();
+                        vir = var.getRangeIterator(a < 0);
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return a > 0 ? vir.hasNext() : vir.hasPrevious();
+                    }
+
+                    @Override
+                    public boolean hasPrevious() {
+                        return a > 0 ? vir.hasPrevious() : vir.hasNext();
+                    }
+
+                    @Override
+                    public void next() {
+                        if (a > 0) {
+                            vir.next();
+                        } else {
+                            vir.previous();
+                        }
+                    }
+
+                    @Override
+                    public void previous() {
+                        if (a > 0) {
+                            vir.previous();
+                        } else {
+                            vir.next();
+                        }
+                    }
+
+                    @Override
+                    public int min() {
+                        return a > 0 ? image(vir.min()) : image(vir.max());
+                    }
+
+                    @Override
+                    public int max() {
+                        return a > 0 ? image(vir.max()) : image(vir.min());
+                    }
+
+                    @Override
+                    public void dispose() {
+                        super.dispose();
+                        vir.dispose();
+                    }
+                };
+            } else {
+                // no range anymore, each value is a range
+                _riterator = new DisposableRangeIterator() {
+
+                    DisposableValueIterator vit;
+                    int min, max;
+
+                    @Override
+                    public void bottomUpInit() {
+                        super.bottomUpInit();
+                        vit = getValueIterator(true);
+                        min = vit.hasNext() ? vit.next() : Integer.MAX_VALUE;
+                        max = min;
+                    }
+
+                    @Override
+                    public void topDownInit() {
+                        super.topDownInit();
+                        vit = getValueIterator(false);
+                        max = vit.hasPrevious() ? vit.previous() : -Integer.MAX_VALUE;
+                        min = max;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return min != Integer.MAX_VALUE;
+                    }
+
+                    @Override
+                    public boolean hasPrevious() {
+                        return max != -Integer.MAX_VALUE;
+                    }
+
+                    @Override
+                    public void next() {
+                        min = max = vit.hasNext() ? vit.next() : Integer.MAX_VALUE;
+                    }
+
+                    @Override
+                    public void previous() {
+                        max = min = vit.hasPrevious() ? vit.previous() : -Integer.MAX_VALUE;
+                    }
+
+                    @Override
+                    public int min() {
+                        return min;
+                    }
+
+                    @Override
+                    public int max() {
+                        return max;
+                    }
+
+                    @Override
+                    public void dispose() {
+                        super.dispose();
+                        vit.dispose();
+                    }
+                };
+            }
+        }
+        if (bottomUp) {
+            _riterator.bottomUpInit();
+        } else {
+            _riterator.topDownInit();
+        }
+        return _riterator;
+    }
+
+    @Override
+    public void transformEvent(EventType evt, ICause cause) throws ContradictionException {
+        if (a < 0) {
+            if (evt == EventType.INCLOW) {
+                evt = EventType.DECUPP;
+            } else if (evt == EventType.DECUPP) {
+                evt = EventType.INCLOW;
+            }
+            notifyPropagators(evt, this);
+        } else {
+            notifyPropagators(evt, cause);
+        }
+    }
+}
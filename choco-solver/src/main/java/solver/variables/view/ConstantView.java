@@ -91,6 +91,9 @@ public class ConstantView implements IntVar<IntDelta> {
     public void declareIn(Constraint constraint) {
     }
 
+    public void undeclareIn(Constraint constraint) {
+    }
+
     @Override
     public Propagator[] getPropagators() {
         return new Propagator[0];
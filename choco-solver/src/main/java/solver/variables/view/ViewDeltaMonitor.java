@@ -89,7 +89,7 @@ public abstract class ViewDeltaMonitor implements IIntDeltaMonitor {
         deltamonitor.forEach(filler, eventType);
         filter();
         for (int v = 0; v < values.size(); v++) {
-            proc.execute(transform(values.toArray()[v]));
+            proc.execute(transform(values.getQuick(v)));
         }
     }
 
@@ -99,7 +99,7 @@ public abstract class ViewDeltaMonitor implements IIntDeltaMonitor {
         deltamonitor.forEach(filler, eventType);
         filter();
         for (int v = 0; v < values.size(); v++) {
-            proc.execute(transform(values.toArray()[v]));
+            proc.execute(transform(values.getQuick(v)));
         }
     }
 
@@ -44,6 +44,7 @@ import util.objects.setDataStructures.linkedlist.Set_Std_LinkedList;
 import util.objects.setDataStructures.matrix.Set_Array;
 import util.objects.setDataStructures.matrix.Set_BitSet;
 import util.objects.setDataStructures.matrix.Set_Std_Array;
+import util.objects.setDataStructures.swapList.Set_Std_Sparse;
 import util.objects.setDataStructures.swapList.Set_Std_Swap_Array;
 import util.objects.setDataStructures.swapList.Set_Std_Swap_Hash;
 import util.objects.setDataStructures.swapList.Set_Swap_Array;
@@ -87,6 +88,8 @@ public class SetFactory {
                     return new Set_Std_BitSet(environment, maximumSize);
                 case BOOL_ARRAY:
                     return new Set_Std_Array(environment, maximumSize);
+                case SPARSE:
+                    return new Set_Std_Sparse(environment, maximumSize);
             }
         if (environment instanceof EnvironmentTrailing) {
             return new Set_Trail((EnvironmentTrailing) environment, makeSet(type, maximumSize));
@@ -123,6 +126,8 @@ public class SetFactory {
                 return makeBitSet(maximumSize);
             case BOOL_ARRAY:
                 return makeArray(maximumSize);
+            case SPARSE:
+                return makeSwap(maximumSize, false);
         }
         throw new UnsupportedOperationException("unknown SetType");
     }
@@ -33,7 +33,8 @@ public enum SetType {
     LINKED_LIST,
     DOUBLE_LINKED_LIST,
     BITSET,
-    BOOL_ARRAY;
+    BOOL_ARRAY,
+    SPARSE;
 
     public final static SetType ENVELOPE_BEST = SWAP_ARRAY;
     public final static SetType KERNEL_BEST = LINKED_LIST;
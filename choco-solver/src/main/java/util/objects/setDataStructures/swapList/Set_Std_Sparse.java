@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package util.objects.setDataStructures.swapList;
+
+import memory.IEnvironment;
+import memory.IStateInt;
+import util.iterators.DisposableIntIterator;
+import util.objects.setDataStructures.ISet;
+
+/**
+ * Backtrable sparse set of integers in [0,n-1], stored as a permutation of [0,n-1] and a stored size:
+ * the elements of the set are the <code>size</code> first values of the permutation.
+ * Adding or removing an element swaps it across the border, so restoring the set only restores the size:
+ * no operation object is put on the trail.
+ * <p/>
+ * BEWARE : ONCE THE SEARCH HAS STARTED, THE SET MUST EITHER ONLY GROW OR ONLY SHRINK
+ * (as the kernel or the envelope of a set or graph variable), this is not checked.
+ * It is therefore never chosen by default (see SetType), it must be explicitly required.
+ * <p/>
+ * add : O(1)
+ * testPresence: O(1)
+ * remove: O(1)
+ * iteration : O(m)
+ * <p/>
+ * Iteration can be done through an iterator, which holds its own cursor
+ * and is therefore reentrant (nested or interleaved traversals):
+ * <p/>
+ * DisposableIntIterator it = set.getIterator();
+ * while(it.hasNext()){
+ * int e = it.next();
+ * ...
+ * }
+ * it.dispose();
+ * <p/>
+ * The current element can be removed with <code>it.remove()</code>.
+ * Iteration can also be done through indices, from the last one when the current element may be removed:
+ * <p/>
+ * for(int i=set.getSize()-1; i>=0; i--){
+ * int e = set.get(i);
+ * ...
+ * }
+ * <p/>
+ * getFirstElement() and getNextElement() share a single cursor, they do not support nested traversals.
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class Set_Std_Sparse implements ISet {
+
+    private final int[] values; // permutation of [0,n-1]
+    private final int[] positions; // positions[values[i]] = i
+    private final IStateInt size;
+    private int currentIdx;
+    private SparseSetIterator _cachedIterator;
+
+    public Set_Std_Sparse(IEnvironment environment, int n) {
+        values = new int[n];
+        positions = new int[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = i;
+            positions[i] = i;
+        }
+        size = environment.makeInt(0);
+    }
+
+    private void swap(int p1, int p2) {
+        int e1 = values[p1];
+        int e2 = values[p2];
+        values[p1] = e2;
+        positions[e2] = p1;
+        values[p2] = e1;
+        positions[e1] = p2;
+    }
+
+    @Override
+    public boolean add(int element) {
+        int s = size.get();
+        int p = positions[element];
+        if (p < s) {
+            return false;
+        }
+        swap(p, s);
+        size.set(s + 1);
+        return true;
+    }
+
+    @Override
+    public boolean remove(int element) {
+        int s = size.get();
+        int p = positions[element];
+        if (p >= s) {
+            return false;
+        }
+        if (p <= currentIdx && currentIdx < s) {
+            // during an iteration, the removed element has been visited: move it to the cursor,
+            // replace it by the last element and step back, so that the last element is visited next
+            swap(p, currentIdx);
+            swap(currentIdx, s - 1);
+            currentIdx--;
+        } else {
+            swap(p, s - 1);
+        }
+        size.set(s - 1);
+        return true;
+    }
+
+    @Override
+    public boolean contain(int element) {
+        return element >= 0 && element < positions.length && positions[element] < size.get();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    @Override
+    public int getSize() {
+        return size.get();
+    }
+
+    @Override
+    public void clear() {
+        size.set(0);
+    }
+
+    /**
+     * Get the element at position <code>index</code>, in [0,getSize()-1].
+     * The order of the elements is modified by additions and removals.
+     *
+     * @param index position of the element
+     * @return the element at position <code>index</code>
+     */
+    public int get(int index) {
+        return values[index];
+    }
+
+    // --- Iterations
+
+    /**
+     * Get an iterator over the elements of the set, with its own cursor.
+     * The iterator should be disposed once the traversal is over, so that it can be reused.
+     *
+     * @return an iterator over the set
+     */
+    public DisposableIntIterator getIterator() {
+        if (_cachedIterator == null || !_cachedIterator.isReusable()) {
+            _cachedIterator = new SparseSetIterator();
+        }
+        _cachedIterator.init();
+        return _cachedIterator;
+    }
+
+    @Override
+    public int getFirstElement() {
+        if (size.get() == 0) {
+            return -1;
+        }
+        currentIdx = 0;
+        return values[0];
+    }
+
+    @Override
+    public int getNextElement() {
+        currentIdx++;
+        if (currentIdx >= size.get()) {
+            return -1;
+        }
+        return values[currentIdx];
+    }
+
+    @Override
+    public String toString() {
+        int s = size.get();
+        if (s == 0) {
+            return "empty";
+        }
+        StringBuilder res = new StringBuilder();
+        for (int i = 0; i < s - 1; i++) {
+            res.append(values[i]).append(" -> ");
+        }
+        res.append(values[s - 1]);
+        return res.toString();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private class SparseSetIterator extends DisposableIntIterator {
+
+        private int idx; // elements before idx have been visited
+
+        @Override
+        public void init() {
+            super.init();
+            idx = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return idx < size.get();
+        }
+
+        @Override
+        public int next() {
+            return values[idx++];
+        }
+
+        /**
+         * Remove the last element returned by next(): it is replaced by the last element of the set,
+         * which is visited next.
+         */
+        @Override
+        public void remove() {
+            int s = size.get();
+            idx--;
+            swap(idx, s - 1);
+            size.set(s - 1);
+        }
+    }
+}
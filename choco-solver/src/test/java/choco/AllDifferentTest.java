@@ -302,4 +302,115 @@ public class AllDifferentTest {
         Assert.assertEquals(ts[1].getDomainSize(),2);
         Assert.assertEquals(ts[2].getDomainSize(),2);
     }
+
+    @Test(groups = "1s")
+    public void testACIncremental() {
+        Random rand = new Random();
+        for (int seed = 0; seed < 300; seed++) {
+            rand.setSeed(seed);
+            int n = 2 + rand.nextInt(5);
+            // large factor to exercise sparse values
+            int factor = seed % 3 == 0 ? 1000003 : 1;
+            Solver solver = new Solver();
+            IntVar[] vars = new IntVar[n];
+            for (int i = 0; i < n; i++) {
+                int[] dom = DomainBuilder.buildFullDomains(1, 0, 2 * n, rand, 0.5 + rand.nextDouble() / 2, false)[0];
+                for (int k = 0; k < dom.length; k++) {
+                    dom[k] *= factor;
+                }
+                vars[i] = VariableFactory.enumerated("v_" + i, dom, solver);
+            }
+            solver.post(IntConstraintFactory.alldifferent(vars, "AC"));
+            IEnvironment env = solver.getEnvironment();
+            if (!propagateAndCheckAC(solver, vars, seed)) {
+                continue;
+            }
+            int depth = 0;
+            for (int step = 0; step < 30; step++) {
+                if (depth > 0 && rand.nextInt(3) == 0) {
+                    env.worldPop();
+                    depth--;
+                    continue;
+                }
+                env.worldPush();
+                depth++;
+                IntVar var = vars[rand.nextInt(n)];
+                int k = rand.nextInt(var.getDomainSize());
+                int v = var.getLB();
+                while (k-- > 0) {
+                    v = var.nextValue(v);
+                }
+                boolean sat;
+                try {
+                    if (rand.nextBoolean()) {
+                        var.removeValue(v, Cause.Null);
+                    } else {
+                        var.instantiateTo(v, Cause.Null);
+                    }
+                    sat = propagateAndCheckAC(solver, vars, seed);
+                } catch (ContradictionException e) {
+                    sat = false;
+                }
+                if (!sat) {
+                    env.worldPop();
+                    depth--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Propagates and checks that the domains are arc consistent with respect to the domains before propagation.
+     */
+    private static boolean propagateAndCheckAC(Solver solver, IntVar[] vars, int seed) {
+        int n = vars.length;
+        int[][] doms = new int[n][];
+        for (int i = 0; i < n; i++) {
+            doms[i] = new int[vars[i].getDomainSize()];
+            int k = 0;
+            int ub = vars[i].getUB();
+            for (int v = vars[i].getLB(); v <= ub; v = vars[i].nextValue(v)) {
+                doms[i][k++] = v;
+            }
+        }
+        boolean sat = true;
+        try {
+            solver.propagate();
+        } catch (ContradictionException e) {
+            solver.getEngine().flush();
+            sat = false;
+        }
+        for (int i = 0; i < n; i++) {
+            for (int v : doms[i]) {
+                boolean supported = hasMatching(doms, i, v, new int[n], 0);
+                Assert.assertTrue(!supported || sat, "seed " + seed);
+                if (sat) {
+                    Assert.assertEquals(vars[i].contains(v), supported, "seed " + seed);
+                }
+            }
+        }
+        return sat;
+    }
+
+    private static boolean hasMatching(int[][] doms, int var, int val, int[] chosen, int cur) {
+        if (cur == doms.length) {
+            return true;
+        }
+        if (cur == var) {
+            return hasMatching(doms, var, val, chosen, cur + 1);
+        }
+        for (int v : doms[cur]) {
+            boolean used = v == val;
+            for (int i = 0; i < cur && !used; i++) {
+                used = i != var && chosen[i] == v;
+            }
+            if (!used) {
+                chosen[cur] = v;
+                if (hasMatching(doms, var, val, chosen, cur + 1)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package memory.trailing;
+
+import memory.IStateBitSet;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class StoredBitSetTest {
+
+    private static void check(IStateBitSet actual, BitSet expected, int n) {
+        Assert.assertEquals(actual.copyToBitSet(), expected);
+        Assert.assertEquals(actual.cardinality(), expected.cardinality());
+        Assert.assertEquals(actual.isEmpty(), expected.isEmpty());
+        for (int i = -1; i <= n + 64; i += 7) {
+            Assert.assertEquals(actual.nextSetBit(i), expected.nextSetBit(Math.max(i, 0)), "nextSetBit " + i);
+            Assert.assertEquals(actual.nextClearBit(i), expected.nextClearBit(Math.max(i, 0)), "nextClearBit " + i);
+            int p = i < 0 ? -1 : expected.previousSetBit(i);
+            Assert.assertEquals(actual.prevSetBit(i), p, "prevSetBit " + i);
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testMakeBitSet() {
+        EnvironmentTrailing env = new EnvironmentTrailing();
+        Assert.assertTrue(env.makeBitSet(200) instanceof StoredBitSet);
+        Assert.assertFalse(env.makeBitSet(40) instanceof StoredBitSet);
+    }
+
+    @Test(groups = "1s")
+    public void testRandom() {
+        for (int seed = 0; seed < 20; seed++) {
+            Random rnd = new Random(seed);
+            int n = 64 + rnd.nextInt(300);
+            EnvironmentTrailing env = new EnvironmentTrailing();
+            StoredBitSet actual = (StoredBitSet) env.makeBitSet(n);
+            StoredBitSet other = (StoredBitSet) env.makeBitSet(n);
+            BitSet expected = new BitSet(n);
+            List<BitSet> saved = new ArrayList<BitSet>();
+            for (int step = 0; step < 400; step++) {
+                int a = rnd.nextInt(n), b = rnd.nextInt(n);
+                int from = Math.min(a, b), to = Math.max(a, b);
+                switch (rnd.nextInt(12)) {
+                    case 0:
+                    case 1:
+                        env.worldPush();
+                        saved.add((BitSet) expected.clone());
+                        break;
+                    case 2:
+                        if (saved.size() > 0) {
+                            env.worldPop();
+                            expected = saved.remove(saved.size() - 1);
+                        }
+                        break;
+                    case 3:
+                        actual.set(a);
+                        expected.set(a);
+                        break;
+                    case 4:
+                        actual.clear(a);
+                        expected.clear(a);
+                        break;
+                    case 5:
+                        actual.set(from, to);
+                        expected.set(from, to);
+                        break;
+                    case 6:
+                        actual.clear(from, to);
+                        expected.clear(from, to);
+                        break;
+                    case 7:
+                        actual.flip(from, to);
+                        expected.flip(from, to);
+                        break;
+                    case 8: {
+                        other.clear();
+                        other.set(from, to);
+                        BitSet o = new BitSet();
+                        o.set(from, to);
+                        if (rnd.nextBoolean()) {
+                            actual.and(other);
+                            expected.and(o);
+                        } else {
+                            actual.andNot(other);
+                            expected.andNot(o);
+                        }
+                        break;
+                    }
+                    case 9: {
+                        other.clear();
+                        other.set(a);
+                        other.set(b);
+                        BitSet o = new BitSet();
+                        o.set(a);
+                        o.set(b);
+                        if (rnd.nextBoolean()) {
+                            actual.or(other);
+                            expected.or(o);
+                        } else {
+                            actual.xor(other);
+                            expected.xor(o);
+                        }
+                        break;
+                    }
+                    case 10: {
+                        long[] mask = new long[actual.size() / 64];
+                        for (int i = 0; i < mask.length; i++) {
+                            mask[i] = rnd.nextLong();
+                        }
+                        int fw = from / 64, tw = to / 64 + 1;
+                        actual.andNot(mask, fw, tw);
+                        for (int i = fw * 64; i < tw * 64; i++) {
+                            if ((mask[i / 64] & (1L << i)) != 0) {
+                                expected.clear(i);
+                            }
+                        }
+                        break;
+                    }
+                    case 11:
+                        actual.clear();
+                        expected.clear();
+                        break;
+                }
+                check(actual, expected, n);
+            }
+            while (saved.size() > 0) {
+                env.worldPop();
+                expected = saved.remove(saved.size() - 1);
+                check(actual, expected, n);
+            }
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testGrowth() {
+        EnvironmentTrailing env = new EnvironmentTrailing();
+        IStateBitSet bs = env.makeBitSet(64);
+        bs.set(3);
+        env.worldPush();
+        bs.set(1000);
+        bs.set(64, 70);
+        Assert.assertEquals(bs.cardinality(), 8);
+        Assert.assertEquals(bs.prevSetBit(5000), 1000);
+        env.worldPop();
+        Assert.assertEquals(bs.cardinality(), 1);
+        Assert.assertEquals(bs.nextSetBit(4), -1);
+        Assert.assertFalse(bs.get(1000));
+    }
+}
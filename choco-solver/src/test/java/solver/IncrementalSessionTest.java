@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import solver.constraints.Constraint;
+import solver.constraints.ICF;
+import solver.search.solution.Solution;
+import solver.search.strategy.IntStrategyFactory;
+import solver.variables.IntVar;
+import solver.variables.VariableFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class IncrementalSessionTest {
+
+    private static final String[] OPS = {"=", "!=", "<", ">", "<=", ">="};
+
+    @Test(groups = "1s")
+    public void testPushPop() {
+        Solver solver = new Solver();
+        IntVar x = VariableFactory.enumerated("x", 0, 5, solver);
+        IntVar y = VariableFactory.enumerated("y", 0, 5, solver);
+        IntVar z = VariableFactory.enumerated("z", 0, 5, solver);
+        solver.post(ICF.arithm(x, "<", y));
+        IncrementalSession session = new IncrementalSession(solver);
+        Assert.assertTrue(session.isConsistent());
+        Assert.assertEquals(x.getUB(), 4);
+        Assert.assertEquals(y.getLB(), 1);
+        int nbProps = y.getNbProps();
+
+        session.pushScope();
+        Assert.assertTrue(session.post(ICF.arithm(y, "<", z)));
+        Assert.assertEquals(x.getUB(), 3);
+        Assert.assertEquals(y.getUB(), 4);
+        Assert.assertEquals(z.getLB(), 2);
+        Assert.assertEquals(solver.getNbCstrs(), 2);
+
+        session.pushScope();
+        Assert.assertTrue(session.post(ICF.arithm(z, "<", 3)));
+        Assert.assertTrue(x.instantiatedTo(0));
+        Assert.assertTrue(y.instantiatedTo(1));
+        Assert.assertTrue(z.instantiatedTo(2));
+        session.popScope();
+        Assert.assertEquals(x.getUB(), 3);
+        Assert.assertEquals(z.getDomainSize(), 4);
+        Assert.assertEquals(solver.getNbCstrs(), 2);
+
+        session.popScope();
+        Assert.assertEquals(x.getUB(), 4);
+        Assert.assertEquals(y.getUB(), 5);
+        Assert.assertEquals(z.getLB(), 0);
+        Assert.assertEquals(solver.getNbCstrs(), 1);
+        Assert.assertEquals(y.getNbProps(), nbProps);
+        Assert.assertEquals(z.getNbProps(), 0);
+        Assert.assertEquals(z.getConstraints().length, 0);
+        Assert.assertEquals(session.findAllSolutions(), 90);
+    }
+
+    @Test(groups = "1s")
+    public void testInconsistentScope() {
+        Solver solver = new Solver();
+        IntVar x = VariableFactory.enumerated("x", 0, 5, solver);
+        IntVar y = VariableFactory.enumerated("y", 0, 5, solver);
+        solver.post(ICF.arithm(x, "<", y));
+        IncrementalSession session = new IncrementalSession(solver);
+
+        session.pushScope();
+        Assert.assertFalse(session.post(ICF.arithm(x, ">", 4)));
+        Assert.assertFalse(session.isConsistent());
+        session.pushScope();
+        Assert.assertFalse(session.post(ICF.arithm(y, "=", 5)));
+        Assert.assertNull(session.findSolution());
+        session.popScope();
+        Assert.assertFalse(session.isConsistent());
+        session.popScope();
+        Assert.assertTrue(session.isConsistent());
+        Assert.assertEquals(x.getUB(), 4);
+        Solution solution = session.findSolution();
+        Assert.assertNotNull(solution);
+        Assert.assertTrue(solution.getIntVal(x) < solution.getIntVal(y));
+        // the search state is left before the next query
+        session.pushScope();
+        Assert.assertTrue(session.post(ICF.arithm(y, "=", 3)));
+        Assert.assertEquals(session.findAllSolutions(), 3);
+        session.popScope();
+        Assert.assertEquals(session.findAllSolutions(), 15);
+    }
+
+    @Test(groups = "1s")
+    public void testOptimization() {
+        Solver solver = new Solver();
+        IntVar[] vars = VariableFactory.enumeratedArray("v", 4, 0, 6, solver);
+        IntVar sum = VariableFactory.bounded("s", 0, 24, solver);
+        solver.post(ICF.alldifferent(vars, "BC"));
+        solver.post(ICF.sum(vars, sum));
+        IncrementalSession session = new IncrementalSession(solver);
+        Assert.assertEquals(session.findOptimalSolution(ResolutionPolicy.MAXIMIZE, sum).getIntVal(sum), 18);
+        session.pushScope();
+        session.post(ICF.arithm(vars[0], "<", 2), ICF.arithm(vars[1], "<", 2));
+        Assert.assertEquals(session.findOptimalSolution(ResolutionPolicy.MAXIMIZE, sum).getIntVal(sum), 12);
+        Assert.assertEquals(session.findOptimalSolution(ResolutionPolicy.MINIMIZE, sum).getIntVal(sum), 6);
+        session.popScope();
+        Assert.assertEquals(session.findOptimalSolution(ResolutionPolicy.MINIMIZE, sum).getIntVal(sum), 6);
+        Assert.assertEquals(session.findOptimalSolution(ResolutionPolicy.MAXIMIZE, sum).getIntVal(sum), 18);
+    }
+
+    /**
+     * Random sequences of push/post/pop, compared with solvers rebuilt from scratch.
+     */
+    @Test(groups = "1s")
+    public void testRandomScopes() {
+        for (int seed = 0; seed < 20; seed++) {
+            Random rnd = new Random(seed);
+            Solver solver = new Solver();
+            IntVar[] vars = VariableFactory.enumeratedArray("v", 5, 0, 4, solver);
+            solver.post(ICF.arithm(vars[0], "!=", vars[1]));
+            solver.set(IntStrategyFactory.inputOrder_InDomainMin(vars));
+            IncrementalSession session = new IncrementalSession(solver);
+            List<int[]> active = new ArrayList<int[]>();
+            List<Integer> starts = new ArrayList<Integer>();
+            for (int step = 0; step < 40; step++) {
+                int action = rnd.nextInt(3);
+                if (action == 0) {
+                    session.pushScope();
+                    starts.add(active.size());
+                } else if (action == 1 && session.getDepth() > 0) {
+                    session.popScope();
+                    int start = starts.remove(starts.size() - 1);
+                    while (active.size() > start) {
+                        active.remove(active.size() - 1);
+                    }
+                } else if (session.getDepth() > 0) {
+                    int[] c = {rnd.nextInt(5), rnd.nextInt(5), rnd.nextInt(OPS.length)};
+                    while (c[1] == c[0]) {
+                        c[1] = rnd.nextInt(5);
+                    }
+                    active.add(c);
+                    session.post(make(vars, c));
+                }
+                Assert.assertEquals(session.findAllSolutions(), countFromScratch(active), "seed " + seed + ", step " + step);
+            }
+        }
+    }
+
+    private static Constraint make(IntVar[] vars, int[] c) {
+        return ICF.arithm(vars[c[0]], OPS[c[2]], vars[c[1]]);
+    }
+
+    private static long countFromScratch(List<int[]> active) {
+        Solver solver = new Solver();
+        IntVar[] vars = VariableFactory.enumeratedArray("v", 5, 0, 4, solver);
+        solver.post(ICF.arithm(vars[0], "!=", vars[1]));
+        for (int[] c : active) {
+            solver.post(make(vars, c));
+        }
+        solver.set(IntStrategyFactory.inputOrder_InDomainMin(vars));
+        return solver.findAllSolutions();
+    }
+}
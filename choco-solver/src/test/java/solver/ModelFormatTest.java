@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import solver.constraints.Constraint;
+import solver.constraints.ICF;
+import solver.constraints.extension.binary.CouplesTable;
+import solver.constraints.extension.nary.IterTuplesTable;
+import solver.constraints.extension.nary.TuplesTable;
+import solver.constraints.nary.automata.FA.FiniteAutomaton;
+import solver.variables.BoolVar;
+import solver.variables.IntVar;
+import solver.variables.VF;
+
+import java.io.*;
+import java.util.ArrayList;
+
+/**
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class ModelFormatTest {
+
+    @Test(groups = "1s")
+    public void testQueens() throws IOException {
+        int n = 8;
+        ModelRecorder rec = new ModelRecorder(new Solver("queens"));
+        IntVar[] Q = rec.invoke(VF.class, "enumeratedArray", "Q", n, 1, n, rec.getSolver());
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                int k = j - i;
+                rec.post(
+                        (Constraint) rec.invoke(ICF.class, "arithm", Q[i], "!=", Q[j]),
+                        (Constraint) rec.invoke(ICF.class, "arithm", Q[i], "!=", Q[j], "+", k),
+                        (Constraint) rec.invoke(ICF.class, "arithm", Q[i], "!=", Q[j], "-", k));
+            }
+        }
+        File file = File.createTempFile("queens", ".model");
+        try {
+            rec.write(file);
+            ModelRecorder read = ModelRecorder.read(file);
+            Solver solver = read.getSolver();
+            Assert.assertEquals(solver.getName(), "queens");
+            Assert.assertEquals(solver.getNbVars(), rec.getSolver().getNbVars());
+            Assert.assertEquals(solver.getNbCstrs(), rec.getSolver().getNbCstrs());
+            Assert.assertEquals(solver.findAllSolutions(), 92);
+            // the loaded recorder can be replayed too
+            Assert.assertEquals(read.replay().getSolver().findAllSolutions(), 92);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testArrays() throws IOException {
+        Solver solver = new Solver();
+        ModelRecorder rec = new ModelRecorder(solver);
+        IntVar[] x = rec.invoke(VF.class, "enumeratedArray", "x", 3, 0, 4, solver);
+        IntVar z = rec.invoke(VF.class, "bounded", "z", 0, 20, solver);
+        rec.post((Constraint) rec.invoke(ICF.class, "scalar", x, new int[]{1, 2, 3}, z));
+        rec.post((Constraint) rec.invoke(ICF.class, "arithm", z, ">=", 12));
+        rec.post((Constraint) rec.invoke(ICF.class, "member", x[0], new int[]{1, 3}));
+        rec.post((Constraint) rec.invoke(ICF.class, "alldifferent", x, "BC"));
+        rec.post((Constraint) rec.invoke(ICF.class, "arithm", x[1], "!=", VF.fixed(2, solver)));
+        File file = File.createTempFile("arrays", ".model");
+        try {
+            rec.write(file);
+            Solver copy = ModelRecorder.read(file).getSolver();
+            Assert.assertEquals(copy.findAllSolutions(), solver.findAllSolutions());
+            Assert.assertTrue(copy.getMeasures().getSolutionCount() > 0);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testTables() throws IOException {
+        Solver solver = new Solver();
+        ModelRecorder rec = new ModelRecorder(solver);
+        IntVar[] x = rec.invoke(VF.class, "enumeratedArray", "x", 4, 0, 3, solver);
+        CouplesTable couples = new CouplesTable(true, 0, 0, 4, 4);
+        for (int i = 0; i < 4; i++) {
+            couples.setCouple(i, 3 - i);
+        }
+        rec.post((Constraint) rec.invoke(ICF.class, "table", x[0], x[1], couples, "AC2001"));
+        ArrayList<int[]> tuples = new ArrayList<int[]>();
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                if (i + j <= 4) {
+                    tuples.add(new int[]{i, j, (i + j) % 4});
+                }
+            }
+        }
+        rec.post((Constraint) rec.invoke(ICF.class, "table", new IntVar[]{x[1], x[2], x[3]},
+                new IterTuplesTable(tuples, new int[]{0, 0, 0}, new int[]{4, 4, 4}), "AC32"));
+        // a relation which does not store its tuples is enumerated
+        TuplesTable forbidden = new TuplesTable(false, new int[]{0, 0}, new int[]{4, 4});
+        forbidden.setTuple(new int[]{1, 2});
+        forbidden.setTuple(new int[]{2, 2});
+        rec.post((Constraint) rec.invoke(ICF.class, "table", new IntVar[]{x[0], x[3]}, forbidden, "FC"));
+        File file = File.createTempFile("tables", ".model");
+        try {
+            rec.write(file);
+            Solver copy = ModelRecorder.read(file).getSolver();
+            Assert.assertEquals(copy.findAllSolutions(), solver.findAllSolutions());
+            Assert.assertTrue(copy.getMeasures().getSolutionCount() > 0);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testRegular() throws IOException {
+        Solver solver = new Solver();
+        ModelRecorder rec = new ModelRecorder(solver);
+        IntVar[] x = rec.invoke(VF.class, "enumeratedArray", "x", 6, 0, 2, solver);
+        BoolVar[] b = rec.invoke(VF.class, "boolArray", "b", 6, solver);
+        rec.post((Constraint) rec.invoke(ICF.class, "regular", x, new FiniteAutomaton("(0|1|2)*(0|1)(0|1)(0|1)(0|1|2)*")));
+        rec.post((Constraint) rec.invoke(ICF.class, "sum", b, solver.ONE));
+        IntVar y = rec.invoke(VF.class, "offset", x[0], 2);
+        rec.post((Constraint) rec.invoke(ICF.class, "arithm", y, "=", (IntVar) rec.invoke(VF.class, "scale", x[1], 2)));
+        rec.post((Constraint) rec.invoke(ICF.class, "arithm", b[0], "=", solver.ZERO));
+        File file = File.createTempFile("regular", ".model");
+        try {
+            rec.write(file);
+            Solver copy = ModelRecorder.read(file).getSolver();
+            Assert.assertEquals(copy.findAllSolutions(), solver.findAllSolutions());
+            Assert.assertTrue(copy.getMeasures().getSolutionCount() > 0);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testNoNameStored() throws IOException {
+        Solver solver = new Solver();
+        ModelRecorder rec = new ModelRecorder(solver);
+        IntVar[] x = rec.invoke(VF.class, "enumeratedArray", "x", 3, 0, 4, solver);
+        rec.post((Constraint) rec.invoke(ICF.class, "alldifferent", x, "BC"));
+        File file = File.createTempFile("names", ".model");
+        try {
+            rec.write(file);
+            byte[] bytes = new byte[(int) file.length()];
+            DataInputStream in = new DataInputStream(new FileInputStream(file));
+            in.readFully(bytes);
+            in.close();
+            String content = new String(bytes, "ISO-8859-1");
+            Assert.assertFalse(content.contains("alldifferent"));
+            Assert.assertFalse(content.contains("enumeratedArray"));
+            Assert.assertFalse(content.contains("solver."));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(groups = "1s", expectedExceptions = IOException.class)
+    public void testNotWritable() throws IOException {
+        Solver solver = new Solver();
+        ModelRecorder rec = new ModelRecorder(solver);
+        IntVar x = rec.invoke(VF.class, "enumerated", "x", 0, 5, solver);
+        Constraint c = rec.invoke(ICF.class, "arithm", x, ">", 2);
+        rec.invoke(c, "reif");
+        File file = File.createTempFile("reif", ".model");
+        try {
+            rec.write(file);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(groups = "1s", expectedExceptions = IOException.class)
+    public void testUnknownKind() throws IOException {
+        File file = File.createTempFile("unknown", ".model");
+        try {
+            DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+            out.writeInt(ModelFormat.MAGIC);
+            out.writeInt(ModelFormat.VERSION);
+            out.writeInt(0); // name
+            out.writeInt(1); // steps
+            out.writeInt(1); // strings
+            out.writeInt(1); // string bytes
+            out.writeInt(0); // constants
+            out.writeInt(1); // code
+            out.writeInt(0); // data
+            out.writeInt(1);
+            out.writeByte('m');
+            out.writeInt(999);
+            out.close();
+            ModelRecorder.read(file);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(groups = "1s", expectedExceptions = IOException.class)
+    public void testTruncated() throws IOException {
+        Solver solver = new Solver();
+        ModelRecorder rec = new ModelRecorder(solver);
+        IntVar[] x = rec.invoke(VF.class, "enumeratedArray", "x", 3, 0, 4, solver);
+        rec.post((Constraint) rec.invoke(ICF.class, "alldifferent", x, "BC"));
+        File file = File.createTempFile("truncated", ".model");
+        try {
+            rec.write(file);
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            raf.setLength(raf.length() - 8);
+            raf.close();
+            ModelRecorder.read(file);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(groups = "1s", expectedExceptions = IOException.class)
+    public void testNotAModel() throws IOException {
+        File file = File.createTempFile("bad", ".model");
+        try {
+            DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+            for (int i = 0; i < 32; i++) {
+                out.writeInt(i);
+            }
+            out.close();
+            ModelRecorder.read(file);
+        } finally {
+            file.delete();
+        }
+    }
+}
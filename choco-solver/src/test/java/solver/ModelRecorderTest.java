@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import solver.constraints.Constraint;
+import solver.constraints.ICF;
+import solver.exception.SolverException;
+import solver.search.strategy.ISF;
+import solver.search.strategy.strategy.AbstractStrategy;
+import solver.variables.BoolVar;
+import solver.variables.IntVar;
+import solver.variables.VF;
+
+/**
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class ModelRecorderTest {
+
+    private static IntVar[] queens(ModelRecorder rec, int n) {
+        IntVar[] Q = rec.invoke(VF.class, "enumeratedArray", "Q", n, 1, n, rec.getSolver());
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                int k = j - i;
+                rec.post(
+                        (Constraint) rec.invoke(ICF.class, "arithm", Q[i], "!=", Q[j]),
+                        (Constraint) rec.invoke(ICF.class, "arithm", Q[i], "!=", Q[j], "+", k),
+                        (Constraint) rec.invoke(ICF.class, "arithm", Q[i], "!=", Q[j], "-", k));
+            }
+        }
+        return Q;
+    }
+
+    @Test(groups = "1s")
+    public void testQueens() throws InterruptedException {
+        ModelRecorder rec = new ModelRecorder(new Solver("queens"));
+        IntVar[] Q = queens(rec, 8);
+        final ModelRecorder.Replay r1 = rec.replay();
+        final ModelRecorder.Replay r2 = rec.replay(false);
+        Assert.assertNotSame(r1.getSolver(), r2.getSolver());
+        Assert.assertEquals(r1.getSolver().getNbCstrs(), rec.getSolver().getNbCstrs());
+        Assert.assertEquals(r1.getSolver().getNbVars(), rec.getSolver().getNbVars());
+        IntVar[] Q1 = r1.get(Q);
+        Assert.assertEquals(Q1.length, 8);
+        Assert.assertSame(Q1[0].getSolver(), r1.getSolver());
+        Assert.assertSame(r1.get(Q[3]), Q1[3]);
+        // independent solvers, solved concurrently
+        final long[] counts = new long[2];
+        Thread t1 = new Thread() {
+            @Override
+            public void run() {
+                counts[0] = r1.getSolver().findAllSolutions();
+            }
+        };
+        Thread t2 = new Thread() {
+            @Override
+            public void run() {
+                counts[1] = r2.getSolver().findAllSolutions();
+            }
+        };
+        t1.start();
+        t2.start();
+        t1.join();
+        t2.join();
+        Assert.assertEquals(counts[0], 92);
+        Assert.assertEquals(counts[1], 92);
+        Assert.assertEquals(rec.getSolver().findAllSolutions(), 92);
+    }
+
+    @Test(groups = "1s")
+    public void testMixed() {
+        Solver solver = new Solver();
+        ModelRecorder rec = new ModelRecorder(solver);
+        IntVar x = rec.invoke(VF.class, "enumerated", "x", 0, 5, solver);
+        IntVar y = rec.invoke(VF.class, "bounded", "y", 0, 5, solver);
+        IntVar z = rec.invoke(VF.class, "bounded", "z", 0, 30, solver);
+        int[] coefs = {2, 3};
+        rec.post((Constraint) rec.invoke(ICF.class, "scalar", new IntVar[]{x, y}, coefs, z));
+        Constraint c = rec.invoke(ICF.class, "arithm", x, ">", VF.fixed(2, solver));
+        BoolVar b = rec.invoke(c, "reif");
+        rec.post((Constraint) rec.invoke(ICF.class, "arithm", b, "=", solver.ONE));
+        AbstractStrategy strategy = rec.invoke(ISF.class, "inputOrder_InDomainMin", (Object) new IntVar[]{x, y});
+        rec.invoke(solver, "set", strategy);
+
+        ModelRecorder.Replay r = rec.replay();
+        Solver copy = r.getSolver();
+        Assert.assertTrue(copy.findSolution());
+        Assert.assertTrue(solver.findSolution());
+        Assert.assertEquals(r.get(x).getValue(), 3);
+        Assert.assertEquals(r.get(y).getValue(), 0);
+        Assert.assertEquals(r.get(z).getValue(), 6);
+        Assert.assertEquals(r.get(b).getValue(), 1);
+        Assert.assertEquals(copy.getMeasures().getSolutionCount(), solver.getMeasures().getSolutionCount());
+        Assert.assertEquals(copy.getMeasures().getNodeCount(), solver.getMeasures().getNodeCount());
+    }
+
+    @Test(groups = "1s", expectedExceptions = SolverException.class)
+    public void testUnknownVariable() {
+        Solver solver = new Solver();
+        ModelRecorder rec = new ModelRecorder(solver);
+        IntVar x = rec.invoke(VF.class, "enumerated", "x", 0, 5, solver);
+        IntVar y = VF.enumerated("y", 0, 5, solver);
+        rec.invoke(ICF.class, "arithm", x, "<", y);
+    }
+}
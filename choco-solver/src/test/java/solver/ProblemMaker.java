@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver;
+
+import solver.constraints.ICF;
+import solver.variables.IntVar;
+import solver.variables.VF;
+
+/**
+ * Small models shared by the tests.
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class ProblemMaker {
+
+    private ProblemMaker() {
+    }
+
+    /**
+     * The n-queens problem, with binary constraints only: Q[i] is the row of the queen of column i, in [1,n].
+     *
+     * @param solver the solver
+     * @param n      number of queens
+     * @return the queens
+     */
+    public static IntVar[] queens(Solver solver, int n) {
+        IntVar[] Q = VF.enumeratedArray("Q", n, 1, n, solver);
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                int k = j - i;
+                solver.post(ICF.arithm(Q[i], "!=", Q[j]));
+                solver.post(ICF.arithm(Q[i], "!=", Q[j], "+", k));
+                solver.post(ICF.arithm(Q[i], "!=", Q[j], "-", k));
+            }
+        }
+        return Q;
+    }
+
+    /**
+     * The n-queens problem, with binary constraints only, in a new solver named "queens&lt;n&gt;".
+     *
+     * @param n number of queens
+     * @return the solver
+     */
+    public static Solver queens(int n) {
+        Solver solver = new Solver("queens" + n);
+        queens(solver, n);
+        return solver;
+    }
+
+    /**
+     * The n-queens problem, mixing global constraints, views and binary constraints:
+     * an AC alldifferent on the queens, a BC alldifferent on a diagonal and disequalities on the other one.
+     *
+     * @param solver the solver
+     * @param n      number of queens
+     * @return the queens
+     */
+    public static IntVar[] queensGlobal(Solver solver, int n) {
+        IntVar[] Q = VF.enumeratedArray("Q", n, 1, n, solver);
+        IntVar[] D1 = new IntVar[n];
+        IntVar[] D2 = new IntVar[n];
+        for (int i = 0; i < n; i++) {
+            D1[i] = VF.offset(Q[i], i);
+            D2[i] = VF.offset(Q[i], -i);
+        }
+        solver.post(ICF.alldifferent(Q, "AC"));
+        solver.post(ICF.alldifferent(D1, "BC"));
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                solver.post(ICF.arithm(D2[i], "!=", D2[j]));
+            }
+        }
+        return Q;
+    }
+
+    /**
+     * The pigeon-hole problem: pairwise different pigeons, in [1,m].
+     * It has no solution (but a huge search tree) when n &gt; m.
+     *
+     * @param solver  the solver
+     * @param n       number of pigeons
+     * @param m       number of holes
+     * @param bounded are the domains of the pigeons bounded or enumerated?
+     * @return the pigeons
+     */
+    public static IntVar[] pigeons(Solver solver, int n, int m, boolean bounded) {
+        IntVar[] P = bounded ? VF.boundedArray("P", n, 1, m, solver) : VF.enumeratedArray("P", n, 1, m, solver);
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                solver.post(ICF.arithm(P[i], "!=", P[j]));
+            }
+        }
+        return P;
+    }
+
+    /**
+     * A chain of n variables in [0,2n], each one strictly less than the next one.
+     *
+     * @param solver the solver
+     * @param n      number of variables
+     * @return the variables
+     */
+    public static IntVar[] chain(Solver solver, int n) {
+        IntVar[] X = VF.enumeratedArray("X", n, 0, 2 * n, solver);
+        for (int i = 0; i < n - 1; i++) {
+            solver.post(ICF.arithm(X[i], "<", X[i + 1]));
+        }
+        return X;
+    }
+}
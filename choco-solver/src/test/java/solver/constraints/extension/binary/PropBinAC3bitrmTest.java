@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.constraints.extension.binary;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import solver.Solver;
+import solver.constraints.ICF;
+import solver.constraints.extension.nary.IterTuplesTable;
+import solver.constraints.extension.nary.LargeCSP;
+import solver.search.strategy.ISF;
+import solver.variables.IntVar;
+import solver.variables.VariableFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class PropBinAC3bitrmTest {
+
+    // random binary CSP: n variables over [lb, lb + d - 1], one table per pair with probability 1/2
+    private static long[] solve(long seed, int n, int lb, int d, boolean feasible, String algo, boolean bounded) {
+        Random rnd = new Random(seed);
+        Solver solver = new Solver();
+        IntVar[] vars = bounded ? VariableFactory.boundedArray("X", n, lb, lb + d - 1, solver)
+                : VariableFactory.enumeratedArray("X", n, lb, lb + d - 1, solver);
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (rnd.nextBoolean()) {
+                    CouplesTable table = new CouplesTable(feasible, lb, lb, d, d);
+                    for (int a = lb; a < lb + d; a++) {
+                        for (int b = lb; b < lb + d; b++) {
+                            if (rnd.nextInt(10) < (feasible ? 6 : 3)) {
+                                table.setCouple(a, b);
+                            }
+                        }
+                    }
+                    solver.post(ICF.table(vars[i], vars[j], table, algo));
+                }
+            }
+        }
+        solver.set(ISF.inputOrder_InDomainMin(vars));
+        solver.findAllSolutions();
+        return new long[]{solver.getMeasures().getSolutionCount(), solver.getMeasures().getNodeCount()};
+    }
+
+    @Test(groups = "1s")
+    public void testRandom() {
+        for (long seed = 0; seed < 40; seed++) {
+            boolean feasible = seed % 2 == 0;
+            int lb = (int) (seed % 5) - 2;
+            long[] ref = solve(seed, 6, lb, 5, feasible, "AC2001", false);
+            long[] res = solve(seed, 6, lb, 5, feasible, "AC3bitrm", false);
+            Assert.assertEquals(res[0], ref[0], "seed " + seed);
+            Assert.assertEquals(res[1], ref[1], "seed " + seed);
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testLargeDomains() {
+        for (long seed = 0; seed < 5; seed++) {
+            long[] ref = solve(seed, 3, -70, 150, seed % 2 == 0, "AC2001", false);
+            long[] res = solve(seed, 3, -70, 150, seed % 2 == 0, "AC3bitrm", false);
+            Assert.assertEquals(res[0], ref[0], "seed " + seed);
+            Assert.assertEquals(res[1], ref[1], "seed " + seed);
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testBounded() {
+        for (long seed = 0; seed < 20; seed++) {
+            long[] ref = solve(seed, 5, 0, 4, true, "AC2001", true);
+            long[] res = solve(seed, 5, 0, 4, true, "AC3bitrm", true);
+            Assert.assertEquals(res[0], ref[0], "seed " + seed);
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testLargeCSP() {
+        Random rnd = new Random(0);
+        for (int t = 0; t < 20; t++) {
+            List<int[]> tuples = new ArrayList<int[]>();
+            for (int a = 0; a < 6; a++) {
+                for (int b = 0; b < 6; b++) {
+                    if (rnd.nextInt(3) == 0) {
+                        tuples.add(new int[]{a, b});
+                    }
+                }
+            }
+            long[] counts = new long[2];
+            for (int k = 0; k < 2; k++) {
+                Solver solver = new Solver();
+                IntVar[] vars = VariableFactory.enumeratedArray("X", 3, 0, 5, solver);
+                for (int i = 0; i < 2; i++) {
+                    IntVar[] scope = new IntVar[]{vars[i], vars[i + 1]};
+                    if (k == 0) {
+                        CouplesTable table = new CouplesTable(true, 0, 0, 6, 6);
+                        for (int[] tuple : tuples) {
+                            table.setCouple(tuple[0], tuple[1]);
+                        }
+                        solver.post(ICF.table(scope[0], scope[1], table, "AC2001"));
+                    } else {
+                        LargeCSP c = ICF.table(scope, new IterTuplesTable(tuples, new int[]{0, 0}, new int[]{6, 6}), "AC32");
+                        Assert.assertTrue(c.getPropagators()[0] instanceof PropBinAC3bitrm);
+                        solver.post(c);
+                    }
+                }
+                solver.findAllSolutions();
+                counts[k] = solver.getMeasures().getSolutionCount();
+            }
+            Assert.assertEquals(counts[1], counts[0]);
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testLargeCSPLargeDomains() {
+        // bitwise supports would need 10^10 bits: tuple-based propagators are kept
+        List<int[]> tuples = new ArrayList<int[]>();
+        tuples.add(new int[]{0, 100000});
+        tuples.add(new int[]{50000, 7});
+        tuples.add(new int[]{100000, 0});
+        Solver solver = new Solver();
+        IntVar[] vars = VariableFactory.enumeratedArray("X", 2, 0, 100000, solver);
+        LargeCSP c = ICF.table(vars, new IterTuplesTable(tuples, new int[]{0, 0}, new int[]{100001, 100001}), "AC32");
+        Assert.assertFalse(c.getPropagators()[0] instanceof PropBinAC3bitrm);
+        solver.post(c);
+        solver.findAllSolutions();
+        Assert.assertEquals(solver.getMeasures().getSolutionCount(), 3);
+    }
+}
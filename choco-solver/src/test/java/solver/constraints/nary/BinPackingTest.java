@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.constraints.nary;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import solver.Solver;
+import solver.constraints.ICF;
+import solver.exception.ContradictionException;
+import solver.exception.SolverException;
+import solver.search.strategy.ISF;
+import solver.variables.IntVar;
+import solver.variables.VF;
+import util.tools.ArrayUtils;
+
+import java.util.Random;
+
+/**
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class BinPackingTest {
+
+    private static long solve(long seed, boolean decomp, boolean bounded) {
+        Random rnd = new Random(seed);
+        int n = 3 + rnd.nextInt(4);
+        int m = 2 + rnd.nextInt(3);
+        int offset = rnd.nextInt(2);
+        Solver solver = new Solver();
+        int[] sizes = new int[n];
+        IntVar[] items = new IntVar[n];
+        for (int i = 0; i < n; i++) {
+            sizes[i] = rnd.nextInt(6);
+            int lb = offset + rnd.nextInt(2);
+            int ub = offset + m - 1 - rnd.nextInt(2);
+            if (bounded) {
+                items[i] = VF.bounded("i" + i, lb - 1, ub + 1, solver);
+            } else {
+                items[i] = VF.enumerated("i" + i, Math.min(lb, ub), ub, solver);
+            }
+        }
+        IntVar[] loads = new IntVar[m];
+        for (int b = 0; b < m; b++) {
+            int lb = rnd.nextInt(4);
+            loads[b] = VF.bounded("l" + b, lb, lb + 2 + rnd.nextInt(8), solver);
+        }
+        solver.post(decomp ? ICF.bin_packing_decomposition(items, sizes, loads, offset) : ICF.bin_packing(items, sizes, loads, offset));
+        solver.set(ISF.inputOrder_InDomainMin(ArrayUtils.append(items, loads)));
+        return solver.findAllSolutions();
+    }
+
+    @Test(groups = "1s")
+    public void testRandom() {
+        for (long seed = 0; seed < 300; seed++) {
+            Assert.assertEquals(solve(seed, false, false), solve(seed, true, false), "seed " + seed);
+            Assert.assertEquals(solve(seed, false, true), solve(seed, true, true), "seed " + seed);
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testRandomSearch() {
+        // larger instances, random search, loads constrained together
+        for (long seed = 0; seed < 30; seed++) {
+            long[] counts = new long[2];
+            for (int k = 0; k < 2; k++) {
+                Random rnd = new Random(seed);
+                int n = 6 + rnd.nextInt(3);
+                int m = 3;
+                Solver solver = new Solver();
+                int[] sizes = new int[n];
+                for (int i = 0; i < n; i++) {
+                    sizes[i] = 1 + rnd.nextInt(9);
+                }
+                IntVar[] items = VF.enumeratedArray("i", n, 0, m - 1, solver);
+                IntVar[] loads = VF.boundedArray("l", m, 0, 15 + rnd.nextInt(10), solver);
+                solver.post(k == 0 ? ICF.bin_packing(items, sizes, loads, 0) : ICF.bin_packing_decomposition(items, sizes, loads, 0));
+                solver.post(ICF.arithm(loads[0], ">=", loads[1]));
+                solver.set(ISF.random(ArrayUtils.append(items, loads), seed));
+                counts[k] = solver.findAllSolutions();
+            }
+            Assert.assertEquals(counts[0], counts[1], "seed " + seed);
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testLargeBounds() {
+        // sums of load bounds exceed the int range
+        for (int k = 0; k < 2; k++) {
+            Solver solver = new Solver();
+            IntVar[] items = VF.enumeratedArray("i", 3, 0, 2, solver);
+            IntVar[] loads = VF.boundedArray("l", 3, 0, Integer.MAX_VALUE - 1, solver);
+            int[] sizes = {3, 3, 4};
+            solver.post(k == 0 ? ICF.bin_packing(items, sizes, loads, 0) : ICF.bin_packing_decomposition(items, sizes, loads, 0));
+            solver.set(ISF.inputOrder_InDomainMin(ArrayUtils.append(items, loads)));
+            Assert.assertEquals(solver.findAllSolutions(), 27);
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testKnapsackReasoning() throws ContradictionException {
+        Solver solver = new Solver();
+        IntVar[] items = VF.enumeratedArray("i", 3, 0, 1, solver);
+        IntVar[] loads = VF.boundedArray("l", 2, 0, 30, solver);
+        solver.post(ICF.bin_packing(items, new int[]{10, 10, 10}, loads, 0));
+        solver.post(ICF.arithm(loads[0], ">=", 11));
+        solver.post(ICF.arithm(loads[0], "<=", 19));
+        solver.getEnvironment().worldPush();
+        try {
+            solver.propagate();
+            Assert.fail();
+        } catch (ContradictionException ignored) {
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testNbBins() throws ContradictionException {
+        // 5 items of size 6 can not be packed into 4 bins of capacity 10
+        Solver solver = new Solver();
+        IntVar[] items = VF.enumeratedArray("i", 5, 0, 3, solver);
+        IntVar[] loads = VF.boundedArray("l", 4, 0, 10, solver);
+        solver.post(ICF.bin_packing(items, new int[]{6, 6, 6, 6, 6}, loads, 0));
+        Assert.assertFalse(solver.findSolution());
+        Assert.assertEquals(solver.getMeasures().getNodeCount(), 0);
+    }
+
+    @Test(groups = "1s")
+    public void testNoItem() throws ContradictionException {
+        Solver solver = new Solver();
+        IntVar[] loads = VF.boundedArray("l", 3, 0, 10, solver);
+        solver.post(ICF.bin_packing(new IntVar[0], new int[0], loads, 0));
+        solver.propagate();
+        for (int b = 0; b < 3; b++) {
+            Assert.assertTrue(loads[b].instantiatedTo(0));
+        }
+        Assert.assertEquals(solver.findAllSolutions(), 1);
+    }
+
+    @Test(groups = "1s", expectedExceptions = SolverException.class)
+    public void testNoBin() {
+        Solver solver = new Solver();
+        IntVar[] items = VF.enumeratedArray("i", 2, 0, 1, solver);
+        ICF.bin_packing(items, new int[]{1, 2}, new IntVar[0], 0);
+    }
+
+    @Test(groups = "10s")
+    public void testLarge() {
+        int n = 5000, m = 500;
+        Random rnd = new Random(0);
+        Solver solver = new Solver();
+        int[] sizes = new int[n];
+        for (int i = 0; i < n; i++) {
+            sizes[i] = 1 + rnd.nextInt(10);
+        }
+        IntVar[] items = VF.enumeratedArray("i", n, 0, m - 1, solver);
+        IntVar[] loads = VF.boundedArray("l", m, 0, 100, solver);
+        solver.post(ICF.bin_packing(items, sizes, loads, 0));
+        Assert.assertEquals(solver.getNbVars(), n + m);
+        solver.set(ISF.inputOrder_InDomainMin(items));
+        Assert.assertTrue(solver.findSolution());
+        Assert.assertEquals(solver.getMeasures().getFailCount(), 0);
+    }
+}
@@ -33,11 +33,13 @@ import solver.Solver;
 import solver.constraints.IntConstraintFactory;
 import solver.constraints.nary.globalcardinality.GlobalCardinality;
 import solver.exception.ContradictionException;
+import solver.search.loop.monitors.SearchMonitorFactory;
 import solver.search.strategy.IntStrategyFactory;
 import solver.variables.IntVar;
 import solver.variables.VariableFactory;
 import util.tools.ArrayUtils;
 
+import java.util.Arrays;
 import java.util.Random;
 
 /**
@@ -147,4 +149,135 @@ public class BoundGlobalCardinlityTest {
 
         }
     }
+
+    @Test(groups = "1s")
+    public void testRandomBC() {
+        Random random = new Random();
+        for (int seed = 0; seed < 300; seed++) {
+            random.setSeed(seed);
+            int n = 1 + random.nextInt(6);
+            int m = 1 + random.nextInt(4);
+            int offset = random.nextInt(5) - 2;
+            int[] values = new int[m];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = i;
+            }
+            Solver solver = new Solver();
+            {
+                IntVar[] vars = VariableFactory.boundedArray("vars", n, offset, offset + m, solver);
+                IntVar[] cards = VariableFactory.boundedArray("cards", m, 0, n, solver);
+                solver.post(IntConstraintFactory.global_cardinality(vars, values, cards, false, "BC"));
+                solver.set(IntStrategyFactory.random(ArrayUtils.append(vars, cards), seed));
+            }
+            Solver ref = new Solver();
+            {
+                IntVar[] vars = VariableFactory.boundedArray("vars", n, offset, offset + m, ref);
+                IntVar[] cards = VariableFactory.boundedArray("cards", m, 0, n, ref);
+                ref.post(IntConstraintFactory.global_cardinality(vars, values, cards, false));
+                ref.set(IntStrategyFactory.presetI(ArrayUtils.append(vars, cards)));
+            }
+            solver.findAllSolutions();
+            ref.findAllSolutions();
+            Assert.assertEquals(solver.getMeasures().getSolutionCount(), ref.getMeasures().getSolutionCount());
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testBoundConsistency() {
+        Random random = new Random();
+        for (int seed = 0; seed < 500; seed++) {
+            random.setSeed(seed);
+            int n = 1 + random.nextInt(5);
+            int m = 1 + random.nextInt(4);
+            Solver solver = new Solver();
+            IntVar[] vars = new IntVar[n];
+            int[][] doms = new int[n][2];
+            for (int i = 0; i < n; i++) {
+                // value m is not constrained
+                doms[i][0] = random.nextInt(m + 1);
+                doms[i][1] = doms[i][0] + random.nextInt(m + 1 - doms[i][0]);
+                vars[i] = VariableFactory.bounded("v" + i, doms[i][0], doms[i][1], solver);
+            }
+            int[] values = new int[m];
+            int[][] occ = new int[m][2];
+            IntVar[] cards = new IntVar[m];
+            for (int j = 0; j < m; j++) {
+                values[j] = j;
+                occ[j][0] = random.nextInt(2);
+                occ[j][1] = occ[j][0] + random.nextInt(n);
+                cards[j] = VariableFactory.bounded("c" + j, occ[j][0], occ[j][1], solver);
+            }
+            solver.post(IntConstraintFactory.global_cardinality(vars, values, cards, false, "BC"));
+            // brute force: smallest and largest supported value of each variable
+            int[] min = new int[n], max = new int[n];
+            Arrays.fill(min, Integer.MAX_VALUE);
+            Arrays.fill(max, Integer.MIN_VALUE);
+            int[] tuple = new int[n];
+            for (int i = 0; i < n; i++) {
+                tuple[i] = doms[i][0];
+            }
+            boolean sat = false;
+            while (tuple != null) {
+                int[] count = new int[m + 1];
+                for (int i = 0; i < n; i++) {
+                    count[tuple[i]]++;
+                }
+                boolean ok = true;
+                for (int j = 0; j < m && ok; j++) {
+                    ok = occ[j][0] <= count[j] && count[j] <= occ[j][1];
+                }
+                if (ok) {
+                    sat = true;
+                    for (int i = 0; i < n; i++) {
+                        min[i] = Math.min(min[i], tuple[i]);
+                        max[i] = Math.max(max[i], tuple[i]);
+                    }
+                }
+                int k = 0;
+                while (k < n && tuple[k] == doms[k][1]) {
+                    tuple[k] = doms[k][0];
+                    k++;
+                }
+                if (k == n) {
+                    tuple = null;
+                } else {
+                    tuple[k]++;
+                }
+            }
+            try {
+                solver.propagate();
+                Assert.assertTrue(sat, "seed " + seed);
+                for (int i = 0; i < n; i++) {
+                    Assert.assertEquals(vars[i].getLB(), min[i], "seed " + seed);
+                    Assert.assertEquals(vars[i].getUB(), max[i], "seed " + seed);
+                }
+            } catch (ContradictionException e) {
+                Assert.assertFalse(sat, "seed " + seed);
+            }
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testLargeBC() {
+        // timetabling-like: 2000 events, 200 slots, each slot holds between 5 and 15 events
+        Random random = new Random(0);
+        int n = 2000, m = 200;
+        Solver solver = new Solver();
+        IntVar[] vars = new IntVar[n];
+        for (int i = 0; i < n; i++) {
+            int lb = random.nextInt(m - 20);
+            vars[i] = VariableFactory.bounded("v" + i, lb, lb + 20, solver);
+        }
+        int[] values = new int[m];
+        IntVar[] cards = new IntVar[m];
+        for (int j = 0; j < m; j++) {
+            values[j] = j;
+            cards[j] = VariableFactory.bounded("c" + j, 5, 15, solver);
+        }
+        solver.post(IntConstraintFactory.global_cardinality(vars, values, cards, true, "BC"));
+        solver.set(IntStrategyFactory.inputOrder_InDomainMin(vars));
+        SearchMonitorFactory.limitNode(solver, 500);
+        solver.findSolution();
+        Assert.assertTrue(solver.getMeasures().getNodeCount() > 0);
+    }
 }
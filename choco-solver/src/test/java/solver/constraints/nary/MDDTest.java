@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.constraints.nary;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import solver.Solver;
+import solver.constraints.ICF;
+import solver.constraints.nary.automata.FA.FiniteAutomaton;
+import solver.constraints.nary.mdd.MultivaluedDecisionDiagram;
+import solver.search.strategy.ISF;
+import solver.variables.IntVar;
+import solver.variables.VariableFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class MDDTest {
+
+    private static long solve(MultivaluedDecisionDiagram mdd, int n, int lb, int ub, long seed) {
+        Solver solver = new Solver();
+        IntVar[] vars = VariableFactory.enumeratedArray("X", n, lb, ub, solver);
+        solver.post(ICF.mdd(vars, mdd));
+        solver.set(ISF.random(vars, seed));
+        solver.findAllSolutions();
+        return solver.getMeasures().getSolutionCount();
+    }
+
+    @Test(groups = "1s")
+    public void testRandomTuples() {
+        Random rnd = new Random(0);
+        for (int t = 0; t < 30; t++) {
+            int n = 2 + rnd.nextInt(5);
+            List<int[]> tuples = new ArrayList<int[]>();
+            Set<String> distinct = new HashSet<String>();
+            for (int k = rnd.nextInt(60); k >= 0; k--) {
+                int[] tuple = new int[n];
+                StringBuilder key = new StringBuilder();
+                for (int i = 0; i < n; i++) {
+                    tuple[i] = rnd.nextInt(5) - 1;
+                    key.append(tuple[i]).append(',');
+                }
+                tuples.add(tuple);
+                distinct.add(key.toString());
+            }
+            MultivaluedDecisionDiagram mdd = MultivaluedDecisionDiagram.fromTuples(tuples);
+            Assert.assertEquals(mdd.count(), distinct.size());
+            for (int[] tuple : tuples) {
+                Assert.assertTrue(mdd.contains(tuple));
+            }
+            // all variables over [-1, 3] and, for the pruning, over [0, 2]
+            Assert.assertEquals(solve(mdd, n, -1, 3, t), distinct.size(), "t " + t);
+            int expected = 0;
+            for (int[] tuple : tuples) {
+                boolean in = true;
+                for (int i = 0; i < n && in; i++) {
+                    in = tuple[i] >= 0 && tuple[i] <= 2;
+                }
+                StringBuilder key = new StringBuilder();
+                for (int i = 0; i < n; i++) {
+                    key.append(tuple[i]).append(',');
+                }
+                if (in && distinct.remove(key.toString())) {
+                    expected++;
+                }
+            }
+            Assert.assertEquals(solve(mdd, n, 0, 2, t), expected, "t " + t);
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testWithOtherConstraints() {
+        Random rnd = new Random(0);
+        for (int t = 0; t < 300; t++) {
+            int n = 3 + rnd.nextInt(3);
+            List<int[]> tuples = new ArrayList<int[]>();
+            for (int k = 1 + rnd.nextInt(80); k > 0; k--) {
+                int[] tuple = new int[n];
+                for (int i = 0; i < n; i++) {
+                    tuple[i] = rnd.nextInt(n);
+                }
+                tuples.add(tuple);
+            }
+            MultivaluedDecisionDiagram mdd = MultivaluedDecisionDiagram.fromTuples(tuples);
+            // brute force: distinct tuples with pairwise distinct values
+            Set<String> expected = new HashSet<String>();
+            for (int[] tuple : tuples) {
+                boolean alldiff = true;
+                for (int i = 0; i < n && alldiff; i++) {
+                    for (int j = i + 1; j < n && alldiff; j++) {
+                        alldiff = tuple[i] != tuple[j];
+                    }
+                }
+                if (alldiff) {
+                    StringBuilder key = new StringBuilder();
+                    for (int i = 0; i < n; i++) {
+                        key.append(tuple[i]).append(',');
+                    }
+                    expected.add(key.toString());
+                }
+            }
+            for (int decomp = 0; decomp < 2; decomp++) {
+                Solver solver = new Solver();
+                IntVar[] vars = VariableFactory.enumeratedArray("X", n, 0, n - 1, solver);
+                solver.post(ICF.mdd(vars, mdd));
+                if (decomp == 0) {
+                    solver.post(ICF.alldifferent(vars, "AC"));
+                } else {
+                    for (int i = 0; i < n; i++) {
+                        for (int j = i + 1; j < n; j++) {
+                            solver.post(ICF.arithm(vars[i], "!=", vars[j]));
+                        }
+                    }
+                }
+                solver.set(ISF.random(vars, t));
+                solver.findAllSolutions();
+                Assert.assertEquals(solver.getMeasures().getSolutionCount(), expected.size(), "t " + t);
+            }
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testReduction() {
+        // all the tuples of {0,1,2}^6 with an even sum: two nodes per layer
+        List<int[]> tuples = new ArrayList<int[]>();
+        int[] tuple = new int[6];
+        for (int k = 0; k < 729; k++) {
+            int sum = 0;
+            for (int i = 0, r = k; i < 6; i++, r /= 3) {
+                tuple[i] = r % 3;
+                sum += tuple[i];
+            }
+            if (sum % 2 == 0) {
+                tuples.add(tuple.clone());
+            }
+        }
+        MultivaluedDecisionDiagram mdd = MultivaluedDecisionDiagram.fromTuples(tuples);
+        Assert.assertEquals(mdd.count(), tuples.size());
+        Assert.assertEquals(mdd.getNbNodes(), 1 + 2 * 5 + 1);
+        Assert.assertEquals(solve(mdd, 6, 0, 2, 0), tuples.size());
+    }
+
+    @Test(groups = "1s")
+    public void testAutomaton() {
+        FiniteAutomaton auto = new FiniteAutomaton("(0|1|2)*(0|1)(0|1)(0|1)(0|1|2)*");
+        for (int n = 3; n < 8; n++) {
+            MultivaluedDecisionDiagram mdd = MultivaluedDecisionDiagram.fromAutomaton(auto, n);
+            Solver solver = new Solver();
+            IntVar[] vars = VariableFactory.enumeratedArray("X", n, 0, 2, solver);
+            solver.post(ICF.regular(vars, auto));
+            solver.findAllSolutions();
+            long count = solver.getMeasures().getSolutionCount();
+            Assert.assertEquals(mdd.count(), count, "n " + n);
+            Assert.assertEquals(solve(mdd, n, 0, 2, n), count, "n " + n);
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testShared() {
+        MultivaluedDecisionDiagram mdd = MultivaluedDecisionDiagram.fromAutomaton(new FiniteAutomaton("1(2|3)*4"), 5);
+        Solver s1 = new Solver();
+        Solver s2 = new Solver();
+        IntVar[] v1 = VariableFactory.enumeratedArray("X", 5, 0, 5, s1);
+        IntVar[] v2 = VariableFactory.enumeratedArray("X", 5, 0, 5, s2);
+        s1.post(ICF.mdd(v1, mdd));
+        s2.post(ICF.mdd(v2, mdd));
+        s2.post(ICF.arithm(v2[2], "=", 3));
+        s1.findAllSolutions();
+        s2.findAllSolutions();
+        Assert.assertEquals(s1.getMeasures().getSolutionCount(), 8);
+        Assert.assertEquals(s2.getMeasures().getSolutionCount(), 4);
+    }
+}
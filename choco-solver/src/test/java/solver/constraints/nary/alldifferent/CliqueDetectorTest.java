@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.constraints.nary.alldifferent;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import solver.Solver;
+import solver.constraints.Constraint;
+import solver.constraints.ICF;
+import solver.constraints.LCF;
+import solver.search.strategy.ISF;
+import solver.variables.BoolVar;
+import solver.variables.IntVar;
+import solver.variables.VariableFactory;
+
+import java.util.Random;
+
+/**
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class CliqueDetectorTest {
+
+    private static int count(Solver solver, Class clazz) {
+        int n = 0;
+        for (Constraint c : solver.getCstrs()) {
+            if (clazz.isInstance(c)) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    @Test(groups = "1s")
+    public void testQueens() {
+        for (String consistency : new String[]{"BC", "AC"}) {
+            Solver solver = new Solver();
+            int n = 8;
+            IntVar[] vars = VariableFactory.enumeratedArray("Q", n, 1, n, solver);
+            for (int i = 0; i < n - 1; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    int k = j - i;
+                    solver.post(ICF.arithm(vars[i], "!=", vars[j]));
+                    solver.post(ICF.arithm(vars[i], "!=", vars[j], "+", -k));
+                    solver.post(ICF.arithm(vars[i], "!=", vars[j], "+", k));
+                }
+            }
+            int before = solver.getNbCstrs();
+            Assert.assertEquals(CliqueDetector.detect(solver, consistency), 1);
+            Assert.assertEquals(solver.getNbCstrs(), before - n * (n - 1) / 2 + 1);
+            Assert.assertEquals(count(solver, AllDifferent.class), 1);
+            solver.set(ISF.inputOrder_InDomainMin(vars));
+            solver.findAllSolutions();
+            Assert.assertEquals(solver.getMeasures().getSolutionCount(), 92);
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testPigeons() {
+        long[] nodes = new long[2];
+        for (int t = 0; t < 2; t++) {
+            Solver solver = new Solver();
+            int n = 7;
+            IntVar[] vars = VariableFactory.enumeratedArray("P", n + 1, 1, n, solver);
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j <= n; j++) {
+                    solver.post(ICF.arithm(vars[i], "!=", vars[j]));
+                }
+            }
+            if (t == 1) {
+                Assert.assertEquals(CliqueDetector.detect(solver, "AC"), 1);
+            }
+            solver.set(ISF.inputOrder_InDomainMin(vars));
+            Assert.assertFalse(solver.findSolution());
+            nodes[t] = solver.getMeasures().getNodeCount();
+        }
+        Assert.assertEquals(nodes[1], 0);
+        Assert.assertTrue(nodes[0] > 1000);
+    }
+
+    @Test(groups = "1s")
+    public void testColoring() {
+        Random rnd = new Random();
+        for (int seed = 0; seed < 30; seed++) {
+            rnd.setSeed(seed);
+            int n = 8 + rnd.nextInt(4);
+            boolean[][] edges = new boolean[n][n];
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    edges[i][j] = rnd.nextInt(10) < 6;
+                }
+            }
+            int k = 3 + rnd.nextInt(3);
+            long[] sols = new long[2];
+            for (int t = 0; t < 2; t++) {
+                Solver solver = new Solver();
+                IntVar[] vars = VariableFactory.enumeratedArray("C", n, 1, k, solver);
+                for (int i = 0; i < n; i++) {
+                    for (int j = i + 1; j < n; j++) {
+                        if (edges[i][j]) {
+                            solver.post(ICF.arithm(vars[i], "!=", vars[j]));
+                        }
+                    }
+                }
+                if (t == 1) {
+                    CliqueDetector.detect(solver, "BC");
+                    Assert.assertTrue(count(solver, AllDifferent.class) > 0, "seed " + seed);
+                }
+                solver.set(ISF.inputOrder_InDomainMin(vars));
+                solver.findAllSolutions();
+                sols[t] = solver.getMeasures().getSolutionCount();
+            }
+            Assert.assertEquals(sols[1], sols[0], "seed " + seed);
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testReified() {
+        Solver solver = new Solver();
+        IntVar[] vars = VariableFactory.enumeratedArray("X", 3, 1, 3, solver);
+        solver.post(ICF.arithm(vars[0], "!=", vars[1]));
+        solver.post(ICF.arithm(vars[1], "!=", vars[2]));
+        BoolVar b = VariableFactory.bool("b", solver);
+        Constraint c = ICF.arithm(vars[0], "!=", vars[2]);
+        solver.post(LCF.reification(b, c));
+        Assert.assertEquals(CliqueDetector.detect(solver, "BC"), 0);
+        Assert.assertEquals(count(solver, AllDifferent.class), 0);
+        solver.findAllSolutions();
+        Assert.assertEquals(solver.getMeasures().getSolutionCount(), 12);
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.constraints.symmetry;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import solver.ProblemMaker;
+import solver.Solver;
+import solver.constraints.ICF;
+import solver.constraints.SymmetryFactory;
+import solver.exception.SolverException;
+import solver.search.strategy.ISF;
+import solver.variables.BoolVar;
+import solver.variables.IntVar;
+import solver.variables.VariableFactory;
+import util.tools.ArrayUtils;
+
+/**
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class SymmetryBreakingTest {
+
+    private static final int NONE = 0, LEX = 1, DLEX = 2, SBDS = 3;
+
+    // permutation matrices of size n: n! solutions, rows and columns interchangeable
+    private static long permutations(int n, int mode) {
+        Solver solver = new Solver();
+        BoolVar[][] m = VariableFactory.boolMatrix("M", n, n, solver);
+        BoolVar[][] t = ArrayUtils.transpose(m);
+        IntVar one = VariableFactory.fixed(1, solver);
+        for (int i = 0; i < n; i++) {
+            solver.post(ICF.sum(m[i], one));
+            solver.post(ICF.sum(t[i], one));
+        }
+        switch (mode) {
+            case LEX:
+                solver.post(SymmetryFactory.lex_leader(SymmetryFactory.row_interchangeability(m)));
+                break;
+            case DLEX:
+                solver.post(SymmetryFactory.double_lex(m));
+                break;
+            case SBDS:
+                SymmetryFactory.sbds(solver, SymmetryFactory.row_interchangeability(m));
+                break;
+        }
+        solver.set(ISF.inputOrder_InDomainMin(ArrayUtils.flatten(m)));
+        solver.findAllSolutions();
+        return solver.getMeasures().getSolutionCount();
+    }
+
+    @Test(groups = "1s")
+    public void testRows() {
+        Assert.assertEquals(permutations(4, NONE), 24);
+        Assert.assertEquals(permutations(4, LEX), 1);
+        Assert.assertEquals(permutations(4, DLEX), 1);
+        Assert.assertEquals(permutations(4, SBDS), 1);
+    }
+
+    private static long values(int mode) {
+        Solver solver = new Solver();
+        IntVar[] x = VariableFactory.enumeratedArray("X", 3, 0, 2, solver);
+        solver.post(ICF.alldifferent(x, "BC"));
+        switch (mode) {
+            case LEX:
+                solver.post(SymmetryFactory.lex_leader(SymmetryFactory.value_interchangeability(x, 0, 1, 2)));
+                break;
+            case SBDS:
+                SymmetryFactory.sbds(solver, SymmetryFactory.value_interchangeability(x, 0, 1, 2));
+                break;
+        }
+        solver.set(ISF.inputOrder_InDomainMin(x));
+        solver.findAllSolutions();
+        return solver.getMeasures().getSolutionCount();
+    }
+
+    @Test(groups = "1s")
+    public void testValues() {
+        Assert.assertEquals(values(NONE), 6);
+        Assert.assertEquals(values(LEX), 1);
+        Assert.assertEquals(values(SBDS), 1);
+    }
+
+    // n + 1 pigeons, n holes
+    private static Solver pigeons(int n, boolean sbds) {
+        Solver solver = new Solver();
+        IntVar[] p = ProblemMaker.pigeons(solver, n + 1, n, false);
+        if (sbds) {
+            int[] holes = new int[n];
+            for (int i = 0; i < n; i++) {
+                holes[i] = i + 1;
+            }
+            SBDS monitor = SymmetryFactory.sbds(solver, ArrayUtils.append(
+                    SymmetryFactory.variable_interchangeability(p),
+                    SymmetryFactory.value_interchangeability(p, holes)));
+            Assert.assertEquals(monitor.getNbNogoods(), 0);
+        }
+        solver.set(ISF.inputOrder_InDomainMin(p));
+        Assert.assertFalse(solver.findSolution());
+        return solver;
+    }
+
+    @Test(groups = "1s")
+    public void testPigeons() {
+        long ref = pigeons(7, false).getMeasures().getNodeCount();
+        long sbds = pigeons(7, true).getMeasures().getNodeCount();
+        Assert.assertTrue(sbds * 100 < ref, sbds + " vs. " + ref);
+    }
+
+    @Test(groups = "1s")
+    public void testFeasibility() {
+        // variables are interchangeable, values are not
+        for (int s = 0; s < 16; s++) {
+            boolean[] feasible = new boolean[4];
+            for (int mode = 0; mode < 4; mode++) {
+                if (mode == DLEX) {
+                    continue;
+                }
+                Solver solver = new Solver();
+                IntVar[] x = VariableFactory.enumeratedArray("X", 4, 0, 4, solver);
+                solver.post(ICF.alldifferent(x, "BC"));
+                solver.post(ICF.sum(x, VariableFactory.fixed(s, solver)));
+                solver.post(ICF.arithm(x[0], "!=", 2));
+                solver.post(ICF.arithm(x[1], "!=", 2));
+                solver.post(ICF.arithm(x[2], "!=", 2));
+                solver.post(ICF.arithm(x[3], "!=", 2));
+                if (mode == LEX) {
+                    solver.post(SymmetryFactory.lex_leader(SymmetryFactory.variable_interchangeability(x)));
+                } else if (mode == SBDS) {
+                    SymmetryFactory.sbds(solver, SymmetryFactory.variable_interchangeability(x));
+                }
+                solver.set(ISF.inputOrder_InDomainMax(x));
+                solver.findAllSolutions();
+                feasible[mode] = solver.getMeasures().getSolutionCount() > 0;
+            }
+            Assert.assertEquals(feasible[LEX], feasible[NONE], "sum = " + s);
+            Assert.assertEquals(feasible[SBDS], feasible[NONE], "sum = " + s);
+        }
+    }
+
+    @Test(groups = "1s", expectedExceptions = SolverException.class)
+    public void testNotAPermutation() {
+        Solver solver = new Solver();
+        IntVar[] x = VariableFactory.enumeratedArray("X", 3, 0, 2, solver);
+        new Symmetry(x, new int[]{0, 0, 1}, 0, null);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.explanations.strategies;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import solver.ProblemMaker;
+import solver.ResolutionPolicy;
+import solver.Solver;
+import solver.constraints.ICF;
+import solver.explanations.ExplanationFactory;
+import solver.search.strategy.ISF;
+import solver.variables.IntVar;
+import solver.variables.VariableFactory;
+import util.ESat;
+
+import java.util.Random;
+
+/**
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class LazyClauseGenerationTest {
+
+    @Test(groups = "1s")
+    public void testQueens() {
+        for (int n = 4; n < 9; n++) {
+            Solver ref = new Solver();
+            ProblemMaker.queens(ref, n);
+            ref.findAllSolutions();
+
+            Solver solver = new Solver();
+            IntVar[] vars = ProblemMaker.queens(solver, n);
+            LazyClauseGeneration lcg = ExplanationFactory.lcg(solver);
+            solver.set(ISF.inputOrder_InDomainMin(vars));
+            solver.findAllSolutions();
+            Assert.assertEquals(solver.getMeasures().getSolutionCount(), ref.getMeasures().getSolutionCount());
+            Assert.assertTrue(lcg.getNbLearnt() > 0);
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testPigeons() {
+        for (boolean bounded : new boolean[]{false, true}) {
+            Solver ref = new Solver();
+            IntVar[] vars = ProblemMaker.pigeons(ref, 7, 6, bounded);
+            ref.set(ISF.inputOrder_InDomainMin(vars));
+            Assert.assertFalse(ref.findSolution());
+
+            Solver solver = new Solver();
+            vars = ProblemMaker.pigeons(solver, 7, 6, bounded);
+            LazyClauseGeneration lcg = ExplanationFactory.lcg(solver);
+            solver.set(ISF.inputOrder_InDomainMin(vars));
+            Assert.assertFalse(solver.findSolution());
+            Assert.assertTrue(lcg.getNbLearnt() > 0);
+            Assert.assertTrue(solver.getMeasures().getNodeCount() < ref.getMeasures().getNodeCount());
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testRandom() {
+        Random rnd = new Random(0);
+        for (int seed = 0; seed < 20; seed++) {
+            int n = 6 + rnd.nextInt(4);
+            int[] counts = new int[2];
+            for (int t = 0; t < 2; t++) {
+                Random r = new Random(seed);
+                Solver solver = new Solver();
+                IntVar[] vars = new IntVar[n];
+                for (int i = 0; i < n; i++) {
+                    vars[i] = r.nextBoolean() ? VariableFactory.enumerated("X" + i, 0, n, solver)
+                            : VariableFactory.bounded("X" + i, 0, n, solver);
+                }
+                for (int c = 0; c < n; c++) {
+                    int i = r.nextInt(n), j = r.nextInt(n);
+                    if (i != j) {
+                        solver.post(ICF.arithm(vars[i], r.nextBoolean() ? "!=" : "<=", vars[j], "+", r.nextInt(3) - 1));
+                    }
+                }
+                solver.post(ICF.sum(vars, VariableFactory.fixed(n + r.nextInt(n), solver)));
+                if (t == 1) {
+                    ExplanationFactory.lcg(solver);
+                }
+                solver.set(r.nextBoolean() ? ISF.inputOrder_InDomainMin(vars) : ISF.firstFail_InDomainMax(vars));
+                solver.findAllSolutions();
+                counts[t] = (int) solver.getMeasures().getSolutionCount();
+            }
+            Assert.assertEquals(counts[1], counts[0], "seed " + seed);
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testOptimization() {
+        int[] best = new int[2];
+        for (int t = 0; t < 2; t++) {
+            Solver solver = new Solver();
+            IntVar[] vars = ProblemMaker.queens(solver, 7);
+            IntVar obj = VariableFactory.bounded("obj", 0, 50, solver);
+            solver.post(ICF.scalar(vars, new int[]{1, 2, 3, 4, 5, 6, 7}, obj));
+            if (t == 1) {
+                ExplanationFactory.lcg(solver);
+            }
+            solver.set(ISF.inputOrder_InDomainMin(vars));
+            solver.findOptimalSolution(ResolutionPolicy.MAXIMIZE, obj);
+            best[t] = solver.getSearchLoop().getObjectivemanager().getBestSolutionValue().intValue();
+        }
+        Assert.assertEquals(best[1], best[0]);
+    }
+
+    @Test(groups = "1s")
+    public void testVSIDS() {
+        Solver solver = new Solver();
+        IntVar[] vars = ProblemMaker.queens(solver, 8);
+        LazyClauseGeneration lcg = ExplanationFactory.lcg(solver);
+        solver.set(ISF.vsids_InDomainMin(vars, lcg));
+        solver.findAllSolutions();
+        Assert.assertEquals(solver.getMeasures().getSolutionCount(), 92);
+        Assert.assertTrue(lcg.getNbLearnt() > 0);
+        Assert.assertTrue(lcg.getNogoods().getNbClauses() > 0);
+
+        solver = new Solver();
+        vars = ProblemMaker.pigeons(solver, 6, 5, false);
+        lcg = ExplanationFactory.lcg(solver);
+        solver.set(ISF.vsids_InDomainMin(vars, lcg));
+        Assert.assertFalse(solver.findSolution());
+        Assert.assertEquals(solver.isFeasible(), ESat.FALSE);
+    }
+}
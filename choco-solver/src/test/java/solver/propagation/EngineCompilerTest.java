@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.propagation;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import solver.IncrementalSession;
+import solver.ProblemMaker;
+import solver.Solver;
+import solver.constraints.Constraint;
+import solver.constraints.ICF;
+import solver.propagation.generator.Arc;
+import solver.propagation.generator.CompiledEngine;
+import solver.propagation.generator.EngineCompiler;
+import solver.propagation.generator.IEvaluator;
+import solver.propagation.generator.PropagationStrategy;
+import solver.propagation.generator.Queue;
+import solver.propagation.generator.Sort;
+import solver.propagation.generator.SortDyn;
+import solver.search.loop.monitors.IMonitorSolution;
+import solver.search.strategy.IntStrategyFactory;
+import solver.variables.IntVar;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class EngineCompilerTest {
+
+    private static Solver queens(int n) {
+        Solver solver = new Solver("queens" + n);
+        solver.set(IntStrategyFactory.inputOrder_InDomainMin(ProblemMaker.queensGlobal(solver, n)));
+        return solver;
+    }
+
+    // one queue of arcs per constraint, in a sorted node
+    private static PropagationStrategy<PropagationStrategy<Arc>> perConstraint(Solver solver, int policy) {
+        List<Arc> arcs = Arc.populate(solver);
+        Constraint[] cstrs = solver.getCstrs();
+        PropagationStrategy[] queues = new PropagationStrategy[cstrs.length];
+        for (int c = 0; c < cstrs.length; c++) {
+            List<Arc> mine = new ArrayList<Arc>();
+            for (Arc arc : arcs) {
+                if (arc.prop.getConstraint() == cstrs[c]) {
+                    mine.add(arc);
+                }
+            }
+            queues[c] = c % 2 == 0 ? new Queue<Arc>(mine.toArray(new Arc[mine.size()]))
+                    : new Sort<Arc>(false, false, mine.toArray(new Arc[mine.size()]));
+            if (policy % 2 == 0) {
+                queues[c].pickOne();
+            } else if (c % 4 == 1) {
+                queues[c].sweepUp();
+            } else if (c % 4 == 3) {
+                queues[c].loopOut();
+            }
+        }
+        PropagationStrategy<PropagationStrategy<Arc>> root = new Sort<PropagationStrategy<Arc>>(false, false, queues);
+        return policy < 2 ? root.loopOut() : root.clearOut();
+    }
+
+    private static long[] run(Solver solver) {
+        solver.findAllSolutions();
+        return new long[]{solver.getMeasures().getSolutionCount(), solver.getMeasures().getNodeCount(),
+                solver.getMeasures().getFailCount()};
+    }
+
+    @Test(groups = "1s")
+    public void testQueue() {
+        Solver solver = queens(8);
+        IPropagationEngine engine = PropagationEngineFactory.COMPILED.make(solver);
+        Assert.assertTrue(engine instanceof CompiledEngine);
+        solver.set(engine);
+        Assert.assertEquals(run(solver)[0], 92);
+    }
+
+    @Test(groups = "1s")
+    public void testSameAsInterpreted() {
+        for (int policy = 0; policy < 4; policy++) {
+            Solver interpreted = queens(8);
+            DSLEngine dsl = new DSLEngine(interpreted);
+            PropagationStrategy strategy = perConstraint(interpreted, policy);
+            List<Arc> arcs = Arc.populate(interpreted);
+            for (PropagationStrategy queue : (PropagationStrategy[]) strategy.array()) {
+                for (Object arc : queue.array()) {
+                    dsl.declareArc((Arc) arc);
+                }
+            }
+            Assert.assertFalse(arcs.isEmpty());
+            dsl.set(strategy);
+            interpreted.set(dsl);
+
+            Solver compiled = queens(8);
+            IPropagationEngine engine = EngineCompiler.make(compiled, perConstraint(compiled, policy));
+            Assert.assertTrue(engine instanceof CompiledEngine);
+            compiled.set(engine);
+
+            long[] expected = run(interpreted);
+            Assert.assertEquals(expected[0], 92);
+            Assert.assertEquals(run(compiled), expected, "policy " + policy);
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testCompiledOnce() {
+        Solver s1 = queens(6);
+        Solver s2 = queens(7);
+        IPropagationEngine e1 = EngineCompiler.make(s1, perConstraint(s1, 3));
+        IPropagationEngine e2 = EngineCompiler.make(s2, perConstraint(s2, 3));
+        Assert.assertTrue(e1 instanceof CompiledEngine);
+        Assert.assertNotSame(e1.getClass(), e2.getClass()); // not the same number of constraints
+        Solver s3 = queens(6);
+        IPropagationEngine e3 = EngineCompiler.make(s3, perConstraint(s3, 3));
+        Assert.assertSame(e3.getClass(), e1.getClass());
+        s1.set(e1);
+        s3.set(e3);
+        Assert.assertEquals(run(s1), run(s3));
+    }
+
+    @Test(groups = "1s")
+    public void testFallback() {
+        Solver solver = queens(8);
+        List<Arc> arcs = Arc.populate(solver);
+        for (Arc arc : arcs) {
+            arc.attachEvaluator(new IEvaluator<Arc>() {
+                @Override
+                public int eval(Arc element) {
+                    return element.prop.getPriority().priority;
+                }
+            });
+        }
+        IPropagationEngine engine = EngineCompiler.make(solver, new SortDyn<Arc>(true, arcs.toArray(new Arc[arcs.size()])));
+        Assert.assertTrue(engine instanceof DSLEngine);
+        solver.set(engine);
+        Assert.assertEquals(run(solver)[0], 92);
+    }
+
+    @Test(groups = "1s")
+    public void testDynamicAddition() {
+        // one cut per solution: the first value of Q[0] is forbidden
+        long[] counts = new long[2];
+        for (int k = 0; k < 2; k++) {
+            final Solver solver = queens(8);
+            if (k == 1) {
+                solver.set(PropagationEngineFactory.COMPILED.make(solver));
+            }
+            final IntVar q0 = (IntVar) solver.getVars()[0];
+            solver.getSearchLoop().plugSearchMonitor(new IMonitorSolution() {
+                @Override
+                public void onSolution() {
+                    solver.postCut(ICF.arithm(q0, "!=", q0.getValue()));
+                }
+            });
+            counts[k] = run(solver)[0];
+        }
+        Assert.assertEquals(counts[0], 8);
+        Assert.assertEquals(counts[1], counts[0]);
+    }
+
+    @Test(groups = "1s")
+    public void testDynamicDeletion() {
+        Solver solver = queens(8);
+        solver.set(PropagationEngineFactory.COMPILED.make(solver));
+        IntVar q0 = (IntVar) solver.getVars()[0];
+        IncrementalSession session = new IncrementalSession(solver);
+        session.pushScope();
+        Assert.assertTrue(session.post(ICF.arithm(q0, "=", 1)));
+        Assert.assertEquals(session.findAllSolutions(), 4);
+        session.pushScope();
+        Assert.assertTrue(session.post(ICF.arithm((IntVar) solver.getVars()[1], "=", 5)));
+        Assert.assertEquals(session.findAllSolutions(), 1);
+        session.popScope();
+        session.popScope();
+        Assert.assertEquals(session.findAllSolutions(), 92);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.propagation;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import solver.ProblemMaker;
+import solver.Cause;
+import solver.Solver;
+import solver.constraints.Constraint;
+import solver.constraints.ICF;
+import solver.constraints.Propagator;
+import solver.exception.ContradictionException;
+import solver.exception.SolverException;
+import solver.propagation.hardcoded.PropagatorEngine;
+import solver.propagation.hardcoded.VariableEngine;
+import solver.search.loop.monitors.SMF;
+import solver.variables.IntVar;
+import solver.variables.VF;
+
+/**
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class ProfilingEngineTest {
+
+    private static long nodes(Solver solver) {
+        solver.findAllSolutions();
+        Assert.assertEquals(solver.getMeasures().getSolutionCount(), 92);
+        return solver.getMeasures().getNodeCount();
+    }
+
+    @Test(groups = "1s")
+    public void testSameSearch() {
+        long expected = nodes(ProblemMaker.queens(8));
+        Solver solver = ProblemMaker.queens(8);
+        SMF.profile(solver, 1);
+        Assert.assertEquals(nodes(solver), expected);
+        solver = ProblemMaker.queens(8);
+        solver.set(new PropagatorEngine(solver));
+        SMF.profile(solver, 7);
+        nodes(solver);
+        solver = ProblemMaker.queens(8);
+        solver.set(new VariableEngine(solver));
+        SMF.profile(solver, 7);
+        nodes(solver);
+    }
+
+    @Test(groups = "1s")
+    public void testCounters() {
+        Solver solver = ProblemMaker.queens(8);
+        ProfilingEngine profiler = SMF.profile(solver, 1);
+        nodes(solver);
+        long calls = 0, fails = 0, time = 0;
+        for (Constraint c : solver.getCstrs()) {
+            for (Propagator p : c.getPropagators()) {
+                Assert.assertTrue(profiler.getCalls(p) >= 1);
+                Assert.assertTrue(profiler.getUselessCalls(p) <= profiler.getCalls(p));
+                calls += profiler.getCalls(p);
+                fails += profiler.getFails(p);
+                time += profiler.getTime(p);
+            }
+        }
+        Assert.assertTrue(calls > 0);
+        Assert.assertTrue(time > 0);
+        Assert.assertEquals(fails, solver.getMeasures().getFailCount());
+        String report = profiler.report();
+        Assert.assertTrue(report.contains("Arithmetic"), report);
+        Assert.assertFalse(report.contains("PropNotEqualX_YC"), report);
+    }
+
+    @Test(groups = "1s")
+    public void testEvents() throws ContradictionException {
+        Solver solver = new Solver();
+        IntVar x = VF.enumerated("x", 1, 10, solver);
+        IntVar y = VF.enumerated("y", 1, 10, solver);
+        Constraint lt = ICF.arithm(x, "<", y);
+        solver.post(lt);
+        solver.post(ICF.not_member(x, new int[]{5}));
+        ProfilingEngine profiler = SMF.profile(solver, 1);
+        solver.propagate();
+        // removing 5 from x is not a bound event, x < y is not scheduled on it
+        Assert.assertEquals(profiler.getEvents(lt.getPropagator(0)), 0);
+        x.updateLowerBound(3, Cause.Null);
+        solver.propagate();
+        Assert.assertEquals(profiler.getEvents(lt.getPropagator(0)), 1);
+    }
+
+    @Test(groups = "1s", expectedExceptions = SolverException.class)
+    public void testNotProfilable() {
+        Solver solver = ProblemMaker.queens(4);
+        solver.set(new DSLEngine(solver));
+        SMF.profile(solver, 1);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.propagation.hardcoded.util;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class AId2AbIdTest {
+
+    @Test(groups = "1s")
+    public void testGetOutOfRange() {
+        AId2AbId map = new AId2AbId(3, 5, -1);
+        map.set(3, 0);
+        map.set(5, 2);
+        Assert.assertEquals(map.get(2), -1);
+        Assert.assertEquals(map.get(3), 0);
+        Assert.assertEquals(map.get(4), -1);
+        Assert.assertEquals(map.get(5), 2);
+        Assert.assertEquals(map.get(6), -1);
+        Assert.assertEquals(map.get(100), -1);
+    }
+
+    @Test(groups = "1s")
+    public void testGrow() {
+        AId2AbId map = new AId2AbId(0, 1, -1);
+        map.set(0, 4);
+        map.set(5, 9);
+        Assert.assertEquals(map.get(0), 4);
+        for (int k = 1; k < 5; k++) {
+            Assert.assertEquals(map.get(k), -1);
+        }
+        Assert.assertEquals(map.get(5), 9);
+        Assert.assertEquals(map.get(6), -1);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.search;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import solver.ProblemMaker;
+import solver.ResolutionPolicy;
+import solver.Solver;
+import solver.constraints.ICF;
+import solver.search.loop.monitors.SMF;
+import solver.search.measure.IMeasures;
+import solver.search.measure.LiveMeasures;
+import solver.search.measure.MeasuresSnapshot;
+import solver.variables.IntVar;
+import solver.variables.VF;
+
+import javax.management.MBeanServer;
+import java.lang.management.ManagementFactory;
+
+/**
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class LiveMeasuresTest {
+
+    @Test(groups = "1s")
+    public void testFinalSnapshot() {
+        Solver solver = ProblemMaker.queens(8);
+        LiveMeasures live = SMF.liveMeasures(solver, 10);
+        Assert.assertEquals(live.snapshot().getNodeCount(), 0);
+        solver.findAllSolutions();
+        IMeasures measures = solver.getMeasures();
+        MeasuresSnapshot snapshot = live.snapshot();
+        Assert.assertEquals(snapshot.getSolutionCount(), 92);
+        Assert.assertEquals(snapshot.getNodeCount(), measures.getNodeCount());
+        Assert.assertEquals(snapshot.getFailCount(), measures.getFailCount());
+        Assert.assertEquals(snapshot.getBackTrackCount(), measures.getBackTrackCount());
+        Assert.assertEquals(snapshot.getPropagationsCount(), measures.getPropagationsCount());
+        Assert.assertEquals(snapshot.getMaxDepth(), measures.getMaxDepth());
+        Assert.assertFalse(snapshot.hasObjective());
+        Assert.assertTrue(Double.isNaN(snapshot.getBestBound()));
+    }
+
+    @Test(groups = "1s")
+    public void testBestBound() {
+        Solver solver = new Solver();
+        IntVar x = VF.enumerated("x", 0, 10, solver);
+        IntVar y = VF.enumerated("y", 0, 10, solver);
+        IntVar z = VF.enumerated("z", 0, 20, solver);
+        solver.post(ICF.sum(new IntVar[]{x, y}, z));
+        solver.post(ICF.arithm(x, "<=", 7));
+        LiveMeasures live = SMF.liveMeasures(solver, LiveMeasures.DEFAULT_BATCH);
+        solver.findOptimalSolution(ResolutionPolicy.MAXIMIZE, z);
+        MeasuresSnapshot snapshot = live.snapshot();
+        Assert.assertTrue(snapshot.hasObjective());
+        Assert.assertEquals(snapshot.getBestBound(), 17d);
+        Assert.assertEquals(snapshot.getSolutionCount(), solver.getMeasures().getSolutionCount());
+    }
+
+    @Test(groups = "10s")
+    public void testConcurrentReads() throws InterruptedException {
+        final Solver solver = ProblemMaker.queens(10);
+        final LiveMeasures live = SMF.liveMeasures(solver, 1);
+        final boolean[] monotonic = {true};
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                MeasuresSnapshot previous = live.snapshot();
+                while (!isInterrupted()) {
+                    MeasuresSnapshot current = live.snapshot();
+                    if (current.getNodeCount() < previous.getNodeCount()
+                            || current.getFailCount() < previous.getFailCount()
+                            || current.getSolutionCount() < previous.getSolutionCount()) {
+                        monotonic[0] = false;
+                    }
+                    previous = current;
+                }
+            }
+        };
+        reader.start();
+        solver.findAllSolutions();
+        reader.interrupt();
+        reader.join();
+        Assert.assertTrue(monotonic[0]);
+        Assert.assertEquals(live.snapshot().getSolutionCount(), 724);
+    }
+
+    @Test(groups = "1s")
+    public void testJMX() throws Exception {
+        Solver solver = ProblemMaker.queens(6);
+        LiveMeasures live = SMF.jmx(solver, 100);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Assert.assertTrue(server.isRegistered(live.getObjectName()));
+        solver.findAllSolutions();
+        Assert.assertEquals(server.getAttribute(live.getObjectName(), "SolutionCount"), 4L);
+        Assert.assertEquals(server.getAttribute(live.getObjectName(), "SolverName"), "queens6");
+        Assert.assertEquals(server.getAttribute(live.getObjectName(), "NodeCount"), solver.getMeasures().getNodeCount());
+        Assert.assertEquals(server.getAttribute(live.getObjectName(), "PropagationsCount"), solver.getMeasures().getPropagationsCount());
+        Assert.assertEquals(server.getAttribute(live.getObjectName(), "EventsCount"), solver.getMeasures().getEventsCount());
+        live.unregister();
+        Assert.assertNull(live.getObjectName());
+    }
+}
@@ -32,7 +32,12 @@ import org.testng.annotations.Test;
 import solver.ResolutionPolicy;
 import solver.Solver;
 import solver.constraints.ICF;
+import solver.objective.IntObjectiveManager;
+import solver.objective.ObjectiveStrategy;
+import solver.objective.OptimizationPolicy;
 import solver.search.loop.monitors.IMonitorSolution;
+import solver.search.strategy.ISF;
+import solver.search.strategy.strategy.StrategiesSequencer;
 import solver.variables.BoolVar;
 import solver.variables.IntVar;
 import solver.variables.VF;
@@ -170,4 +175,49 @@ public class ObjectiveTest {
         System.out.println("Minimum2: " + iv + " : " + solver.isEntailed());
     }
 
+    private static IntVar sum(IntVar[] x, Solver solver) {
+        for (int i = 0; i < x.length; i++) {
+            x[i] = VF.enumerated("x" + i, 0, 3 * x.length, solver);
+        }
+        IntVar obj = VF.bounded("obj", 0, 3 * x.length * x.length, solver);
+        solver.post(ICF.alldifferent(x, "BC"));
+        solver.post(ICF.sum(x, obj));
+        return obj;
+    }
+
+    @Test(groups = "1s")
+    public void testProvenBound() {
+        for (OptimizationPolicy policy : OptimizationPolicy.values()) {
+            Solver solver = new Solver();
+            IntVar[] x = new IntVar[6];
+            IntVar obj = sum(x, solver);
+            solver.set(new StrategiesSequencer(new ObjectiveStrategy(obj, policy),
+                    ISF.inputOrder_InDomainMax(x)));
+            solver.findOptimalSolution(ResolutionPolicy.MINIMIZE, obj);
+            IntObjectiveManager om = (IntObjectiveManager) solver.getSearchLoop().getObjectivemanager();
+            Assert.assertEquals(om.getBestSolutionValue().intValue(), 15, policy.toString());
+            if (policy != OptimizationPolicy.TOP_DOWN) {
+                // the failed probes have proven the lower bound
+                Assert.assertEquals(om.getBestLB(), 15, policy.toString());
+            }
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testProvenBoundMax() {
+        for (OptimizationPolicy policy : OptimizationPolicy.values()) {
+            Solver solver = new Solver();
+            IntVar[] x = new IntVar[6];
+            IntVar obj = sum(x, solver);
+            solver.set(new StrategiesSequencer(new ObjectiveStrategy(obj, policy),
+                    ISF.inputOrder_InDomainMin(x)));
+            solver.findOptimalSolution(ResolutionPolicy.MAXIMIZE, obj);
+            IntObjectiveManager om = (IntObjectiveManager) solver.getSearchLoop().getObjectivemanager();
+            Assert.assertEquals(om.getBestSolutionValue().intValue(), 93, policy.toString());
+            if (policy != OptimizationPolicy.BOTTOM_UP) {
+                Assert.assertEquals(om.getBestUB(), 93, policy.toString());
+            }
+        }
+    }
+
 }
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.search;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import solver.ResolutionPolicy;
+import solver.Solver;
+import solver.constraints.ICF;
+import solver.search.loop.monitors.IMonitorSolution;
+import solver.objective.ParetoFront;
+import solver.search.solution.Solution;
+import solver.variables.IntVar;
+import solver.variables.VF;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class ParetoTest {
+
+    private static boolean dominates(int[] p, int[] q) {
+        for (int i = 0; i < p.length; i++) {
+            if (p[i] > q[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Set<String> naive(List<int[]> points) {
+        Set<String> front = new HashSet<String>();
+        for (int[] p : points) {
+            boolean dominated = false;
+            for (int[] q : points) {
+                if (dominates(q, p) && !dominates(p, q)) {
+                    dominated = true;
+                    break;
+                }
+            }
+            if (!dominated) {
+                front.add(toString(p));
+            }
+        }
+        return front;
+    }
+
+    private static String toString(int[] p) {
+        StringBuilder st = new StringBuilder();
+        for (int v : p) {
+            st.append(v).append(',');
+        }
+        return st.toString();
+    }
+
+    @Test(groups = "1s")
+    public void testFront() {
+        Random rnd = new Random();
+        for (int k = 2; k < 5; k++) {
+            for (int t = 0; t < 20; t++) {
+                long seed = rnd.nextLong();
+                rnd.setSeed(seed);
+                ParetoFront<Integer> front = new ParetoFront<Integer>(k);
+                List<int[]> points = new ArrayList<int[]>();
+                for (int i = 0; i < 50; i++) {
+                    int[] p = new int[k];
+                    for (int j = 0; j < k; j++) {
+                        p[j] = rnd.nextInt(20);
+                    }
+                    Assert.assertEquals(front.add(p, i), isNew(points, p), "seed " + seed);
+                    points.add(p);
+                    Set<String> expected = naive(points);
+                    Set<String> actual = new HashSet<String>();
+                    for (int f = 0; f < front.size(); f++) {
+                        int[] q = new int[k];
+                        for (int j = 0; j < k; j++) {
+                            q[j] = front.get(f, j);
+                        }
+                        actual.add(toString(q));
+                    }
+                    Assert.assertTrue(actual.equals(expected), "seed " + seed);
+                    // bound on each objective
+                    int[] lbs = new int[k];
+                    for (int j = 0; j < k; j++) {
+                        lbs[j] = rnd.nextInt(20);
+                    }
+                    for (int j = 0; j < k; j++) {
+                        int b = Integer.MAX_VALUE;
+                        for (int[] q : points) {
+                            q = q.clone();
+                            int v = q[j];
+                            q[j] = lbs[j];
+                            if (dominates(q, lbs)) {
+                                b = Math.min(b, v);
+                            }
+                        }
+                        Assert.assertEquals(front.bound(lbs, j), b, "seed " + seed);
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isNew(List<int[]> points, int[] p) {
+        for (int[] q : points) {
+            if (dominates(q, p)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void model(Solver solver, IntVar[] x, IntVar[] o) {
+        int[][] coefs = {{3, 1, 2, 5}, {1, 4, 2, 1}, {2, 2, 5, 1}};
+        for (int i = 0; i < x.length; i++) {
+            x[i] = VF.enumerated("x" + i, 0, 3, solver);
+        }
+        for (int j = 0; j < o.length; j++) {
+            o[j] = VF.bounded("o" + j, 0, 50, solver);
+            solver.post(ICF.scalar(x, coefs[j], o[j]));
+        }
+        solver.post(ICF.sum(x, ">=", VF.fixed(5, solver)));
+    }
+
+    private void checkSolver(int k, ResolutionPolicy policy) {
+        // all solutions
+        Solver solver = new Solver();
+        IntVar[] x = new IntVar[4];
+        IntVar[] o = new IntVar[k];
+        model(solver, x, o);
+        final List<int[]> points = new ArrayList<int[]>();
+        final IntVar[] fo = o;
+        solver.getSearchLoop().plugSearchMonitor(new IMonitorSolution() {
+            @Override
+            public void onSolution() {
+                int[] p = new int[fo.length];
+                for (int j = 0; j < fo.length; j++) {
+                    p[j] = fo[j].getValue();
+                }
+                points.add(p);
+            }
+        });
+        solver.findAllSolutions();
+        if (policy == ResolutionPolicy.MAXIMIZE) {
+            for (int[] p : points) {
+                for (int j = 0; j < k; j++) {
+                    p[j] = -p[j];
+                }
+            }
+        }
+        Set<String> expected = naive(points);
+        // Pareto front
+        solver = new Solver();
+        model(solver, x, o);
+        List<Solution> front = solver.findParetoFront(policy, o);
+        Set<String> actual = new HashSet<String>();
+        for (Solution s : front) {
+            int[] p = new int[k];
+            for (int j = 0; j < k; j++) {
+                p[j] = s.getIntVal(o[j]) * (policy == ResolutionPolicy.MAXIMIZE ? -1 : 1);
+            }
+            actual.add(toString(p));
+        }
+        Assert.assertTrue(actual.equals(expected), actual + " vs " + expected);
+        Assert.assertEquals(front.size(), expected.size());
+        Assert.assertTrue(solver.getMeasures().getSolutionCount() < points.size());
+    }
+
+    @Test(groups = "1s")
+    public void testSolver() {
+        checkSolver(2, ResolutionPolicy.MINIMIZE);
+        checkSolver(2, ResolutionPolicy.MAXIMIZE);
+        checkSolver(3, ResolutionPolicy.MINIMIZE);
+        checkSolver(3, ResolutionPolicy.MAXIMIZE);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.search;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import solver.ProblemMaker;
+import solver.Solver;
+import solver.search.limits.FailCounter;
+import solver.search.loop.monitors.SMF;
+import solver.search.strategy.ISF;
+import solver.search.strategy.selectors.values.InDomainLast;
+import solver.search.strategy.selectors.values.InDomainMin;
+import solver.search.strategy.selectors.variables.FirstFail;
+import solver.search.strategy.selectors.variables.InputOrder;
+import solver.search.strategy.strategy.Assignment;
+import solver.variables.IntVar;
+import util.ESat;
+
+/**
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class PhaseSavingTest {
+
+    @Test(groups = "1s")
+    public void testSolutionGuided() {
+        Solver solver = new Solver();
+        IntVar[] Q = ProblemMaker.queens(solver, 10);
+        solver.set(ISF.solutionGuided(new InputOrder(Q), new InDomainMin()));
+        Assert.assertTrue(solver.findSolution());
+        int[] values = new int[Q.length];
+        for (int i = 0; i < Q.length; i++) {
+            values[i] = Q[i].getValue();
+        }
+        Assert.assertTrue(solver.getMeasures().getFailCount() > 0);
+        solver.getSearchLoop().reset();
+        Assert.assertTrue(solver.findSolution());
+        // the previous solution is directly reached
+        Assert.assertEquals(solver.getMeasures().getFailCount(), 0);
+        for (int i = 0; i < Q.length; i++) {
+            Assert.assertEquals(Q[i].getValue(), values[i]);
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testPhaseSaving() {
+        Solver solver = new Solver();
+        IntVar[] Q = ProblemMaker.queens(solver, 16);
+        InDomainLast last = new InDomainLast(Q, new InDomainMin(), true);
+        solver.set(new Assignment(new FirstFail(Q), last));
+        SMF.luby(solver, 2, 2, new FailCounter(2), 1000);
+        Assert.assertTrue(solver.findSolution());
+        Assert.assertEquals(solver.isSatisfied(), ESat.TRUE);
+        Assert.assertTrue(solver.getMeasures().getRestartCount() > 0);
+        for (int i = 0; i < Q.length; i++) {
+            Assert.assertTrue(last.hasValue(Q[i]));
+            Assert.assertEquals(last.getValue(Q[i]), Q[i].getValue());
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.search.loop;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import solver.ProblemMaker;
+import solver.ResolutionPolicy;
+import solver.Solver;
+import solver.constraints.ICF;
+import solver.search.loop.monitors.IMonitorDownBranch;
+import solver.search.loop.monitors.IMonitorOpenNode;
+import solver.search.strategy.ISF;
+import solver.variables.IntVar;
+import solver.variables.VariableFactory;
+
+/**
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class RecomputationSearchLoopTest {
+
+    @Test(groups = "1s")
+    public void testQueens() {
+        for (int n = 6; n < 10; n++) {
+            Solver ref = new Solver();
+            ref.set(ISF.inputOrder_InDomainMin(ProblemMaker.queens(ref, n)));
+            ref.findAllSolutions();
+            for (int k = 1; k < 6; k += 2) {
+                Solver solver = new Solver();
+                RecomputationSearchLoop loop = new RecomputationSearchLoop(solver, k);
+                solver.set(loop);
+                solver.set(ISF.inputOrder_InDomainMin(ProblemMaker.queens(solver, n)));
+                solver.findAllSolutions();
+                Assert.assertEquals(solver.getMeasures().getSolutionCount(), ref.getMeasures().getSolutionCount());
+                Assert.assertEquals(solver.getMeasures().getNodeCount(), ref.getMeasures().getNodeCount());
+                Assert.assertEquals(solver.getMeasures().getFailCount(), ref.getMeasures().getFailCount());
+                Assert.assertEquals(loop.getNbRecomputations() > 0, k > 1);
+            }
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testRecomputeOnRightBranchOnly() {
+        Solver solver = new Solver();
+        RecomputationSearchLoop loop = new RecomputationSearchLoop(solver, 4);
+        solver.set(loop);
+        solver.set(ISF.inputOrder_InDomainMin(ProblemMaker.queens(solver, 8)));
+        final int[] rights = new int[1];
+        solver.getSearchLoop().plugSearchMonitor(new IMonitorDownBranch() {
+            @Override
+            public void beforeDownLeftBranch() {
+            }
+
+            @Override
+            public void afterDownLeftBranch() {
+            }
+
+            @Override
+            public void beforeDownRightBranch() {
+                rights[0]++;
+            }
+
+            @Override
+            public void afterDownRightBranch() {
+            }
+        });
+        solver.findAllSolutions();
+        Assert.assertEquals(solver.getMeasures().getSolutionCount(), 92);
+        Assert.assertTrue(loop.getNbRecomputations() > 0);
+        // leaving a refuted decision does not rebuild the state of its parent
+        Assert.assertTrue(loop.getNbRecomputations() <= rights[0], loop.getNbRecomputations() + " vs. " + rights[0]);
+    }
+
+    @Test(groups = "1s")
+    public void testOptimization() {
+        int[] coeffs = {7, 3, 9, 1, 4, 8, 2, 6, 5};
+        Solver ref = new Solver();
+        IntVar[] vars = ProblemMaker.queens(ref, 9);
+        IntVar obj = VariableFactory.bounded("obj", 0, 500, ref);
+        ref.post(ICF.scalar(vars, coeffs, obj));
+        ref.set(ISF.inputOrder_InDomainMin(vars));
+        ref.findOptimalSolution(ResolutionPolicy.MAXIMIZE, obj);
+        for (int k = 2; k < 6; k++) {
+            Solver solver = new Solver();
+            solver.set(new RecomputationSearchLoop(solver, k));
+            vars = ProblemMaker.queens(solver, 9);
+            obj = VariableFactory.bounded("obj", 0, 500, solver);
+            solver.post(ICF.scalar(vars, coeffs, obj));
+            solver.set(ISF.inputOrder_InDomainMin(vars));
+            solver.findOptimalSolution(ResolutionPolicy.MAXIMIZE, obj);
+            Assert.assertEquals(solver.getSearchLoop().getObjectivemanager().getBestSolutionValue(),
+                    ref.getSearchLoop().getObjectivemanager().getBestSolutionValue());
+            Assert.assertEquals(solver.getMeasures().getSolutionCount(), ref.getMeasures().getSolutionCount());
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testWorlds() {
+        Solver ref = new Solver();
+        int dref = deepest(ref);
+        Solver solver = new Solver();
+        solver.set(new RecomputationSearchLoop(solver, 10));
+        int d = deepest(solver);
+        Assert.assertTrue(d * 5 < dref, d + " vs. " + dref);
+    }
+
+    private static int deepest(Solver solver) {
+        IntVar[] vars = VariableFactory.enumeratedArray("X", 200, 0, 3, solver);
+        for (int i = 0; i < vars.length - 1; i++) {
+            solver.post(ICF.arithm(vars[i], "!=", vars[i + 1]));
+        }
+        final int[] max = new int[1];
+        final Solver s = solver;
+        solver.getSearchLoop().plugSearchMonitor(new IMonitorOpenNode() {
+            @Override
+            public void beforeOpenNode() {
+                max[0] = Math.max(max[0], s.getEnvironment().getWorldIndex());
+            }
+
+            @Override
+            public void afterOpenNode() {
+            }
+        });
+        solver.set(ISF.inputOrder_InDomainMin(vars));
+        Assert.assertTrue(solver.findSolution());
+        return max[0];
+    }
+
+    @Test(groups = "1s")
+    public void testAdaptive() {
+        Solver ref = new Solver();
+        ref.set(ISF.inputOrder_InDomainMin(ProblemMaker.queens(ref, 10)));
+        ref.findAllSolutions();
+        Solver solver = new Solver();
+        RecomputationSearchLoop loop = new RecomputationSearchLoop(solver, 1, 16, 0.5);
+        solver.set(loop);
+        solver.set(ISF.inputOrder_InDomainMin(ProblemMaker.queens(solver, 10)));
+        solver.findAllSolutions();
+        Assert.assertEquals(solver.getMeasures().getSolutionCount(), 724);
+        Assert.assertEquals(solver.getMeasures().getNodeCount(), ref.getMeasures().getNodeCount());
+        Assert.assertTrue(loop.getK() >= 1 && loop.getK() <= 16);
+    }
+}
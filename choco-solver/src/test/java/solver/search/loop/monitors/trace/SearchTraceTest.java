@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.search.loop.monitors.trace;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import solver.ProblemMaker;
+import solver.Solver;
+import solver.exception.SolverException;
+import solver.search.loop.monitors.IMonitorDownBranch;
+import solver.search.loop.monitors.SMF;
+import solver.variables.IntVar;
+import solver.variables.VariableFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class SearchTraceTest {
+
+    private static String read(File file) throws IOException {
+        StringBuilder st = new StringBuilder();
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                st.append(line).append('\n');
+            }
+        } finally {
+            reader.close();
+        }
+        return st.toString();
+    }
+
+    @Test(groups = "1s")
+    public void testCounts() throws IOException {
+        File file = File.createTempFile("queens", ".trace");
+        file.deleteOnExit();
+        Solver solver = new Solver();
+        ProblemMaker.queens(solver, 8);
+        // a small ring buffer to exercise the back pressure
+        new SearchTrace(solver, file, 64);
+        final long[] branches = new long[1];
+        solver.getSearchLoop().plugSearchMonitor(new IMonitorDownBranch() {
+            @Override
+            public void beforeDownLeftBranch() {
+            }
+
+            @Override
+            public void afterDownLeftBranch() {
+                branches[0]++;
+            }
+
+            @Override
+            public void beforeDownRightBranch() {
+            }
+
+            @Override
+            public void afterDownRightBranch() {
+                branches[0]++;
+            }
+        });
+        solver.findAllSolutions();
+
+        TraceReader reader = new TraceReader(file);
+        int roots = 0, nodes = 0, fails = 0, sols = 0;
+        long last = 0;
+        for (int type = reader.next(); type != TraceFormat.END; type = reader.next()) {
+            switch (type) {
+                case TraceFormat.ROOT:
+                    roots++;
+                    break;
+                case TraceFormat.FAIL:
+                    fails++;
+                case TraceFormat.TRY:
+                    nodes++;
+                    Assert.assertEquals(reader.getNode(), last + 1);
+                    Assert.assertTrue(reader.getParent() < reader.getNode());
+                    Assert.assertTrue(reader.getVariableName().startsWith("Q["));
+                    Assert.assertTrue(reader.getValue() >= 1 && reader.getValue() <= 8);
+                    last = reader.getNode();
+                    break;
+                case TraceFormat.SUCC:
+                    sols++;
+                    break;
+            }
+        }
+        Assert.assertEquals(roots, 1);
+        Assert.assertEquals(sols, 92);
+        Assert.assertEquals(nodes, branches[0]);
+        Assert.assertTrue(fails > 0 && fails <= solver.getMeasures().getFailCount());
+    }
+
+    @Test(groups = "1s")
+    public void testSnapshots() throws IOException {
+        File file = File.createTempFile("queens", ".trace");
+        file.deleteOnExit();
+        Solver solver = new Solver();
+        IntVar[] vars = ProblemMaker.queens(solver, 6);
+        IntVar x = VariableFactory.enumerated("x", new int[]{-100000, -3, 0, 7, 1 << 20}, solver);
+        IntVar y = VariableFactory.bounded("y", -5, 5, solver);
+        SearchTrace trace = SMF.trace(solver, file);
+        trace.snapshot(x, y);
+        trace.snapshotOnSolution(vars);
+        solver.findSolution();
+        trace.close();
+        trace.close();
+
+        TraceReader reader = new TraceReader(file);
+        Assert.assertEquals(reader.next(), TraceFormat.DOMAINS);
+        Assert.assertEquals(reader.getNbVariables(), 2);
+        Assert.assertEquals(reader.getName(reader.getSnapshotVariable(0)), "x");
+        Assert.assertEquals(reader.getSnapshotSize(0), 5);
+        Assert.assertEquals(reader.getSnapshotValues(0), new int[]{-100000, -3, 0, 7, 1 << 20});
+        Assert.assertEquals(reader.getSnapshotLB(1), -5);
+        Assert.assertEquals(reader.getSnapshotUB(1), 5);
+        Assert.assertNull(reader.getSnapshotValues(1));
+        int type;
+        do {
+            type = reader.next();
+        } while (type != TraceFormat.DOMAINS && type != TraceFormat.END);
+        Assert.assertEquals(type, TraceFormat.DOMAINS);
+        Assert.assertEquals(reader.getNbVariables(), 6);
+        for (int i = 0; i < 6; i++) {
+            Assert.assertEquals(reader.getSnapshotLB(i), vars[i].getValue());
+            Assert.assertEquals(reader.getSnapshotUB(i), vars[i].getValue());
+        }
+        Assert.assertEquals(reader.next(), TraceFormat.END);
+    }
+
+    @Test(groups = "1s")
+    public void testConverter() throws IOException {
+        File file = File.createTempFile("queens", ".trace");
+        file.deleteOnExit();
+        Solver solver = new Solver();
+        IntVar[] vars = ProblemMaker.queens(solver, 5);
+        SMF.trace(solver, file).snapshotOnSolution(vars);
+        solver.findAllSolutions();
+
+        File dir = new File(file.getParentFile(), file.getName() + ".cpviz");
+        TraceConverter.toCPViz(file, dir, "queens");
+        String tree = read(new File(dir, "tree.xml"));
+        String viz = read(new File(dir, "visualization.xml"));
+        String conf = read(new File(dir, "configuration.xml"));
+        for (File f : dir.listFiles()) {
+            Assert.assertTrue(f.delete());
+        }
+        Assert.assertTrue(dir.delete());
+        Assert.assertTrue(tree.startsWith("<?xml"));
+        Assert.assertTrue(tree.contains("<root id=\"0\" />"));
+        Assert.assertTrue(tree.contains("<try id=\"1\" parent=\"0\" name=\"Q["));
+        Assert.assertTrue(tree.contains("<fail id="));
+        Assert.assertTrue(tree.trim().endsWith("</tree>"));
+        Assert.assertEquals(tree.split("<succ ").length - 1, 10);
+        Assert.assertEquals(viz.split("<state ").length - 1, 10);
+        Assert.assertTrue(viz.contains("<integer index=\"5\" value=\""));
+        Assert.assertTrue(conf.contains("fileroot=\"tree-queens\""));
+        Assert.assertTrue(conf.contains("fileroot=\"visualization-queens\""));
+    }
+
+    @Test(groups = "1s", expectedExceptions = SolverException.class)
+    public void testNotATrace() throws IOException {
+        File file = File.createTempFile("queens", ".trace");
+        file.deleteOnExit();
+        FileWriter writer = new FileWriter(file);
+        writer.write("<tree version=\"1.0\" >");
+        writer.close();
+        new TraceReader(file);
+    }
+}
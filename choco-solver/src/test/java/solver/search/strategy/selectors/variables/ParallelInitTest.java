@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.search.strategy.selectors.variables;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import solver.ProblemMaker;
+import solver.Solver;
+import solver.constraints.ICF;
+import solver.variables.IntVar;
+import util.ESat;
+
+import java.util.Arrays;
+
+/**
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class ParallelInitTest {
+
+    @Test(groups = "1s")
+    public void testImpactsAsSequential() {
+        ImpactBased[] ibs = new ImpactBased[2];
+        for (int t = 0; t < 2; t++) {
+            Solver solver = new Solver();
+            IntVar[] vars = ProblemMaker.chain(solver, 12);
+            ibs[t] = new ImpactBased(vars, 2, 3, 0, 0, true);
+            ibs[t].setInitThreads(t == 0 ? 1 : 3);
+            solver.set(ibs[t]);
+            Assert.assertTrue(solver.findSolution());
+        }
+        for (int i = 0; i < ibs[0].vars.length; i++) {
+            Assert.assertEquals(ibs[1].offsets[i], ibs[0].offsets[i]);
+            Assert.assertTrue(Arrays.equals(ibs[1].Ilabel[i], ibs[0].Ilabel[i]));
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testImpactsWithRemovals() {
+        Solver solver = new Solver();
+        IntVar[] vars = ProblemMaker.queens(solver, 6);
+        solver.post(ICF.arithm(vars[0], "=", 2));
+        ImpactBased ib = new ImpactBased(vars, 2, 3, 0, 0, true);
+        ib.setInitThreads(4);
+        solver.set(ib);
+        solver.findAllSolutions();
+        Assert.assertEquals(solver.getMeasures().getSolutionCount(), 1);
+
+        solver = new Solver();
+        vars = ProblemMaker.queens(solver, 8);
+        ib = new ImpactBased(vars, 2, 3, 0, 0, true);
+        ib.setInitThreads(4);
+        solver.set(ib);
+        solver.findAllSolutions();
+        Assert.assertEquals(solver.getMeasures().getSolutionCount(), 92);
+    }
+
+    @Test(groups = "1s")
+    public void testImpactsNoSolution() {
+        Solver solver = new Solver();
+        IntVar[] vars = ProblemMaker.queens(solver, 3);
+        ImpactBased ib = new ImpactBased(vars, 2, 3, 0, 0, true);
+        ib.setInitThreads(2);
+        solver.set(ib);
+        Assert.assertFalse(solver.findSolution());
+        Assert.assertEquals(solver.getMeasures().getNodeCount(), 0);
+    }
+
+    @Test(groups = "1s")
+    public void testActivitiesMerged() {
+        Solver solver = new Solver();
+        IntVar[] vars = ProblemMaker.chain(solver, 10);
+        solver.post(ICF.arithm(vars[9], "<", vars[0], "+", 11));
+        ActivityBased ab = new ActivityBased(solver, vars, 0.999d, 0.2d, 8, 1.1d, 1, 0);
+        ab.setInitThreads(3);
+        solver.set(ab);
+        Assert.assertTrue(solver.findSolution());
+        Assert.assertTrue(ab.nb_probes >= 3 * ActivityBased.PROBES_PER_ROUND);
+        Assert.assertEquals(ab.nb_probes % (3 * ActivityBased.PROBES_PER_ROUND), 0);
+        for (int i = 0; i < vars.length; i++) {
+            Assert.assertTrue(ab.sA[i] >= 0);
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testActivitiesSolution() {
+        for (int t = 1; t < 4; t += 2) {
+            Solver solver = new Solver();
+            IntVar[] vars = ProblemMaker.queens(solver, 10);
+            ActivityBased ab = new ActivityBased(solver, vars, 0.999d, 0.2d, 8, 1.1d, 1, 0);
+            ab.setInitThreads(t);
+            solver.set(ab);
+            Assert.assertTrue(solver.findSolution());
+            Assert.assertEquals(solver.isSatisfied(), ESat.TRUE);
+        }
+    }
+}
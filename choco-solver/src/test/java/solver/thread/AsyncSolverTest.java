@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.thread;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import solver.ProblemMaker;
+import solver.ResolutionPolicy;
+import solver.Solver;
+import solver.constraints.ICF;
+import solver.search.solution.Solution;
+import solver.search.strategy.IntStrategyFactory;
+import solver.variables.IntVar;
+import solver.variables.VariableFactory;
+import util.ESat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class AsyncSolverTest {
+
+    /**
+     * n pigeons, m holes, pairwise different: n! solutions when m = n, none (but a huge tree) when m < n.
+     */
+    private static Solver pigeons(int n, int m) {
+        Solver solver = new Solver();
+        solver.set(IntStrategyFactory.inputOrder_InDomainMin(ProblemMaker.pigeons(solver, n, m, false)));
+        return solver;
+    }
+
+    private static Solver minSum(IntVar[] objective) {
+        Solver solver = new Solver();
+        IntVar[] vars = VariableFactory.enumeratedArray("x", 6, 0, 9, solver);
+        objective[0] = VariableFactory.bounded("s", 0, 54, solver);
+        solver.post(ICF.alldifferent(vars, "BC"));
+        solver.post(ICF.sum(vars, objective[0]));
+        solver.set(IntStrategyFactory.inputOrder_InDomainMax(vars));
+        return solver;
+    }
+
+    @Test(groups = "1s")
+    public void testConcurrentSolves() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            AsyncSolver async = new AsyncSolver(executor);
+            List<SolveFuture> futures = new ArrayList<SolveFuture>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(async.findAllSolutions(pigeons(3 + i % 4, 3 + i % 4), new CancelToken()));
+            }
+            long[] expected = {6, 24, 120, 720};
+            for (int i = 0; i < 16; i++) {
+                SolveResult result = futures.get(i).get(10, TimeUnit.SECONDS);
+                Assert.assertEquals(result.getStatus(), SolveResult.Status.COMPLETE);
+                Assert.assertEquals(result.isFeasible(), ESat.TRUE);
+                Assert.assertEquals(result.getSolutionCount(), expected[i % 4]);
+            }
+            SolveResult unsat = async.findSolution(pigeons(4, 3), new CancelToken()).get(10, TimeUnit.SECONDS);
+            Assert.assertEquals(unsat.getStatus(), SolveResult.Status.COMPLETE);
+            Assert.assertEquals(unsat.isFeasible(), ESat.FALSE);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testCancel() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AsyncSolver async = new AsyncSolver(executor);
+            CancelToken token = new CancelToken();
+            SolveFuture future = async.findSolution(pigeons(14, 13), token);
+            Thread.sleep(100);
+            Assert.assertFalse(future.isDone());
+            Assert.assertTrue(token.cancel());
+            Assert.assertFalse(token.cancel());
+            SolveResult result = future.get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(result.getStatus(), SolveResult.Status.CANCELLED);
+            Assert.assertEquals(result.isFeasible(), ESat.UNDEFINED);
+            Assert.assertTrue(result.getNodeCount() > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testDeadline() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            AsyncSolver async = new AsyncSolver(executor);
+            SolveFuture f1 = async.findSolution(pigeons(14, 13), new CancelToken(50, TimeUnit.MILLISECONDS));
+            SolveFuture f2 = async.findSolution(pigeons(14, 13), new CancelToken(150, TimeUnit.MILLISECONDS));
+            SolveResult r1 = f1.get(5, TimeUnit.SECONDS);
+            SolveResult r2 = f2.get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(r1.getStatus(), SolveResult.Status.EXPIRED);
+            Assert.assertEquals(r2.getStatus(), SolveResult.Status.EXPIRED);
+            Assert.assertTrue(r1.getTimeCount() < r2.getTimeCount());
+            Assert.assertFalse(f1.getToken().isCancelled());
+            Assert.assertTrue(f1.getToken().hasExpired());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testStoppedBeforeStart() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AsyncSolver async = new AsyncSolver(executor, 2);
+            CancelToken token = new CancelToken();
+            token.cancel();
+            SolveFuture future = async.findAllSolutions(pigeons(5, 5), token);
+            SolveResult result = future.get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(result.getStatus(), SolveResult.Status.CANCELLED);
+            Assert.assertEquals(result.getNodeCount(), 0);
+            Assert.assertNull(future.getSolutions().take());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testSolutionStream() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AsyncSolver async = new AsyncSolver(executor, 1);
+            IntVar[] objective = new IntVar[1];
+            Solver solver = minSum(objective);
+            SolveFuture future = async.findOptimalSolution(solver, new CancelToken(), ResolutionPolicy.MINIMIZE, objective[0]);
+            SolutionStream stream = future.getSolutions();
+            List<Integer> values = new ArrayList<Integer>();
+            Solution solution;
+            while ((solution = stream.take()) != null) {
+                values.add(solution.getIntVal(objective[0]));
+                Thread.sleep(1); // slow consumer: the search waits for it
+            }
+            Assert.assertTrue(stream.isOver());
+            Assert.assertNull(stream.take());
+            SolveResult result = future.get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(result.getStatus(), SolveResult.Status.COMPLETE);
+            Assert.assertEquals(result.getSolutionCount(), values.size());
+            Assert.assertTrue(values.size() > 1);
+            for (int i = 1; i < values.size(); i++) {
+                Assert.assertTrue(values.get(i) < values.get(i - 1));
+            }
+            Assert.assertEquals(values.get(values.size() - 1).intValue(), 15);
+            Assert.assertEquals(result.getBestSolutionValue().intValue(), 15);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testCancelBlockedStream() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AsyncSolver async = new AsyncSolver(executor, 2);
+            SolveFuture future = async.findAllSolutions(pigeons(8, 8), new CancelToken());
+            SolutionStream stream = future.getSolutions();
+            Assert.assertNotNull(stream.take());
+            Thread.sleep(50); // the search is now blocked on a full stream
+            Assert.assertFalse(future.isDone());
+            future.getToken().cancel();
+            SolveResult result = future.get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(result.getStatus(), SolveResult.Status.CANCELLED);
+            Assert.assertTrue(result.getSolutionCount() < 8);
+            int n = 0;
+            while (stream.take() != null) {
+                n++;
+            }
+            Assert.assertEquals(n, 2);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testFutureCancel() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AsyncSolver async = new AsyncSolver(executor, 4);
+            Solver solver = pigeons(14, 13);
+            SolveFuture future = async.findSolution(solver, new CancelToken());
+            Thread.sleep(50);
+            Assert.assertTrue(future.cancel(true));
+            Assert.assertTrue(future.getToken().isCancelled());
+            Assert.assertNull(future.getSolutions().take());
+            SolveResult result = future.get();
+            Assert.assertEquals(result.getStatus(), SolveResult.Status.CANCELLED);
+            Assert.assertFalse(future.isCancelled());
+            Assert.assertFalse(future.cancel(true));
+            // the monitors of the resolution are unplugged
+            Assert.assertFalse(solver.getSearchLoop().smList.contains(future.getSolutions()));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.variables;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import solver.Cause;
+import solver.Solver;
+import solver.constraints.ICF;
+import solver.exception.ContradictionException;
+import solver.search.strategy.ISF;
+import solver.variables.view.AffineView;
+import solver.variables.view.MinusView;
+import solver.variables.view.OffsetView;
+import solver.variables.view.ScaleView;
+import util.iterators.DisposableRangeIterator;
+import util.iterators.DisposableValueIterator;
+
+import java.util.Random;
+
+/**
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class AffineViewTest {
+
+    @Test(groups = "1s")
+    public void testFolding() {
+        Solver solver = new Solver();
+        IntVar x = VF.enumerated("x", 0, 5, solver);
+        IntVar y = VF.offset(VF.scale(VF.minus(VF.offset(x, 2)), 3), 5); // -3x - 1
+        Assert.assertTrue(y instanceof AffineView);
+        Assert.assertSame(((AffineView) y).getVariable(), x);
+        Assert.assertEquals(((AffineView) y).a, -3);
+        Assert.assertEquals(((AffineView) y).b, -1);
+        Assert.assertEquals(y.getLB(), -16);
+        Assert.assertEquals(y.getUB(), -1);
+        Assert.assertSame(VF.minus(VF.minus(x)), x);
+        Assert.assertSame(VF.offset(VF.offset(x, 4), -4), x);
+        IntVar s = VF.scale(VF.scale(x, 2), 3);
+        Assert.assertTrue(s instanceof ScaleView);
+        Assert.assertEquals(((ScaleView) s).cste, 6);
+        Assert.assertSame(((ScaleView) s).getVariable(), x);
+        IntVar o = VF.offset(VF.offset(x, 1), 2);
+        Assert.assertTrue(o instanceof OffsetView);
+        Assert.assertEquals(((OffsetView) o).cste, 3);
+        Assert.assertSame(((OffsetView) o).getVariable(), x);
+    }
+
+    @Test(groups = "1s")
+    public void testMinusMinus() throws ContradictionException {
+        Solver solver = new Solver();
+        IntVar x = VF.enumerated("x", -3, 7, solver);
+        IntVar m = VF.minus(x);
+        Assert.assertTrue(m instanceof MinusView);
+        Assert.assertSame(VF.minus(m), x);
+        Assert.assertSame(VF.scale(m, -1), x);
+        Assert.assertSame(VF.minus(VF.minus(VF.minus(m))), x);
+        m.updateUpperBound(2, Cause.Null);
+        Assert.assertEquals(x.getLB(), -2);
+    }
+
+    @Test(groups = "1s")
+    public void testScaleNegative() throws ContradictionException {
+        Solver solver = new Solver();
+        IntVar x = VF.enumerated("x", 0, 4, solver);
+        IntVar y = VF.scale(x, -3); // used to throw a SolverException
+        Assert.assertTrue(y instanceof AffineView);
+        Assert.assertEquals(y.getLB(), -12);
+        Assert.assertEquals(y.getUB(), 0);
+        Assert.assertTrue(y.contains(-9));
+        Assert.assertFalse(y.contains(-8));
+        y.updateLowerBound(-7, Cause.Null);
+        Assert.assertEquals(x.getUB(), 2);
+        Assert.assertEquals(y.getLB(), -6);
+        solver.post(ICF.arithm(y, "!=", -3));
+        solver.set(ISF.inputOrder_InDomainMin(new IntVar[]{x}));
+        Assert.assertEquals(solver.findAllSolutions(), 2);
+    }
+
+    @Test(groups = "1s")
+    public void testIterators() {
+        Solver solver = new Solver();
+        IntVar x = VF.enumerated("x", new int[]{-2, 0, 1, 4}, solver);
+        IntVar y = VF.affine(x, -2, 3); // {7, 3, 1, -5}
+        int[] expected = {-5, 1, 3, 7};
+        DisposableValueIterator vit = y.getValueIterator(true);
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertTrue(vit.hasNext());
+            Assert.assertEquals(vit.next(), expected[i]);
+        }
+        Assert.assertFalse(vit.hasNext());
+        vit.dispose();
+        vit = y.getValueIterator(false);
+        for (int i = expected.length - 1; i >= 0; i--) {
+            Assert.assertTrue(vit.hasPrevious());
+            Assert.assertEquals(vit.previous(), expected[i]);
+        }
+        Assert.assertFalse(vit.hasPrevious());
+        vit.dispose();
+        DisposableRangeIterator rit = y.getRangeIterator(true);
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertTrue(rit.hasNext());
+            Assert.assertEquals(rit.min(), expected[i]);
+            Assert.assertEquals(rit.max(), expected[i]);
+            rit.next();
+        }
+        Assert.assertFalse(rit.hasNext());
+        rit.dispose();
+        // next and previous values
+        Assert.assertEquals(y.nextValue(-6), -5);
+        Assert.assertEquals(y.nextValue(-5), 1);
+        Assert.assertEquals(y.nextValue(2), 3);
+        Assert.assertEquals(y.nextValue(7), Integer.MAX_VALUE);
+        Assert.assertEquals(y.previousValue(7), 3);
+        Assert.assertEquals(y.previousValue(0), -5);
+        Assert.assertEquals(y.previousValue(-5), Integer.MIN_VALUE);
+        Assert.assertTrue(y.contains(1));
+        Assert.assertFalse(y.contains(2));
+        Assert.assertFalse(y.contains(5));
+    }
+
+    @Test(groups = "1s")
+    public void testRandom() {
+        Random rnd = new Random(0);
+        for (int t = 0; t < 500; t++) {
+            int a = rnd.nextInt(9) - 4;
+            if (a == 0) {
+                a = 5;
+            }
+            int b = rnd.nextInt(21) - 10;
+            int lb = rnd.nextInt(10) - 5;
+            int ub = lb + rnd.nextInt(8);
+            int neq = rnd.nextInt(41) - 20;
+            int ylb = rnd.nextInt(41) - 25;
+            int yub = ylb + rnd.nextInt(30);
+            boolean bounded = rnd.nextBoolean();
+            Solver solver = new Solver();
+            IntVar x = bounded ? VF.bounded("x", lb, ub, solver) : VF.enumerated("x", lb, ub, solver);
+            // a * x + b, built as a chain of views
+            IntVar y = VF.offset(VF.offset(VF.scale(x, a), b - 1), 1);
+            solver.post(ICF.arithm(y, ">=", ylb));
+            solver.post(ICF.arithm(y, "<=", yub));
+            if (!bounded) {
+                solver.post(ICF.arithm(y, "!=", neq));
+            }
+            solver.set(ISF.inputOrder_InDomainMax(new IntVar[]{y}));
+            int count = 0;
+            for (int v = lb; v <= ub; v++) {
+                int w = a * v + b;
+                if (w >= ylb && w <= yub && (bounded || w != neq)) {
+                    count++;
+                }
+            }
+            Assert.assertEquals(solver.findAllSolutions(), count, "a=" + a + ", b=" + b);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.variables.fast;
+
+import junit.framework.Assert;
+import org.testng.annotations.Test;
+import solver.Cause;
+import solver.Solver;
+import solver.exception.ContradictionException;
+import solver.variables.IntVar;
+import solver.variables.VariableFactory;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class BitsetArrayIntVarImplTest {
+
+    @Test(groups = "1s")
+    public void testExtremeValues() throws ContradictionException {
+        BitsetArrayIntVarImpl var = new BitsetArrayIntVarImpl("test",
+                new int[]{Integer.MIN_VALUE, -1000000000, 0, 7, Integer.MAX_VALUE}, new Solver());
+        Assert.assertTrue(var.contains(Integer.MIN_VALUE));
+        Assert.assertTrue(var.contains(Integer.MAX_VALUE));
+        Assert.assertFalse(var.contains(1));
+        Assert.assertEquals(0, var.nextValue(-1000000000));
+        Assert.assertEquals(Integer.MAX_VALUE, var.nextValue(7));
+        Assert.assertEquals(-1000000000, var.previousValue(0));
+        Assert.assertEquals(Integer.MIN_VALUE, var.previousValue(-1000000000));
+        Assert.assertTrue(var.removeValue(Integer.MAX_VALUE, Cause.Null));
+        Assert.assertEquals(7, var.getUB());
+        Assert.assertTrue(var.updateLowerBound(-5, Cause.Null));
+        Assert.assertEquals(0, var.getLB());
+        Assert.assertEquals(2, var.getDomainSize());
+        Assert.assertFalse(var.removeValue(3, Cause.Null));
+        var.instantiateTo(7, Cause.Null);
+        Assert.assertTrue(var.instantiated());
+    }
+
+    @Test(groups = "1s")
+    public void testRandomOperations() throws ContradictionException {
+        Random rnd = new Random();
+        for (int seed = 0; seed < 200; seed++) {
+            rnd.setSeed(seed);
+            int n = 1 + rnd.nextInt(300);
+            TreeSet<Integer> ref = new TreeSet<Integer>();
+            while (ref.size() < n) {
+                ref.add(rnd.nextInt(2000000000) - 1000000000);
+            }
+            int[] values = new int[n];
+            int k = 0;
+            for (int v : ref) {
+                values[k++] = v;
+            }
+            Solver solver = new Solver();
+            BitsetArrayIntVarImpl var = new BitsetArrayIntVarImpl("test", values, solver);
+            solver.getEnvironment().worldPush();
+            while (!var.instantiated()) {
+                int v = values[rnd.nextInt(n)];
+                switch (rnd.nextInt(4)) {
+                    case 0:
+                        if (ref.size() == 1) {
+                            break;
+                        }
+                        Assert.assertEquals(ref.remove(v), var.removeValue(v, Cause.Null));
+                        break;
+                    case 1:
+                        if (v > ref.last()) {
+                            break;
+                        }
+                        Assert.assertEquals(v > ref.first(), var.updateLowerBound(v, Cause.Null));
+                        ref = new TreeSet<Integer>(ref.tailSet(v));
+                        break;
+                    case 2:
+                        if (v < ref.first()) {
+                            break;
+                        }
+                        Assert.assertEquals(v < ref.last(), var.updateUpperBound(v, Cause.Null));
+                        ref = new TreeSet<Integer>(ref.headSet(v, true));
+                        break;
+                    default:
+                        int w = v + rnd.nextInt(3) - 1;
+                        Assert.assertEquals(ref.contains(w), var.contains(w));
+                        Integer nx = ref.higher(w);
+                        Assert.assertEquals(nx == null ? Integer.MAX_VALUE : nx, var.nextValue(w));
+                        Integer pv = ref.lower(w);
+                        Assert.assertEquals(pv == null ? Integer.MIN_VALUE : pv, var.previousValue(w));
+                }
+                Assert.assertEquals(ref.size(), var.getDomainSize());
+                Assert.assertEquals(ref.first().intValue(), var.getLB());
+                Assert.assertEquals(ref.last().intValue(), var.getUB());
+            }
+            solver.getEnvironment().worldPop();
+            Assert.assertEquals(n, var.getDomainSize());
+            for (int i = 0; i < n; i++) {
+                Assert.assertTrue(var.contains(values[i]));
+            }
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testSparseEnumerated() {
+        Solver solver = new Solver();
+        int[] values = new int[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i * 1000003;
+        }
+        IntVar var = VariableFactory.enumerated("X", values, solver);
+        Assert.assertTrue(var instanceof BitsetArrayIntVarImpl);
+        Assert.assertEquals(1000, var.getDomainSize());
+        Assert.assertTrue(var.contains(999 * 1000003));
+        Assert.assertFalse(var.contains(1000002));
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 1999-2012, Ecole des Mines de Nantes
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Ecole des Mines de Nantes nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE REGENTS AND CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package solver.variables.graph;
+
+import memory.trailing.EnvironmentTrailing;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import solver.Solver;
+import solver.constraints.set.SCF;
+import solver.search.strategy.SetStrategyFactory;
+import solver.variables.SetVar;
+import solver.variables.VF;
+import util.iterators.DisposableIntIterator;
+import util.objects.setDataStructures.SetType;
+import util.objects.setDataStructures.swapList.Set_Std_Sparse;
+
+/**
+ * <br/>
+ *
+ * @author agent
+ * @since 19/10/26
+ */
+public class StoredSparseSetTest {
+
+    @Test(groups = "1s")
+    public void testShrink() {
+        EnvironmentTrailing environment = new EnvironmentTrailing();
+        Set_Std_Sparse set = new Set_Std_Sparse(environment, 10);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(set.add(i));
+        }
+        Assert.assertFalse(set.add(3));
+        int fp = environment.getWorldIndex();
+        environment.worldPush();
+        Assert.assertTrue(set.remove(3));
+        Assert.assertFalse(set.remove(3));
+        Assert.assertTrue(set.remove(7));
+        environment.worldPush();
+        Assert.assertTrue(set.remove(0));
+        Assert.assertEquals(set.getSize(), 7);
+        Assert.assertFalse(set.contain(0));
+        Assert.assertFalse(set.contain(3));
+        Assert.assertFalse(set.contain(7));
+        environment.worldPop();
+        Assert.assertEquals(set.getSize(), 8);
+        Assert.assertTrue(set.contain(0));
+        Assert.assertFalse(set.contain(3));
+        environment.worldPopUntil(fp);
+        Assert.assertEquals(set.getSize(), 10);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(set.contain(i));
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testGrow() {
+        EnvironmentTrailing environment = new EnvironmentTrailing();
+        Set_Std_Sparse set = new Set_Std_Sparse(environment, 100);
+        Assert.assertTrue(set.isEmpty());
+        environment.worldPush();
+        for (int i = 99; i >= 0; i -= 3) {
+            set.add(i);
+            Assert.assertTrue(set.contain(i));
+            environment.worldPush();
+        }
+        environment.worldPop();
+        for (int i = 0; i <= 99; i += 3) {
+            Assert.assertTrue(set.contain(i));
+            environment.worldPop();
+            Assert.assertFalse(set.contain(i));
+            Assert.assertTrue(set.contain(i + 3) == (i + 3 <= 99));
+        }
+        Assert.assertTrue(set.isEmpty());
+    }
+
+    @Test(groups = "1s")
+    public void testReentrantIteration() {
+        EnvironmentTrailing environment = new EnvironmentTrailing();
+        Set_Std_Sparse set = new Set_Std_Sparse(environment, 20);
+        for (int i = 0; i < 20; i += 2) {
+            set.add(i);
+        }
+        int pairs = 0;
+        for (int i = set.getSize() - 1; i >= 0; i--) {
+            for (int j = set.getSize() - 1; j >= 0; j--) {
+                if (set.get(i) < set.get(j)) {
+                    pairs++;
+                }
+            }
+        }
+        Assert.assertEquals(pairs, 45);
+        // removal of the current element while iterating
+        for (int i = set.getSize() - 1; i >= 0; i--) {
+            if (set.get(i) % 4 == 0) {
+                set.remove(set.get(i));
+            }
+        }
+        Assert.assertEquals(set.getSize(), 5);
+        for (int i = set.getSize() - 1; i >= 0; i--) {
+            Assert.assertEquals(set.get(i) % 4, 2);
+        }
+    }
+
+    @Test(groups = "1s")
+    public void testRemoveDuringIteration() {
+        EnvironmentTrailing environment = new EnvironmentTrailing();
+        Set_Std_Sparse set = new Set_Std_Sparse(environment, 20);
+        for (int i = 0; i < 20; i++) {
+            set.add(i);
+        }
+        // each visited element removes itself or an already visited one: all the elements are visited once
+        boolean[] visited = new boolean[20];
+        int previous = -1;
+        for (int e = set.getFirstElement(); e >= 0; e = set.getNextElement()) {
+            Assert.assertFalse(visited[e]);
+            visited[e] = true;
+            if (e % 3 == 0 && previous >= 0 && set.contain(previous)) {
+                set.remove(previous);
+            } else if (e % 3 == 1) {
+                set.remove(e);
+            }
+            previous = e;
+        }
+        for (int i = 0; i < 20; i++) {
+            Assert.assertTrue(visited[i], "" + i);
+        }
+        // removing unvisited elements: they are not visited
+        set.clear();
+        for (int i = 0; i < 20; i++) {
+            set.add(i);
+        }
+        int nb = 0;
+        for (int e = set.getFirstElement(); e >= 0; e = set.getNextElement()) {
+            nb++;
+            if (e + 10 < 20) {
+                set.remove(e + 10);
+            }
+        }
+        Assert.assertEquals(nb, 10);
+    }
+
+    @Test(groups = "1s")
+    public void testIterator() {
+        EnvironmentTrailing environment = new EnvironmentTrailing();
+        Set_Std_Sparse set = new Set_Std_Sparse(environment, 20);
+        for (int i = 0; i < 20; i += 2) {
+            set.add(i);
+        }
+        // nested traversals, each with its own cursor
+        int pairs = 0;
+        DisposableIntIterator it = set.getIterator();
+        while (it.hasNext()) {
+            int e = it.next();
+            DisposableIntIterator it2 = set.getIterator();
+            Assert.assertNotSame(it2, it);
+            while (it2.hasNext()) {
+                if (e < it2.next()) {
+                    pairs++;
+                }
+            }
+            it2.dispose();
+        }
+        it.dispose();
+        Assert.assertEquals(pairs, 45);
+        // removal of the current element, the others are visited once
+        environment.worldPush();
+        boolean[] visited = new boolean[20];
+        it = set.getIterator();
+        while (it.hasNext()) {
+            int e = it.next();
+            Assert.assertFalse(visited[e]);
+            visited[e] = true;
+            if (e % 4 == 0) {
+                it.remove();
+            }
+        }
+        it.dispose();
+        for (int i = 0; i < 20; i += 2) {
+            Assert.assertTrue(visited[i]);
+            Assert.assertEquals(set.contain(i), i % 4 == 2);
+        }
+        Assert.assertEquals(set.getSize(), 5);
+        environment.worldPop();
+        Assert.assertEquals(set.getSize(), 10);
+        // a disposed iterator is reused
+        Assert.assertSame(set.getIterator(), it);
+    }
+
+    private static long partition(SetType type) {
+        Solver solver = new Solver();
+        SetVar[] sets = new SetVar[3];
+        for (int i = 0; i < 3; i++) {
+            sets[i] = VF.set("s" + i, new int[]{0, 1, 2, 3, 4, 5}, type, new int[0], type, solver);
+        }
+        SetVar universe = VF.set("u", new int[]{0, 1, 2, 3, 4, 5}, type, new int[]{0, 1, 2, 3, 4, 5}, type, solver);
+        solver.post(SCF.partition(sets, universe));
+        solver.post(SCF.notEmpty(sets[0]));
+        solver.set(SetStrategyFactory.setLex(sets));
+        return solver.findAllSolutions();
+    }
+
+    @Test(groups = "1s")
+    public void testSetVar() {
+        Assert.assertEquals(partition(SetType.SPARSE), partition(SetType.BITSET));
+        Assert.assertEquals(partition(SetType.SPARSE), 665);
+    }
+}